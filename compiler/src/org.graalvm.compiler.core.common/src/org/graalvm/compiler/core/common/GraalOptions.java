@@ -84,6 +84,11 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Expert)
     public static final OptionKey<Integer> MaximumEscapeAnalysisArrayLength = new OptionKey<>(32);
 
+    @Option(help = "Maximum length of a virtual array that stays virtual when it is accessed with a non-constant index. " +
+                   "Each such access selects among all elements with conditional moves, after a bounds check guard " +
+                   "unless the index is provably in bounds.", type = OptionType.Expert)
+    public static final OptionKey<Integer> MaximumEscapeAnalysisVariableIndexArrayLength = new OptionKey<>(8);
+
     @Option(help = "", type = OptionType.Debug)
     public static final OptionKey<Boolean> PEAInliningHints = new OptionKey<>(false);
 
@@ -111,6 +116,15 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Debug)
     public static final OptionKey<Boolean> PartialUnroll = new OptionKey<>(true);
 
+    @Option(help = "Hoist range checks out of counted loops into a speculative guard in front of the loop.", type = OptionType.Debug)
+    public static final OptionKey<Boolean> LoopPredication = new OptionKey<>(true);
+
+    @Option(help = "Split counted loops whose safepoint polls were removed into a nest that polls every LoopStripMiningIterations iterations.", type = OptionType.Debug)
+    public static final OptionKey<Boolean> LoopStripMining = new OptionKey<>(false);
+
+    @Option(help = "Number of inner loop iterations between safepoint polls of a strip mined loop.", type = OptionType.Debug)
+    public static final OptionKey<Integer> LoopStripMiningIterations = new OptionKey<>(1000);
+
     @Option(help = "", type = OptionType.Expert)
     public static final OptionKey<Float> MinimumPeelProbability = new OptionKey<>(0.35f);
 
@@ -274,6 +288,9 @@ public final class GraalOptions {
     @Option(help = "Eagerly construct extra snippet info.", type = OptionType.Debug)
     public static final OptionKey<Boolean> EagerSnippets = new OptionKey<>(false);
 
+    @Option(help = "Prepare the snippets of the most common lowerings in a background thread when the compiler starts.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> PrepareSnippetsInBackground = new OptionKey<>(false);
+
     @Option(help = "Use a cache for snippet graphs.", type = OptionType.Debug)
     public static final OptionKey<Boolean> UseSnippetGraphCache = new OptionKey<>(true);
 
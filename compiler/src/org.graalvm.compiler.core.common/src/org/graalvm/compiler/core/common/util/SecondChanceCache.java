@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.common.util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded cache that approximates least recently used eviction with the second chance (clock)
+ * algorithm. Lookups do not take a lock and only set a flag in the entry the first time it is used
+ * after an eviction pass, so concurrent lookups of the same entry do not contend. Insertions are
+ * synchronized. When the cache exceeds its maximum size, entries are visited in insertion order:
+ * used entries and the entry just inserted move to the back and used entries lose their flag. The
+ * first other unused entry is evicted.
+ */
+public final class SecondChanceCache<K, V> {
+
+    private static final class Entry<K, V> {
+        final K key;
+        final V value;
+        volatile boolean used;
+
+        Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Entry<K, V>> entries;
+    /** The entries of {@link #entries} in eviction order. Guarded by {@code this}. */
+    private final ArrayDeque<Entry<K, V>> queue;
+    private final int maxSize;
+
+    public SecondChanceCache(int maxSize) {
+        assert maxSize > 0;
+        this.entries = new ConcurrentHashMap<>(maxSize);
+        this.queue = new ArrayDeque<>(maxSize);
+        this.maxSize = maxSize;
+    }
+
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.used) {
+            entry.used = true;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Adds or replaces the value for {@code key}, evicting other entries if the cache is full.
+     */
+    public synchronized void put(K key, V value) {
+        Entry<K, V> entry = new Entry<>(key, value);
+        Entry<K, V> previous = entries.put(key, entry);
+        if (previous != null) {
+            // replacing is rare, a linear search is fine
+            queue.remove(previous);
+        }
+        queue.add(entry);
+        while (entries.size() > maxSize) {
+            Entry<K, V> eldest = queue.poll();
+            if (eldest.used || eldest == entry) {
+                eldest.used = false;
+                queue.add(eldest);
+            } else {
+                entries.remove(eldest.key, eldest);
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
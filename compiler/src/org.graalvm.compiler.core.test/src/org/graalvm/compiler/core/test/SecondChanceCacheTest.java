@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test;
+
+import org.graalvm.compiler.core.common.util.SecondChanceCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SecondChanceCacheTest {
+    @Test
+    public void testHit() {
+        SecondChanceCache<String, Integer> cache = new SecondChanceCache<>(2);
+        Assert.assertNull(cache.get("a"));
+        cache.put("a", 1);
+        cache.put("b", 2);
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        Assert.assertEquals(Integer.valueOf(2), cache.get("b"));
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testEvictUnused() {
+        SecondChanceCache<String, Integer> cache = new SecondChanceCache<>(3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        cache.get("a");
+        cache.get("c");
+        cache.put("d", 4);
+        Assert.assertEquals(3, cache.size());
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        Assert.assertEquals(Integer.valueOf(3), cache.get("c"));
+        Assert.assertEquals(Integer.valueOf(4), cache.get("d"));
+    }
+
+    @Test
+    public void testEvictAllUsed() {
+        SecondChanceCache<String, Integer> cache = new SecondChanceCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.get("b");
+        // all entries lose their second chance, the oldest one is evicted
+        cache.put("c", 3);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(Integer.valueOf(2), cache.get("b"));
+        Assert.assertEquals(Integer.valueOf(3), cache.get("c"));
+        // b and c are used again, so the next insertion evicts the older one
+        cache.put("d", 4);
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(Integer.valueOf(3), cache.get("c"));
+        Assert.assertEquals(Integer.valueOf(4), cache.get("d"));
+    }
+
+    @Test
+    public void testReplace() {
+        SecondChanceCache<String, Integer> cache = new SecondChanceCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("a", 10);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(Integer.valueOf(10), cache.get("a"));
+        // the replaced entry moved to the back
+        cache.put("c", 3);
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(Integer.valueOf(10), cache.get("a"));
+        Assert.assertEquals(Integer.valueOf(3), cache.get("c"));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        int maxSize = 16;
+        SecondChanceCache<Integer, Integer> cache = new SecondChanceCache<>(maxSize);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    Integer key = i % 64;
+                    Integer value = cache.get(key);
+                    if (value == null) {
+                        cache.put(key, key * 2);
+                    } else {
+                        Assert.assertEquals(key * 2, value.intValue());
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(cache.size() <= maxSize);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test.backend;
+
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.lir.alloc.AdaptiveRegisterAllocationPhase;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Test;
+
+/**
+ * Forces the register allocator for large methods on small methods by lowering
+ * {@link AdaptiveRegisterAllocationPhase.Options#LargeMethodRegisterAllocationThreshold}.
+ */
+public class LargeMethodRegisterAllocationTest extends GraalCompilerTest {
+
+    private OptionValues largeMethodOptions() {
+        return new OptionValues(getInitialOptions(), AdaptiveRegisterAllocationPhase.Options.LargeMethodRegisterAllocationThreshold, 1);
+    }
+
+    public static long sumSnippet(int[] array) {
+        long sum = 0;
+        for (int i = 0; i < array.length; i++) {
+            sum += array[i] * (long) i;
+        }
+        return sum;
+    }
+
+    @Test
+    public void testSum() {
+        test(largeMethodOptions(), "sumSnippet", new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+    }
+
+    public static double mixedSnippet(int a, long b, float c, double d) {
+        double result = 0;
+        for (int i = 0; i < a; i++) {
+            switch (i % 4) {
+                case 0:
+                    result += b * i;
+                    break;
+                case 1:
+                    result -= c / (i + 1);
+                    break;
+                case 2:
+                    result *= d;
+                    break;
+                default:
+                    result += a ^ i;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testMixed() {
+        test(largeMethodOptions(), "mixedSnippet", 17, 3L, 2.5f, 1.25d);
+    }
+
+    public static int exceptionSnippet(Object[] array, int index) {
+        int result = 0;
+        try {
+            result = array[index].hashCode();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            result = -1;
+        } catch (NullPointerException e) {
+            result = -2;
+        }
+        return result + index;
+    }
+
+    @Test
+    public void testException() {
+        Object[] array = new Object[]{"a", null, 42};
+        test(largeMethodOptions(), "exceptionSnippet", array, 0);
+        test(largeMethodOptions(), "exceptionSnippet", array, 1);
+        test(largeMethodOptions(), "exceptionSnippet", array, 5);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertTrue(AdaptiveRegisterAllocationPhase.Options.LargeMethodRegisterAllocationThreshold.getValue(getInitialOptions()) <= 0);
+    }
+}
@@ -32,6 +32,7 @@ import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
 import org.graalvm.compiler.nodes.java.NewArrayNode;
 import org.graalvm.compiler.nodes.java.NewInstanceNode;
 import org.graalvm.compiler.nodes.virtual.CommitAllocationNode;
+import org.graalvm.compiler.options.OptionValues;
 import org.graalvm.compiler.phases.common.CanonicalizerPhase;
 import org.graalvm.compiler.phases.common.DeadCodeEliminationPhase;
 import org.graalvm.compiler.phases.common.inlining.InliningPhase;
@@ -149,10 +150,14 @@ public class EATestBase extends GraalCompilerTest {
         Assert.assertEquals(0, newInstanceCount);
     }
 
-    @SuppressWarnings("try")
     protected void prepareGraph(String snippet, boolean iterativeEscapeAnalysis) {
+        prepareGraph(snippet, iterativeEscapeAnalysis, getInitialOptions());
+    }
+
+    @SuppressWarnings("try")
+    protected void prepareGraph(String snippet, boolean iterativeEscapeAnalysis, OptionValues options) {
         ResolvedJavaMethod method = getResolvedJavaMethod(snippet);
-        DebugContext debug = getDebugContext();
+        DebugContext debug = getDebugContext(options, null, method);
         try (DebugContext.Scope s = debug.scope(getClass(), method, getCodeCache())) {
             graph = parseEager(method, AllowAssumptions.YES, debug);
             context = getDefaultHighTierContext();
@@ -29,6 +29,7 @@ import org.graalvm.compiler.loop.DefaultLoopPolicies;
 import org.graalvm.compiler.loop.phases.LoopFullUnrollPhase;
 import org.graalvm.compiler.loop.phases.LoopPeelingPhase;
 import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FixedGuardNode;
 import org.graalvm.compiler.nodes.ReturnNode;
 import org.graalvm.compiler.nodes.extended.BoxNode;
 import org.graalvm.compiler.nodes.extended.ValueAnchorNode;
@@ -486,4 +487,61 @@ public class EscapeAnalysisTest extends EATestBase {
     public void testDeoptMonitor() {
         test("testDeoptMonitorSnippet", new Object(), 0);
     }
+
+    public static int testVariableIndexLoadSnippet(int a, int b) {
+        int[] array = new int[]{a, b, a + b, a - b};
+        return array[b & 3];
+    }
+
+    @Test
+    public void testVariableIndexLoad() {
+        testEscapeAnalysis("testVariableIndexLoadSnippet", null, false);
+        test("testVariableIndexLoadSnippet", 5, 2);
+        test("testVariableIndexLoadSnippet", 5, 7);
+    }
+
+    public static Object testVariableIndexStoreSnippet(Object a, Object b, int i) {
+        Object[] array = new Object[]{a, b};
+        array[i & 1] = null;
+        return array[0] == null ? array[1] : array[0];
+    }
+
+    @Test
+    public void testVariableIndexStore() {
+        testEscapeAnalysis("testVariableIndexStoreSnippet", null, false);
+        test("testVariableIndexStoreSnippet", "a", "b", 0);
+        test("testVariableIndexStoreSnippet", "a", "b", 1);
+    }
+
+    public static int testVariableIndexOutOfBoundsSnippet(int a, int i) {
+        int[] array = new int[]{a, a + 1};
+        return array[i & 3];
+    }
+
+    @Test
+    public void testVariableIndexOutOfBounds() {
+        // the index may be out of bounds, so the access is guarded by a bounds check
+        testEscapeAnalysis("testVariableIndexOutOfBoundsSnippet", null, false);
+        Assert.assertTrue(graph.getNodes().filter(FixedGuardNode.class).isNotEmpty());
+        test("testVariableIndexOutOfBoundsSnippet", 5, 1);
+        test("testVariableIndexOutOfBoundsSnippet", 5, 3);
+    }
+
+    public static int testVariableIndexLoopSnippet(int a, int n) {
+        int[] array = new int[]{a, a + 1, a + 2};
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            array[i] += i;
+            sum += array[i];
+        }
+        return sum + array[0];
+    }
+
+    @Test
+    public void testVariableIndexLoop() {
+        testEscapeAnalysis("testVariableIndexLoopSnippet", null, false);
+        test("testVariableIndexLoopSnippet", 5, 0);
+        test("testVariableIndexLoopSnippet", 5, 3);
+        test("testVariableIndexLoopSnippet", 5, 4);
+    }
 }
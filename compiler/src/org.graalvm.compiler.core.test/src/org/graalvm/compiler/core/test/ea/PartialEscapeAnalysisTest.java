@@ -30,6 +30,8 @@ import org.junit.Test;
 
 import org.graalvm.compiler.api.directives.GraalDirectives;
 import org.graalvm.compiler.core.test.TypeSystemTest;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.DebugOptions;
 import org.graalvm.compiler.graph.Node;
 import org.graalvm.compiler.nodes.AbstractMergeNode;
 import org.graalvm.compiler.nodes.ReturnNode;
@@ -42,8 +44,10 @@ import org.graalvm.compiler.nodes.java.NewArrayNode;
 import org.graalvm.compiler.nodes.java.NewInstanceNode;
 import org.graalvm.compiler.nodes.java.StoreFieldNode;
 import org.graalvm.compiler.nodes.virtual.CommitAllocationNode;
+import org.graalvm.compiler.options.OptionValues;
 import org.graalvm.compiler.phases.common.CanonicalizerPhase;
 import org.graalvm.compiler.phases.common.DeadCodeEliminationPhase;
+import org.graalvm.compiler.virtual.phases.ea.PartialEscapeClosure;
 
 /**
  * The PartialEscapeAnalysisPhase is expected to remove all allocations and return the correct
@@ -277,6 +281,28 @@ public class PartialEscapeAnalysisTest extends EATestBase {
         assertTrue(executedDeoptimizeDirective);
     }
 
+    private static native void consume(Object o);
+
+    public static void callArgumentSnippet(int x, int y) {
+        consume(new TestObject(x, y));
+    }
+
+    /**
+     * Tests that an allocation passed to a call that cannot be inlined is counted as a
+     * call-argument materialization and not as an unhandled one.
+     */
+    @Test
+    public void testCallArgumentCounter() {
+        OptionValues options = new OptionValues(getInitialOptions(), DebugOptions.Counters, "");
+        DebugContext debug = getDebugContext(options, null, getResolvedJavaMethod("callArgumentSnippet"));
+        long callArgumentBefore = PartialEscapeClosure.COUNTER_MATERIALIZATIONS_CALL_ARGUMENT.getCurrentValue(debug);
+        long unhandledBefore = PartialEscapeClosure.COUNTER_MATERIALIZATIONS_UNHANDLED.getCurrentValue(debug);
+        prepareGraph("callArgumentSnippet", false, options);
+        Assert.assertEquals(1, graph.getNodes().filter(CommitAllocationNode.class).count());
+        Assert.assertEquals(callArgumentBefore + 1, PartialEscapeClosure.COUNTER_MATERIALIZATIONS_CALL_ARGUMENT.getCurrentValue(debug));
+        Assert.assertEquals(unhandledBefore, PartialEscapeClosure.COUNTER_MATERIALIZATIONS_UNHANDLED.getCurrentValue(debug));
+    }
+
     @SafeVarargs
     protected final void testPartialEscapeAnalysis(String snippet, double expectedProbability, int expectedCount, Class<? extends Node>... invalidNodeClasses) {
         prepareGraph(snippet, false);
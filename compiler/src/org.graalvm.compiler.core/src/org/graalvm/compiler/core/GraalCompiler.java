@@ -239,6 +239,9 @@ public class GraalCompiler {
             if (graph.start().next() == null) {
                 graphBuilderSuite.apply(graph, highTierContext);
                 new DeadCodeEliminationPhase(DeadCodeEliminationPhase.Optionality.Optional).apply(graph);
+                // parsing with inlining leaves many dead ids behind which would otherwise size
+                // every node map and bitmap created in the high tier
+                graph.maybeCompress();
                 debug.dump(DebugContext.BASIC_LEVEL, graph, "After parsing");
             } else {
                 debug.dump(DebugContext.INFO_LEVEL, graph, "initial state");
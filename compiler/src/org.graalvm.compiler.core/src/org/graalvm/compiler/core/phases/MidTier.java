@@ -24,6 +24,7 @@ package org.graalvm.compiler.core.phases;
 
 import static org.graalvm.compiler.core.common.GraalOptions.ConditionalElimination;
 import static org.graalvm.compiler.core.common.GraalOptions.ImmutableCode;
+import static org.graalvm.compiler.core.common.GraalOptions.LoopPredication;
 import static org.graalvm.compiler.core.common.GraalOptions.OptDeoptimizationGrouping;
 import static org.graalvm.compiler.core.common.GraalOptions.OptFloatingReads;
 import static org.graalvm.compiler.core.common.GraalOptions.OptLoopTransform;
@@ -34,6 +35,7 @@ import static org.graalvm.compiler.core.common.GraalOptions.VerifyHeapAtReturn;
 import org.graalvm.compiler.loop.DefaultLoopPolicies;
 import org.graalvm.compiler.loop.LoopPolicies;
 import org.graalvm.compiler.loop.phases.LoopPartialUnrollPhase;
+import org.graalvm.compiler.loop.phases.LoopPredicationPhase;
 import org.graalvm.compiler.loop.phases.LoopSafepointEliminationPhase;
 import org.graalvm.compiler.loop.phases.ReassociateInvariantPhase;
 import org.graalvm.compiler.nodes.spi.LoweringTool;
@@ -70,6 +72,10 @@ public class MidTier extends PhaseSuite<MidTierContext> {
             appendPhase(new IterativeConditionalEliminationPhase(canonicalizer, true));
         }
 
+        if (OptLoopTransform.getValue(options) && LoopPredication.getValue(options)) {
+            appendPhase(new LoopPredicationPhase());
+        }
+
         appendPhase(new LoopSafepointEliminationPhase());
 
         appendPhase(new LoopSafepointInsertionPhase());
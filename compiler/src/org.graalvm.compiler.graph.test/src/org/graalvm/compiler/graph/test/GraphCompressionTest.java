@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.graph.test;
+
+import static org.graalvm.compiler.nodeinfo.NodeCycles.CYCLES_IGNORED;
+import static org.graalvm.compiler.nodeinfo.NodeSize.SIZE_IGNORED;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.api.test.Graal;
+import org.graalvm.compiler.graph.Graph;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.graph.NodeClass;
+import org.graalvm.compiler.nodeinfo.NodeInfo;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GraphCompressionTest extends GraphTest {
+
+    @NodeInfo(cycles = CYCLES_IGNORED, size = SIZE_IGNORED)
+    static final class TestNode extends Node {
+        public static final NodeClass<TestNode> TYPE = NodeClass.create(TestNode.class);
+
+        protected TestNode() {
+            super(TYPE);
+        }
+    }
+
+    private Graph graph;
+    private final List<TestNode> liveNodes = new ArrayList<>();
+
+    @Before
+    public void before() {
+        // Need to initialize HotSpotGraalRuntime before any Node class is initialized.
+        Graal.getRuntime();
+
+        OptionValues options = getOptions();
+        graph = new Graph(options, getDebug(options));
+        for (int i = 0; i < 1000; i++) {
+            TestNode node = graph.add(new TestNode());
+            if (i % 100 == 0) {
+                liveNodes.add(node);
+            } else {
+                node.safeDelete();
+            }
+        }
+    }
+
+    private void assertLiveNodes() {
+        Assert.assertEquals(liveNodes.size(), graph.getNodeCount());
+        int index = 0;
+        for (Node node : graph.getNodes()) {
+            Assert.assertSame(liveNodes.get(index++), node);
+        }
+    }
+
+    /**
+     * Gets the length of the array backing the node list of {@code g}.
+     */
+    private static int nodeCapacity(Graph g) {
+        try {
+            Field nodesField = Graph.class.getDeclaredField("nodes");
+            nodesField.setAccessible(true);
+            return ((Node[]) nodesField.get(g)).length;
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void compressTrimsCapacity() {
+        int capacityBefore = nodeCapacity(graph);
+        Assert.assertTrue(capacityBefore >= 1000);
+        Assert.assertTrue(graph.maybeCompress());
+        int capacityAfter = nodeCapacity(graph);
+        Assert.assertTrue("capacity not trimmed: " + capacityAfter, capacityAfter < capacityBefore / 4);
+        Assert.assertTrue(capacityAfter >= graph.getNodeCount());
+    }
+
+    @Test
+    public void copyIsPresized() {
+        Graph source = new Graph(getOptions(), getDebug());
+        for (int i = 0; i < 100; i++) {
+            source.add(new TestNode());
+        }
+        Graph copy = source.copy(getDebug());
+        Assert.assertEquals(100, copy.getNodeCount());
+        // without presizing the copy would have grown from 32 to 65 to 131 slots
+        Assert.assertEquals(100, nodeCapacity(copy));
+    }
+
+    @Test
+    public void compressPreservesOrder() {
+        Assert.assertTrue(graph.maybeCompress());
+        Assert.assertEquals(1, graph.getCompressions());
+        assertLiveNodes();
+    }
+
+    @Test
+    public void addAfterCompress() {
+        Assert.assertTrue(graph.maybeCompress());
+        for (int i = 0; i < 100; i++) {
+            liveNodes.add(graph.add(new TestNode()));
+        }
+        assertLiveNodes();
+    }
+
+    @Test
+    public void copyAfterCompress() {
+        Assert.assertTrue(graph.maybeCompress());
+        Graph copy = graph.copy(getDebug());
+        Assert.assertEquals(liveNodes.size(), copy.getNodeCount());
+        for (int i = 0; i < 100; i++) {
+            copy.add(new TestNode());
+        }
+        Assert.assertEquals(liveNodes.size() + 100, copy.getNodeCount());
+    }
+}
@@ -941,7 +941,8 @@ public class Graph {
     /**
      * If the {@linkplain Options#GraphCompressionThreshold compression threshold} is met, the list
      * of nodes is compressed such that all non-null entries precede all null entries while
-     * preserving the ordering between the nodes within the list.
+     * preserving the ordering between the nodes within the list. If the list has become much
+     * larger than the number of live nodes, its backing array is trimmed as well.
      */
     public boolean maybeCompress() {
         if (debug.isDumpEnabledForMethod() || debug.isLogEnabledForMethod()) {
@@ -974,6 +975,10 @@ public class Graph {
             Arrays.fill(nodeUsageModCounts, 0);
         }
         nodesSize = nextId;
+        if (nodes.length > Math.max(INITIAL_NODES_SIZE, nodesSize * 4)) {
+            // Release the dead slots of a graph that has shrunk substantially
+            nodes = Arrays.copyOf(nodes, Math.max(INITIAL_NODES_SIZE, nodesSize * 2));
+        }
         compressions++;
         nodesDeletedBeforeLastCompression += nodesDeletedSinceLastCompression;
         nodesDeletedSinceLastCompression = 0;
@@ -1117,9 +1122,19 @@ public class Graph {
     }
 
     private void grow() {
-        Node[] newNodes = new Node[(nodesSize * 2) + 1];
-        System.arraycopy(nodes, 0, newNodes, 0, nodesSize);
-        nodes = newNodes;
+        ensureNodeCapacity(nodesSize + 1);
+    }
+
+    /**
+     * Ensures that the node array can hold at least {@code minCapacity} nodes. A graph that needs
+     * to grow anyway is at least doubled so that repeated small additions (e.g., inlining many
+     * small methods) do not copy the array each time, while a fresh graph that is filled with a
+     * known number of nodes (e.g., a {@linkplain #copy copy}) gets an array of exactly that size.
+     */
+    private void ensureNodeCapacity(int minCapacity) {
+        if (minCapacity > nodes.length) {
+            nodes = Arrays.copyOf(nodes, Math.max(minCapacity, (nodesSize * 2) + 1));
+        }
     }
 
     @SuppressWarnings("unused")
@@ -1276,6 +1291,7 @@ public class Graph {
     @SuppressWarnings({"all", "try"})
     public EconomicMap<Node, Node> addDuplicates(Iterable<? extends Node> newNodes, final Graph oldGraph, int estimatedNodeCount, DuplicationReplacement replacements) {
         try (DebugCloseable s = DuplicateGraph.start(getDebug())) {
+            ensureNodeCapacity(nodesSize + estimatedNodeCount);
             return NodeClass.addGraphDuplicate(this, oldGraph, estimatedNodeCount, newNodes, replacements);
         }
     }
@@ -255,10 +255,6 @@ public class CheckGraalIntrinsics extends GraalTest {
                             "jdk/jfr/internal/JVM.getClassId(Ljava/lang/Class;)J");
 
             add(TO_BE_INVESTIGATED,
-                            // Some logic and a stub call
-                            "com/sun/crypto/provider/CounterMode.implCrypt([BII[BI)I",
-                            // Stub and very little logic
-                            "com/sun/crypto/provider/GHASH.processBlocks([BII[J[J)V",
                             // HotSpot MacroAssembler-based intrinsic
                             "java/lang/Math.fma(DDD)D",
                             // HotSpot MacroAssembler-based intrinsic
@@ -496,6 +492,15 @@ public class CheckGraalIntrinsics extends GraalTest {
             }
         }
 
+        if (isJDK9OrHigher()) {
+            if (!config.useAESCTRIntrinsics()) {
+                add(IGNORE, "com/sun/crypto/provider/CounterMode.implCrypt([BII[BI)I");
+            }
+            if (!config.useGHASHIntrinsics()) {
+                add(IGNORE, "com/sun/crypto/provider/GHASH.processBlocks([BII[J[J)V");
+            }
+        }
+
         // BigInteger intrinsics
         if (!config.useMultiplyToLenIntrinsic()) {
             if (isJDK9OrHigher()) {
@@ -58,6 +58,8 @@ public class HotSpotCryptoSubstitutionTest extends HotSpotGraalCompilerTest {
     byte[] input;
     ByteArrayOutputStream aesExpected = new ByteArrayOutputStream();
     ByteArrayOutputStream desExpected = new ByteArrayOutputStream();
+    ByteArrayOutputStream ctrExpected = new ByteArrayOutputStream();
+    ByteArrayOutputStream gcmExpected = new ByteArrayOutputStream();
 
     public HotSpotCryptoSubstitutionTest() throws Exception {
         byte[] seed = {0x4, 0x7, 0x1, 0x1};
@@ -75,6 +77,9 @@ public class HotSpotCryptoSubstitutionTest extends HotSpotGraalCompilerTest {
 
         desExpected.write(runEncryptDecrypt(desKey, "DESede/CBC/NoPadding"));
         desExpected.write(runEncryptDecrypt(desKey, "DESede/CBC/PKCS5Padding"));
+
+        ctrExpected.write(runEncryptDecrypt(aesKey, "AES/CTR/NoPadding"));
+        gcmExpected.write(runEncryptDecrypt(aesKey, "AES/GCM/NoPadding"));
     }
 
     @Test
@@ -102,6 +107,24 @@ public class HotSpotCryptoSubstitutionTest extends HotSpotGraalCompilerTest {
         }
     }
 
+    @Test
+    public void testCounterModeIntrinsics() throws Exception {
+        if (runtime().getVMConfig().useAESCTRIntrinsics() && compileAndInstall("com.sun.crypto.provider.CounterMode", "implCrypt")) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            actual.write(runEncryptDecrypt(aesKey, "AES/CTR/NoPadding"));
+            Assert.assertArrayEquals(ctrExpected.toByteArray(), actual.toByteArray());
+        }
+    }
+
+    @Test
+    public void testGHASHIntrinsics() throws Exception {
+        if (runtime().getVMConfig().useGHASHIntrinsics() && compileAndInstall("com.sun.crypto.provider.GHASH", "processBlocks")) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            actual.write(runEncryptDecrypt(aesKey, "AES/GCM/NoPadding"));
+            Assert.assertArrayEquals(gcmExpected.toByteArray(), actual.toByteArray());
+        }
+    }
+
     /**
      * Compiles and installs the substitution for some specified methods. Once installed, the next
      * execution of the methods will use the newly installed code.
@@ -96,6 +96,9 @@ public final class CompilationStatistics {
 
     private int bytecodeCount;
     private int codeSize;
+    private int lirInstructionCount;
+    private boolean largeMethodRegisterAllocation;
+    @TimeValue private long registerAllocationTime;
     @TimeValue private long duration;
     private long memoryUsed;
     private final boolean osr;
@@ -133,6 +136,21 @@ public final class CompilationStatistics {
         }
     }
 
+    /**
+     * Records the size of the LIR and the time spent in register allocation.
+     *
+     * @param instructionCount the number of LIR instructions before register allocation
+     * @param largeMethod specifies if the allocator for large methods was used
+     * @param time the time spent in register allocation in nanoseconds
+     */
+    public void recordRegisterAllocation(int instructionCount, boolean largeMethod, long time) {
+        if (isEnabled()) {
+            lirInstructionCount = instructionCount;
+            largeMethodRegisterAllocation = largeMethod;
+            registerAllocationTime += time;
+        }
+    }
+
     public static CompilationStatistics current() {
         return current.get().isEmpty() ? null : current.get().getLast();
     }
@@ -180,6 +180,8 @@ public class GraalHotSpotVMConfig extends HotSpotVMConfigAccess {
     private final boolean useMontgomerySquareIntrinsic = getFlag("UseMontgomerySquareIntrinsic", Boolean.class, false);
     private final boolean useMulAddIntrinsic = getFlag("UseMulAddIntrinsic", Boolean.class, false);
     private final boolean useSquareToLenIntrinsic = getFlag("UseSquareToLenIntrinsic", Boolean.class, false);
+    private final boolean useAESCTRIntrinsics = getFlag("UseAESCTRIntrinsics", Boolean.class, false);
+    private final boolean useGHASHIntrinsics = getFlag("UseGHASHIntrinsics", Boolean.class, false);
 
     /*
      * These are methods because in some JDKs the flags are visible but the stubs themselves haven't
@@ -217,6 +219,14 @@ public class GraalHotSpotVMConfig extends HotSpotVMConfigAccess {
         return useSquareToLenIntrinsic && squareToLen != 0;
     }
 
+    public boolean useAESCTRIntrinsics() {
+        return useAESIntrinsics && useAESCTRIntrinsics && counterModeAESCrypt != 0;
+    }
+
+    public boolean useGHASHIntrinsics() {
+        return useGHASHIntrinsics && ghashProcessBlocks != 0;
+    }
+
     public boolean inlineNotify() {
         return inlineNotify && notifyAddress != 0;
     }
@@ -38,6 +38,8 @@ import org.graalvm.compiler.hotspot.nodes.aot.ResolveConstantStubCall;
 import org.graalvm.compiler.hotspot.replacements.AESCryptSubstitutions;
 import org.graalvm.compiler.hotspot.replacements.BigIntegerSubstitutions;
 import org.graalvm.compiler.hotspot.replacements.CipherBlockChainingSubstitutions;
+import org.graalvm.compiler.hotspot.replacements.CounterModeSubstitutions;
+import org.graalvm.compiler.hotspot.replacements.GHASHSubstitutions;
 import org.graalvm.compiler.hotspot.replacements.SHA2Substitutions;
 import org.graalvm.compiler.hotspot.replacements.SHA5Substitutions;
 import org.graalvm.compiler.hotspot.replacements.SHASubstitutions;
@@ -257,6 +259,32 @@ public abstract class HotSpotBackend extends Backend implements FrameMap.Referen
     @NodeIntrinsic(ForeignCallNode.class)
     private static native void sha5ImplCompressStub(@ConstantNodeParameter ForeignCallDescriptor descriptor, Word bufAddr, Object state);
 
+    /**
+     * @see CounterModeSubstitutions#implCrypt
+     */
+    public static final ForeignCallDescriptor COUNTER_MODE_AES_CRYPT = new ForeignCallDescriptor("counterModeAESCrypt", int.class, Word.class, Word.class, Word.class, Word.class, int.class,
+                    Word.class, Word.class);
+
+    public static int counterModeAESCryptStub(Word inAddr, Word outAddr, Word keyAddr, Word counterAddr, int len, Word encryptedCounterAddr, Word usedAddr) {
+        return counterModeAESCryptStub(HotSpotBackend.COUNTER_MODE_AES_CRYPT, inAddr, outAddr, keyAddr, counterAddr, len, encryptedCounterAddr, usedAddr);
+    }
+
+    @NodeIntrinsic(ForeignCallNode.class)
+    private static native int counterModeAESCryptStub(@ConstantNodeParameter ForeignCallDescriptor descriptor, Word inAddr, Word outAddr, Word keyAddr, Word counterAddr, int len,
+                    Word encryptedCounterAddr, Word usedAddr);
+
+    /**
+     * @see GHASHSubstitutions#processBlocks
+     */
+    public static final ForeignCallDescriptor GHASH_PROCESS_BLOCKS = new ForeignCallDescriptor("ghashProcessBlocks", void.class, Word.class, Word.class, Word.class, int.class);
+
+    public static void ghashProcessBlocksStub(Word stateAddr, Word subkeyHAddr, Word dataAddr, int blocks) {
+        ghashProcessBlocksStub(HotSpotBackend.GHASH_PROCESS_BLOCKS, stateAddr, subkeyHAddr, dataAddr, blocks);
+    }
+
+    @NodeIntrinsic(ForeignCallNode.class)
+    private static native void ghashProcessBlocksStub(@ConstantNodeParameter ForeignCallDescriptor descriptor, Word stateAddr, Word subkeyHAddr, Word dataAddr, int blocks);
+
     /**
      * @see org.graalvm.compiler.hotspot.meta.HotSpotUnsafeSubstitutions#copyMemory
      */
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot.lir;
+
+import org.graalvm.compiler.hotspot.CompilationStatistics;
+import org.graalvm.compiler.lir.LIR;
+import org.graalvm.compiler.lir.alloc.AdaptiveRegisterAllocationPhase;
+import org.graalvm.compiler.lir.gen.LIRGenerationResult;
+import org.graalvm.compiler.lir.phases.AllocationPhase;
+
+import jdk.vm.ci.code.TargetDescription;
+
+/**
+ * Records the LIR size, the selected register allocator and the allocation time of the current
+ * compilation in {@link CompilationStatistics}.
+ */
+public final class RegisterAllocationStatisticsPhase extends AllocationPhase {
+
+    private final AdaptiveRegisterAllocationPhase allocator;
+
+    public RegisterAllocationStatisticsPhase(AdaptiveRegisterAllocationPhase allocator) {
+        this.allocator = allocator;
+    }
+
+    @Override
+    protected void run(TargetDescription target, LIRGenerationResult lirGenRes, AllocationContext context) {
+        CompilationStatistics stats = CompilationStatistics.current();
+        if (stats == null) {
+            allocator.apply(target, lirGenRes, context);
+            return;
+        }
+        LIR lir = lirGenRes.getLIR();
+        int instructionCount = AdaptiveRegisterAllocationPhase.instructionCount(lir);
+        boolean largeMethod = allocator.isLargeMethod(lir, instructionCount);
+        long start = System.nanoTime();
+        allocator.allocate(target, lirGenRes, context, instructionCount);
+        stats.recordRegisterAllocation(instructionCount, largeMethod, System.nanoTime() - start);
+    }
+}
@@ -49,6 +49,7 @@ import org.graalvm.compiler.core.common.type.ObjectStamp;
 import org.graalvm.compiler.core.common.type.Stamp;
 import org.graalvm.compiler.core.common.type.StampFactory;
 import org.graalvm.compiler.core.common.type.StampPair;
+import org.graalvm.compiler.debug.DebugContext;
 import org.graalvm.compiler.debug.DebugHandlersFactory;
 import org.graalvm.compiler.debug.GraalError;
 import org.graalvm.compiler.graph.Node;
@@ -154,6 +155,7 @@ import org.graalvm.compiler.nodes.type.StampTool;
 import org.graalvm.compiler.nodes.util.GraphUtil;
 import org.graalvm.compiler.options.OptionValues;
 import org.graalvm.compiler.replacements.DefaultJavaLoweringProvider;
+import org.graalvm.compiler.replacements.SnippetTemplate.AbstractTemplates;
 import org.graalvm.compiler.replacements.nodes.AssertionNode;
 import org.graalvm.word.LocationIdentity;
 
@@ -216,6 +218,33 @@ public class DefaultHotSpotLoweringProvider extends DefaultJavaLoweringProvider
         hashCodeSnippets = new HashCodeSnippets.Templates(options, factories, providers, target);
         resolveConstantSnippets = new ResolveConstantSnippets.Templates(options, factories, providers, target);
         profileSnippets = new ProfileSnippets.Templates(options, factories, providers, target);
+        if (GraalOptions.PrepareSnippetsInBackground.getValue(options)) {
+            prepareSnippetsInBackground(options, factories, instanceofSnippets, newObjectSnippets, monitorSnippets, writeBarrierSnippets);
+        }
+    }
+
+    /**
+     * Prepares the snippets of the given templates in a daemon thread so that the first
+     * compilations do not pay for it. A failure ends the thread; it does not affect compilations
+     * since the snippets are prepared again on demand.
+     */
+    private static void prepareSnippetsInBackground(OptionValues options, Iterable<DebugHandlersFactory> factories, AbstractTemplates... templates) {
+        Thread thread = new Thread("SnippetPreparation") {
+            @SuppressWarnings("try")
+            @Override
+            public void run() {
+                DebugContext debug = DebugContext.create(options, factories);
+                for (AbstractTemplates t : templates) {
+                    try (DebugContext.Scope s = debug.scope("PrepareSnippets", t)) {
+                        t.prepareSnippets();
+                    } catch (Throwable e) {
+                        throw debug.handle(e);
+                    }
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
     }
 
     public MonitorSnippets.Templates getMonitorSnippets() {
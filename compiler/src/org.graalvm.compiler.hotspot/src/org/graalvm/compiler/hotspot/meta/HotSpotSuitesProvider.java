@@ -30,10 +30,12 @@ import static org.graalvm.compiler.core.phases.HighTier.Options.Inline;
 import java.util.ListIterator;
 import org.graalvm.compiler.debug.Assertions;
 
+import org.graalvm.compiler.hotspot.CompilationStatistics;
 import org.graalvm.compiler.hotspot.GraalHotSpotVMConfig;
 import org.graalvm.compiler.hotspot.HotSpotBackend;
 import org.graalvm.compiler.hotspot.HotSpotGraalRuntimeProvider;
 import org.graalvm.compiler.hotspot.HotSpotInstructionProfiling;
+import org.graalvm.compiler.hotspot.lir.RegisterAllocationStatisticsPhase;
 import org.graalvm.compiler.hotspot.lir.VerifyMaxRegisterSizePhase;
 import org.graalvm.compiler.hotspot.phases.AheadOfTimeVerificationPhase;
 import org.graalvm.compiler.hotspot.phases.LoadJavaMirrorWithKlassPhase;
@@ -45,6 +47,9 @@ import org.graalvm.compiler.hotspot.phases.aot.ReplaceConstantNodesPhase;
 import org.graalvm.compiler.hotspot.phases.profiling.FinalizeProfileNodesPhase;
 import org.graalvm.compiler.java.GraphBuilderPhase;
 import org.graalvm.compiler.java.SuitesProviderBase;
+import org.graalvm.compiler.lir.alloc.AdaptiveRegisterAllocationPhase;
+import org.graalvm.compiler.lir.phases.AllocationPhase.AllocationContext;
+import org.graalvm.compiler.lir.phases.LIRPhase;
 import org.graalvm.compiler.lir.phases.LIRSuites;
 import org.graalvm.compiler.nodes.EncodedGraph;
 import org.graalvm.compiler.nodes.GraphEncoder;
@@ -180,6 +185,13 @@ public class HotSpotSuitesProvider extends SuitesProviderBase {
         if (Assertions.detailedAssertionsEnabled(options)) {
             suites.getPostAllocationOptimizationStage().appendPhase(new VerifyMaxRegisterSizePhase(config.maxVectorSize));
         }
+        if (CompilationStatistics.Options.UseCompilationStatistics.getValue(options)) {
+            ListIterator<LIRPhase<AllocationContext>> iter = suites.getAllocationStage().findPhase(AdaptiveRegisterAllocationPhase.class);
+            if (iter != null) {
+                AdaptiveRegisterAllocationPhase allocator = (AdaptiveRegisterAllocationPhase) iter.previous();
+                iter.set(new RegisterAllocationStatisticsPhase(allocator));
+            }
+        }
         return suites;
     }
 }
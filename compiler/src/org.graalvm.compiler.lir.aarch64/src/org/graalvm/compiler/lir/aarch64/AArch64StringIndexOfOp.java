@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.lir.aarch64;
+
+import static jdk.vm.ci.aarch64.AArch64.zr;
+import static jdk.vm.ci.code.ValueUtil.asRegister;
+import static org.graalvm.compiler.lir.LIRInstruction.OperandFlag.REG;
+
+import org.graalvm.compiler.asm.Label;
+import org.graalvm.compiler.asm.aarch64.AArch64Address;
+import org.graalvm.compiler.asm.aarch64.AArch64Assembler.ConditionFlag;
+import org.graalvm.compiler.asm.aarch64.AArch64Assembler.ShiftType;
+import org.graalvm.compiler.asm.aarch64.AArch64MacroAssembler;
+import org.graalvm.compiler.core.common.LIRKind;
+import org.graalvm.compiler.lir.LIRInstructionClass;
+import org.graalvm.compiler.lir.Opcode;
+import org.graalvm.compiler.lir.asm.CompilationResultBuilder;
+import org.graalvm.compiler.lir.gen.LIRGeneratorTool;
+
+import jdk.vm.ci.code.Register;
+import jdk.vm.ci.meta.Value;
+
+/**
+ * Emits code which finds the first occurrence of a char sequence in another char sequence. The
+ * first char of the target is searched four chars at a time by comparing 8-byte words against the
+ * replicated first char. Each candidate position is then verified char by char.
+ */
+@Opcode("STRING_INDEX_OF")
+public final class AArch64StringIndexOfOp extends AArch64LIRInstruction {
+    public static final LIRInstructionClass<AArch64StringIndexOfOp> TYPE = LIRInstructionClass.create(AArch64StringIndexOfOp.class);
+
+    /**
+     * Number of chars compared by one iteration of the scan loop.
+     */
+    private static final int CHARS_PER_WORD = 4;
+
+    private static final long LOW_BITS = 0x0001000100010001L;
+    private static final long HIGH_BITS = 0x8000800080008000L;
+
+    @Def({REG}) protected Value resultValue;
+    @Alive({REG}) protected Value sourceValue;
+    @Alive({REG}) protected Value sourceCountValue;
+    @Alive({REG}) protected Value targetValue;
+    @Alive({REG}) protected Value targetCountValue;
+    @Temp({REG}) protected Value indexTemp;
+    @Temp({REG}) protected Value lastTemp;
+    @Temp({REG}) protected Value firstTemp;
+    @Temp({REG}) protected Value patternTemp;
+    @Temp({REG}) protected Value chunkTemp;
+    @Temp({REG}) protected Value offsetTemp;
+    @Temp({REG}) protected Value temp1;
+    @Temp({REG}) protected Value temp2;
+
+    public AArch64StringIndexOfOp(LIRGeneratorTool tool, Value result, Value source, Value sourceCount, Value target, Value targetCount) {
+        super(TYPE);
+        this.resultValue = result;
+        this.sourceValue = source;
+        this.sourceCountValue = sourceCount;
+        this.targetValue = target;
+        this.targetCountValue = targetCount;
+
+        LIRKind word = LIRKind.value(tool.target().arch.getWordKind());
+        this.indexTemp = tool.newVariable(word);
+        this.lastTemp = tool.newVariable(word);
+        this.firstTemp = tool.newVariable(word);
+        this.patternTemp = tool.newVariable(word);
+        this.chunkTemp = tool.newVariable(word);
+        this.offsetTemp = tool.newVariable(word);
+        this.temp1 = tool.newVariable(LIRKind.unknownReference(tool.target().arch.getWordKind()));
+        this.temp2 = tool.newVariable(word);
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AArch64MacroAssembler masm) {
+        Register result = asRegister(resultValue);
+        Register source = asRegister(sourceValue);
+        Register sourceCount = asRegister(sourceCountValue);
+        Register target = asRegister(targetValue);
+        Register targetCount = asRegister(targetCountValue);
+        Register index = asRegister(indexTemp);
+        Register last = asRegister(lastTemp);
+        Register first = asRegister(firstTemp);
+        Register pattern = asRegister(patternTemp);
+        Register chunk = asRegister(chunkTemp);
+        Register offset = asRegister(offsetTemp);
+        Register tmp1 = asRegister(temp1);
+        Register tmp2 = asRegister(temp2);
+
+        Label scanLoop = new Label();
+        Label scanTail = new Label();
+        Label matchInWord = new Label();
+        Label candidate = new Label();
+        Label compareLoop = new Label();
+        Label mismatch = new Label();
+        Label found = new Label();
+        Label notFound = new Label();
+        Label done = new Label();
+
+        // A match can start at most at index sourceCount - targetCount.
+        masm.sub(32, last, sourceCount, targetCount);
+        masm.cmp(32, last, 0);
+        masm.branchConditionally(ConditionFlag.LT, notFound);
+
+        // Replicate the first target char into all four chars of a word.
+        masm.ldr(16, first, AArch64Address.createBaseRegisterOnlyAddress(target));
+        masm.mov(tmp2, LOW_BITS);
+        masm.mul(64, pattern, first, tmp2);
+        masm.mov(64, index, zr);
+
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(scanLoop);
+        masm.add(32, tmp2, index, CHARS_PER_WORD);
+        masm.cmp(32, tmp2, sourceCount);
+        masm.branchConditionally(ConditionFlag.GT, scanTail);
+        masm.add(64, tmp1, source, index, ShiftType.LSL, 1);
+        masm.ldr(64, chunk, AArch64Address.createBaseRegisterOnlyAddress(tmp1));
+        // Chars equal to the first target char become zero, find the lowest zero char.
+        masm.eor(64, chunk, chunk, pattern);
+        masm.mov(tmp2, LOW_BITS);
+        masm.sub(64, tmp2, chunk, tmp2);
+        masm.not(64, chunk, chunk);
+        masm.and(64, tmp2, tmp2, chunk);
+        masm.and(64, tmp2, tmp2, HIGH_BITS);
+        masm.cbnz(64, tmp2, matchInWord);
+        masm.add(32, index, index, CHARS_PER_WORD);
+        masm.jmp(scanLoop);
+
+        masm.bind(matchInWord);
+        masm.rbit(64, tmp2, tmp2);
+        masm.clz(64, tmp2, tmp2);
+        masm.add(32, index, index, tmp2, ShiftType.LSR, 4);
+        masm.cmp(32, index, last);
+        masm.branchConditionally(ConditionFlag.GT, notFound);
+        masm.jmp(candidate);
+
+        // Fewer than four chars remain, compare them one by one.
+        masm.bind(scanTail);
+        masm.cmp(32, index, last);
+        masm.branchConditionally(ConditionFlag.GT, notFound);
+        masm.ldr(16, tmp2, AArch64Address.createRegisterOffsetAddress(source, index, true));
+        masm.cmp(32, tmp2, first);
+        masm.branchConditionally(ConditionFlag.EQ, candidate);
+        masm.add(32, index, index, 1);
+        masm.jmp(scanTail);
+
+        // The first char matches at index, compare the remaining target chars.
+        masm.bind(candidate);
+        masm.mov(offset, 1);
+        masm.bind(compareLoop);
+        masm.cmp(32, offset, targetCount);
+        masm.branchConditionally(ConditionFlag.GE, found);
+        masm.add(32, tmp2, index, offset);
+        masm.ldr(16, tmp1, AArch64Address.createRegisterOffsetAddress(source, tmp2, true));
+        masm.ldr(16, tmp2, AArch64Address.createRegisterOffsetAddress(target, offset, true));
+        masm.cmp(32, tmp1, tmp2);
+        masm.branchConditionally(ConditionFlag.NE, mismatch);
+        masm.add(32, offset, offset, 1);
+        masm.jmp(compareLoop);
+
+        masm.bind(mismatch);
+        masm.add(32, index, index, 1);
+        masm.jmp(scanLoop);
+
+        masm.bind(found);
+        masm.mov(32, result, index);
+        masm.jmp(done);
+
+        masm.bind(notFound);
+        masm.mov(result, -1);
+
+        masm.bind(done);
+    }
+}
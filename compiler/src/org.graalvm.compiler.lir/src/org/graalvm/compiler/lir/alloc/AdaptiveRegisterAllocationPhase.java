@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.lir.alloc;
+
+import static org.graalvm.compiler.core.common.GraalOptions.TraceRA;
+
+import java.util.ArrayList;
+
+import org.graalvm.compiler.core.common.cfg.AbstractBlockBase;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.GraalError;
+import org.graalvm.compiler.lir.LIR;
+import org.graalvm.compiler.lir.LIRInstruction;
+import org.graalvm.compiler.lir.alloc.lsra.LinearScanPhase;
+import org.graalvm.compiler.lir.alloc.trace.DefaultTraceRegisterAllocationPolicy.TraceRAPolicies;
+import org.graalvm.compiler.lir.alloc.trace.GlobalLivenessAnalysisPhase;
+import org.graalvm.compiler.lir.alloc.trace.TraceBuilderPhase;
+import org.graalvm.compiler.lir.alloc.trace.TraceRegisterAllocationPhase;
+import org.graalvm.compiler.lir.gen.LIRGenerationResult;
+import org.graalvm.compiler.lir.phases.AllocationPhase;
+import org.graalvm.compiler.lir.phases.AllocationPhase.AllocationContext;
+import org.graalvm.compiler.lir.phases.LIRPhase;
+import org.graalvm.compiler.lir.phases.LIRPhaseSuite;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.options.OptionKey;
+import org.graalvm.compiler.options.OptionType;
+import org.graalvm.compiler.options.OptionValues;
+
+import jdk.vm.ci.code.TargetDescription;
+
+/**
+ * Selects the register allocator based on the size of the {@link LIR}. By default all methods use
+ * the default allocator, i.e., {@link LinearScanPhase linear scan} or the
+ * {@link TraceRegisterAllocationPhase trace register allocator} if {@link TraceRA} is enabled.
+ *
+ * Setting {@link Options#LargeMethodRegisterAllocationThreshold} to a positive value, e.g.,
+ * {@code -Dgraal.LargeMethodRegisterAllocationThreshold=50000}, allocates methods with more LIR
+ * instructions with the bottom-up trace allocator instead. It is local to a trace and does not
+ * build lifetime intervals, so it needs less time and memory for very large methods at the price of
+ * more spill moves. The threshold is disabled by default because it changes the generated code.
+ */
+public final class AdaptiveRegisterAllocationPhase extends AllocationPhase {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Use the bottom-up trace register allocator for methods with more LIR instructions " +
+                       "than this threshold, which trades code quality for allocation time and memory. " +
+                       "A value <= 0 disables the fallback (default).", type = OptionType.Expert)
+        public static final OptionKey<Integer> LargeMethodRegisterAllocationThreshold = new OptionKey<>(0);
+        // @formatter:on
+    }
+
+    private static final CounterKey largeMethodCounter = DebugContext.counter("RegisterAllocation[LargeMethod]");
+
+    private final LIRPhase<AllocationContext> defaultAllocator;
+    private final LIRPhase<AllocationContext> largeMethodAllocator;
+
+    /**
+     * Specifies if the large method allocator is disabled, e.g., because constants must never be
+     * spilled.
+     */
+    private boolean largeMethodAllocatorDisabled;
+
+    public AdaptiveRegisterAllocationPhase(LIRPhase<AllocationContext> defaultAllocator, LIRPhase<AllocationContext> largeMethodAllocator) {
+        this.defaultAllocator = defaultAllocator;
+        this.largeMethodAllocator = largeMethodAllocator;
+    }
+
+    /**
+     * Creates the register allocator selection for the allocation stages.
+     */
+    public static AdaptiveRegisterAllocationPhase create(OptionValues options) {
+        LIRPhase<AllocationContext> defaultAllocator;
+        if (TraceRA.getValue(options)) {
+            defaultAllocator = createTraceAllocator(null);
+        } else {
+            defaultAllocator = new LinearScanPhase();
+        }
+        return new AdaptiveRegisterAllocationPhase(defaultAllocator, createTraceAllocator(TraceRAPolicies.BottomUpOnly));
+    }
+
+    private static LIRPhaseSuite<AllocationContext> createTraceAllocator(TraceRAPolicies policy) {
+        LIRPhaseSuite<AllocationContext> suite = new LIRPhaseSuite<>();
+        suite.appendPhase(new TraceBuilderPhase());
+        suite.appendPhase(new GlobalLivenessAnalysisPhase());
+        suite.appendPhase(new TraceRegisterAllocationPhase(policy));
+        return suite;
+    }
+
+    /**
+     * Gets the number of instructions in {@code lir}.
+     */
+    public static int instructionCount(LIR lir) {
+        int count = 0;
+        for (AbstractBlockBase<?> block : lir.getControlFlowGraph().getBlocks()) {
+            ArrayList<LIRInstruction> instructions = lir.getLIRforBlock(block);
+            if (instructions != null) {
+                count += instructions.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the allocator used for all methods that are not considered large.
+     */
+    public LIRPhase<AllocationContext> getDefaultAllocator() {
+        return defaultAllocator;
+    }
+
+    /**
+     * Makes the allocator never spill constants. This requires the default allocator to be
+     * {@link LinearScanPhase} and disables the large method allocator.
+     */
+    public void setNeverSpillConstants(boolean neverSpillConstants) {
+        GraalError.guarantee(defaultAllocator instanceof LinearScanPhase, "never spilling constants is only supported by linear scan: %s", defaultAllocator);
+        ((LinearScanPhase) defaultAllocator).setNeverSpillConstants(neverSpillConstants);
+        largeMethodAllocatorDisabled = neverSpillConstants;
+    }
+
+    /**
+     * Determines if a method with {@code instructionCount} LIR instructions is allocated with the
+     * allocator for large methods.
+     *
+     * @param instructionCount the result of {@link #instructionCount(LIR)}
+     */
+    public boolean isLargeMethod(LIR lir, int instructionCount) {
+        if (largeMethodAllocatorDisabled) {
+            return false;
+        }
+        int threshold = Options.LargeMethodRegisterAllocationThreshold.getValue(lir.getOptions());
+        return threshold > 0 && instructionCount > threshold;
+    }
+
+    /**
+     * Selects the allocator for a method with {@code instructionCount} LIR instructions and
+     * applies it.
+     *
+     * @param instructionCount the result of {@link #instructionCount(LIR)}
+     */
+    public void allocate(TargetDescription target, LIRGenerationResult lirGenRes, AllocationContext context, int instructionCount) {
+        LIR lir = lirGenRes.getLIR();
+        LIRPhase<AllocationContext> allocator = defaultAllocator;
+        if (isLargeMethod(lir, instructionCount)) {
+            largeMethodCounter.increment(lir.getDebug());
+            allocator = largeMethodAllocator;
+        }
+        allocator.apply(target, lirGenRes, context);
+    }
+
+    @Override
+    protected void run(TargetDescription target, LIRGenerationResult lirGenRes, AllocationContext context) {
+        allocate(target, lirGenRes, context, instructionCount(lirGenRes.getLIR()));
+    }
+}
@@ -369,12 +369,19 @@ public final class DefaultTraceRegisterAllocationPolicy {
     public static TraceRegisterAllocationPolicy allocationPolicy(TargetDescription target, LIRGenerationResult lirGenRes, MoveFactory spillMoveFactory,
                     RegisterAllocationConfig registerAllocationConfig, AllocatableValue[] cachedStackSlots, TraceBuilderResult resultTraces, boolean neverSpillConstant,
                     GlobalLivenessInfo livenessInfo, OptionValues options) {
+        return allocationPolicy(target, lirGenRes, spillMoveFactory, registerAllocationConfig, cachedStackSlots, resultTraces, neverSpillConstant, livenessInfo, options,
+                        Options.TraceRAPolicy.getValue(options));
+    }
+
+    public static TraceRegisterAllocationPolicy allocationPolicy(TargetDescription target, LIRGenerationResult lirGenRes, MoveFactory spillMoveFactory,
+                    RegisterAllocationConfig registerAllocationConfig, AllocatableValue[] cachedStackSlots, TraceBuilderResult resultTraces, boolean neverSpillConstant,
+                    GlobalLivenessInfo livenessInfo, OptionValues options, TraceRAPolicies policy) {
         TraceRegisterAllocationPolicy plan = new TraceRegisterAllocationPolicy(target, lirGenRes, spillMoveFactory, registerAllocationConfig, cachedStackSlots, resultTraces, neverSpillConstant,
                         livenessInfo);
         if (Options.TraceRAtrivialBlockAllocator.getValue(options)) {
             plan.appendStrategy(new TrivialTraceStrategy(plan));
         }
-        switch (Options.TraceRAPolicy.getValue(options)) {
+        switch (policy) {
             case Default:
             case LinearScanOnly:
                 break;
@@ -30,6 +30,7 @@ import org.graalvm.compiler.debug.CounterKey;
 import org.graalvm.compiler.debug.DebugContext;
 import org.graalvm.compiler.debug.Indent;
 import org.graalvm.compiler.lir.LIR;
+import org.graalvm.compiler.lir.alloc.trace.DefaultTraceRegisterAllocationPolicy.TraceRAPolicies;
 import org.graalvm.compiler.lir.alloc.trace.TraceAllocationPhase.TraceAllocationContext;
 import org.graalvm.compiler.lir.gen.LIRGenerationResult;
 import org.graalvm.compiler.lir.gen.LIRGeneratorTool.MoveFactory;
@@ -67,6 +68,20 @@ public final class TraceRegisterAllocationPhase extends AllocationPhase {
     public static final CounterKey globalStackSlots = DebugContext.counter("TraceRA[GlobalStackSlots]");
     public static final CounterKey allocatedStackSlots = DebugContext.counter("TraceRA[AllocatedStackSlots]");
 
+    /**
+     * The allocation policy to use or {@code null} if it should be taken from
+     * {@link DefaultTraceRegisterAllocationPolicy.Options#TraceRAPolicy}.
+     */
+    private final TraceRAPolicies policy;
+
+    public TraceRegisterAllocationPhase() {
+        this(null);
+    }
+
+    public TraceRegisterAllocationPhase(TraceRAPolicies policy) {
+        this.policy = policy;
+    }
+
     @Override
     @SuppressWarnings("try")
     protected void run(TargetDescription target, LIRGenerationResult lirGenRes, AllocationContext context) {
@@ -83,8 +98,9 @@ public final class TraceRegisterAllocationPhase extends AllocationPhase {
         // currently this is not supported
         boolean neverSpillConstant = false;
 
+        TraceRAPolicies selectedPolicy = policy != null ? policy : DefaultTraceRegisterAllocationPolicy.Options.TraceRAPolicy.getValue(lir.getOptions());
         final TraceRegisterAllocationPolicy plan = DefaultTraceRegisterAllocationPolicy.allocationPolicy(target, lirGenRes, spillMoveFactory, registerAllocationConfig, cachedStackSlots, resultTraces,
-                        neverSpillConstant, livenessInfo, lir.getOptions());
+                        neverSpillConstant, livenessInfo, lir.getOptions(), selectedPolicy);
 
         try (DebugContext.Scope s0 = debug.scope("AllocateTraces", resultTraces, livenessInfo)) {
             for (Trace trace : resultTraces.getTraces()) {
@@ -22,14 +22,9 @@
  */
 package org.graalvm.compiler.lir.phases;
 
-import static org.graalvm.compiler.core.common.GraalOptions.TraceRA;
-
 import org.graalvm.compiler.debug.Assertions;
+import org.graalvm.compiler.lir.alloc.AdaptiveRegisterAllocationPhase;
 import org.graalvm.compiler.lir.alloc.AllocationStageVerifier;
-import org.graalvm.compiler.lir.alloc.lsra.LinearScanPhase;
-import org.graalvm.compiler.lir.alloc.trace.GlobalLivenessAnalysisPhase;
-import org.graalvm.compiler.lir.alloc.trace.TraceBuilderPhase;
-import org.graalvm.compiler.lir.alloc.trace.TraceRegisterAllocationPhase;
 import org.graalvm.compiler.lir.dfa.LocationMarkerPhase;
 import org.graalvm.compiler.lir.dfa.MarkBasePointersPhase;
 import org.graalvm.compiler.lir.phases.AllocationPhase.AllocationContext;
@@ -41,13 +36,7 @@ public class AllocationStage extends LIRPhaseSuite<AllocationContext> {
 
     public AllocationStage(OptionValues options) {
         appendPhase(new MarkBasePointersPhase());
-        if (TraceRA.getValue(options)) {
-            appendPhase(new TraceBuilderPhase());
-            appendPhase(new GlobalLivenessAnalysisPhase());
-            appendPhase(new TraceRegisterAllocationPhase());
-        } else {
-            appendPhase(new LinearScanPhase());
-        }
+        appendPhase(AdaptiveRegisterAllocationPhase.create(options));
 
         // build frame map
         if (LSStackSlotAllocator.Options.LIROptLSStackSlotAllocator.getValue(options)) {
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.phases;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.core.common.cfg.AbstractControlFlowGraph;
+import org.graalvm.compiler.core.common.type.IntegerStamp;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugCloseable;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.loop.CountedLoopInfo;
+import org.graalvm.compiler.loop.DerivedOffsetInductionVariable;
+import org.graalvm.compiler.loop.DerivedScaledInductionVariable;
+import org.graalvm.compiler.loop.InductionVariable;
+import org.graalvm.compiler.loop.InductionVariable.Direction;
+import org.graalvm.compiler.loop.LoopEx;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.loop.MathUtil;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.IntegerBelowNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.SignExtendNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
+import org.graalvm.compiler.nodes.calc.ZeroExtendNode;
+import org.graalvm.compiler.nodes.cfg.Block;
+import org.graalvm.compiler.nodes.cfg.ControlFlowGraph;
+import org.graalvm.compiler.nodes.extended.AnchoringNode;
+import org.graalvm.compiler.nodes.extended.BranchProbabilityNode;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.tiers.MidTierContext;
+
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.SpeculationLog;
+import jdk.vm.ci.meta.SpeculationLog.SpeculationReason;
+
+/**
+ * Replaces range checks in the body of a counted loop by a single speculative guard in front of
+ * the loop. A range check {@code index |<| length} qualifies if {@code length} is loop invariant
+ * and {@code index} is a linear function of the loop counter. The hoisted guard checks the first
+ * and the last index of the loop, computed in 64 bits so that they cannot overflow, and only if
+ * the loop is entered at all. If it fails, execution resumes in the interpreter in front of the
+ * loop, which then throws the exception in the right iteration.
+ *
+ * Only guards that are executed in every iteration are hoisted, so the guard fails spuriously
+ * only if the loop is left early through another exit. Each predicated loop is covered by its own
+ * {@link SpeculationReason}, so a failing predicate only disables predication of that loop when
+ * the method is recompiled. Graphs without a {@link SpeculationLog} are not predicated.
+ */
+public class LoopPredicationPhase extends BasePhase<MidTierContext> {
+
+    private static final CounterKey PREDICATED_LOOPS = DebugContext.counter("LoopPredicatedLoops");
+    private static final CounterKey PREDICATED_GUARDS = DebugContext.counter("LoopPredicatedGuards");
+
+    @Override
+    protected void run(StructuredGraph graph, MidTierContext context) {
+        if (!graph.hasLoops() || !graph.getGuardsStage().allowsFloatingGuards() || graph.getSpeculationLog() == null) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        loops.detectedCountedLoops();
+        for (LoopEx loop : loops.countedLoops()) {
+            predicate(graph, loops.getCFG(), loop);
+        }
+        loops.deleteUnusedNodes();
+    }
+
+    private static void predicate(StructuredGraph graph, ControlFlowGraph cfg, LoopEx loop) {
+        CountedLoopInfo counted = loop.counted();
+        if (counted.getStamp().getBits() != 32) {
+            return;
+        }
+        Block body = cfg.blockFor(counted.getBody());
+        List<GuardNode> guards = new ArrayList<>();
+        List<LinearIndex> indices = new ArrayList<>();
+        for (GuardNode guard : graph.getNodes(GuardNode.TYPE)) {
+            if (isExecutedInEveryIteration(cfg, loop, body, guard)) {
+                LinearIndex index = LinearIndex.of(loop, counted.getCounter(), guard);
+                if (index != null) {
+                    guards.add(guard);
+                    indices.add(index);
+                }
+            }
+        }
+        if (guards.isEmpty()) {
+            return;
+        }
+        FrameState loopState = loop.loopBegin().stateAfter();
+        if (loopState == null) {
+            return;
+        }
+        SpeculationLog speculationLog = graph.getSpeculationLog();
+        SpeculationReason reason = new LoopPredicationSpeculationReason(loopState.getMethod(), loopState.bci);
+        if (!speculationLog.maySpeculate(reason)) {
+            return;
+        }
+        JavaConstant speculation = speculationLog.speculate(reason);
+
+        // The counter must not wrap around, otherwise it is not bounded by start and limit.
+        counted.createOverFlowGuard();
+
+        ValueNode start = signExtend(graph, counted.getStart());
+        ValueNode limit = signExtend(graph, counted.getLimit());
+        ConstantNode one = ConstantNode.forLong(1, graph);
+        ValueNode low;
+        ValueNode high;
+        LogicNode entered;
+        if (counted.getDirection() == Direction.Up) {
+            low = start;
+            high = counted.isLimitIncluded() ? limit : MathUtil.sub(graph, limit, one);
+            entered = counted.isLimitIncluded() ? lessThan(graph, limit, start) : lessThan(graph, start, limit);
+        } else {
+            low = counted.isLimitIncluded() ? limit : MathUtil.add(graph, limit, one);
+            high = start;
+            entered = counted.isLimitIncluded() ? lessThan(graph, start, limit) : lessThan(graph, limit, start);
+        }
+        // With an included limit, entered holds the negated condition.
+        boolean enteredNegated = counted.isLimitIncluded();
+
+        DebugContext debug = graph.getDebug();
+        AbstractBeginNode anchor = AbstractBeginNode.prevBegin(loop.entryPoint());
+        for (int i = 0; i < guards.size(); i++) {
+            GuardNode guard = guards.get(i);
+            LinearIndex index = indices.get(i);
+            try (DebugCloseable position = guard.withNodeSourcePosition()) {
+                ValueNode first = index.valueAt(graph, low);
+                ValueNode last = index.valueAt(graph, high);
+                ValueNode min = index.decreasing ? last : first;
+                ValueNode max = index.decreasing ? first : last;
+                ValueNode length = graph.addOrUniqueWithInputs(ZeroExtendNode.create(index.length, 64, NodeView.DEFAULT));
+                LogicNode belowZero = lessThan(graph, min, ConstantNode.forLong(0, graph));
+                LogicNode belowLength = lessThan(graph, max, length);
+                LogicNode outOfRange = LogicNode.or(belowZero, false, belowLength, true, BranchProbabilityNode.VERY_SLOW_PATH_PROBABILITY);
+                LogicNode inRangeIfEntered = LogicNode.or(entered, !enteredNegated, outOfRange, true, BranchProbabilityNode.VERY_SLOW_PATH_PROBABILITY);
+                GuardNode predicate = graph.unique(new GuardNode(inRangeIfEntered, anchor, DeoptimizationReason.BoundsCheckException, DeoptimizationAction.InvalidateReprofile, false, speculation));
+                debug.log("Predicated %s in %s with %s", guard, loop, predicate);
+                guard.replaceAtUsages(predicate);
+                GraphUtil.killWithUnusedFloatingInputs(guard);
+                PREDICATED_GUARDS.increment(debug);
+            }
+        }
+        PREDICATED_LOOPS.increment(debug);
+        debug.dump(DebugContext.DETAILED_LEVEL, graph, "Predicated %s", loop);
+    }
+
+    /**
+     * Determines if {@code guard} is anchored in the body of {@code loop} (and not in an inner
+     * loop) such that it is passed in every iteration that reaches the back edge.
+     */
+    private static boolean isExecutedInEveryIteration(ControlFlowGraph cfg, LoopEx loop, Block body, GuardNode guard) {
+        AnchoringNode anchor = guard.getAnchor();
+        if (anchor == null) {
+            return false;
+        }
+        Block block = cfg.blockFor(anchor.asNode());
+        if (block == null || block.getLoop() != loop.loop() || !AbstractControlFlowGraph.dominates(body, block)) {
+            return false;
+        }
+        for (LoopEndNode end : loop.loopBegin().loopEnds()) {
+            if (!AbstractControlFlowGraph.dominates(block, cfg.blockFor(end))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ValueNode signExtend(StructuredGraph graph, ValueNode value) {
+        return graph.addOrUniqueWithInputs(SignExtendNode.create(value, 64, NodeView.DEFAULT));
+    }
+
+    private static LogicNode lessThan(StructuredGraph graph, ValueNode x, ValueNode y) {
+        return graph.addOrUniqueWithInputs(IntegerLessThanNode.create(x, y, NodeView.DEFAULT));
+    }
+
+    private static final class LoopPredicationSpeculationReason implements SpeculationReason {
+        private final ResolvedJavaMethod method;
+        private final int bci;
+
+        LoopPredicationSpeculationReason(ResolvedJavaMethod method, int bci) {
+            this.method = method;
+            this.bci = bci;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof LoopPredicationSpeculationReason) {
+                LoopPredicationSpeculationReason that = (LoopPredicationSpeculationReason) obj;
+                return this.method.equals(that.method) && this.bci == that.bci;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return method.hashCode() ^ bci;
+        }
+    }
+
+    /**
+     * The index of a range check, expressed as a chain of offset and scale operations applied to
+     * the loop counter.
+     */
+    private static final class LinearIndex {
+
+        /*
+         * Bounds on the shape of the index that keep its evaluation in 64 bits free of overflow.
+         */
+        private static final int MAX_CHAIN_LENGTH = 8;
+        private static final int MAX_SCALES = 1;
+        private static final long MAX_SCALE = 1 << 16;
+
+        private final List<InductionVariable> chain;
+        private final ValueNode length;
+        private final boolean decreasing;
+
+        private LinearIndex(List<InductionVariable> chain, ValueNode length, boolean decreasing) {
+            this.chain = chain;
+            this.length = length;
+            this.decreasing = decreasing;
+        }
+
+        static LinearIndex of(LoopEx loop, InductionVariable counter, GuardNode guard) {
+            if (guard.isNegated() || !(guard.getCondition() instanceof IntegerBelowNode)) {
+                return null;
+            }
+            IntegerBelowNode below = (IntegerBelowNode) guard.getCondition();
+            if (!loop.isOutsideLoop(below.getY()) || !is32Bit(below.getY())) {
+                return null;
+            }
+            InductionVariable iv = loop.getInductionVariables().get(below.getX());
+            List<InductionVariable> chain = new ArrayList<>();
+            boolean decreasing = false;
+            int scales = 0;
+            while (iv != counter) {
+                if (iv == null || !is32Bit(iv.valueNode()) || chain.size() >= MAX_CHAIN_LENGTH) {
+                    return null;
+                }
+                if (iv instanceof DerivedOffsetInductionVariable) {
+                    DerivedOffsetInductionVariable offset = (DerivedOffsetInductionVariable) iv;
+                    if (!is32Bit(offset.getOffset())) {
+                        return null;
+                    }
+                    if (offset.valueNode() instanceof SubNode && ((SubNode) offset.valueNode()).getY() == offset.getBase().valueNode()) {
+                        decreasing = !decreasing;
+                    }
+                    chain.add(0, iv);
+                    iv = offset.getBase();
+                } else if (iv instanceof DerivedScaledInductionVariable) {
+                    DerivedScaledInductionVariable scaled = (DerivedScaledInductionVariable) iv;
+                    if (!scaled.getScale().isConstant() || ++scales > MAX_SCALES) {
+                        return null;
+                    }
+                    long scale = scaled.getScale().asJavaConstant().asLong();
+                    if (scale == 0 || Math.abs(scale) > MAX_SCALE) {
+                        return null;
+                    } else if (scale < 0) {
+                        decreasing = !decreasing;
+                    }
+                    chain.add(0, iv);
+                    iv = scaled.getBase();
+                } else {
+                    return null;
+                }
+            }
+            return new LinearIndex(chain, below.getY(), decreasing);
+        }
+
+        private static boolean is32Bit(ValueNode value) {
+            return value.stamp(NodeView.DEFAULT) instanceof IntegerStamp && ((IntegerStamp) value.stamp(NodeView.DEFAULT)).getBits() == 32;
+        }
+
+        /**
+         * Computes the index for a 64-bit value of the loop counter.
+         */
+        ValueNode valueAt(StructuredGraph graph, ValueNode counterValue) {
+            ValueNode value = counterValue;
+            for (InductionVariable iv : chain) {
+                if (iv instanceof DerivedOffsetInductionVariable) {
+                    DerivedOffsetInductionVariable offsetIv = (DerivedOffsetInductionVariable) iv;
+                    ValueNode offset = signExtend(graph, offsetIv.getOffset());
+                    if (offsetIv.valueNode() instanceof AddNode) {
+                        value = MathUtil.add(graph, value, offset);
+                    } else if (((SubNode) offsetIv.valueNode()).getX() == offsetIv.getBase().valueNode()) {
+                        value = MathUtil.sub(graph, value, offset);
+                    } else {
+                        value = MathUtil.sub(graph, offset, value);
+                    }
+                } else {
+                    long scale = ((DerivedScaledInductionVariable) iv).getScale().asJavaConstant().asLong();
+                    value = MathUtil.mul(graph, value, ConstantNode.forLong(scale, graph));
+                }
+            }
+            return value;
+        }
+    }
+}
@@ -22,6 +22,10 @@
  */
 package org.graalvm.compiler.loop.phases;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.core.common.GraalOptions;
 import org.graalvm.compiler.loop.LoopEx;
 import org.graalvm.compiler.loop.LoopsData;
 import org.graalvm.compiler.nodes.FixedNode;
@@ -38,6 +42,8 @@ public class LoopSafepointEliminationPhase extends BasePhase<MidTierContext> {
     @Override
     protected void run(StructuredGraph graph, MidTierContext context) {
         LoopsData loops = new LoopsData(graph);
+        List<LoopEx> stripMiningCandidates = new ArrayList<>();
+        int stripLength = GraalOptions.LoopStripMiningIterations.getValue(graph.getOptions());
         if (context.getOptimisticOptimizations().useLoopLimitChecks(graph.getOptions()) && graph.getGuardsStage().allowsFloatingGuards()) {
             loops.detectedCountedLoops();
             for (LoopEx loop : loops.countedLoops()) {
@@ -49,6 +55,9 @@ public class LoopSafepointEliminationPhase extends BasePhase<MidTierContext> {
                     if (hasSafepoint) {
                         loop.counted().createOverFlowGuard();
                         loop.loopBegin().disableSafepoint();
+                        if (GraalOptions.LoopStripMining.getValue(graph.getOptions()) && LoopTransformations.canStripMine(loop, stripLength)) {
+                            stripMiningCandidates.add(loop);
+                        }
                     }
                 }
             }
@@ -68,6 +77,10 @@ public class LoopSafepointEliminationPhase extends BasePhase<MidTierContext> {
                 }
             }
         }
+        for (LoopEx loop : stripMiningCandidates) {
+            // keep a poll every stripLength iterations instead of none at all
+            LoopTransformations.stripMine(loop, stripLength);
+        }
         loops.deleteUnusedNodes();
     }
 }
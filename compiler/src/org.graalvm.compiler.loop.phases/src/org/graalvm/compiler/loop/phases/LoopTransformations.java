@@ -30,6 +30,8 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.Equivalence;
 import org.graalvm.compiler.core.common.RetryableBailoutException;
 import org.graalvm.compiler.core.common.calc.CanonicalCondition;
 import org.graalvm.compiler.debug.DebugContext;
@@ -37,6 +39,7 @@ import org.graalvm.compiler.debug.GraalError;
 import org.graalvm.compiler.graph.Graph.Mark;
 import org.graalvm.compiler.graph.Node;
 import org.graalvm.compiler.graph.Position;
+import org.graalvm.compiler.loop.BasicInductionVariable;
 import org.graalvm.compiler.loop.CountedLoopInfo;
 import org.graalvm.compiler.loop.InductionVariable;
 import org.graalvm.compiler.loop.InductionVariable.Direction;
@@ -53,17 +56,23 @@ import org.graalvm.compiler.nodes.ControlSplitNode;
 import org.graalvm.compiler.nodes.EndNode;
 import org.graalvm.compiler.nodes.FixedNode;
 import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.FrameState;
 import org.graalvm.compiler.nodes.IfNode;
 import org.graalvm.compiler.nodes.LogicNode;
 import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
 import org.graalvm.compiler.nodes.LoopExitNode;
+import org.graalvm.compiler.nodes.NodeView;
 import org.graalvm.compiler.nodes.PhiNode;
 import org.graalvm.compiler.nodes.SafepointNode;
 import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
 import org.graalvm.compiler.nodes.calc.CompareNode;
 import org.graalvm.compiler.nodes.calc.ConditionalNode;
 import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.NarrowNode;
+import org.graalvm.compiler.nodes.calc.SignExtendNode;
 import org.graalvm.compiler.nodes.extended.SwitchNode;
 import org.graalvm.compiler.phases.common.CanonicalizerPhase;
 import org.graalvm.compiler.phases.tiers.PhaseContext;
@@ -466,4 +475,131 @@ public abstract class LoopTransformations {
         }
         return false;
     }
+
+    public static boolean canStripMine(LoopEx loop, int stripLength) {
+        if (stripLength <= 0 || !loop.isCounted() || !(loop.counted().getCounter() instanceof BasicInductionVariable)) {
+            return false;
+        }
+        CountedLoopInfo counted = loop.counted();
+        LoopBeginNode loopBegin = loop.loopBegin();
+        if (!counted.getCounter().isConstantStride() || counted.getCounter().constantStride() == 0 || counted.getStamp().getBits() != 32 || !loopBegin.isSingleEntryLoop()) {
+            return false;
+        }
+        FrameState state = loopBegin.stateAfter();
+        if (state == null || state.virtualObjectMappingCount() != 0) {
+            return false;
+        }
+        IfNode limitTest = counted.getLimitTest();
+        if (!(limitTest.condition() instanceof IntegerLessThanNode)) {
+            return false;
+        }
+        IntegerLessThanNode condition = (IntegerLessThanNode) limitTest.condition();
+        ValueNode limit = counted.getLimit();
+        ValueNode counter = counted.getCounter().valueNode();
+        if (limit == counter || !((condition.getX() == counter && condition.getY() == limit) || (condition.getX() == limit && condition.getY() == counter))) {
+            return false;
+        }
+        AbstractBeginNode exit = limitTest.trueSuccessor() == counted.getBody() ? limitTest.falseSuccessor() : limitTest.trueSuccessor();
+        if (!(exit instanceof LoopExitNode) || ((LoopExitNode) exit).loopBegin() != loopBegin) {
+            return false;
+        }
+        return !(counted.isConstantMaxTripCount() && counted.constantMaxTripCount().isLessOrEqualTo(stripLength));
+    }
+
+    /**
+     * Splits a long running counted loop into a nest: the original loop becomes an inner loop that
+     * executes at most {@code stripLength} iterations without a safepoint poll, and a new outer
+     * loop re-enters it until the original limit is reached. Only the back edge of the outer loop
+     * can safepoint.
+     *
+     * @return the {@link LoopBeginNode} of the new outer loop
+     */
+    public static LoopBeginNode stripMine(LoopEx loop, int stripLength) {
+        assert canStripMine(loop, stripLength);
+        CountedLoopInfo counted = loop.counted();
+        LoopBeginNode innerBegin = loop.loopBegin();
+        StructuredGraph graph = innerBegin.graph();
+        IfNode limitTest = counted.getLimitTest();
+        IntegerLessThanNode condition = (IntegerLessThanNode) limitTest.condition();
+        ValueNode limit = counted.getLimit();
+        boolean exitOnTrue = limitTest.trueSuccessor() != counted.getBody();
+        LoopExitNode limitExit = (LoopExitNode) (exitOnTrue ? limitTest.trueSuccessor() : limitTest.falseSuccessor());
+        double continueProbability = limitTest.probability(counted.getBody());
+
+        // Route the loop entry through the new outer loop header.
+        LoopBeginNode outerBegin = graph.add(new LoopBeginNode());
+        EndNode forwardEnd = (EndNode) innerBegin.forwardEnd();
+        EndNode innerEntry = graph.add(new EndNode());
+        forwardEnd.replaceAtUsages(innerEntry);
+        outerBegin.addForwardEnd(forwardEnd);
+        outerBegin.setNext(innerEntry);
+        LoopEndNode outerEnd = graph.add(new LoopEndNode(outerBegin));
+        BeginNode continueBegin = graph.add(new BeginNode());
+        continueBegin.setNext(outerEnd);
+        LoopExitNode outerExit = graph.add(new LoopExitNode(outerBegin));
+
+        // Every inner phi gets an outer phi that carries its value across strips.
+        EconomicMap<PhiNode, PhiNode> outerPhis = EconomicMap.create(Equivalence.IDENTITY);
+        for (PhiNode phi : innerBegin.phis().snapshot()) {
+            PhiNode outer = (PhiNode) phi.copyWithInputs();
+            outer.setMerge(outerBegin);
+            outer.clearValues();
+            outer.addInput(phi.valueAt(0));
+            outer.addInput(phi);
+            phi.setValueAt(0, outer);
+            outerPhis.put(phi, outer);
+        }
+        FrameState outerState = innerBegin.stateAfter().duplicate();
+        for (int i = 0; i < outerState.values().size(); i++) {
+            ValueNode value = outerState.values().get(i);
+            if (value instanceof PhiNode && outerPhis.containsKey((PhiNode) value)) {
+                outerState.values().set(i, outerPhis.get((PhiNode) value));
+            }
+        }
+        outerBegin.setStateAfter(outerState);
+
+        // The inner loop runs until the original limit or the end of the current strip.
+        BasicInductionVariable counter = (BasicInductionVariable) counted.getCounter();
+        ValueNode stripStart = SignExtendNode.create(outerPhis.get(counter.valueNode()), 64, NodeView.DEFAULT);
+        ValueNode stripEnd = AddNode.create(stripStart, ConstantNode.forLong(stripLength * counter.constantStride()), NodeView.DEFAULT);
+        ValueNode wideLimit = SignExtendNode.create(limit, 64, NodeView.DEFAULT);
+        ValueNode stripLimit;
+        if (counted.getDirection() == Direction.Up) {
+            stripLimit = ConditionalNode.create(IntegerLessThanNode.create(wideLimit, stripEnd, NodeView.DEFAULT), wideLimit, stripEnd, NodeView.DEFAULT);
+        } else {
+            stripLimit = ConditionalNode.create(IntegerLessThanNode.create(stripEnd, wideLimit, NodeView.DEFAULT), wideLimit, stripEnd, NodeView.DEFAULT);
+        }
+        stripLimit = graph.addOrUniqueWithInputs(NarrowNode.create(stripLimit, 32, NodeView.DEFAULT));
+        IntegerLessThanNode stripCondition = (IntegerLessThanNode) condition.copyWithInputs();
+        stripCondition.replaceFirstInput(limit, stripLimit);
+        limitTest.setCondition(stripCondition);
+
+        // Leaving the inner loop at the strip limit re-checks the original limit.
+        limitExit.replaceAtUsages(outerExit);
+        if (limitExit.stateAfter() != null) {
+            outerExit.setStateAfter(limitExit.stateAfter());
+            limitExit.setStateAfter(null);
+        }
+        FixedNode continuation = limitExit.next();
+        limitExit.setNext(null);
+        outerExit.setNext(continuation);
+        IfNode outerTest = graph.add(new IfNode(condition, exitOnTrue ? outerExit : continueBegin, exitOnTrue ? continueBegin : outerExit,
+                        exitOnTrue ? 1 - continueProbability : continueProbability));
+        limitExit.setNext(outerTest);
+
+        // All other exits of the inner loop also leave the outer loop.
+        for (LoopExitNode exit : innerBegin.loopExits().snapshot()) {
+            if (exit != limitExit) {
+                LoopExitNode exitOuter = graph.add(new LoopExitNode(outerBegin));
+                exitOuter.setStateAfter(exit.stateAfter());
+                graph.addAfterFixed(exit, exitOuter);
+            }
+        }
+
+        double frequency = innerBegin.loopFrequency();
+        outerBegin.setLoopFrequency(Math.max(1, frequency / stripLength));
+        innerBegin.setLoopFrequency(Math.min(frequency, stripLength));
+        graph.getDebug().dump(DebugContext.DETAILED_LEVEL, graph, "After strip mining %s", innerBegin);
+        return outerBegin;
+    }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.test;
+
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.loop.phases.LoopPredicationPhase;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.spi.LoweringTool;
+import org.graalvm.compiler.phases.OptimisticOptimizations;
+import org.graalvm.compiler.phases.common.CanonicalizerPhase;
+import org.graalvm.compiler.phases.common.ConditionalEliminationPhase;
+import org.graalvm.compiler.phases.common.FloatingReadPhase;
+import org.graalvm.compiler.phases.common.LoweringPhase;
+import org.graalvm.compiler.phases.tiers.MidTierContext;
+import org.junit.Test;
+
+import jdk.vm.ci.code.InstalledCode;
+import jdk.vm.ci.code.InvalidInstalledCodeException;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.SpeculationLog;
+
+public class LoopPredicationTest extends GraalCompilerTest {
+
+    @Override
+    protected SpeculationLog getSpeculationLog() {
+        return getCodeCache().createSpeculationLog();
+    }
+
+    public static int sumSnippet(int[] array, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    public static int sumOffsetSnippet(int[] array, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += array[i + 1];
+        }
+        return sum;
+    }
+
+    public static int sumScaledSnippet(int[] array, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += array[2 * i] - array[2 * i + 1];
+        }
+        return sum;
+    }
+
+    public static int sumReverseSnippet(int[] array, int n) {
+        int sum = 0;
+        for (int i = n; i >= 0; i--) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    public static int sumMirroredSnippet(int[] array, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += array[n - 1 - i];
+        }
+        return sum;
+    }
+
+    public static int copySnippet(int[] src, int srcPos, int[] dst, int dstPos, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstPos + i] = src[srcPos + i];
+        }
+        return dst[dstPos];
+    }
+
+    private static int[] array(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 31;
+        }
+        return array;
+    }
+
+    @Test
+    public void testSum() {
+        assertPredicated("sumSnippet");
+        test("sumSnippet", array(10), 0);
+        test("sumSnippet", array(10), 10);
+        test("sumSnippet", array(10), 11);
+        test("sumSnippet", array(0), 1);
+        test("sumSnippet", null, 1);
+    }
+
+    @Test
+    public void testSumOffset() {
+        assertPredicated("sumOffsetSnippet");
+        test("sumOffsetSnippet", array(10), 9);
+        test("sumOffsetSnippet", array(10), 10);
+    }
+
+    @Test
+    public void testSumScaled() {
+        assertPredicated("sumScaledSnippet");
+        test("sumScaledSnippet", array(10), 5);
+        test("sumScaledSnippet", array(11), 6);
+    }
+
+    @Test
+    public void testSumReverse() {
+        assertPredicated("sumReverseSnippet");
+        test("sumReverseSnippet", array(10), 9);
+        test("sumReverseSnippet", array(10), 10);
+        test("sumReverseSnippet", array(10), -1);
+    }
+
+    @Test
+    public void testSumMirrored() {
+        assertPredicated("sumMirroredSnippet");
+        test("sumMirroredSnippet", array(10), 10);
+        test("sumMirroredSnippet", array(10), 11);
+    }
+
+    @Test
+    public void testCopy() {
+        assertPredicated("copySnippet");
+        test("copySnippet", array(10), 0, new int[10], 0, 10);
+        test("copySnippet", array(10), 5, new int[10], 0, 5);
+        test("copySnippet", array(10), 6, new int[10], 0, 5);
+        test("copySnippet", array(10), 0, new int[10], -1, 5);
+        test("copySnippet", array(10), Integer.MAX_VALUE, new int[10], 0, 5);
+    }
+
+    @Test
+    public void testZeroTrip() {
+        // The ranges of these loops are out of bounds, but the loops are never entered.
+        assertNoDeopt("sumOffsetSnippet", array(0), 0);
+        assertNoDeopt("sumReverseSnippet", array(0), -1);
+        assertNoDeopt("sumMirroredSnippet", array(0), 0);
+        assertNoDeopt("copySnippet", array(10), Integer.MAX_VALUE, new int[10], 0, 0);
+    }
+
+    @Test
+    public void testInRange() {
+        assertNoDeopt("sumSnippet", array(10), 10);
+        assertNoDeopt("sumScaledSnippet", array(10), 5);
+        assertNoDeopt("sumReverseSnippet", array(10), 9);
+        assertNoDeopt("copySnippet", array(10), 5, new int[10], 0, 5);
+    }
+
+    private void assertNoDeopt(String name, Object... args) {
+        ResolvedJavaMethod method = getResolvedJavaMethod(name);
+        InstalledCode code = getCode(method, null, true);
+        Result expected = executeExpected(method, null, args);
+        try {
+            assertDeepEquals(expected.returnValue, code.executeVarargs(args));
+        } catch (InvalidInstalledCodeException e) {
+            fail("%s invalidated", name);
+        }
+        assertTrue(name + " deoptimized", code.isValid());
+    }
+
+    @SuppressWarnings("try")
+    private void assertPredicated(String name) {
+        StructuredGraph graph = parseEager(name, AllowAssumptions.YES);
+        try (DebugContext.Scope s = graph.getDebug().scope(name, graph)) {
+            MidTierContext context = new MidTierContext(getProviders(), getTargetProvider(), OptimisticOptimizations.ALL, null);
+            CanonicalizerPhase canonicalizer = new CanonicalizerPhase();
+            canonicalizer.apply(graph, context);
+            new LoweringPhase(canonicalizer, LoweringTool.StandardLoweringStage.HIGH_TIER).apply(graph, context);
+            new FloatingReadPhase().apply(graph);
+            new ConditionalEliminationPhase(true).apply(graph, context);
+            int boundsChecks = countGuards(graph, DeoptimizationReason.BoundsCheckException);
+            assertTrue("no bounds checks in " + name, boundsChecks > 0);
+
+            new LoopPredicationPhase().apply(graph, context);
+            canonicalizer.apply(graph, context);
+            assertTrue("bounds checks not hoisted in " + name, countGuards(graph, DeoptimizationReason.BoundsCheckException) < boundsChecks);
+            assertTrue("no predicate in " + name, countPredicates(graph) > 0);
+        } catch (Throwable e) {
+            throw getDebugContext().handle(e);
+        }
+    }
+
+    private static int countGuards(StructuredGraph graph, DeoptimizationReason reason) {
+        int count = 0;
+        for (GuardNode guard : graph.getNodes(GuardNode.TYPE)) {
+            if (guard.getReason() == reason && guard.getSpeculation().isNull()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int countPredicates(StructuredGraph graph) {
+        int count = 0;
+        for (GuardNode guard : graph.getNodes(GuardNode.TYPE)) {
+            if (guard.getReason() == DeoptimizationReason.BoundsCheckException && !guard.getSpeculation().isNull()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
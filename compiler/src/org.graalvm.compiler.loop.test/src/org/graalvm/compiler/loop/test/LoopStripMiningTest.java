@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.test;
+
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoopStripMiningTest extends GraalCompilerTest {
+
+    public static long sumSnippet(int[] array, int n) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    public static int sumDownSnippet(int[] array, int n) {
+        int sum = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    public static int sumStrideSnippet(int[] array, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i += 3) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    public static int searchSnippet(int[] array, int n, int value) {
+        for (int i = 0; i < n; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static int sumIncludedSnippet(int[] array, int from, int to) {
+        int sum = 0;
+        for (int i = from; i <= to; i++) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    private static int[] array(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 31;
+        }
+        return array;
+    }
+
+    private static OptionValues stripMining() {
+        return new OptionValues(getInitialOptions(), GraalOptions.LoopStripMining, true, GraalOptions.LoopStripMiningIterations, 16);
+    }
+
+    @Override
+    protected boolean checkMidTierGraph(StructuredGraph graph) {
+        if (GraalOptions.LoopStripMining.getValue(graph.getOptions())) {
+            int safepointingLoops = 0;
+            for (LoopBeginNode loopBegin : graph.getNodes(LoopBeginNode.TYPE)) {
+                for (LoopEndNode loopEnd : loopBegin.loopEnds()) {
+                    if (loopEnd.canSafepoint()) {
+                        safepointingLoops++;
+                        break;
+                    }
+                }
+            }
+            Assert.assertTrue("expected a loop nest", graph.getNodes(LoopBeginNode.TYPE).count() >= 2);
+            Assert.assertTrue("expected the outer loop to poll", safepointingLoops >= 1);
+        }
+        return true;
+    }
+
+    @Test
+    public void testSum() {
+        for (int n : new int[]{0, 1, 15, 16, 17, 100}) {
+            test(stripMining(), "sumSnippet", array(100), n);
+        }
+    }
+
+    @Test
+    public void testSumDown() {
+        for (int n : new int[]{0, 1, 15, 16, 17, 100}) {
+            test(stripMining(), "sumDownSnippet", array(100), n);
+        }
+    }
+
+    @Test
+    public void testSumStride() {
+        for (int n : new int[]{0, 1, 47, 48, 49, 100}) {
+            test(stripMining(), "sumStrideSnippet", array(100), n);
+        }
+    }
+
+    @Test
+    public void testSearch() {
+        int[] array = array(100);
+        test(stripMining(), "searchSnippet", array, 100, 31 * 40);
+        test(stripMining(), "searchSnippet", array, 100, 1);
+        test(stripMining(), "searchSnippet", array, 20, 31 * 40);
+    }
+
+    @Test
+    public void testSumIncluded() {
+        test(stripMining(), "sumIncludedSnippet", array(100), 0, 99);
+        test(stripMining(), "sumIncludedSnippet", array(100), 10, 10);
+        test(stripMining(), "sumIncludedSnippet", array(100), 3, 50);
+        test(stripMining(), "sumIncludedSnippet", array(100), 10, 5);
+    }
+}
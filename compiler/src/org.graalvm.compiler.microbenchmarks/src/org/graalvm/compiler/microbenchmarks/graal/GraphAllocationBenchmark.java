@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.microbenchmarks.graal;
+
+import java.util.StringTokenizer;
+
+import org.graalvm.compiler.graph.Graph;
+import org.graalvm.compiler.microbenchmarks.graal.util.GraalState;
+import org.graalvm.compiler.microbenchmarks.graal.util.GraphState;
+import org.graalvm.compiler.microbenchmarks.graal.util.MethodSpec;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the memory allocated for graph node storage when {@linkplain Graph#copy copying} a
+ * graph and when {@linkplain Graph#maybeCompress() compressing} a graph after many nodes were
+ * deleted. Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} to see the bytes
+ * allocated per operation.
+ */
+public class GraphAllocationBenchmark extends GraalBenchmark {
+
+    private static final int DELETED_NODES = 10000;
+
+    @MethodSpec(declaringClass = StringTokenizer.class, name = "nextToken", parameters = {String.class})
+    public static class NextToken extends GraphState {
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public StructuredGraph copy(NextToken s, GraalState g) {
+        return (StructuredGraph) s.graph.copy(g.debug);
+    }
+
+    @Benchmark
+    public boolean createDeleteAndCompress(NextToken s) {
+        StructuredGraph graph = s.graph;
+        for (int i = 0; i < DELETED_NODES; i++) {
+            ConstantNode constant = graph.addOrUnique(ConstantNode.forInt(i));
+            GraphUtil.killWithUnusedFloatingInputs(constant);
+        }
+        return graph.maybeCompress();
+    }
+}
@@ -22,13 +22,27 @@
  */
 package org.graalvm.compiler.nodes.java;
 
+import static org.graalvm.compiler.core.common.GraalOptions.MaximumEscapeAnalysisVariableIndexArrayLength;
+
+import org.graalvm.compiler.core.common.type.IntegerStamp;
 import org.graalvm.compiler.core.common.type.Stamp;
 import org.graalvm.compiler.graph.NodeClass;
 import org.graalvm.compiler.nodeinfo.NodeInfo;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FixedGuardNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.NodeView;
 import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.IntegerBelowNode;
+import org.graalvm.compiler.nodes.calc.IntegerEqualsNode;
 import org.graalvm.compiler.nodes.spi.Lowerable;
 import org.graalvm.compiler.nodes.spi.LoweringTool;
+import org.graalvm.compiler.nodes.spi.VirtualizerTool;
+import org.graalvm.compiler.nodes.virtual.VirtualArrayNode;
+import org.graalvm.compiler.nodes.virtual.VirtualObjectNode;
 
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
 import jdk.vm.ci.meta.JavaKind;
 
 /**
@@ -69,6 +83,61 @@ public abstract class AccessIndexedNode extends AccessArrayNode implements Lower
         return elementKind;
     }
 
+    /**
+     * Determines if an access to {@code virtual} with the non-constant {@code index} can be
+     * virtualized by selecting among all elements of the array. This requires a small array,
+     * elements that are all compatible with {@code accessStamp} and are not virtual themselves, and
+     * an index whose stamp proves that the access is in bounds unless a bounds check can be
+     * {@linkplain #ensureInBounds inserted}.
+     */
+    protected final boolean canVirtualizeVariableIndex(ValueNode index, VirtualArrayNode virtual, Stamp accessStamp, VirtualizerTool tool) {
+        int length = virtual.entryCount();
+        if (index.isConstant() || length == 0 || length > MaximumEscapeAnalysisVariableIndexArrayLength.getValue(tool.getOptions())) {
+            return false;
+        }
+        if (!(index.stamp(NodeView.DEFAULT) instanceof IntegerStamp)) {
+            return false;
+        }
+        if (!isInBounds(index, length) && !graph().getGuardsStage().allowsFloatingGuards()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            ValueNode entry = tool.getEntry(virtual, i);
+            if (entry instanceof VirtualObjectNode || !accessStamp.isCompatible(entry.stamp(NodeView.DEFAULT))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isInBounds(ValueNode index, int length) {
+        IntegerStamp indexStamp = (IntegerStamp) index.stamp(NodeView.DEFAULT);
+        return indexStamp.lowerBound() >= 0 && indexStamp.upperBound() < length;
+    }
+
+    /**
+     * Inserts a bounds check in front of a virtualized variable index access unless the stamp of
+     * {@code index} proves that the access is in bounds. Like the bounds check of the lowered
+     * access, it deoptimizes so that the interpreter throws the exception.
+     */
+    protected final void ensureInBounds(ValueNode index, VirtualArrayNode virtual, VirtualizerTool tool) {
+        int length = virtual.entryCount();
+        if (!isInBounds(index, length)) {
+            LogicNode inBounds = new IntegerBelowNode(index, ConstantNode.forInt(length, graph()));
+            tool.addNode(inBounds);
+            tool.addNode(new FixedGuardNode(inBounds, DeoptimizationReason.BoundsCheckException, DeoptimizationAction.InvalidateReprofile));
+        }
+    }
+
+    /**
+     * Creates the condition that selects element {@code i} for a variable index access.
+     */
+    protected final LogicNode selectsElement(ValueNode indexValue, int i, VirtualizerTool tool) {
+        LogicNode condition = new IntegerEqualsNode(indexValue, ConstantNode.forInt(i, graph()));
+        tool.addNode(condition);
+        return condition;
+    }
+
     @Override
     public void lower(LoweringTool tool) {
         tool.getLowerer().lower(this, tool);
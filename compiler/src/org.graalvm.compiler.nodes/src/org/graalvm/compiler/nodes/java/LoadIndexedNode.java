@@ -37,6 +37,7 @@ import org.graalvm.compiler.nodeinfo.NodeInfo;
 import org.graalvm.compiler.nodes.ConstantNode;
 import org.graalvm.compiler.nodes.NodeView;
 import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.ConditionalNode;
 import org.graalvm.compiler.nodes.spi.Virtualizable;
 import org.graalvm.compiler.nodes.spi.VirtualizerTool;
 import org.graalvm.compiler.nodes.type.StampTool;
@@ -121,6 +122,16 @@ public class LoadIndexedNode extends AccessIndexedNode implements Virtualizable,
                     assert stamp(NodeView.DEFAULT).getStackKind() == JavaKind.Int && (entry.stamp(NodeView.DEFAULT).getStackKind() == JavaKind.Long || entry.getStackKind() == JavaKind.Double ||
                                     entry.getStackKind() == JavaKind.Illegal) : "Can only allow different stack kind two slot marker writes on one stot fields.";
                 }
+            } else if (canVirtualizeVariableIndex(indexValue, virtual, stamp, tool)) {
+                // select the element with a chain of conditionals once the index is in bounds
+                ensureInBounds(indexValue, virtual, tool);
+                int length = virtual.entryCount();
+                ValueNode result = tool.getEntry(virtual, length - 1);
+                for (int i = length - 2; i >= 0; i--) {
+                    result = new ConditionalNode(selectsElement(indexValue, i, tool), tool.getEntry(virtual, i), result);
+                    tool.addNode(result);
+                }
+                tool.replaceWith(result);
             }
         }
     }
@@ -30,8 +30,10 @@ import org.graalvm.compiler.core.common.type.StampFactory;
 import org.graalvm.compiler.graph.NodeClass;
 import org.graalvm.compiler.nodeinfo.NodeInfo;
 import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.NodeView;
 import org.graalvm.compiler.nodes.StateSplit;
 import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.ConditionalNode;
 import org.graalvm.compiler.nodes.spi.Lowerable;
 import org.graalvm.compiler.nodes.spi.Virtualizable;
 import org.graalvm.compiler.nodes.spi.VirtualizerTool;
@@ -85,13 +87,28 @@ public final class StoreIndexedNode extends AccessIndexedNode implements StateSp
             ValueNode indexValue = tool.getAlias(index());
             int idx = indexValue.isConstant() ? indexValue.asJavaConstant().asInt() : -1;
             VirtualArrayNode virtual = (VirtualArrayNode) alias;
+            ResolvedJavaType componentType = virtual.type().getComponentType();
+            boolean storeCheckSucceeds = componentType.isPrimitive() || StampTool.isPointerAlwaysNull(value) || componentType.getSuperclass() == null ||
+                            (StampTool.typeReferenceOrNull(value) != null && componentType.isAssignableFrom(StampTool.typeOrNull(value)));
             if (idx >= 0 && idx < virtual.entryCount()) {
-                ResolvedJavaType componentType = virtual.type().getComponentType();
-                if (componentType.isPrimitive() || StampTool.isPointerAlwaysNull(value) || componentType.getSuperclass() == null ||
-                                (StampTool.typeReferenceOrNull(value) != null && componentType.isAssignableFrom(StampTool.typeOrNull(value)))) {
+                if (storeCheckSucceeds) {
                     tool.setVirtualEntry(virtual, idx, value());
                     tool.delete();
                 }
+            } else if (storeCheckSucceeds && canVirtualizeVariableIndex(indexValue, virtual, value.stamp(NodeView.DEFAULT), tool)) {
+                ValueNode valueAlias = tool.getAlias(value());
+                if (valueAlias instanceof VirtualObjectNode) {
+                    // storing a virtual object cannot be expressed with conditionals
+                    return;
+                }
+                ensureInBounds(indexValue, virtual, tool);
+                // every element keeps its value unless the index selects it
+                for (int i = 0; i < virtual.entryCount(); i++) {
+                    ValueNode entry = new ConditionalNode(selectsElement(indexValue, i, tool), valueAlias, tool.getEntry(virtual, i));
+                    tool.addNode(entry);
+                    tool.setVirtualEntry(virtual, i, entry);
+                }
+                tool.delete();
             }
         }
     }
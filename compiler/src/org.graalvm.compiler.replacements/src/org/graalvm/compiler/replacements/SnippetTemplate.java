@@ -40,9 +40,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Formattable;
 import java.util.Formatter;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
@@ -61,6 +60,7 @@ import org.graalvm.compiler.core.common.type.Stamp;
 import org.graalvm.compiler.core.common.type.StampFactory;
 import org.graalvm.compiler.core.common.type.StampPair;
 import org.graalvm.compiler.core.common.type.TypeReference;
+import org.graalvm.compiler.core.common.util.SecondChanceCache;
 import org.graalvm.compiler.debug.CounterKey;
 import org.graalvm.compiler.debug.DebugCloseable;
 import org.graalvm.compiler.debug.DebugContext;
@@ -114,6 +114,7 @@ import org.graalvm.compiler.nodes.memory.MemoryPhiNode;
 import org.graalvm.compiler.nodes.spi.ArrayLengthProvider;
 import org.graalvm.compiler.nodes.spi.LoweringTool;
 import org.graalvm.compiler.nodes.spi.MemoryProxy;
+import org.graalvm.compiler.nodes.spi.Replacements;
 import org.graalvm.compiler.nodes.util.GraphUtil;
 import org.graalvm.compiler.options.Option;
 import org.graalvm.compiler.options.OptionKey;
@@ -566,7 +567,7 @@ public class SnippetTemplate {
     private static final CounterKey SnippetTemplates = DebugContext.counter("SnippetTemplateCount");
 
     static class Options {
-        @Option(help = "Use a LRU cache for snippet templates.")//
+        @Option(help = "Use a concurrent LRU cache for snippet templates.")//
         public static final OptionKey<Boolean> UseSnippetTemplateCache = new OptionKey<>(true);
 
         @Option(help = "")//
@@ -583,7 +584,8 @@ public class SnippetTemplate {
         protected final SnippetReflectionProvider snippetReflection;
         protected final Iterable<DebugHandlersFactory> factories;
         protected final TargetDescription target;
-        private final Map<CacheKey, SnippetTemplate> templates;
+        private final SecondChanceCache<CacheKey, SnippetTemplate> templates;
+        private final List<SnippetInfo> snippets = new CopyOnWriteArrayList<>();
 
         protected AbstractTemplates(OptionValues options, Iterable<DebugHandlersFactory> factories, Providers providers, SnippetReflectionProvider snippetReflection, TargetDescription target) {
             this.options = options;
@@ -593,7 +595,7 @@ public class SnippetTemplate {
             this.factories = factories;
             if (Options.UseSnippetTemplateCache.getValue(options)) {
                 int size = Options.MaxTemplatesPerSnippet.getValue(options);
-                this.templates = Collections.synchronizedMap(new LRUCache<>(size, size));
+                this.templates = new SecondChanceCache<>(size);
             } else {
                 this.templates = null;
             }
@@ -622,10 +624,29 @@ public class SnippetTemplate {
             ResolvedJavaMethod javaMethod = providers.getMetaAccess().lookupJavaMethod(method);
             providers.getReplacements().registerSnippet(javaMethod, GraalOptions.TrackNodeSourcePosition.getValue(options));
             LocationIdentity[] privateLocations = GraalOptions.SnippetCounters.getValue(options) ? SnippetCounterNode.addSnippetCounters(initialPrivateLocations) : initialPrivateLocations;
+            SnippetInfo info;
             if (GraalOptions.EagerSnippets.getValue(options)) {
-                return new EagerSnippetInfo(javaMethod, privateLocations);
+                info = new EagerSnippetInfo(javaMethod, privateLocations);
             } else {
-                return new LazySnippetInfo(javaMethod, privateLocations);
+                info = new LazySnippetInfo(javaMethod, privateLocations);
+            }
+            snippets.add(info);
+            return info;
+        }
+
+        /**
+         * Computes the parameter information of all snippets created by {@link #snippet} and gets
+         * the snippet graph of each of them without constant arguments. That graph is kept in the
+         * snippet graph cache of the {@link Replacements}. Templates binding constant parameters
+         * still parse their snippet again, but the classes, methods and plugins the snippets depend
+         * on are loaded and resolved before the first lowering that needs them.
+         */
+        public void prepareSnippets() {
+            Replacements replacements = providers.getReplacements();
+            boolean trackNodeSourcePosition = GraalOptions.TrackNodeSourcePosition.getValue(options);
+            for (SnippetInfo info : snippets) {
+                info.lazy();
+                replacements.getSnippet(info.method, null, null, trackNodeSourcePosition, null);
             }
         }
 
@@ -665,21 +686,6 @@ public class SnippetTemplate {
         }
     }
 
-    private static final class LRUCache<K, V> extends LinkedHashMap<K, V> {
-        private static final long serialVersionUID = 1L;
-        private final int maxCacheSize;
-
-        LRUCache(int initialCapacity, int maxCacheSize) {
-            super(initialCapacity, 0.75F, true);
-            this.maxCacheSize = maxCacheSize;
-        }
-
-        @Override
-        protected boolean removeEldestEntry(java.util.Map.Entry<K, V> eldest) {
-            return size() > maxCacheSize;
-        }
-    }
-
     // These values must be compared with equals() not '==' to support replay compilation.
     private static final Object UNUSED_PARAMETER = "UNUSED_PARAMETER";
     private static final Object CONSTANT_PARAMETER = "CONSTANT_PARAMETER";
@@ -83,6 +83,12 @@ public abstract class PartialEscapeClosure<BlockT extends PartialEscapeBlockStat
     public static final CounterKey COUNTER_MATERIALIZATIONS_PHI = DebugContext.counter("MaterializationsPhi");
     public static final CounterKey COUNTER_MATERIALIZATIONS_MERGE = DebugContext.counter("MaterializationsMerge");
     public static final CounterKey COUNTER_MATERIALIZATIONS_UNHANDLED = DebugContext.counter("MaterializationsUnhandled");
+    /**
+     * Counts objects that are materialized because they are passed as an argument to a call that
+     * was not inlined. This is a raw count: it does not know whether the callee lets the argument
+     * escape.
+     */
+    public static final CounterKey COUNTER_MATERIALIZATIONS_CALL_ARGUMENT = DebugContext.counter("MaterializationsCallArgument");
     public static final CounterKey COUNTER_MATERIALIZATIONS_LOOP_REITERATION = DebugContext.counter("MaterializationsLoopReiteration");
     public static final CounterKey COUNTER_MATERIALIZATIONS_LOOP_END = DebugContext.counter("MaterializationsLoopEnd");
     public static final CounterKey COUNTER_ALLOCATION_REMOVED = DebugContext.counter("AllocationsRemoved");
@@ -353,12 +359,13 @@ public abstract class PartialEscapeClosure<BlockT extends PartialEscapeBlockStat
      */
     private void processNodeInputs(ValueNode node, FixedNode insertBefore, BlockT state, GraphEffectList effects) {
         VirtualUtil.trace(node.getOptions(), debug, "processing nodewithstate: %s", node);
+        CounterKey counter = node instanceof CallTargetNode ? COUNTER_MATERIALIZATIONS_CALL_ARGUMENT : COUNTER_MATERIALIZATIONS_UNHANDLED;
         for (Node input : node.inputs()) {
             if (input instanceof ValueNode) {
                 ValueNode alias = getAlias((ValueNode) input);
                 if (alias instanceof VirtualObjectNode) {
                     int id = ((VirtualObjectNode) alias).getObjectId();
-                    ensureMaterialized(state, id, insertBefore, effects, COUNTER_MATERIALIZATIONS_UNHANDLED);
+                    ensureMaterialized(state, id, insertBefore, effects, counter);
                     effects.replaceFirstInput(node, input, state.getObjectState(id).getMaterializedValue());
                     VirtualUtil.trace(node.getOptions(), debug, "replacing input %s at %s", input, node);
                 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex;
+
+import com.oracle.truffle.regex.RegexExecutionLimitException;
+import com.oracle.truffle.regex.RegexObject;
+import com.oracle.truffle.regex.RegexOptions;
+import com.oracle.truffle.regex.UnsupportedRegexException;
+import com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecRootNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BacktrackingExecutorTest extends RegexTestBase {
+
+    private final TRegexCompiler compiler = new TRegexCompiler(null, RegexOptions.DEFAULT);
+
+    @Override
+    protected TRegexCompiler getCompiler() {
+        return compiler;
+    }
+
+    private void testBacktracking(String pattern, String flags, String input, int fromIndex, int... expectedGroups) {
+        RegexObject regex = compile(pattern, flags);
+        Assert.assertTrue(pattern, getCompiledRegex(regex) instanceof TRegexBacktrackingExecRootNode);
+        test(regex, input, fromIndex, expectedGroups);
+    }
+
+    @Test
+    public void testBackReferences() {
+        testBacktracking("(a+)b\\1", "", "xaabaa", 0, 1, 6, 1, 3);
+        testBacktracking("(a+)b\\1", "", "aabab", 0, 1, 4, 1, 2);
+        testBacktracking("(a+)b\\1", "", "aabx", 0);
+        testBacktracking("(a)?b\\1", "", "b", 0, 0, 1, -1, -1);
+        testBacktracking("(a)\\1", "i", "xaA", 0, 1, 3, 1, 2);
+        testBacktracking("(a)\\1", "y", "baa", 0);
+        testBacktracking("(a)\\1", "y", "baa", 1, 1, 3, 1, 2);
+        testBacktracking("(?:(a)|b)\\1c", "", "bc", 0, 0, 2, -1, -1);
+    }
+
+    @Test
+    public void testNegativeLookAhead() {
+        testBacktracking("a(?!b)\\w", "", "abac", 0, 2, 4);
+        testBacktracking("a(?!b)\\w", "", "abab", 0);
+        // captures in a negative look-ahead never participate in the match
+        testBacktracking("(?!(a)b)(\\w)", "", "abc", 0, 1, 2, -1, -1, 1, 2);
+        testBacktracking("(\\D+)(?!\\d)", "", "ab1", 0, 0, 1, 0, 1);
+    }
+
+    @Test
+    public void testLookBehind() {
+        testBacktracking("(?<=(a|bc))d", "", "bcd", 0, 2, 3, 0, 2);
+        testBacktracking("(?<=(a|bc))d", "", "xcd", 0);
+        testBacktracking("(?<=\\1(a))b", "", "aab", 0, 2, 3, 1, 2);
+        testBacktracking("(?<!(a|bc))d", "", "bcdxd", 0, 4, 5, -1, -1);
+    }
+
+    @Test
+    public void testNestedQuantifiers() {
+        testBacktracking("((a|b)*?)c\\1", "", "abcab", 0, 0, 5, 0, 2, 1, 2);
+        // empty iterations are rejected, so the only match skips the loop
+        testBacktracking("(a*)*b\\1", "", "aab", 0, 2, 3, -1, -1);
+        testBacktracking("(?:(a)|(b))+\\2", "", "abb", 0, 0, 3, -1, -1, 1, 2);
+    }
+
+    @Test(expected = RegexExecutionLimitException.class)
+    public void testCatastrophicBacktracking() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 32; i++) {
+            input.append('a');
+        }
+        testBacktracking("(a*)*b\\1", "", input.toString(), 0);
+    }
+
+    @Test(expected = UnsupportedRegexException.class)
+    public void testLargeCountedRepetitionBailout() {
+        compile("(a)\\1{" + (TRegexOptions.TRegexMaxCountedRepetition + 1) + "}", "");
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex;
+
+import com.oracle.truffle.regex.RegexObject;
+import com.oracle.truffle.regex.RegexOptions;
+import com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecRootNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BacktrackingTierTest extends RegexTestBase {
+
+    private final TRegexCompiler compiler = new TRegexCompiler(null, RegexOptions.parse("BacktrackingTier=true"));
+
+    @Override
+    protected TRegexCompiler getCompiler() {
+        return compiler;
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testMatch() {
+        RegexObject regex = compile("(a|ab)(c|bcd)(d*)", "");
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexBacktrackingExecRootNode);
+        test(regex, "xxabcd", 1, 2, 6, 2, 3, 3, 6, 6, 6);
+        test(regex, "abcd", 0, 0, 4, 0, 1, 1, 4, 4, 4);
+        test(regex, "abx", 0);
+        test("a(?=b(c))", "", "abc", 0, 0, 1, 2, 3);
+        test("(?<=a)b+", "", "abbb", 0, 1, 4);
+        test("x(y)?z", "y", "axz", 1, 1, 3, -1, -1);
+        test("x(y)?z", "y", "axz", 0);
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexBacktrackingExecRootNode);
+    }
+
+    @Test
+    public void testCatastrophicBacktracking() {
+        RegexObject regex = compile("(a*)*b", "");
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexBacktrackingExecRootNode);
+        test(regex, "aab", 0, 0, 3, 0, 2);
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexBacktrackingExecRootNode);
+        // exponential number of paths, exceeds the step limit and switches to the DFA
+        String input = repeat('a', 64);
+        test(regex, input, 0);
+        Assert.assertFalse(getCompiledRegex(regex) instanceof TRegexBacktrackingExecRootNode);
+        test(regex, input + "b", 0, 0, 65, 0, 64);
+        test(regex, "aab", 0, 0, 3, 0, 2);
+    }
+
+    @Test
+    public void testStackLimit() {
+        RegexObject regex = compile("(a|b)*c", "");
+        // one choice point per iteration, exceeds the stack limit on long inputs
+        String input = repeat('a', TRegexOptions.TRegexBacktrackingMaxStackEntries * 2) + "c";
+        test(regex, input, 0, 0, input.length(), input.length() - 2, input.length() - 1);
+        Assert.assertFalse(getCompiledRegex(regex) instanceof TRegexBacktrackingExecRootNode);
+    }
+
+    @Test
+    public void testBackReferencesNoFallback() {
+        RegexObject regex = compile("(a+)b\\1", "");
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexBacktrackingExecRootNode);
+        String input = repeat('a', TRegexOptions.TRegexBacktrackingMaxStackEntries * 2);
+        test(regex, input + "b" + input, 0, 0, input.length() * 2 + 1, 0, input.length());
+        // expressions that need backtracking never switch executors, and get larger limits instead
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexBacktrackingExecRootNode);
+    }
+}
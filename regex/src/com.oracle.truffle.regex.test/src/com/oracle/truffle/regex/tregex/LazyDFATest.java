@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex;
+
+import java.util.Random;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.regex.RegexObject;
+import com.oracle.truffle.regex.RegexOptions;
+import com.oracle.truffle.regex.tregex.dfa.LazyDFAStateCache;
+import com.oracle.truffle.regex.tregex.nodes.TRegexLazyDFAExecRootNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexLazyDFAExecutorNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LazyDFATest extends RegexTestBase {
+
+    /**
+     * The DFA of this expression has to remember the last 13 characters, i.e. it has 2^13 states,
+     * which exceeds {@link TRegexOptions#TRegexMaxDFASize}.
+     */
+    private static final String EXPLODING = "(a|b)*a((?:a|b){12})";
+
+    private final TRegexCompiler compiler = new TRegexCompiler(null, RegexOptions.DEFAULT);
+
+    @Override
+    protected TRegexCompiler getCompiler() {
+        return compiler;
+    }
+
+    private static LazyDFAStateCache getDFA(RegexObject regex) {
+        return NodeUtil.findFirstNodeInstance((Node) getCompiledRegex(regex), TRegexLazyDFAExecutorNode.class).getDFA();
+    }
+
+    @Test
+    public void testMatch() {
+        RegexObject regex = compile(EXPLODING, "");
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexLazyDFAExecRootNode);
+        test(regex, "babbbbbbbbbbbb", 0, 0, 14, 0, 1, 2, 14);
+        test(regex, "aaaaaaaaaaaaaa", 0, 0, 14, 0, 1, 2, 14);
+        test(regex, "abbbbbbbbbbbb", 0, 0, 13, -1, -1, 1, 13);
+        test(regex, "xxbabbbbbbbbbbbb", 0, 2, 16, 2, 3, 4, 16);
+        test(regex, "xxbabbbbbbbbbbbb", 3, 3, 16, -1, -1, 4, 16);
+        test(regex, "\u00e9babbbbbbbbbbbb", 0, 1, 15, 1, 2, 3, 15);
+        test(regex, "abbbbbbbbbbb", 0);
+        test(regex, "bbbbbbbbbbbbbbbbbbbb", 0);
+    }
+
+    @Test
+    public void testSticky() {
+        RegexObject regex = compile(EXPLODING, "y");
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexLazyDFAExecRootNode);
+        test(regex, "xxbabbbbbbbbbbbb", 2, 2, 16, 2, 3, 4, 16);
+        test(regex, "xxbabbbbbbbbbbbb", 0);
+    }
+
+    @Test
+    public void testCacheFlushes() {
+        RegexObject regex = compile(EXPLODING, "");
+        LazyDFAStateCache dfa = getDFA(regex);
+        // visits far more distinct states than the cache holds, until caching is disabled
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            sb.append(random.nextBoolean() ? 'a' : 'b');
+        }
+        String input = sb.toString();
+        int lastA = input.lastIndexOf('a', input.length() - 13);
+        test(regex, input, 0, 0, lastA + 13, lastA - 1, lastA, lastA + 1, lastA + 13);
+        Assert.assertTrue(dfa.getNumberOfFlushes() > TRegexOptions.TRegexLazyDFAMaxCacheFlushes);
+        Assert.assertTrue(dfa.isCachingDisabled());
+        // without caching, the lazy DFA still produces the same results
+        test(regex, "xxbabbbbbbbbbbbb", 0, 2, 16, 2, 3, 4, 16);
+        test(regex, "abbbbbbbbbbb", 0);
+        test(regex, input, 0, 0, lastA + 13, lastA - 1, lastA, lastA + 1, lastA + 13);
+    }
+}
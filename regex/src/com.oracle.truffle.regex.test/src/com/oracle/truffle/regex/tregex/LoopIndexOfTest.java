@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex;
+
+import java.util.Arrays;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.regex.RegexObject;
+import com.oracle.truffle.regex.RegexOptions;
+import com.oracle.truffle.regex.tregex.nodes.DFAStateNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexExecRootNode;
+import com.oracle.truffle.regex.tregex.nodes.input.InputIndexOfAnyNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoopIndexOfTest extends RegexTestBase {
+
+    private final TRegexCompiler compiler = new TRegexCompiler(null, RegexOptions.DEFAULT);
+
+    @Override
+    protected TRegexCompiler getCompiler() {
+        return compiler;
+    }
+
+    private RegexObject compileWithLoopIndexOf(String pattern, char... expectedChars) {
+        RegexObject regex = compile(pattern, "");
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexExecRootNode);
+        boolean found = false;
+        for (DFAStateNode state : NodeUtil.findAllNodeInstances((Node) getCompiledRegex(regex), DFAStateNode.class)) {
+            if (state.hasLoopIndexOfChars()) {
+                char[] chars = Arrays.copyOf(state.getLoopIndexOfChars(), state.getLoopIndexOfChars().length);
+                Arrays.sort(chars);
+                found |= Arrays.equals(expectedChars, chars);
+            }
+        }
+        Assert.assertTrue("no loop skipped by searching for " + Arrays.toString(expectedChars) + " in /" + pattern + "/", found);
+        return regex;
+    }
+
+    @Test
+    public void testSingleChar() {
+        RegexObject regex = compileWithLoopIndexOf("a[^\"]*\"", '"');
+        test(regex, "xab\"c\"", 0, 1, 4);
+        test(regex, "\"a\"", 0, 1, 3);
+        test(regex, "a\"", 0, 0, 2);
+        test(regex, "xabc", 0);
+        test(regex, "xab\"ac\"", 2, 4, 7);
+        test(regex, "xab\"abc", 2);
+    }
+
+    @Test
+    public void testMultipleChars() {
+        RegexObject regex = compileWithLoopIndexOf("a[^xyz]*([xyz])", 'x', 'y', 'z');
+        test(regex, "abbbbzq", 0, 0, 6, 5, 6);
+        test(regex, "abay", 0, 0, 4, 3, 4);
+        test(regex, "abay", 1, 2, 4, 3, 4);
+        test(regex, "abbbb", 0);
+    }
+
+    @Test
+    public void testCaptureGroups() {
+        RegexObject regex = compileWithLoopIndexOf("(a[^\"]*)\"", '"');
+        test(regex, "xab\"c\"", 0, 1, 4, 1, 3);
+        test(regex, "a\"", 0, 0, 2, 0, 1);
+        test(regex, "abbbbbbbbbbbbbbbb", 0);
+    }
+
+    @Test
+    public void testIndexOfAnyNode() {
+        InputIndexOfAnyNode node = InputIndexOfAnyNode.create();
+        Assert.assertEquals(3, node.execute("abcabc", 1, 6, new char[]{'a'}));
+        Assert.assertEquals(-1, node.execute("abcabc", 1, 3, new char[]{'a'}));
+        Assert.assertEquals(-1, node.execute("abcabc", 4, 6, new char[]{'a'}));
+        Assert.assertEquals(2, node.execute("abcabc", 1, 6, new char[]{'x', 'c', 'a'}));
+        Assert.assertEquals(-1, node.execute("abcabc", 0, 6, new char[]{'x', 'y'}));
+        Assert.assertEquals(-1, node.execute("abcabc", 3, 5, new char[]{'c', 'x'}));
+    }
+}
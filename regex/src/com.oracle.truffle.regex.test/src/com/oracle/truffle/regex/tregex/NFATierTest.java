@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex;
+
+import com.oracle.truffle.regex.RegexFlags;
+import com.oracle.truffle.regex.RegexObject;
+import com.oracle.truffle.regex.RegexOptions;
+import com.oracle.truffle.regex.RegexSource;
+import com.oracle.truffle.regex.tregex.nodes.TRegexNFATierExecRootNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NFATierTest extends RegexTestBase {
+
+    private final TRegexCompiler compiler = new TRegexCompiler(null, RegexOptions.parse("NFATier=true"));
+
+    @Override
+    protected TRegexCompiler getCompiler() {
+        return compiler;
+    }
+
+    @Test
+    public void testTierUp() {
+        RegexObject regex = compile("(a|ab)(c|bcd)(d*)", "");
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexNFATierExecRootNode);
+        // every execution counts towards the threshold
+        test(regex, "xxabcd", 1, 2, 6, 2, 3, 3, 6, 6, 6);
+        test(regex, "abx", 0);
+        for (int i = 2; i < TRegexOptions.TRegexNFATierThreshold - 1; i++) {
+            test(regex, "abcd", 0, 0, 4, 0, 1, 1, 4, 4, 4);
+        }
+        Assert.assertTrue(getCompiledRegex(regex) instanceof TRegexNFATierExecRootNode);
+        // reaching the threshold generates the DFA and switches the regex object to it
+        test(regex, "abcd", 0, 0, 4, 0, 1, 1, 4, 4, 4);
+        Assert.assertFalse(getCompiledRegex(regex) instanceof TRegexNFATierExecRootNode);
+        test(regex, "abcd", 0, 0, 4, 0, 1, 1, 4, 4, 4);
+        test(regex, "xxabcd", 1, 2, 6, 2, 3, 3, 6, 6, 6);
+        test(regex, "abx", 0);
+    }
+
+    @Test
+    public void testSharedTierNode() {
+        RegexObject regex1 = compile("a+(b+)?", "");
+        RegexObject regex2 = new RegexObject(compiler, regex1.getSource());
+        regex2.setCompiledRegexObject(regex1.getCompiledRegexObject());
+        for (int i = 0; i < TRegexOptions.TRegexNFATierThreshold; i++) {
+            test(regex1, "xaab", 0, 1, 4, 3, 4);
+        }
+        // regex2 still uses the tier node, which delegates to the DFA
+        Assert.assertTrue(getCompiledRegex(regex2) instanceof TRegexNFATierExecRootNode);
+        test(regex2, "xaa", 0, 1, 3, -1, -1);
+        Assert.assertFalse(getCompiledRegex(regex2) instanceof TRegexNFATierExecRootNode);
+        test(regex2, "b", 0);
+    }
+
+    @Test
+    public void testTierDisabledByDefault() {
+        TRegexCompiler defaultCompiler = new TRegexCompiler(null, RegexOptions.DEFAULT);
+        RegexSource source = new RegexSource("(a|ab)(c|bcd)(d*)", RegexFlags.DEFAULT);
+        RegexObject regex = new RegexObject(defaultCompiler, source);
+        regex.setCompiledRegexObject(defaultCompiler.compile(source));
+        Assert.assertFalse(getCompiledRegex(regex) instanceof TRegexNFATierExecRootNode);
+        test(regex, "abcd", 0, 0, 4, 0, 1, 1, 4, 4, 4);
+    }
+}
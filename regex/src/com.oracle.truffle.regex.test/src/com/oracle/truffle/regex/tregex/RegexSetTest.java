@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex;
+
+import com.oracle.truffle.regex.RegexFlags;
+import com.oracle.truffle.regex.RegexOptions;
+import com.oracle.truffle.regex.RegexSetObject;
+import com.oracle.truffle.regex.UnsupportedRegexException;
+import com.oracle.truffle.regex.result.RegexSetResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RegexSetTest {
+
+    private final TRegexCompiler compiler = new TRegexCompiler(null, RegexOptions.DEFAULT);
+
+    private void test(String[] patterns, String flags, String input, int fromIndex, int... expected) {
+        RegexSetObject regexSet = compiler.compileSet(patterns, RegexFlags.parseFlags(flags));
+        RegexSetResult result = (RegexSetResult) regexSet.getExecCallTarget().call(input, fromIndex);
+        Assert.assertArrayEquals(expected, result.getMatchedPatterns());
+    }
+
+    @Test
+    public void testSimple() {
+        String[] patterns = {"foo", "ba+r", "^x", "baz$", "[0-9]+"};
+        test(patterns, "", "xx foo baaar", 0, 0, 1, 2);
+        test(patterns, "", "xx foo baaar", 1, 0, 1);
+        test(patterns, "", "bar baz", 0, 1, 3);
+        test(patterns, "", "nothing here", 0);
+        test(patterns, "", "", 0);
+        test(patterns, "i", "FOO 42", 0, 0, 4);
+    }
+
+    @Test
+    public void testEmptyAndDead() {
+        test(new String[]{"", "[]", "a*"}, "", "bbb", 3, 0, 2);
+    }
+
+    @Test
+    public void testLookBehind() {
+        String[] patterns = {"(?<=a)b", "(?<=ab)c", "(?<=c)a"};
+        test(patterns, "", "abc", 1, 0, 1);
+        test(patterns, "", "abc", 2, 1);
+        test(patterns, "", "cabc", 1, 0, 1, 2);
+        test(patterns, "", "cabc", 2, 0, 1);
+    }
+
+    @Test
+    public void testSticky() {
+        String[] patterns = {"a", "b", "ab"};
+        test(patterns, "y", "cab", 1, 0, 2);
+        test(patterns, "y", "cab", 0);
+    }
+
+    @Test(expected = UnsupportedRegexException.class)
+    public void testBackReference() {
+        compiler.compileSet(new String[]{"a", "(a)\\1"}, RegexFlags.DEFAULT);
+    }
+}
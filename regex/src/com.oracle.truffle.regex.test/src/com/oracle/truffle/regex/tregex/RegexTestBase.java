@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex;
+
+import com.oracle.truffle.api.interop.ForeignAccess;
+import com.oracle.truffle.api.interop.InteropException;
+import com.oracle.truffle.api.interop.Message;
+import com.oracle.truffle.api.interop.TruffleObject;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.regex.CompiledRegex;
+import com.oracle.truffle.regex.CompiledRegexObject;
+import com.oracle.truffle.regex.RegexFlags;
+import com.oracle.truffle.regex.RegexObject;
+import com.oracle.truffle.regex.RegexSource;
+import com.oracle.truffle.regex.result.RegexResult;
+import org.junit.Assert;
+
+/**
+ * Base class for tests that execute expressions compiled by a {@link TRegexCompiler} and check
+ * the capture group boundaries of the results.
+ */
+public abstract class RegexTestBase {
+
+    private final Node readNode = Message.READ.createNode();
+
+    protected abstract TRegexCompiler getCompiler();
+
+    protected RegexObject compile(String pattern, String flags) {
+        RegexSource source = new RegexSource(pattern, RegexFlags.parseFlags(flags));
+        RegexObject regex = new RegexObject(getCompiler(), source);
+        regex.setCompiledRegexObject(getCompiler().compile(source));
+        return regex;
+    }
+
+    protected static CompiledRegex getCompiledRegex(RegexObject regex) {
+        return ((CompiledRegexObject) regex.getCompiledRegexObject()).getCompiledRegex();
+    }
+
+    protected static RegexResult exec(RegexObject regex, String input, int fromIndex) {
+        return (RegexResult) getCompiledRegex(regex).getRegexCallTarget().call(regex, input, fromIndex);
+    }
+
+    /**
+     * Matches {@code pattern} against {@code input} and compares the result to
+     * {@code expectedGroups}, which holds the start and end index of every capture group, -1 for
+     * groups that did not participate in the match. An empty {@code expectedGroups} means no match.
+     */
+    protected void test(String pattern, String flags, String input, int fromIndex, int... expectedGroups) {
+        test(compile(pattern, flags), input, fromIndex, expectedGroups);
+    }
+
+    protected void test(RegexObject regex, String input, int fromIndex, int... expectedGroups) {
+        RegexResult result = exec(regex, input, fromIndex);
+        String message = "/" + regex.getSource().getPattern() + "/ on \"" + input + "\" from " + fromIndex;
+        if (expectedGroups.length == 0) {
+            Assert.assertSame(message, RegexResult.NO_MATCH, result);
+            return;
+        }
+        Assert.assertNotSame(message, RegexResult.NO_MATCH, result);
+        Assert.assertEquals(message, expectedGroups.length / 2, result.getGroupCount());
+        int[] actualGroups = new int[expectedGroups.length];
+        for (int i = 0; i < result.getGroupCount(); i++) {
+            actualGroups[i * 2] = read(result.getStartArrayObject(), i);
+            actualGroups[i * 2 + 1] = read(result.getEndArrayObject(), i);
+        }
+        Assert.assertArrayEquals(message, expectedGroups, actualGroups);
+    }
+
+    private int read(TruffleObject array, int index) {
+        try {
+            return ((Number) ForeignAccess.sendRead(readNode, array, index)).intValue();
+        } catch (InteropException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
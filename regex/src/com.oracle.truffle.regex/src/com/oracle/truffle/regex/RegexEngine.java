@@ -26,11 +26,15 @@ package com.oracle.truffle.regex;
 
 import com.oracle.truffle.api.interop.ArityException;
 import com.oracle.truffle.api.interop.ForeignAccess;
+import com.oracle.truffle.api.interop.InteropException;
+import com.oracle.truffle.api.interop.Message;
 import com.oracle.truffle.api.interop.MessageResolution;
 import com.oracle.truffle.api.interop.Resolve;
 import com.oracle.truffle.api.interop.TruffleObject;
+import com.oracle.truffle.api.interop.UnknownIdentifierException;
 import com.oracle.truffle.api.interop.UnsupportedTypeException;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.regex.tregex.TRegexCompiler;
 import com.oracle.truffle.regex.tregex.parser.RegexParser;
 
 /**
@@ -48,18 +52,37 @@ import com.oracle.truffle.regex.tregex.parser.RegexParser;
  * engine</li>
  * </ul>
  * <p>
+ * In addition, a {@link RegexEngine} can compile a set of regular expressions into a
+ * {@link RegexSetObject} by invoking its {@code compileSet} method, which takes the following
+ * arguments:
+ * <ol>
+ * <li>{@link TruffleObject} {@code patterns}: an array of {@link String}s, i.e. an object that
+ * responds to {@link Message#GET_SIZE} and returns {@link String}s on indexed {@link Message#READ}
+ * requests</li>
+ * <li>{@link String} {@code flags} (optional): the flags shared by all patterns of the set</li>
+ * </ol>
+ * Regex sets are always compiled by {@link TRegexCompiler}, since the fallback compiler has no
+ * notion of pattern sets. Patterns it can't handle in a set cause an
+ * {@link UnsupportedRegexException}.
+ * <p>
  * A {@link RegexEngine} can be obtained by executing the {@link RegexEngineBuilder}.
  */
 public class RegexEngine implements RegexLanguageObject {
 
     private final RegexCompiler compiler;
+    private final TRegexCompiler setCompiler;
     private final boolean eagerCompilation;
 
-    public RegexEngine(RegexCompiler compiler, boolean eagerCompilation) {
+    public RegexEngine(RegexCompiler compiler, TRegexCompiler setCompiler, boolean eagerCompilation) {
         this.compiler = compiler;
+        this.setCompiler = setCompiler;
         this.eagerCompilation = eagerCompilation;
     }
 
+    public RegexSetObject compileSet(String[] patterns, String flags) {
+        return setCompiler.compileSet(patterns, RegexFlags.parseFlags(flags));
+    }
+
     public static boolean isInstance(TruffleObject object) {
         return object instanceof RegexEngine;
     }
@@ -102,6 +125,50 @@ public class RegexEngine implements RegexLanguageObject {
             }
         }
 
+        @Resolve(message = "INVOKE")
+        abstract static class RegexEngineInvokeNode extends Node {
+
+            @Child private Node getSizeNode = Message.GET_SIZE.createNode();
+            @Child private Node readNode = Message.READ.createNode();
+
+            public Object access(RegexEngine receiver, String name, Object[] args) {
+                if (!name.equals("compileSet")) {
+                    throw UnknownIdentifierException.raise(name);
+                }
+                if (!(args.length == 1 || args.length == 2)) {
+                    throw ArityException.raise(2, args.length);
+                }
+                if (!(args[0] instanceof TruffleObject)) {
+                    throw UnsupportedTypeException.raise(args);
+                }
+                String flags = "";
+                if (args.length == 2) {
+                    if (!(args[1] instanceof String)) {
+                        throw UnsupportedTypeException.raise(args);
+                    }
+                    flags = (String) args[1];
+                }
+                return receiver.compileSet(readPatterns((TruffleObject) args[0], args), flags);
+            }
+
+            private String[] readPatterns(TruffleObject patternsArray, Object[] args) {
+                try {
+                    final int size = ((Number) ForeignAccess.sendGetSize(getSizeNode, patternsArray)).intValue();
+                    final String[] patterns = new String[size];
+                    for (int i = 0; i < size; i++) {
+                        Object pattern = ForeignAccess.sendRead(readNode, patternsArray, i);
+                        if (!(pattern instanceof String)) {
+                            throw UnsupportedTypeException.raise(args);
+                        }
+                        patterns[i] = (String) pattern;
+                    }
+                    return patterns;
+                } catch (InteropException ex) {
+                    throw ex.raise();
+                }
+            }
+        }
+
         @Resolve(message = "IS_EXECUTABLE")
         abstract static class RegexEngineIsExecutableNode extends Node {
 
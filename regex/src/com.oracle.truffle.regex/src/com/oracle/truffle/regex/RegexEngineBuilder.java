@@ -97,10 +97,11 @@ public class RegexEngineBuilder implements RegexLanguageObject {
                     }
                     fallbackCompiler = (TruffleObject) args[1];
                 }
+                TRegexCompiler tRegexCompiler = new TRegexCompiler(receiver.language, options);
                 if (fallbackCompiler != null) {
-                    return new RegexEngine(new CachingRegexCompiler(new RegexCompilerWithFallback(new TRegexCompiler(receiver.language, options), fallbackCompiler)), options.isRegressionTestMode());
+                    return new RegexEngine(new CachingRegexCompiler(new RegexCompilerWithFallback(tRegexCompiler, fallbackCompiler)), tRegexCompiler, options.isRegressionTestMode());
                 } else {
-                    return new RegexEngine(new CachingRegexCompiler(new TRegexCompiler(receiver.language, options)), options.isRegressionTestMode());
+                    return new RegexEngine(new CachingRegexCompiler(tRegexCompiler), tRegexCompiler, options.isRegressionTestMode());
                 }
             }
         }
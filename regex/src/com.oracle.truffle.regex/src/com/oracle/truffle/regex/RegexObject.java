@@ -95,6 +95,17 @@ public class RegexObject implements RegexLanguageObject {
         this.compiledRegexObject = compiledRegexObject;
     }
 
+    /**
+     * Replaces the compiled regex object of this regex by {@code replacement} if it currently
+     * wraps {@code compiledRegex}, e.g. when a tiered {@link CompiledRegex} has produced its final
+     * form.
+     */
+    public void replaceCompiledRegex(CompiledRegex compiledRegex, TruffleObject replacement) {
+        if (compiledRegexObject instanceof CompiledRegexObject && ((CompiledRegexObject) compiledRegexObject).getCompiledRegex() == compiledRegex) {
+            compiledRegexObject = replacement;
+        }
+    }
+
     public RegexObjectExecMethod getExecMethod() {
         return execMethod;
     }
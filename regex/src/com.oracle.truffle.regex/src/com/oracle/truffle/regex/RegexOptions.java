@@ -32,6 +32,8 @@ public final class RegexOptions {
 
     private static final int U180E_WHITESPACE = 1;
     private static final int REGRESSION_TEST_MODE = 1 << 1;
+    private static final int NFA_TIER = 1 << 2;
+    private static final int BACKTRACKING_TIER = 1 << 3;
 
     public static final RegexOptions DEFAULT = new RegexOptions(0);
 
@@ -61,6 +63,12 @@ public final class RegexOptions {
                 case "RegressionTestMode":
                     options = parseBooleanOption(optionsString, options, key, value, REGRESSION_TEST_MODE);
                     break;
+                case "NFATier":
+                    options = parseBooleanOption(optionsString, options, key, value, NFA_TIER);
+                    break;
+                case "BacktrackingTier":
+                    options = parseBooleanOption(optionsString, options, key, value, BACKTRACKING_TIER);
+                    break;
                 default:
                     throw optionsSyntaxError(optionsString, "unexpected option " + key);
             }
@@ -97,6 +105,26 @@ public final class RegexOptions {
         return isBitSet(REGRESSION_TEST_MODE);
     }
 
+    /**
+     * Execute expressions supported by the DFA by NFA simulation first, and generate their DFA only
+     * after {@link com.oracle.truffle.regex.tregex.TRegexOptions#TRegexNFATierThreshold}
+     * executions.
+     */
+    public boolean isNFATier() {
+        return isBitSet(NFA_TIER);
+    }
+
+    /**
+     * Execute expressions supported by the DFA with the backtracking executor first, and switch to
+     * the DFA-based executor once an execution exceeds
+     * {@link com.oracle.truffle.regex.tregex.TRegexOptions#TRegexBacktrackingMaxSteps} or
+     * {@link com.oracle.truffle.regex.tregex.TRegexOptions#TRegexBacktrackingMaxStackEntries}.
+     * Takes precedence over {@link #isNFATier()}.
+     */
+    public boolean isBacktrackingTier() {
+        return isBitSet(BACKTRACKING_TIER);
+    }
+
     @Override
     public int hashCode() {
         return options;
@@ -114,11 +142,23 @@ public final class RegexOptions {
             sb.append("U180EWhitespace");
         }
         if (isRegressionTestMode()) {
-            if (isU180EWhitespace()) {
+            if (sb.length() > 0) {
                 sb.append(",");
             }
             sb.append("RegressionTestMode");
         }
+        if (isNFATier()) {
+            if (sb.length() > 0) {
+                sb.append(",");
+            }
+            sb.append("NFATier");
+        }
+        if (isBacktrackingTier()) {
+            if (sb.length() > 0) {
+                sb.append(",");
+            }
+            sb.append("BacktrackingTier");
+        }
         return sb.toString();
     }
 }
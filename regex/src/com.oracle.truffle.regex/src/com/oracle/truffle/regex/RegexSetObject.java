@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.interop.ForeignAccess;
+import com.oracle.truffle.api.interop.Message;
+import com.oracle.truffle.api.interop.TruffleObject;
+import com.oracle.truffle.regex.result.RegexSetResult;
+import com.oracle.truffle.regex.runtime.RegexSetObjectMessageResolutionForeign;
+
+/**
+ * {@link RegexSetObject} represents a set of regular expressions that are matched against an input
+ * string simultaneously, in a single pass. It is the result of invoking {@code compileSet} on a
+ * {@link RegexEngine}. It exposes the following properties:
+ * <ol>
+ * <li>{@code int size}: the number of patterns in the set</li>
+ * <li>{@code exec}: an invocable method that matches all patterns against a string. The method
+ * accepts two parameters:
+ * <ol>
+ * <li>{@link Object} {@code input}: the character sequence to search in. This may either be a
+ * {@link String} or a {@link TruffleObject} that responds to {@link Message#GET_SIZE} and returns
+ * {@link Character}s on indexed {@link Message#READ} requests.</li>
+ * <li>{@link Number} {@code fromIndex}: the position to start searching from.</li>
+ * </ol>
+ * The return value is a {@link RegexSetResult}, which lists the indices of all patterns that
+ * matched.</li>
+ * </ol>
+ */
+public final class RegexSetObject implements RegexLanguageObject {
+
+    private final RegexSource[] sources;
+    private final CallTarget execCallTarget;
+
+    public RegexSetObject(RegexSource[] sources, CallTarget execCallTarget) {
+        this.sources = sources;
+        this.execCallTarget = execCallTarget;
+    }
+
+    public RegexSource[] getSources() {
+        return sources;
+    }
+
+    public int size() {
+        return sources.length;
+    }
+
+    /**
+     * A {@link CallTarget} accepting the arguments {@code input} ({@link String} or
+     * {@link TruffleObject}) and {@code fromIndex} ({@code int}) and returning a
+     * {@link RegexSetResult}.
+     */
+    public CallTarget getExecCallTarget() {
+        return execCallTarget;
+    }
+
+    public static boolean isInstance(TruffleObject object) {
+        return object instanceof RegexSetObject;
+    }
+
+    @Override
+    public ForeignAccess getForeignAccess() {
+        return RegexSetObjectMessageResolutionForeign.ACCESS;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.result;
+
+import com.oracle.truffle.api.interop.ForeignAccess;
+import com.oracle.truffle.api.interop.TruffleObject;
+import com.oracle.truffle.regex.RegexLanguageObject;
+import com.oracle.truffle.regex.RegexSetObject;
+import com.oracle.truffle.regex.runtime.RegexSetResultMessageResolutionForeign;
+
+/**
+ * {@link RegexSetResult} is a {@link TruffleObject} that represents the result of matching a
+ * {@link RegexSetObject} against a string. It is an array of the indices of all patterns in the
+ * set that matched, in ascending order. If no pattern matched, the array is empty.
+ */
+public final class RegexSetResult implements RegexLanguageObject {
+
+    public static final RegexSetResult NO_MATCH = new RegexSetResult(new int[0]);
+
+    private final int[] matchedPatterns;
+
+    public RegexSetResult(int[] matchedPatterns) {
+        this.matchedPatterns = matchedPatterns;
+    }
+
+    public int[] getMatchedPatterns() {
+        return matchedPatterns;
+    }
+
+    public static boolean isInstance(TruffleObject object) {
+        return object instanceof RegexSetResult;
+    }
+
+    @Override
+    public ForeignAccess getForeignAccess() {
+        return RegexSetResultMessageResolutionForeign.ACCESS;
+    }
+}
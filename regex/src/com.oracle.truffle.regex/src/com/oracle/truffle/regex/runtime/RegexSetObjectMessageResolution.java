@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.runtime;
+
+import com.oracle.truffle.api.interop.ArityException;
+import com.oracle.truffle.api.interop.MessageResolution;
+import com.oracle.truffle.api.interop.Resolve;
+import com.oracle.truffle.api.interop.UnknownIdentifierException;
+import com.oracle.truffle.api.nodes.IndirectCallNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.regex.RegexSetObject;
+import com.oracle.truffle.regex.result.RegexSetResult;
+import com.oracle.truffle.regex.runtime.nodes.ExpectNumberNode;
+import com.oracle.truffle.regex.runtime.nodes.ExpectStringOrTruffleObjectNode;
+import com.oracle.truffle.regex.util.NumberConversion;
+
+@MessageResolution(receiverType = RegexSetObject.class)
+public class RegexSetObjectMessageResolution {
+
+    @Resolve(message = "READ")
+    abstract static class RegexSetObjectReadNode extends Node {
+
+        public Object access(RegexSetObject receiver, String symbol) {
+            if (!symbol.equals("size")) {
+                throw UnknownIdentifierException.raise(symbol);
+            }
+            return receiver.size();
+        }
+    }
+
+    @Resolve(message = "INVOKE")
+    abstract static class RegexSetObjectInvokeNode extends Node {
+
+        @Child private ExpectStringOrTruffleObjectNode expectStringOrTruffleObjectNode = ExpectStringOrTruffleObjectNode.create();
+        @Child private ExpectNumberNode expectNumberNode = ExpectNumberNode.create();
+        @Child private IndirectCallNode callNode = IndirectCallNode.create();
+
+        public Object access(RegexSetObject receiver, String name, Object[] args) {
+            if (!name.equals("exec")) {
+                throw UnknownIdentifierException.raise(name);
+            }
+            if (args.length != 2) {
+                throw ArityException.raise(2, args.length);
+            }
+            final Object input = expectStringOrTruffleObjectNode.execute(args[0]);
+            final Number fromIndex = expectNumberNode.execute(args[1]);
+            if (fromIndex instanceof Long && ((Long) fromIndex) > Integer.MAX_VALUE) {
+                return RegexSetResult.NO_MATCH;
+            }
+            return callNode.call(receiver.getExecCallTarget(), new Object[]{input, NumberConversion.intValue(fromIndex)});
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.runtime;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.interop.MessageResolution;
+import com.oracle.truffle.api.interop.Resolve;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.regex.result.RegexSetResult;
+
+@MessageResolution(receiverType = RegexSetResult.class)
+public class RegexSetResultMessageResolution {
+
+    @Resolve(message = "READ")
+    abstract static class RegexSetResultReadNode extends Node {
+
+        public Object access(RegexSetResult receiver, int index) {
+            final int[] matchedPatterns = receiver.getMatchedPatterns();
+            if (index < 0 || index >= matchedPatterns.length) {
+                CompilerDirectives.transferToInterpreter();
+                throw new IndexOutOfBoundsException(String.format("index: %d, size: %d", index, matchedPatterns.length));
+            }
+            return matchedPatterns[index];
+        }
+    }
+
+    @Resolve(message = "HAS_SIZE")
+    abstract static class RegexSetResultHasSizeNode extends Node {
+
+        @SuppressWarnings("unused")
+        public boolean access(RegexSetResult receiver) {
+            return true;
+        }
+    }
+
+    @Resolve(message = "GET_SIZE")
+    abstract static class RegexSetResultGetSizeNode extends Node {
+
+        public int access(RegexSetResult receiver) {
+            return receiver.getMatchedPatterns().length;
+        }
+    }
+}
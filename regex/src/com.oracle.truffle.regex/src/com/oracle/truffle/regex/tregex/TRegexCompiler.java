@@ -31,6 +31,8 @@ package com.oracle.truffle.regex.tregex;
  * positive look-aheads, and positive look-behinds of fixed length.
  * Counted repetitions are implemented by transforming them to alternations
  * (e.g. a{2,4} => aa|aaa|aaaa).
+ * Back-references, negative look-aheads and all other look-behinds are handled by a separate
+ * backtracking executor (see tregex.backtracking).
  *
  * basic structure of truffle.regex.tregex:
  *
@@ -40,17 +42,28 @@ package com.oracle.truffle.regex.tregex;
  * The NFA is compiled to a DFA (deterministic finite automaton) during pattern matching. Each DFA stateSet is a
  * set of NFA states, which is stored as a BitSet where each bit corresponds to a slot in the NFA array.
  *
+ * With the NFATier option, expressions supported by the DFA are first executed by NFA simulation, and their DFA is
+ * generated only after TRegexOptions.TRegexNFATierThreshold executions (see TRegexNFATierExecRootNode).
+ *
+ * Sets of regular expressions (see compileSet) are matched on a lazily constructed product automaton of the
+ * patterns' NFAs (see tregex.dfa.RegexSetDFAStateCache).
+ *
  */
 
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.FrameSlotKind;
 import com.oracle.truffle.api.interop.TruffleObject;
+import com.oracle.truffle.regex.CompiledRegex;
 import com.oracle.truffle.regex.CompiledRegexObject;
 import com.oracle.truffle.regex.RegexCompiler;
+import com.oracle.truffle.regex.RegexFlags;
 import com.oracle.truffle.regex.RegexLanguage;
 import com.oracle.truffle.regex.RegexOptions;
+import com.oracle.truffle.regex.RegexRootNode;
+import com.oracle.truffle.regex.RegexSetObject;
 import com.oracle.truffle.regex.RegexSource;
 import com.oracle.truffle.regex.RegexSyntaxException;
 import com.oracle.truffle.regex.UnsupportedRegexException;
@@ -58,14 +71,25 @@ import com.oracle.truffle.regex.dead.DeadRegexExecRootNode;
 import com.oracle.truffle.regex.literal.LiteralRegexEngine;
 import com.oracle.truffle.regex.literal.LiteralRegexExecRootNode;
 import com.oracle.truffle.regex.result.PreCalculatedResultFactory;
+import com.oracle.truffle.regex.tregex.backtracking.BacktrackingProgramGenerator;
 import com.oracle.truffle.regex.tregex.buffer.CompilationBuffer;
 import com.oracle.truffle.regex.tregex.dfa.DFAGenerator;
+import com.oracle.truffle.regex.tregex.dfa.LazyDFAStateCache;
+import com.oracle.truffle.regex.tregex.dfa.RegexSetDFAStateCache;
 import com.oracle.truffle.regex.tregex.nfa.NFA;
 import com.oracle.truffle.regex.tregex.nfa.NFAGenerator;
 import com.oracle.truffle.regex.tregex.nfa.NFATraceFinderGenerator;
+import com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecRootNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode;
 import com.oracle.truffle.regex.tregex.nodes.TRegexDFAExecutorNode;
 import com.oracle.truffle.regex.tregex.nodes.TRegexDFAExecutorProperties;
 import com.oracle.truffle.regex.tregex.nodes.TRegexExecRootNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexLazyDFAExecRootNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexLazyDFAExecutorNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexNFAExecutorNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexNFATierExecRootNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexSetExecRootNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexSetExecutorNode;
 import com.oracle.truffle.regex.tregex.parser.RegexParser;
 import com.oracle.truffle.regex.tregex.parser.RegexProperties;
 import com.oracle.truffle.regex.tregex.parser.ast.RegexAST;
@@ -92,6 +116,21 @@ public final class TRegexCompiler extends RegexCompiler {
     @CompilerDirectives.TruffleBoundary
     @Override
     public TruffleObject compile(RegexSource source) throws RegexSyntaxException {
+        return new CompiledRegexObject(compile(source, true));
+    }
+
+    /**
+     * Compiles {@code source} without going through the NFA or backtracking tier. Used by
+     * {@link TRegexNFATierExecRootNode} once an expression has been executed often enough to
+     * justify DFA generation, and by {@link TRegexBacktrackingExecRootNode} once an execution has
+     * exceeded the backtracking limits.
+     */
+    @CompilerDirectives.TruffleBoundary
+    public CompiledRegex compileDFA(RegexSource source) {
+        return compile(source, false);
+    }
+
+    private CompiledRegex compile(RegexSource source, boolean tiered) throws RegexSyntaxException {
         CompilationBuffer compilationBuffer = new CompilationBuffer();
         // System.out.println("TRegex compiling " +
         // DebugUtil.jsStringEscape(source.toString()));
@@ -103,15 +142,22 @@ public final class TRegexCompiler extends RegexCompiler {
         RegexProperties properties = ast.getProperties();
         if (!isSupported(properties)) {
             // features not supported by DFA
+            if (TRegexOptions.TRegexEnableBacktrackingExecutor && !properties.hasLargeCountedRepetitions()) {
+                logBailout.log("unsupported by DFA, using backtracking executor: " + source);
+                return createBacktrackingExecRootNode(source, ast, false, compilationBuffer);
+            }
             throw new UnsupportedRegexException("unsupported feature: " + source);
         }
         if (ast.getRoot().isDead()) {
-            return new CompiledRegexObject(new DeadRegexExecRootNode(language, source));
+            return new DeadRegexExecRootNode(language, source);
         }
         LiteralRegexExecRootNode literal = LiteralRegexEngine.createNode(language, ast);
         if (literal != null) {
             logSizes.log(String.format("\"/%s/\", \"%s\", %d, %d, %d, %d, %d, \"literal\"", source.getPattern(), source.getFlags(), 0, 0, 0, 0, 0));
-            return new CompiledRegexObject(literal);
+            return literal;
+        }
+        if (tiered && options.isBacktrackingTier() && TRegexOptions.TRegexEnableBacktrackingExecutor) {
+            return createBacktrackingExecRootNode(source, ast, true, compilationBuffer);
         }
         PreCalculatedResultFactory[] preCalculatedResults = null;
         if (!(properties.hasAlternations() || properties.hasLookAroundAssertions())) {
@@ -121,6 +167,9 @@ public final class TRegexCompiler extends RegexCompiler {
         NFA nfa = NFAGenerator.createNFA(ast, compilationBuffer);
         phaseEnd("NFA");
         debugNFA(nfa);
+        if (tiered && options.isNFATier()) {
+            return createNFATierExecRootNode(source, nfa, compilationBuffer);
+        }
         NFA traceFinder = null;
         if (preCalculatedResults == null && TRegexOptions.TRegexEnableTraceFinder &&
                         (properties.hasCaptureGroups() || properties.hasLookAroundAssertions()) && !properties.hasLoops()) {
@@ -140,23 +189,33 @@ public final class TRegexCompiler extends RegexCompiler {
         final boolean createCaptureGroupTracker = (properties.hasCaptureGroups() || properties.hasLookAroundAssertions()) && preCalculatedResults == null;
         TRegexDFAExecutorNode captureGroupExecutor = null;
         int nCG = nfa.getAst().getNumberOfCaptureGroups();
-        phaseStart("Forward DFA");
-        TRegexDFAExecutorNode executorNode = DFAGenerator.createForwardDFAExecutor(nfa, createExecutorProperties(true, true, false, nCG), compilationBuffer);
-        phaseEnd("Forward DFA");
-        if (createCaptureGroupTracker) {
-            phaseStart("CG DFA");
-            captureGroupExecutor = DFAGenerator.createForwardDFAExecutor(nfa, createExecutorProperties(true, false, true, nCG), compilationBuffer);
-            phaseEnd("CG DFA");
-        }
+        TRegexDFAExecutorNode executorNode;
         TRegexDFAExecutorNode executorNodeB = null;
-        if (preCalculatedResults != null && preCalculatedResults.length > 1) {
-            phaseStart("Backward DFA");
-            executorNodeB = DFAGenerator.createBackwardDFAExecutor(traceFinder, createExecutorProperties(false, false, false, nCG), compilationBuffer);
-            phaseEnd("Backward DFA");
-        } else if (preCalculatedResults == null || !nfa.hasReverseUnAnchoredEntry()) {
-            phaseStart("Backward DFA");
-            executorNodeB = DFAGenerator.createBackwardDFAExecutor(nfa, createExecutorProperties(false, false, false, nCG), compilationBuffer);
-            phaseEnd("Backward DFA");
+        try {
+            phaseStart("Forward DFA");
+            executorNode = DFAGenerator.createForwardDFAExecutor(nfa, createExecutorProperties(true, true, false, nCG), compilationBuffer);
+            phaseEnd("Forward DFA");
+            if (createCaptureGroupTracker) {
+                phaseStart("CG DFA");
+                captureGroupExecutor = DFAGenerator.createForwardDFAExecutor(nfa, createExecutorProperties(true, false, true, nCG), compilationBuffer);
+                phaseEnd("CG DFA");
+            }
+            if (preCalculatedResults != null && preCalculatedResults.length > 1) {
+                phaseStart("Backward DFA");
+                executorNodeB = DFAGenerator.createBackwardDFAExecutor(traceFinder, createExecutorProperties(false, false, false, nCG), compilationBuffer);
+                phaseEnd("Backward DFA");
+            } else if (preCalculatedResults == null || !nfa.hasReverseUnAnchoredEntry()) {
+                phaseStart("Backward DFA");
+                executorNodeB = DFAGenerator.createBackwardDFAExecutor(nfa, createExecutorProperties(false, false, false, nCG), compilationBuffer);
+                phaseEnd("Backward DFA");
+            }
+        } catch (UnsupportedRegexException e) {
+            if (!TRegexOptions.TRegexEnableLazyDFA) {
+                throw e;
+            }
+            phaseEnd("DFA Bailout");
+            logBailout.log("DFA: " + e.getMessage() + ", falling back to lazy DFA");
+            return createLazyDFAExecRootNode(source, nfa, compilationBuffer);
         }
         TRegexExecRootNode tRegexRootNode = new TRegexExecRootNode(
                         language, this, source, options.isRegressionTestMode(), preCalculatedResults, executorNode, executorNodeB, captureGroupExecutor);
@@ -164,7 +223,83 @@ public final class TRegexCompiler extends RegexCompiler {
             logAutomatonSizes(source, ast, nfa, traceFinder, captureGroupExecutor, executorNode, executorNodeB);
             logAutomatonSizesCSV(source, ast, nfa, traceFinder, captureGroupExecutor, executorNode, executorNodeB);
         }
-        return new CompiledRegexObject(tRegexRootNode);
+        return tRegexRootNode;
+    }
+
+    /**
+     * @param dfaFallback {@code true} if the expression is supported by the DFA-based executor, which
+     *            takes over once the backtracking executor exceeds the tight limits of the
+     *            backtracking tier. Otherwise, the executor gets the larger limits of
+     *            {@link TRegexOptions#TRegexBacktrackingMaxStepsWithoutFallback} and
+     *            {@link TRegexOptions#TRegexBacktrackingMaxStackEntriesWithoutFallback}, and exceeding
+     *            them is an error.
+     */
+    private TRegexBacktrackingExecRootNode createBacktrackingExecRootNode(RegexSource source, RegexAST ast, boolean dfaFallback, CompilationBuffer compilationBuffer) {
+        phaseStart("Backtracking Program");
+        final int maxSteps = dfaFallback ? TRegexOptions.TRegexBacktrackingMaxSteps : TRegexOptions.TRegexBacktrackingMaxStepsWithoutFallback;
+        final int maxStackEntries = dfaFallback ? TRegexOptions.TRegexBacktrackingMaxStackEntries : TRegexOptions.TRegexBacktrackingMaxStackEntriesWithoutFallback;
+        TRegexBacktrackingExecutorNode executorNode = BacktrackingProgramGenerator.createExecutor(ast, maxSteps, maxStackEntries, compilationBuffer);
+        phaseEnd("Backtracking Program");
+        return new TRegexBacktrackingExecRootNode(language, dfaFallback ? this : null, source, executorNode);
+    }
+
+    private TRegexNFATierExecRootNode createNFATierExecRootNode(RegexSource source, NFA nfa, CompilationBuffer compilationBuffer) {
+        final boolean createLoopBack = !source.getFlags().isSticky();
+        if (createLoopBack) {
+            nfa.createLoopBackMatcher();
+        }
+        return new TRegexNFATierExecRootNode(language, this, source, new TRegexNFAExecutorNode(nfa, nfa.getAst().getNumberOfCaptureGroups(), createLoopBack, compilationBuffer));
+    }
+
+    private TRegexLazyDFAExecRootNode createLazyDFAExecRootNode(RegexSource source, NFA nfa, CompilationBuffer compilationBuffer) {
+        final boolean createLoopBack = !source.getFlags().isSticky();
+        if (createLoopBack) {
+            nfa.createLoopBackMatcher();
+        }
+        phaseStart("Lazy DFA");
+        TRegexLazyDFAExecutorNode executorNode = new TRegexLazyDFAExecutorNode(new LazyDFAStateCache(nfa, createLoopBack, compilationBuffer));
+        TRegexNFAExecutorNode captureGroupExecutor = new TRegexNFAExecutorNode(nfa, nfa.getAst().getNumberOfCaptureGroups(), createLoopBack, compilationBuffer);
+        phaseEnd("Lazy DFA");
+        return new TRegexLazyDFAExecRootNode(language, source, executorNode, captureGroupExecutor);
+    }
+
+    /**
+     * Compiles a set of regular expressions sharing the same {@code flags} into a single
+     * {@link RegexSetObject}, which reports all patterns matching a given input in one pass.
+     *
+     * @throws RegexSyntaxException if any of the patterns is malformed
+     * @throws UnsupportedRegexException if any of the patterns uses features not supported by the
+     *             DFA, such as back-references or negative look-ahead assertions
+     */
+    @CompilerDirectives.TruffleBoundary
+    public RegexSetObject compileSet(String[] patterns, RegexFlags flags) throws RegexSyntaxException {
+        CompilationBuffer compilationBuffer = new CompilationBuffer();
+        final boolean createLoopBack = !flags.isSticky();
+        RegexSource[] sources = new RegexSource[patterns.length];
+        NFA[] nfas = new NFA[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            sources[i] = new RegexSource(patterns[i], flags);
+            phaseStart("Parser");
+            RegexAST ast = new RegexParser(sources[i], options).parse();
+            phaseEnd("Parser");
+            if (!isSupported(ast.getProperties())) {
+                throw new UnsupportedRegexException("unsupported feature in regex set: " + sources[i]);
+            }
+            if (ast.getRoot().isDead()) {
+                continue;
+            }
+            phaseStart("NFA");
+            nfas[i] = NFAGenerator.createNFA(ast, compilationBuffer);
+            phaseEnd("NFA");
+            if (createLoopBack) {
+                nfas[i].createLoopBackMatcher();
+            }
+        }
+        phaseStart("Regex Set DFA");
+        TRegexSetExecutorNode executorNode = new TRegexSetExecutorNode(new RegexSetDFAStateCache(nfas, createLoopBack, compilationBuffer));
+        phaseEnd("Regex Set DFA");
+        RegexSource displaySource = new RegexSource(String.join("|", patterns), flags);
+        return new RegexSetObject(sources, Truffle.getRuntime().createCallTarget(new RegexRootNode(language, new TRegexSetExecRootNode(language, displaySource, executorNode))));
     }
 
     @CompilerDirectives.TruffleBoundary
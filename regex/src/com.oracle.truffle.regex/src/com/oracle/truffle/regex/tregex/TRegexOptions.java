@@ -25,11 +25,14 @@
 package com.oracle.truffle.regex.tregex;
 
 import com.oracle.truffle.regex.tregex.dfa.DFAGenerator;
+import com.oracle.truffle.regex.tregex.dfa.LazyDFAStateCache;
 import com.oracle.truffle.regex.tregex.nfa.ASTStep;
 import com.oracle.truffle.regex.tregex.nfa.NFA;
 import com.oracle.truffle.regex.tregex.nfa.NFAGenerator;
 import com.oracle.truffle.regex.tregex.nfa.NFATraceFinderGenerator;
 import com.oracle.truffle.regex.tregex.nodes.DFACaptureGroupPartialTransitionNode;
+import com.oracle.truffle.regex.tregex.nodes.DFAStateNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode;
 import com.oracle.truffle.regex.tregex.nodes.TRegexDFAExecutorNode;
 import com.oracle.truffle.regex.tregex.nodes.TraceFinderDFAStateNode;
 import com.oracle.truffle.regex.tregex.parser.RegexParser;
@@ -114,6 +117,88 @@ public class TRegexOptions {
      */
     public static final int TRegexMaxDFASize = 2_400;
 
+    /**
+     * Maximum number of characters leading out of a DFA state's self-loop for which the loop is
+     * skipped by an index-of search instead of character-by-character matching (see
+     * {@link DFAStateNode#getLoopIndexOfChars()}). Expressions like {@code /a[^"]*"/} benefit
+     * greatly from this, since the loop {@code [^"]*} can be skipped with a single call to
+     * {@link String#indexOf(int, int)}. Set to {@code 0} to disable.
+     */
+    public static final int TRegexDFALoopIndexOfMaxChars = 4;
+
+    /**
+     * Fall back to a lazily constructed DFA ({@link LazyDFAStateCache}) instead of bailing out
+     * when {@link DFAGenerator} exceeds {@link #TRegexMaxDFASize} or
+     * {@link #TRegexMaxNumberOfNFAStatesInOneDFAState}. DFA states are created on demand during
+     * matching, so only the states actually visited by the input are ever built.
+     */
+    public static final boolean TRegexEnableLazyDFA = true;
+
+    /**
+     * Maximum number of DFA states cached by a single {@link LazyDFAStateCache}. When the limit is
+     * reached, the cache is flushed and rebuilt from scratch.
+     */
+    public static final int TRegexLazyDFAMaxCachedStates = 2_000;
+
+    /**
+     * Maximum number of cache flushes per {@link LazyDFAStateCache}. If a regular expression keeps
+     * thrashing the cache beyond this number, caching is disabled and the lazy DFA degrades to
+     * plain NFA simulation, which is slower but needs constant memory.
+     */
+    public static final int TRegexLazyDFAMaxCacheFlushes = 16;
+
+    /**
+     * Execute expressions containing back-references, negative look-ahead assertions or complex
+     * look-behind assertions with {@link TRegexBacktrackingExecutorNode} instead of bailing out to
+     * the fallback compiler.
+     */
+    public static final boolean TRegexEnableBacktrackingExecutor = true;
+
+    /**
+     * Maximum number of backtracks in a single execution of a {@link TRegexBacktrackingExecutorNode}
+     * running on the backtracking tier (see
+     * {@link com.oracle.truffle.regex.RegexOptions#isBacktrackingTier()}). When it is exceeded, the
+     * expression switches to the DFA-based executor, which is immune to catastrophic backtracking.
+     * Expressions that can only be executed by backtracking are limited by
+     * {@link #TRegexBacktrackingMaxStepsWithoutFallback} instead.
+     */
+    public static final int TRegexBacktrackingMaxSteps = 50_000;
+
+    /**
+     * Maximum number of choice points on the stack of a {@link TRegexBacktrackingExecutorNode}
+     * running on the backtracking tier. Exceeding it has the same effect as exceeding
+     * {@link #TRegexBacktrackingMaxSteps}.
+     */
+    public static final int TRegexBacktrackingMaxStackEntries = 10_000;
+
+    /**
+     * Maximum number of backtracks in a single execution of a {@link TRegexBacktrackingExecutorNode}
+     * running an expression the DFA does not support, e.g. one containing back-references. There is
+     * no executor to fall back to, so exceeding it throws a
+     * {@link com.oracle.truffle.regex.RegexExecutionLimitException} rather than letting a
+     * catastrophic input hang the engine.
+     */
+    public static final int TRegexBacktrackingMaxStepsWithoutFallback = 10_000_000;
+
+    /**
+     * Maximum number of choice points on the stack of a {@link TRegexBacktrackingExecutorNode}
+     * running an expression the DFA does not support. Exceeding it has the same effect as exceeding
+     * {@link #TRegexBacktrackingMaxStepsWithoutFallback}.
+     */
+    public static final int TRegexBacktrackingMaxStackEntriesWithoutFallback = 1_000_000;
+
+    /**
+     * Number of executions of an expression on the NFA tier (see
+     * {@link com.oracle.truffle.regex.RegexOptions#isNFATier()}) after which its DFA is generated.
+     */
+    public static final int TRegexNFATierThreshold = 10;
+
+    /**
+     * Generate the DFA of an expression that reached {@link #TRegexNFATierThreshold} on a shared
+     * background thread. The expression keeps running on the NFA tier until the DFA is ready.
+     */
+    public static final boolean TRegexNFATierBackgroundCompilation = false;
+
     /**
      * Maximum number of entries in the global compilation cache in
      * {@link com.oracle.truffle.regex.RegexLanguage}.
@@ -142,6 +227,7 @@ public class TRegexOptions {
 
     static {
         assert TRegexTraceFinderMaxNumberOfResults <= 254;
+        assert TRegexDFALoopIndexOfMaxChars >= 0;
         assert TRegexMaxParseTreeSize <= Short.MAX_VALUE;
         assert TRegexMaxNFASize <= Short.MAX_VALUE;
         assert TRegexMaxDFASize <= Short.MAX_VALUE;
@@ -149,5 +235,7 @@ public class TRegexOptions {
         assert TRegexMaxNumberOfCaptureGroups <= 127;
         assert TRegexMaxNumberOfNFAStatesInOneDFAState <= 255;
         assert TRegexRangeToBitSetConversionThreshold > 1;
+        assert TRegexLazyDFAMaxCachedStates > 0;
+        assert TRegexNFATierThreshold > 0;
     }
 }
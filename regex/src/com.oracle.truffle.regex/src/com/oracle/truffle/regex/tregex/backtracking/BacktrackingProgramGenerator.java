@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.backtracking;
+
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_BACKREF;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_BACKREF_BACKWARD;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_CARET;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_CHAR;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_CHAR_BACKWARD;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_CLEAR;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_DOLLAR;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_FAIL;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_GUARD_BEGIN;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_GUARD_END;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_JMP;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_LOOK_BEGIN;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_LOOK_END;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_MATCH;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_NEG_LOOK_BEGIN;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_NEG_LOOK_END;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_SAVE;
+import static com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode.OP_SPLIT;
+
+import com.oracle.truffle.regex.RegexFlags;
+import com.oracle.truffle.regex.tregex.buffer.CompilationBuffer;
+import com.oracle.truffle.regex.tregex.matchers.CharMatcher;
+import com.oracle.truffle.regex.tregex.nodes.TRegexBacktrackingExecutorNode;
+import com.oracle.truffle.regex.tregex.parser.ast.BackReference;
+import com.oracle.truffle.regex.tregex.parser.ast.CharacterClass;
+import com.oracle.truffle.regex.tregex.parser.ast.Group;
+import com.oracle.truffle.regex.tregex.parser.ast.LookAheadAssertion;
+import com.oracle.truffle.regex.tregex.parser.ast.LookBehindAssertion;
+import com.oracle.truffle.regex.tregex.parser.ast.PositionAssertion;
+import com.oracle.truffle.regex.tregex.parser.ast.RegexAST;
+import com.oracle.truffle.regex.tregex.parser.ast.Sequence;
+import com.oracle.truffle.regex.tregex.parser.ast.Term;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles a {@link RegexAST} to a program for {@link TRegexBacktrackingExecutorNode}.
+ * <p>
+ * Alternatives of a {@link Group} are translated to a chain of {@code SPLIT} instructions in order
+ * of priority; looping groups jump back to their first {@code SPLIT} after matching a non-empty
+ * alternative. Empty guards (see {@link Term#hasEmptyGuard()}) and the clearing of capture groups
+ * on loop iterations follow the same rules as the NFA generator. Look-behind assertions are
+ * compiled in reverse, i.e. their terms are matched backwards starting at the current index, so
+ * there is no restriction on their contents.
+ */
+public final class BacktrackingProgramGenerator {
+
+    private final RegexAST ast;
+    private final CompilationBuffer compilationBuffer;
+    private int[] code = new int[64];
+    private int size = 0;
+    private final List<CharMatcher> matchers = new ArrayList<>();
+    private final List<Integer> backtrackTargets = new ArrayList<>();
+    private int numberOfRegisters = 0;
+
+    private BacktrackingProgramGenerator(RegexAST ast, CompilationBuffer compilationBuffer) {
+        this.ast = ast;
+        this.compilationBuffer = compilationBuffer;
+    }
+
+    public static TRegexBacktrackingExecutorNode createExecutor(RegexAST ast, int maxSteps, int maxStackEntries, CompilationBuffer compilationBuffer) {
+        BacktrackingProgramGenerator gen = new BacktrackingProgramGenerator(ast, compilationBuffer);
+        gen.generateGroup(ast.getRoot(), true);
+        gen.emit(OP_MATCH);
+        final RegexFlags flags = ast.getSource().getFlags();
+        return new TRegexBacktrackingExecutorNode(
+                        Arrays.copyOf(gen.code, gen.size),
+                        gen.matchers.toArray(new CharMatcher[gen.matchers.size()]),
+                        gen.backtrackTargets.stream().mapToInt(Integer::intValue).toArray(),
+                        ast.getNumberOfCaptureGroups(),
+                        gen.numberOfRegisters,
+                        flags.isSticky(),
+                        flags.isIgnoreCase(),
+                        flags.isUnicode(),
+                        maxSteps,
+                        maxStackEntries);
+    }
+
+    private void generateTerm(Term term, boolean forward) {
+        if (term.isDead()) {
+            emit(OP_FAIL);
+            return;
+        }
+        final int guard = term.hasEmptyGuard() ? numberOfRegisters++ : -1;
+        if (guard >= 0) {
+            emit(OP_GUARD_BEGIN, guard);
+        }
+        if (term instanceof CharacterClass) {
+            matchers.add(((CharacterClass) term).getMatcherBuilder().createMatcher(compilationBuffer));
+            emit(forward ? OP_CHAR : OP_CHAR_BACKWARD, matchers.size() - 1);
+        } else if (term instanceof Group) {
+            generateGroup((Group) term, forward);
+        } else if (term instanceof BackReference) {
+            emit(forward ? OP_BACKREF : OP_BACKREF_BACKWARD, ((BackReference) term).getGroupNr());
+        } else if (term instanceof PositionAssertion) {
+            emit(((PositionAssertion) term).type == PositionAssertion.Type.CARET ? OP_CARET : OP_DOLLAR);
+        } else if (term instanceof LookAheadAssertion) {
+            generateLookAround(((LookAheadAssertion) term).getGroup(), ((LookAheadAssertion) term).isNegated(), true);
+        } else if (term instanceof LookBehindAssertion) {
+            generateLookAround(((LookBehindAssertion) term).getGroup(), false, false);
+        } else {
+            throw new IllegalStateException("unexpected term: " + term);
+        }
+        if (guard >= 0) {
+            emit(OP_GUARD_END, guard);
+        }
+    }
+
+    private void generateLookAround(Group group, boolean negated, boolean forward) {
+        final int register = numberOfRegisters;
+        numberOfRegisters += 2;
+        if (negated) {
+            final int begin = emit(OP_NEG_LOOK_BEGIN, register, -1);
+            generateGroup(group, forward);
+            emit(OP_NEG_LOOK_END, register);
+            code[begin + 2] = size;
+            backtrackTargets.add(size);
+        } else {
+            emit(OP_LOOK_BEGIN, register);
+            generateGroup(group, forward);
+            emit(OP_LOOK_END, register);
+        }
+    }
+
+    private void generateGroup(Group group, boolean forward) {
+        assert !(group.isLoop() && group.isCapturing());
+        if (group.isCapturing()) {
+            emit(OP_SAVE, group.getGroupNumber() * 2 + (forward ? 0 : 1));
+        }
+        final boolean clearCaptureGroups = (group.isLoop() || group.isExpandedQuantifier()) &&
+                        group.getEnclosedCaptureGroupsLow() < group.getEnclosedCaptureGroupsHigh();
+        final int loopStart = size;
+        List<Sequence> alternatives = new ArrayList<>();
+        for (Sequence s : group.getAlternatives()) {
+            if (!s.isDead()) {
+                alternatives.add(s);
+            }
+        }
+        if (alternatives.isEmpty()) {
+            emit(OP_FAIL);
+        }
+        List<Integer> jumpsToEnd = new ArrayList<>();
+        for (int i = 0; i < alternatives.size(); i++) {
+            final Sequence alternative = alternatives.get(i);
+            final boolean last = i == alternatives.size() - 1;
+            final int split = last ? -1 : emit(OP_SPLIT, size + 3, -1);
+            if (clearCaptureGroups && !alternative.isEmpty()) {
+                emit(OP_CLEAR, group.getEnclosedCaptureGroupsLow(), group.getEnclosedCaptureGroupsHigh());
+            }
+            final ArrayList<Term> terms = alternative.getTerms();
+            for (int j = 0; j < terms.size(); j++) {
+                generateTerm(terms.get(forward ? j : terms.size() - 1 - j), forward);
+            }
+            if (group.isLoop() && !alternative.isEmpty()) {
+                emit(OP_JMP, loopStart);
+            } else if (!last) {
+                jumpsToEnd.add(emit(OP_JMP, -1));
+            }
+            if (!last) {
+                code[split + 2] = size;
+                backtrackTargets.add(size);
+            }
+        }
+        for (int jump : jumpsToEnd) {
+            code[jump + 1] = size;
+        }
+        if (group.isCapturing()) {
+            emit(OP_SAVE, group.getGroupNumber() * 2 + (forward ? 1 : 0));
+        }
+    }
+
+    private int emit(int... instruction) {
+        assert instruction.length == TRegexBacktrackingExecutorNode.instructionLength(instruction[0]);
+        if (size + instruction.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + instruction.length));
+        }
+        final int pos = size;
+        System.arraycopy(instruction, 0, code, size, instruction.length);
+        size += instruction.length;
+        return pos;
+    }
+}
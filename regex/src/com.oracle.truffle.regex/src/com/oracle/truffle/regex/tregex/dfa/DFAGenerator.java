@@ -33,7 +33,6 @@ import com.oracle.truffle.regex.tregex.buffer.CompilationBuffer;
 import com.oracle.truffle.regex.tregex.matchers.AnyMatcher;
 import com.oracle.truffle.regex.tregex.matchers.CharMatcher;
 import com.oracle.truffle.regex.tregex.matchers.MatcherBuilder;
-import com.oracle.truffle.regex.tregex.matchers.SingleCharMatcher;
 import com.oracle.truffle.regex.tregex.nfa.NFA;
 import com.oracle.truffle.regex.tregex.nfa.NFAMatcherState;
 import com.oracle.truffle.regex.tregex.nfa.NFAState;
@@ -99,6 +98,55 @@ public final class DFAGenerator {
         this.expandDFAPruneTraverseNext = pruneUnambiguousPaths ? new ArrayList<>() : null;
     }
 
+    /**
+     * Creates the forward entry state set for the given prefix length in the same way as
+     * {@link #createForwardDFAExecutor(NFA, TRegexDFAExecutorProperties, CompilationBuffer)}
+     * does, for use by executors that do not build a full DFA. The loop back matcher must have been
+     * created beforehand if {@code createLoopBack} is set.
+     *
+     * @param nfa the NFA.
+     * @param prefixIndex the index of the entry point, i.e. the number of characters that were
+     *            stepped back to match look-behind assertions.
+     * @param anchored whether matching starts at the beginning of the input.
+     * @param createLoopBack whether the search should continue at the following positions if no
+     *            match is found at the current one.
+     * @return the entry state set, or {@code null} if there is no entry point for the given
+     *         parameters.
+     */
+    public static NFATransitionSet createForwardEntryStateSet(NFA nfa, int prefixIndex, boolean anchored, boolean createLoopBack) {
+        NFATransitionSet unAnchoredEntryStateSet = createUnAnchoredEntryStateSet(nfa, prefixIndex, createLoopBack);
+        if (!anchored) {
+            return unAnchoredEntryStateSet;
+        }
+        NFATransitionSet anchoredEntryStateSet = NFATransitionSet.create(nfa, true, true, nfa.getAnchoredEntry().get(prefixIndex).getNext());
+        if (unAnchoredEntryStateSet != null) {
+            anchoredEntryStateSet.addAll(unAnchoredEntryStateSet);
+        }
+        return anchoredEntryStateSet;
+    }
+
+    /**
+     * Creates the state set of the unanchored entry point for the given prefix length, or returns
+     * {@code null} if there is none.
+     */
+    private static NFATransitionSet createUnAnchoredEntryStateSet(NFA nfa, int prefixIndex, boolean createLoopBack) {
+        List<NFAStateTransition> unAnchoredEntry = nfa.getUnAnchoredEntry().get(prefixIndex).getNext();
+        if (unAnchoredEntry.isEmpty()) {
+            return null;
+        }
+        NFATransitionSet unAnchoredEntryStateSet = NFATransitionSet.create(nfa, true, true, unAnchoredEntry);
+        if (createLoopBack) {
+            NFAMatcherState loopBackMatcher = nfa.createLoopBackMatcher();
+            if (prefixIndex == 0) {
+                unAnchoredEntryStateSet.addAll(loopBackMatcher.getNext());
+            } else {
+                // add transition to loopBackMatcher
+                unAnchoredEntryStateSet.add(loopBackMatcher.getNext().get(loopBackMatcher.getNext().size() - 1));
+            }
+        }
+        return unAnchoredEntryStateSet;
+    }
+
     @TruffleBoundary
     public static TRegexDFAExecutorNode createForwardDFAExecutor(NFA nfa, TRegexDFAExecutorProperties executorProperties, CompilationBuffer compilationBuffer) {
         final boolean trackCaptureGroups = executorProperties.isTrackCaptureGroups();
@@ -106,26 +154,15 @@ public final class DFAGenerator {
         final int numberOfEntryPoints = nfa.getAnchoredEntry().size();
         short[] entryStates = new short[numberOfEntryPoints * 2];
         short[] initCaptureGroups = trackCaptureGroups ? new short[numberOfEntryPoints * 2] : null;
-        NFAState loopBackMatcher = null;
+        final boolean createLoopBack = executorProperties.isSearching() && !nfa.getAst().getSource().getFlags().isSticky();
         DFACaptureGroupTransitionBuilder[] anchoredInitialCGBuilder = trackCaptureGroups ? new DFACaptureGroupTransitionBuilder[numberOfEntryPoints] : null;
         DFACaptureGroupTransitionBuilder[] unAnchoredInitialCGBuilder = trackCaptureGroups ? new DFACaptureGroupTransitionBuilder[numberOfEntryPoints] : null;
         for (int i = 0; i < numberOfEntryPoints; i++) {
             NFATransitionSet anchoredEntryStateSet = NFATransitionSet.create(nfa, true, true, nfa.getAnchoredEntry().get(i).getNext());
-            if (nfa.getUnAnchoredEntry().get(i).getNext().isEmpty()) {
+            NFATransitionSet unAnchoredEntryStateSet = createUnAnchoredEntryStateSet(nfa, i, createLoopBack);
+            if (unAnchoredEntryStateSet == null) {
                 entryStates[numberOfEntryPoints + i] = -1;
             } else {
-                final boolean createLoopBack = executorProperties.isSearching() && !nfa.getAst().getSource().getFlags().isSticky();
-                NFATransitionSet unAnchoredEntryStateSet = NFATransitionSet.create(nfa, true, true, nfa.getUnAnchoredEntry().get(i).getNext());
-                if (createLoopBack) {
-                    if (i == 0) {
-                        loopBackMatcher = nfa.createLoopBackMatcher();
-                        unAnchoredEntryStateSet.addAll(loopBackMatcher.getNext());
-                    } else {
-                        assert loopBackMatcher != null;
-                        // add transition to loopBackMatcher
-                        unAnchoredEntryStateSet.add(loopBackMatcher.getNext().get(loopBackMatcher.getNext().size() - 1));
-                    }
-                }
                 anchoredEntryStateSet.addAll(unAnchoredEntryStateSet);
                 DFAStateTransitionBuilder unAnchoredEntryConnection = new DFAStateTransitionBuilder(null, unAnchoredEntryStateSet);
                 DFAStateNodeBuilder unAnchoredEntryState = gen.lookupOrCreateState(unAnchoredEntryConnection);
@@ -268,20 +305,54 @@ public final class DFAGenerator {
             if (s.hasBackwardPrefixState()) {
                 successors[successors.length - 1] = s.getBackwardPrefixState();
             }
-            boolean findSingleChar = matchers.length == 2 &&
-                            matchers[0] instanceof SingleCharMatcher &&
-                            matchers[1] instanceof AnyMatcher &&
-                            successors[1] == s.getId();
+            char[] loopIndexOfChars = getLoopIndexOfChars(s, matchers, loopToSelf);
             if (trackCaptureGroups) {
-                ret[s.getId()] = new CGTrackingDFAStateNode(s.getId(), s.isFinalState(), s.isAnchoredFinalState(), findSingleChar, loopToSelf, successors, matchers,
+                ret[s.getId()] = new CGTrackingDFAStateNode(s.getId(), s.isFinalState(), s.isAnchoredFinalState(), loopIndexOfChars, loopToSelf, successors, matchers,
                                 cgTransitions, cgPrecedingTransitions);
             } else if (nfa.isTraceFinderNFA()) {
-                ret[s.getId()] = new TraceFinderDFAStateNode(s.getId(), s.isFinalState(), s.isAnchoredFinalState(), findSingleChar, loopToSelf, successors, matchers,
+                ret[s.getId()] = new TraceFinderDFAStateNode(s.getId(), s.isFinalState(), s.isAnchoredFinalState(), loopIndexOfChars, loopToSelf, successors, matchers,
                                 s.getUnAnchoredResult(), s.getAnchoredResult());
             } else if (forward) {
-                ret[s.getId()] = new DFAStateNode(s.getId(), s.isFinalState(), s.isAnchoredFinalState(), findSingleChar, loopToSelf, successors, matchers);
+                ret[s.getId()] = new DFAStateNode(s.getId(), s.isFinalState(), s.isAnchoredFinalState(), loopIndexOfChars, loopToSelf, successors, matchers);
             } else {
-                ret[s.getId()] = new BackwardDFAStateNode(s.getId(), s.isFinalState(), s.isAnchoredFinalState(), findSingleChar, loopToSelf, successors, matchers);
+                ret[s.getId()] = new BackwardDFAStateNode(s.getId(), s.isFinalState(), s.isAnchoredFinalState(), loopIndexOfChars, loopToSelf, successors, matchers);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Calculates the set of characters that lead out of the given state's self-loop, if it is
+     * small enough to be searched for with {@link DFAStateNode#getLoopIndexOfChars()}. Since the
+     * last matcher of a state may have been replaced by an {@link AnyMatcher}, we can't simply
+     * invert the looping transition's {@link MatcherBuilder} in that case, and have to use the
+     * union of all preceding transitions instead.
+     */
+    private char[] getLoopIndexOfChars(DFAStateNodeBuilder s, CharMatcher[] matchers, short loopToSelf) {
+        if (!forward || loopToSelf < 0 || TRegexOptions.TRegexDFALoopIndexOfMaxChars == 0) {
+            return null;
+        }
+        MatcherBuilder exitChars;
+        if (matchers[loopToSelf] instanceof AnyMatcher) {
+            exitChars = MatcherBuilder.createEmpty();
+            for (int i = 0; i < loopToSelf; i++) {
+                exitChars = exitChars.union(s.getMatcherBuilders()[i], compilationBuffer);
+            }
+        } else {
+            exitChars = s.getMatcherBuilders()[loopToSelf].createInverse(compilationBuffer);
+        }
+        int nChars = 0;
+        for (int i = 0; i < exitChars.size(); i++) {
+            nChars += exitChars.getHi(i) - exitChars.getLo(i) + 1;
+            if (nChars > TRegexOptions.TRegexDFALoopIndexOfMaxChars) {
+                return null;
+            }
+        }
+        char[] ret = new char[nChars];
+        int iRet = 0;
+        for (int i = 0; i < exitChars.size(); i++) {
+            for (int c = exitChars.getLo(i); c <= exitChars.getHi(i); c++) {
+                ret[iRet++] = (char) c;
             }
         }
         return ret;
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.dfa;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A DFA state created on demand by {@link LazyDFAStateCache}. Successors are memoized in a
+ * direct-mapped table for ASCII characters and in a hash map for all other characters.
+ */
+public final class LazyDFAState {
+
+    private static final int ASCII_TABLE_SIZE = 128;
+
+    private final NFATransitionSet nfaStateSet;
+    private final int generation;
+    private LazyDFAState[] asciiSuccessors;
+    private Map<Character, LazyDFAState> successors;
+
+    LazyDFAState(NFATransitionSet nfaStateSet, int generation) {
+        this.nfaStateSet = nfaStateSet;
+        this.generation = generation;
+    }
+
+    public NFATransitionSet getNfaStateSet() {
+        return nfaStateSet;
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    public boolean isDead() {
+        return nfaStateSet.isEmpty();
+    }
+
+    public boolean isFinalState() {
+        return nfaStateSet.containsFinalState();
+    }
+
+    public boolean isAnchoredFinalState() {
+        return nfaStateSet.containsAnchoredFinalState();
+    }
+
+    LazyDFAState getCachedSuccessor(char c) {
+        if (c < ASCII_TABLE_SIZE) {
+            LazyDFAState[] table = asciiSuccessors;
+            return table == null ? null : table[c];
+        }
+        return getCachedNonAsciiSuccessor(c);
+    }
+
+    @TruffleBoundary
+    private synchronized LazyDFAState getCachedNonAsciiSuccessor(char c) {
+        return successors == null ? null : successors.get(c);
+    }
+
+    void cacheSuccessor(char c, LazyDFAState successor) {
+        if (c < ASCII_TABLE_SIZE) {
+            if (asciiSuccessors == null) {
+                asciiSuccessors = new LazyDFAState[ASCII_TABLE_SIZE];
+            }
+            asciiSuccessors[c] = successor;
+        } else {
+            synchronized (this) {
+                if (successors == null) {
+                    successors = new HashMap<>();
+                }
+                successors.put(c, successor);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.dfa;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.regex.tregex.TRegexOptions;
+import com.oracle.truffle.regex.tregex.buffer.CompilationBuffer;
+import com.oracle.truffle.regex.tregex.matchers.CharMatcher;
+import com.oracle.truffle.regex.tregex.nfa.NFA;
+import com.oracle.truffle.regex.tregex.nfa.NFAMatcherState;
+import com.oracle.truffle.regex.tregex.nfa.NFAState;
+import com.oracle.truffle.regex.tregex.nfa.NFAStateTransition;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lazily constructed forward DFA. Used in place of a DFA generated by {@link DFAGenerator} when
+ * the full DFA would exceed {@link TRegexOptions#TRegexMaxDFASize}. DFA states are created by
+ * subset construction on first use and memoized, up to
+ * {@link TRegexOptions#TRegexLazyDFAMaxCachedStates} states. When this limit is exceeded, all
+ * states are discarded and the cache is rebuilt from scratch. Every flush increments the cache's
+ * generation; states of an older generation are still valid, but their successors are no longer
+ * memoized. After {@link TRegexOptions#TRegexLazyDFAMaxCacheFlushes} flushes, memoization is
+ * disabled completely, which effectively turns the lazy DFA into an NFA simulation.
+ * <p>
+ * Like the forward DFA used by {@link com.oracle.truffle.regex.tregex.nodes.TRegexExecRootNode},
+ * this DFA only finds the end index of a match; capture groups have to be determined separately.
+ * This class is thread-safe. Memoized transitions are read without locking, only cache misses that
+ * update the cache are synchronized.
+ */
+public final class LazyDFAStateCache {
+
+    private final NFA nfa;
+    private final CharMatcher[] matchers;
+    private final boolean createLoopBack;
+    private final LazyDFAState deadState;
+    private final LazyDFAState[] entryStates;
+    private final Map<NFATransitionSet, LazyDFAState> stateMap = new HashMap<>();
+    private volatile int generation = 0;
+    private int nFlushes = 0;
+    private volatile boolean cachingDisabled = false;
+
+    /**
+     * @param nfa the NFA to simulate. If {@code createLoopBack} is set,
+     *            {@link NFA#createLoopBackMatcher()} must have been called on it already.
+     * @param createLoopBack whether the DFA should search for a match starting at any index
+     *            greater than or equal to the starting index.
+     */
+    public LazyDFAStateCache(NFA nfa, boolean createLoopBack, CompilationBuffer compilationBuffer) {
+        this.nfa = nfa;
+        this.matchers = nfa.createMatchers(compilationBuffer);
+        this.createLoopBack = createLoopBack;
+        this.deadState = new LazyDFAState(NFATransitionSet.create(nfa, true, true), -1);
+        this.entryStates = new LazyDFAState[nfa.getAnchoredEntry().size() * 2];
+    }
+
+    public NFA getNfa() {
+        return nfa;
+    }
+
+    public int getPrefixLength() {
+        return nfa.getAnchoredEntry().size() - 1;
+    }
+
+    public synchronized int getNumberOfFlushes() {
+        return nFlushes;
+    }
+
+    public boolean isCachingDisabled() {
+        return cachingDisabled;
+    }
+
+    /**
+     * Returns the initial state for the given number of look-behind prefix characters, or
+     * {@code null} if the expression cannot match from there.
+     */
+    @TruffleBoundary
+    public synchronized LazyDFAState getEntryState(int prefixIndex, boolean anchored) {
+        final int i = anchored ? prefixIndex : (entryStates.length / 2) + prefixIndex;
+        LazyDFAState entry = entryStates[i];
+        if (entry == null) {
+            NFATransitionSet entryStateSet = DFAGenerator.createForwardEntryStateSet(nfa, prefixIndex, anchored, createLoopBack);
+            if (entryStateSet == null) {
+                return null;
+            }
+            entry = lookupOrCreateState(entryStateSet);
+            if (!cachingDisabled) {
+                entryStates[i] = entry;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the successor of {@code state} on character {@code c}. The returned state may be
+     * {@link LazyDFAState#isDead() dead}, but never {@code null}. Only the cache miss path is
+     * behind a {@link TruffleBoundary}, so memoized transitions can be partially evaluated.
+     */
+    public LazyDFAState getSuccessor(LazyDFAState state, char c) {
+        if (state.getGeneration() == generation) {
+            LazyDFAState successor = state.getCachedSuccessor(c);
+            if (successor != null) {
+                return successor;
+            }
+        }
+        return computeSuccessor(state, c);
+    }
+
+    @TruffleBoundary
+    private LazyDFAState computeSuccessor(LazyDFAState state, char c) {
+        NFATransitionSet targetStateSet = NFATransitionSet.create(nfa, true, true);
+        for (NFAStateTransition transition : state.getNfaStateSet()) {
+            NFAState target = transition.getTarget();
+            if (target instanceof NFAMatcherState && matchers[target.getId()].match(c)) {
+                targetStateSet.addAll(target.getNext());
+            }
+        }
+        if (cachingDisabled) {
+            // nothing is memoized anymore, so there is no shared state to update
+            return targetStateSet.isEmpty() ? deadState : new LazyDFAState(targetStateSet, generation);
+        }
+        return cacheSuccessor(state, c, targetStateSet);
+    }
+
+    private synchronized LazyDFAState cacheSuccessor(LazyDFAState state, char c, NFATransitionSet targetStateSet) {
+        LazyDFAState successor = targetStateSet.isEmpty() ? deadState : lookupOrCreateState(targetStateSet);
+        if (!cachingDisabled && state.getGeneration() == generation) {
+            state.cacheSuccessor(c, successor);
+        }
+        return successor;
+    }
+
+    private LazyDFAState lookupOrCreateState(NFATransitionSet stateSet) {
+        LazyDFAState state = stateMap.get(stateSet);
+        if (state != null) {
+            return state;
+        }
+        if (stateMap.size() >= TRegexOptions.TRegexLazyDFAMaxCachedStates) {
+            flush();
+        }
+        state = new LazyDFAState(stateSet, generation);
+        if (!cachingDisabled) {
+            stateMap.put(stateSet, state);
+        }
+        return state;
+    }
+
+    private void flush() {
+        stateMap.clear();
+        Arrays.fill(entryStates, null);
+        if (++nFlushes > TRegexOptions.TRegexLazyDFAMaxCacheFlushes) {
+            cachingDisabled = true;
+        }
+        generation++;
+    }
+}
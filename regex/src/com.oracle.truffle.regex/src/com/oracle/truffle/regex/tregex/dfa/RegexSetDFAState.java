@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.dfa;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A state of the product automaton built by {@link RegexSetDFAStateCache}. Consists of one NFA
+ * state set per pattern in the regex set, where {@code null} denotes a pattern that is not
+ * (or no longer) active in this state. Successors are memoized just like in {@link LazyDFAState}.
+ */
+public final class RegexSetDFAState {
+
+    private static final int ASCII_TABLE_SIZE = 128;
+    private static final int[] NO_PATTERNS = {};
+
+    private final NFATransitionSet[] components;
+    private final int generation;
+    private final int[] finalPatterns;
+    private final int[] anchoredFinalPatterns;
+    private final boolean dead;
+    private RegexSetDFAState[] asciiSuccessors;
+    private Map<Character, RegexSetDFAState> successors;
+
+    RegexSetDFAState(NFATransitionSet[] components, int generation) {
+        this.components = components;
+        this.generation = generation;
+        int nFinal = 0;
+        int nAnchoredFinal = 0;
+        boolean isDead = true;
+        for (NFATransitionSet c : components) {
+            if (c != null) {
+                isDead = false;
+                if (c.containsFinalState()) {
+                    nFinal++;
+                }
+                if (c.containsAnchoredFinalState()) {
+                    nAnchoredFinal++;
+                }
+            }
+        }
+        this.dead = isDead;
+        this.finalPatterns = nFinal == 0 ? NO_PATTERNS : new int[nFinal];
+        this.anchoredFinalPatterns = nAnchoredFinal == 0 ? NO_PATTERNS : new int[nAnchoredFinal];
+        nFinal = 0;
+        nAnchoredFinal = 0;
+        for (int i = 0; i < components.length; i++) {
+            if (components[i] != null) {
+                if (components[i].containsFinalState()) {
+                    finalPatterns[nFinal++] = i;
+                }
+                if (components[i].containsAnchoredFinalState()) {
+                    anchoredFinalPatterns[nAnchoredFinal++] = i;
+                }
+            }
+        }
+    }
+
+    NFATransitionSet[] getComponents() {
+        return components;
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * A state is dead if no pattern is active anymore, i.e. all patterns have either matched
+     * already or can no longer match.
+     */
+    public boolean isDead() {
+        return dead;
+    }
+
+    /**
+     * Indices of all patterns that have found a match upon entering this state.
+     */
+    public int[] getFinalPatterns() {
+        return finalPatterns;
+    }
+
+    /**
+     * Indices of all patterns that have found a match if this state is reached at the end of the
+     * input.
+     */
+    public int[] getAnchoredFinalPatterns() {
+        return anchoredFinalPatterns;
+    }
+
+    RegexSetDFAState getCachedSuccessor(char c) {
+        if (c < ASCII_TABLE_SIZE) {
+            RegexSetDFAState[] table = asciiSuccessors;
+            return table == null ? null : table[c];
+        }
+        synchronized (this) {
+            return successors == null ? null : successors.get(c);
+        }
+    }
+
+    void cacheSuccessor(char c, RegexSetDFAState successor) {
+        if (c < ASCII_TABLE_SIZE) {
+            if (asciiSuccessors == null) {
+                asciiSuccessors = new RegexSetDFAState[ASCII_TABLE_SIZE];
+            }
+            asciiSuccessors[c] = successor;
+        } else {
+            synchronized (this) {
+                if (successors == null) {
+                    successors = new HashMap<>();
+                }
+                successors.put(c, successor);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.dfa;
+
+import com.oracle.truffle.regex.tregex.TRegexOptions;
+import com.oracle.truffle.regex.tregex.buffer.CompilationBuffer;
+import com.oracle.truffle.regex.tregex.matchers.CharMatcher;
+import com.oracle.truffle.regex.tregex.nfa.NFA;
+import com.oracle.truffle.regex.tregex.nfa.NFAMatcherState;
+import com.oracle.truffle.regex.tregex.nfa.NFAState;
+import com.oracle.truffle.regex.tregex.nfa.NFAStateTransition;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lazily constructed product DFA of a set of NFAs, used for matching a set of regular expressions
+ * in a single pass over the input. Every {@link RegexSetDFAState} holds the current NFA state set
+ * of every pattern, so in the steady state, a single memoized transition advances all patterns at
+ * once, regardless of the number of patterns in the set.
+ * <p>
+ * In contrast to {@link LazyDFAStateCache}, this automaton does not look for the match with the
+ * highest priority. Instead, it reports every pattern that matches anywhere in the input. As soon
+ * as a pattern has matched, it is removed from all subsequent states, which keeps the number of
+ * states down and allows the search to stop early once all patterns have matched.
+ * <p>
+ * Caching follows the same rules as in {@link LazyDFAStateCache}: the number of memoized states
+ * is capped at {@link TRegexOptions#TRegexLazyDFAMaxCachedStates}, and memoization is disabled
+ * after {@link TRegexOptions#TRegexLazyDFAMaxCacheFlushes} flushes. This class is thread-safe.
+ */
+public final class RegexSetDFAStateCache {
+
+    private final NFA[] nfas;
+    private final CharMatcher[][] matchers;
+    private final int[] prefixLengths;
+    private final int maxPrefixLength;
+    private final NFATransitionSet[][] entrySets;
+    private final RegexSetDFAState deadState;
+    private final RegexSetDFAState[] entryStates = new RegexSetDFAState[2];
+    private final Map<List<NFATransitionSet>, RegexSetDFAState> stateMap = new HashMap<>();
+    private volatile int generation = 0;
+    private int nFlushes = 0;
+    private boolean cachingDisabled = false;
+
+    /**
+     * @param nfas one NFA per pattern, or {@code null} for patterns that can never match. If
+     *            {@code createLoopBack} is set, {@link NFA#createLoopBackMatcher()} must have been
+     *            called on all NFAs already.
+     * @param createLoopBack whether the DFA should search for matches starting at any index greater
+     *            than or equal to the starting index.
+     */
+    public RegexSetDFAStateCache(NFA[] nfas, boolean createLoopBack, CompilationBuffer compilationBuffer) {
+        this.nfas = nfas;
+        this.matchers = new CharMatcher[nfas.length][];
+        this.prefixLengths = new int[nfas.length];
+        this.entrySets = new NFATransitionSet[nfas.length][];
+        int maxPrefix = 0;
+        for (int i = 0; i < nfas.length; i++) {
+            if (nfas[i] == null) {
+                continue;
+            }
+            matchers[i] = nfas[i].createMatchers(compilationBuffer);
+            prefixLengths[i] = nfas[i].getAnchoredEntry().size() - 1;
+            maxPrefix = Math.max(maxPrefix, prefixLengths[i]);
+            entrySets[i] = new NFATransitionSet[(prefixLengths[i] + 1) * 2];
+            for (int prefixIndex = 0; prefixIndex <= prefixLengths[i]; prefixIndex++) {
+                entrySets[i][prefixIndex * 2] = DFAGenerator.createForwardEntryStateSet(nfas[i], prefixIndex, false, createLoopBack);
+                entrySets[i][prefixIndex * 2 + 1] = DFAGenerator.createForwardEntryStateSet(nfas[i], prefixIndex, true, createLoopBack);
+            }
+        }
+        this.maxPrefixLength = maxPrefix;
+        this.deadState = new RegexSetDFAState(new NFATransitionSet[nfas.length], -1);
+    }
+
+    public int getNumberOfPatterns() {
+        return nfas.length;
+    }
+
+    /**
+     * The length of the longest look-behind prefix of all patterns. Matching must start this many
+     * characters before the actual starting index, if possible.
+     */
+    public int getMaxPrefixLength() {
+        return maxPrefixLength;
+    }
+
+    /**
+     * Returns the initial state when matching from {@code index}. Only patterns whose look-behind
+     * prefix starts exactly at {@code index} are active in this state, all others are added later
+     * via {@link #addEntries(RegexSetDFAState, int, int)}.
+     */
+    public synchronized RegexSetDFAState getEntryState(int index, int fromIndex) {
+        if (maxPrefixLength == 0) {
+            assert index == fromIndex;
+            final int i = fromIndex == 0 ? 1 : 0;
+            RegexSetDFAState entry = entryStates[i];
+            if (entry == null) {
+                entry = addEntriesIntern(deadState, index, fromIndex);
+                if (!cachingDisabled) {
+                    entryStates[i] = entry;
+                }
+            }
+            return entry;
+        }
+        return addEntriesIntern(deadState, index, fromIndex);
+    }
+
+    /**
+     * Activates all patterns whose look-behind prefix starts at {@code index} in {@code state}.
+     * This is necessary when {@link #getMaxPrefixLength()} is greater than zero, because the
+     * patterns' prefixes may differ in length.
+     */
+    public synchronized RegexSetDFAState addEntries(RegexSetDFAState state, int index, int fromIndex) {
+        return addEntriesIntern(state, index, fromIndex);
+    }
+
+    private RegexSetDFAState addEntriesIntern(RegexSetDFAState state, int index, int fromIndex) {
+        NFATransitionSet[] components = null;
+        for (int i = 0; i < nfas.length; i++) {
+            if (nfas[i] == null) {
+                continue;
+            }
+            final int prefixIndex = Math.min(fromIndex, prefixLengths[i]);
+            if (fromIndex - prefixIndex == index) {
+                if (components == null) {
+                    components = Arrays.copyOf(state.getComponents(), nfas.length);
+                }
+                assert components[i] == null;
+                components[i] = entrySets[i][prefixIndex * 2 + (index == 0 ? 1 : 0)];
+            }
+        }
+        return components == null ? state : lookupOrCreateState(components);
+    }
+
+    /**
+     * Returns the successor of {@code state} on character {@code c}. The returned state may be
+     * {@link RegexSetDFAState#isDead() dead}, but never {@code null}.
+     */
+    public RegexSetDFAState getSuccessor(RegexSetDFAState state, char c) {
+        if (state.getGeneration() == generation) {
+            RegexSetDFAState successor = state.getCachedSuccessor(c);
+            if (successor != null) {
+                return successor;
+            }
+        }
+        return computeSuccessor(state, c);
+    }
+
+    private synchronized RegexSetDFAState computeSuccessor(RegexSetDFAState state, char c) {
+        NFATransitionSet[] components = state.getComponents();
+        NFATransitionSet[] targetComponents = new NFATransitionSet[components.length];
+        for (int i = 0; i < components.length; i++) {
+            // patterns that have matched in the current state have already been reported
+            if (components[i] == null || components[i].containsFinalState()) {
+                continue;
+            }
+            NFATransitionSet targetStateSet = NFATransitionSet.create(nfas[i], true, true);
+            for (NFAStateTransition transition : components[i]) {
+                NFAState target = transition.getTarget();
+                if (target instanceof NFAMatcherState && matchers[i][target.getId()].match(c)) {
+                    targetStateSet.addAll(target.getNext());
+                }
+            }
+            if (!targetStateSet.isEmpty()) {
+                targetComponents[i] = targetStateSet;
+            }
+        }
+        RegexSetDFAState successor = lookupOrCreateState(targetComponents);
+        if (!cachingDisabled && state.getGeneration() == generation) {
+            state.cacheSuccessor(c, successor);
+        }
+        return successor;
+    }
+
+    private RegexSetDFAState lookupOrCreateState(NFATransitionSet[] components) {
+        List<NFATransitionSet> key = Arrays.asList(components);
+        RegexSetDFAState state = stateMap.get(key);
+        if (state != null) {
+            return state;
+        }
+        if (stateMap.size() >= TRegexOptions.TRegexLazyDFAMaxCachedStates) {
+            flush();
+        }
+        state = new RegexSetDFAState(components, generation);
+        if (!cachingDisabled) {
+            stateMap.put(key, state);
+        }
+        return state;
+    }
+
+    private void flush() {
+        stateMap.clear();
+        Arrays.fill(entryStates, null);
+        if (++nFlushes > TRegexOptions.TRegexLazyDFAMaxCacheFlushes) {
+            cachingDisabled = true;
+        }
+        generation++;
+    }
+}
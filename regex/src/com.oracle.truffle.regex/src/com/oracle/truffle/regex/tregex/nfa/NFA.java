@@ -26,6 +26,8 @@ package com.oracle.truffle.regex.tregex.nfa;
 
 import com.oracle.truffle.regex.result.PreCalculatedResultFactory;
 import com.oracle.truffle.regex.tregex.automaton.StateIndex;
+import com.oracle.truffle.regex.tregex.buffer.CompilationBuffer;
+import com.oracle.truffle.regex.tregex.matchers.CharMatcher;
 import com.oracle.truffle.regex.tregex.matchers.MatcherBuilder;
 import com.oracle.truffle.regex.tregex.parser.Counter;
 import com.oracle.truffle.regex.tregex.parser.ast.CharacterClass;
@@ -133,6 +135,20 @@ public class NFA implements StateIndex<NFAState> {
         return states[id];
     }
 
+    /**
+     * Creates a {@link CharMatcher} for every {@link NFAMatcherState} in this NFA, indexed by state
+     * ID. Used by executors that simulate the NFA directly instead of compiling it to a DFA.
+     */
+    public CharMatcher[] createMatchers(CompilationBuffer compilationBuffer) {
+        CharMatcher[] matchers = new CharMatcher[states.length];
+        for (NFAState s : states) {
+            if (s instanceof NFAMatcherState) {
+                matchers[s.getId()] = ((NFAMatcherState) s).getMatcherBuilder().createMatcher(compilationBuffer);
+            }
+        }
+        return matchers;
+    }
+
     public NFAMatcherState createLoopBackMatcher() {
         if (states[states.length - 1] != null) {
             return (NFAMatcherState) states[states.length - 1];
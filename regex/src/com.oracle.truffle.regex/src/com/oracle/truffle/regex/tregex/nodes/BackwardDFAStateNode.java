@@ -29,8 +29,8 @@ import com.oracle.truffle.regex.tregex.matchers.CharMatcher;
 
 public class BackwardDFAStateNode extends DFAStateNode {
 
-    public BackwardDFAStateNode(short id, boolean finalState, boolean anchoredFinalState, boolean findSingleChar, short loopToSelf, short[] successors, CharMatcher[] matchers) {
-        super(id, finalState, anchoredFinalState, findSingleChar, loopToSelf, successors, matchers);
+    public BackwardDFAStateNode(short id, boolean finalState, boolean anchoredFinalState, char[] loopIndexOfChars, short loopToSelf, short[] successors, CharMatcher[] matchers) {
+        super(id, finalState, anchoredFinalState, loopIndexOfChars, loopToSelf, successors, matchers);
     }
 
     protected BackwardDFAStateNode(BackwardDFAStateNode copy, short copyID) {
@@ -40,13 +40,13 @@ public class CGTrackingDFAStateNode extends DFAStateNode {
     public CGTrackingDFAStateNode(short id,
                     boolean finalState,
                     boolean anchoredFinalState,
-                    boolean findSingleChar,
+                    char[] loopIndexOfChars,
                     short loopToSelf,
                     short[] successors,
                     CharMatcher[] matchers,
                     short[] captureGroupTransitions,
                     short[] precedingCaptureGroupTransitions) {
-        super(id, finalState, anchoredFinalState, findSingleChar, loopToSelf, successors, matchers);
+        super(id, finalState, anchoredFinalState, loopIndexOfChars, loopToSelf, successors, matchers);
         this.captureGroupTransitions = captureGroupTransitions;
         this.precedingCaptureGroupTransitions = precedingCaptureGroupTransitions;
         transitionDispatchNode = precedingCaptureGroupTransitions.length > 1 ? DFACaptureGroupPartialTransitionDispatchNode.create(precedingCaptureGroupTransitions) : null;
@@ -30,6 +30,7 @@ import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.regex.tregex.matchers.CharMatcher;
+import com.oracle.truffle.regex.tregex.nodes.input.InputIndexOfAnyNode;
 import com.oracle.truffle.regex.tregex.util.DebugUtil;
 
 import java.util.Arrays;
@@ -38,17 +39,18 @@ public class DFAStateNode extends DFAAbstractStateNode {
 
     private static final byte FINAL_STATE_FLAG = 1;
     private static final byte ANCHORED_FINAL_STATE_FLAG = 1 << 1;
-    private static final byte FIND_SINGLE_CHAR_FLAG = 1 << 2;
 
     private final short id;
     private final byte flags;
     protected final short loopToSelf;
     @CompilationFinal(dimensions = 1) protected final CharMatcher[] matchers;
+    @CompilationFinal(dimensions = 1) private final char[] loopIndexOfChars;
+    @Child private InputIndexOfAnyNode indexOfNode;
 
     public DFAStateNode(short id,
                     boolean finalState,
                     boolean anchoredFinalState,
-                    boolean findSingleChar,
+                    char[] loopIndexOfChars,
                     short loopToSelf,
                     short[] successors,
                     CharMatcher[] matchers) {
@@ -62,16 +64,16 @@ public class DFAStateNode extends DFAAbstractStateNode {
         if (anchoredFinalState) {
             newFlags |= ANCHORED_FINAL_STATE_FLAG;
         }
-        if (findSingleChar) {
-            newFlags |= FIND_SINGLE_CHAR_FLAG;
-        }
+        assert loopIndexOfChars == null || loopToSelf != -1;
         this.loopToSelf = loopToSelf;
         this.flags = newFlags;
         this.matchers = matchers;
+        this.loopIndexOfChars = loopIndexOfChars;
+        this.indexOfNode = loopIndexOfChars == null ? null : InputIndexOfAnyNode.create();
     }
 
     protected DFAStateNode(DFAStateNode nodeSplitCopy, short copyID) {
-        this(copyID, nodeSplitCopy.isFinalState(), nodeSplitCopy.isAnchoredFinalState(), nodeSplitCopy.isFindSingleChar(), nodeSplitCopy.loopToSelf,
+        this(copyID, nodeSplitCopy.isFinalState(), nodeSplitCopy.isAnchoredFinalState(), nodeSplitCopy.loopIndexOfChars, nodeSplitCopy.loopToSelf,
                         Arrays.copyOf(nodeSplitCopy.getSuccessors(), nodeSplitCopy.getSuccessors().length), nodeSplitCopy.getMatchers());
     }
 
@@ -97,8 +99,17 @@ public class DFAStateNode extends DFAAbstractStateNode {
         return flagIsSet(ANCHORED_FINAL_STATE_FLAG);
     }
 
-    public boolean isFindSingleChar() {
-        return flagIsSet(FIND_SINGLE_CHAR_FLAG);
+    /**
+     * Returns the set of characters that cause a transition out of this state's self-loop, or
+     * <code>null</code> if the loop cannot be skipped via an index-of search. See
+     * {@link #executeFindSuccessor(VirtualFrame, TRegexDFAExecutorNode)}.
+     */
+    public char[] getLoopIndexOfChars() {
+        return loopIndexOfChars;
+    }
+
+    public boolean hasLoopIndexOfChars() {
+        return loopIndexOfChars != null;
     }
 
     private boolean flagIsSet(byte flag) {
@@ -113,7 +124,11 @@ public class DFAStateNode extends DFAAbstractStateNode {
      * Calculates this state's successor by finding a transition that matches the current input. If
      * the successor is the state itself, this method continues consuming input characters until a
      * different successor is found. This special handling allows for partial loop unrolling inside
-     * the DFA, as well as some optimizations in {@link CGTrackingDFAStateNode}.
+     * the DFA, as well as some optimizations in {@link CGTrackingDFAStateNode}. If the self-loop
+     * matches all but a few characters ({@link #getLoopIndexOfChars()}), the loop is skipped by
+     * searching for the next occurrence of one of these characters with
+     * {@link InputIndexOfAnyNode}, which lets us use vectorized {@link String#indexOf(int, int)}
+     * instead of checking the input character by character.
      * 
      * @param frame a virtual frame as described by {@link TRegexDFAExecutorProperties}.
      * @param executor this node's parent {@link TRegexDFAExecutorNode}.
@@ -136,6 +151,9 @@ public class DFAStateNode extends DFAAbstractStateNode {
                 return;
             }
             final int preLoopIndex = executor.getIndex(frame);
+            if (hasLoopIndexOfChars()) {
+                skipLoop(frame, executor);
+            }
             while (executor.hasNext(frame)) {
                 if (!checkMatch3(frame, executor, preLoopIndex)) {
                     return;
@@ -145,6 +163,22 @@ public class DFAStateNode extends DFAAbstractStateNode {
         }
     }
 
+    /**
+     * Advances the current index to the next occurrence of any character in
+     * {@link #getLoopIndexOfChars()}, or to the end of the input if there is none. All characters
+     * skipped this way would have been matched by the looping transition, so the subsequent call
+     * to {@link #checkMatch3(VirtualFrame, TRegexDFAExecutorNode, int)} will either leave the loop
+     * or hit the end of the input.
+     *
+     * @param frame a virtual frame as described by {@link TRegexDFAExecutorProperties}.
+     * @param executor this node's parent {@link TRegexDFAExecutorNode}.
+     */
+    private void skipLoop(VirtualFrame frame, TRegexDFAExecutorNode executor) {
+        assert executor.isForward();
+        final int index = indexOfNode.execute(executor.getInput(frame), executor.getIndex(frame), executor.getCurMaxIndex(frame), loopIndexOfChars);
+        executor.setIndex(frame, index < 0 ? executor.getCurMaxIndex(frame) : index);
+    }
+
     /**
      * Finds the first matching transition. If a transition matches,
      * {@link #successorFound1(VirtualFrame, TRegexDFAExecutorNode, int)} is called. The index of
@@ -475,6 +509,9 @@ public class DFAStateNode extends DFAAbstractStateNode {
         if (isLoopToSelf()) {
             table.append(new DebugUtil.Value("loopToSelf", "true"));
         }
+        if (hasLoopIndexOfChars()) {
+            table.append(new DebugUtil.Value("loopIndexOfChars", Arrays.toString(loopIndexOfChars)));
+        }
         for (int i = 0; i < matchers.length; i++) {
             table.append(transitionToTable(i));
         }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.nodes;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.regex.CompiledRegex;
+import com.oracle.truffle.regex.CompiledRegexObject;
+import com.oracle.truffle.regex.RegexExecRootNode;
+import com.oracle.truffle.regex.RegexExecutionLimitException;
+import com.oracle.truffle.regex.RegexLanguage;
+import com.oracle.truffle.regex.RegexObject;
+import com.oracle.truffle.regex.RegexRootNode;
+import com.oracle.truffle.regex.RegexSource;
+import com.oracle.truffle.regex.result.LazyCaptureGroupsResult;
+import com.oracle.truffle.regex.result.RegexResult;
+import com.oracle.truffle.regex.tregex.TRegexCompiler;
+import com.oracle.truffle.regex.tregex.util.DebugUtil;
+
+/**
+ * Root node for expressions that are executed by a {@link TRegexBacktrackingExecutorNode}. Capture
+ * groups are always calculated eagerly, since the backtracking executor has to track them anyway.
+ * <p>
+ * The executor is always bounded. On the backtracking tier (see
+ * {@link com.oracle.truffle.regex.RegexOptions#isBacktrackingTier()}) the first execution exceeding
+ * its limits compiles the DFA-based executor via {@link TRegexCompiler#compileDFA(RegexSource)} and
+ * switches to it, like {@link TRegexNFATierExecRootNode} does. Expressions the DFA does not support
+ * throw a {@link RegexExecutionLimitException} instead.
+ */
+public class TRegexBacktrackingExecRootNode extends RegexExecRootNode implements CompiledRegex {
+
+    private static final DebugUtil.DebugLogger LOG_BAILOUT = new DebugUtil.DebugLogger("TRegex Bailout: ", DebugUtil.LOG_BAILOUT_MESSAGES);
+
+    private final CallTarget regexCallTarget;
+    private final TRegexCompiler tRegexCompiler;
+    private CompiledRegexObject dfaRegex;
+
+    @Child private TRegexBacktrackingExecutorNode executorNode;
+    @Child private DirectCallNode dfaCallNode;
+
+    /**
+     * @param tRegexCompiler compiler of the DFA-based executor to switch to when
+     *            {@code executorNode} exceeds its limits, {@code null} if there is no DFA-based
+     *            executor to switch to.
+     */
+    public TRegexBacktrackingExecRootNode(RegexLanguage language, TRegexCompiler tRegexCompiler, RegexSource source, TRegexBacktrackingExecutorNode executorNode) {
+        super(language, source);
+        this.tRegexCompiler = tRegexCompiler;
+        this.executorNode = executorNode;
+        this.regexCallTarget = Truffle.getRuntime().createCallTarget(new RegexRootNode(language, this));
+    }
+
+    @Override
+    protected RegexResult execute(VirtualFrame frame, RegexObject regex, Object input, int fromIndex) {
+        if (dfaCallNode == null) {
+            final int[] result = executorNode.execute(input, fromIndex);
+            if (result == null) {
+                return RegexResult.NO_MATCH;
+            }
+            if (result != TRegexBacktrackingExecutorNode.LIMIT_EXCEEDED) {
+                return new LazyCaptureGroupsResult(regex, input, result);
+            }
+            if (tRegexCompiler == null) {
+                throw new RegexExecutionLimitException(getSource());
+            }
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            switchToDFA();
+        }
+        if (CompilerDirectives.inInterpreter()) {
+            replaceCompiledRegex(regex);
+        }
+        return (RegexResult) dfaCallNode.call(new Object[]{regex, input, fromIndex});
+    }
+
+    private synchronized void switchToDFA() {
+        if (dfaCallNode == null) {
+            LOG_BAILOUT.log("backtracking limit exceeded, switching to DFA: " + getSource());
+            dfaRegex = new CompiledRegexObject(tRegexCompiler.compileDFA(getSource()));
+            dfaCallNode = insert(DirectCallNode.create(dfaRegex.getCompiledRegex().getRegexCallTarget()));
+        }
+    }
+
+    /**
+     * Lets {@code regex} execute the DFA-based executor directly if it is still bound to this node.
+     */
+    @TruffleBoundary
+    private void replaceCompiledRegex(RegexObject regex) {
+        if (regex != null) {
+            regex.replaceCompiledRegex(this, dfaRegex);
+        }
+    }
+
+    @Override
+    public CallTarget getRegexCallTarget() {
+        return regexCallTarget;
+    }
+
+    @Override
+    protected String getEngineLabel() {
+        return "TRegex backtracking";
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.nodes;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.regex.tregex.matchers.CharMatcher;
+import com.oracle.truffle.regex.tregex.nodes.input.InputCharAtNode;
+import com.oracle.truffle.regex.tregex.nodes.input.InputLengthNode;
+
+import java.util.Arrays;
+
+/**
+ * Backtracking executor for expressions that cannot be represented as a finite automaton, i.e.
+ * expressions containing back-references, negative look-ahead assertions or look-behind
+ * assertions of non-trivial length. The expression is compiled to a flat program by
+ * {@link com.oracle.truffle.regex.tregex.backtracking.BacktrackingProgramGenerator}, which is
+ * interpreted by a loop that is exploded during partial evaluation, so that every instruction of
+ * the program becomes a separate block of compiled code.
+ * <p>
+ * Alternatives are tried in order of priority. Every choice point saves the complete matcher
+ * state (index, capture groups and registers) on the backtracking stack, which keeps the
+ * instructions free of undo logic and allows look-around assertions to discard all choice points
+ * created in their body in constant time.
+ * <p>
+ * Capture group boundaries are stored in the same format as the one used by
+ * {@link TRegexDFAExecutorNode} in capture group tracking mode, i.e. every index is incremented by
+ * one and {@code 0} denotes an unset boundary.
+ * <p>
+ * The executor is always bounded: it gives up after {@code maxSteps} backtracks or
+ * {@code maxStackEntries} choice points in a single execution and returns {@link #LIMIT_EXCEEDED},
+ * so that the caller can switch to an executor without catastrophic backtracking or report an
+ * error.
+ */
+public final class TRegexBacktrackingExecutorNode extends Node {
+
+    /**
+     * Backtrack. Operands: none.
+     */
+    public static final int OP_FAIL = 0;
+    /**
+     * Report a successful match. Operands: none.
+     */
+    public static final int OP_MATCH = 1;
+    /**
+     * Match the character at the current index against a {@link CharMatcher} and advance.
+     * Operands: matcher index.
+     */
+    public static final int OP_CHAR = 2;
+    /**
+     * Like {@link #OP_CHAR}, but match the character before the current index and move
+     * backwards. Used in look-behind assertions. Operands: matcher index.
+     */
+    public static final int OP_CHAR_BACKWARD = 3;
+    /**
+     * Unconditional jump. Operands: target.
+     */
+    public static final int OP_JMP = 4;
+    /**
+     * Continue at the first target, push a choice point for the second target. Operands: first
+     * target, second target.
+     */
+    public static final int OP_SPLIT = 5;
+    /**
+     * Store the current index in a capture group boundary. Operands: boundary index.
+     */
+    public static final int OP_SAVE = 6;
+    /**
+     * Unset a range of capture groups. Operands: first group, last group (exclusive).
+     */
+    public static final int OP_CLEAR = 7;
+    /**
+     * Assert that the current index is the beginning of the input. Operands: none.
+     */
+    public static final int OP_CARET = 8;
+    /**
+     * Assert that the current index is the end of the input. Operands: none.
+     */
+    public static final int OP_DOLLAR = 9;
+    /**
+     * Match the contents of a capture group at the current index. Operands: group number.
+     */
+    public static final int OP_BACKREF = 10;
+    /**
+     * Like {@link #OP_BACKREF}, but match the contents before the current index and move
+     * backwards. Operands: group number.
+     */
+    public static final int OP_BACKREF_BACKWARD = 11;
+    /**
+     * Store the current index in a register. Operands: register.
+     */
+    public static final int OP_GUARD_BEGIN = 12;
+    /**
+     * Backtrack if the current index equals the one stored by the matching
+     * {@link #OP_GUARD_BEGIN}, i.e. if the guarded term matched the empty string. Operands:
+     * register.
+     */
+    public static final int OP_GUARD_END = 13;
+    /**
+     * Begin a positive look-around assertion: store the current index and stack pointer in two
+     * consecutive registers. Operands: register.
+     */
+    public static final int OP_LOOK_BEGIN = 14;
+    /**
+     * End a positive look-around assertion: discard all choice points created in its body and
+     * restore the index. Operands: register.
+     */
+    public static final int OP_LOOK_END = 15;
+    /**
+     * Begin a negative look-around assertion: like {@link #OP_LOOK_BEGIN}, but also push a choice
+     * point for the continuation after the assertion, which is taken when the body fails.
+     * Operands: register, continuation.
+     */
+    public static final int OP_NEG_LOOK_BEGIN = 16;
+    /**
+     * End a negative look-around assertion: the body matched, so discard all choice points created
+     * since the matching {@link #OP_NEG_LOOK_BEGIN}, including the continuation, and backtrack.
+     * Operands: register.
+     */
+    public static final int OP_NEG_LOOK_END = 17;
+
+    private static final int[] INSTRUCTION_LENGTH = {1, 1, 2, 2, 2, 3, 2, 3, 1, 1, 2, 2, 2, 2, 2, 2, 3, 2};
+
+    public static int instructionLength(int opcode) {
+        return INSTRUCTION_LENGTH[opcode];
+    }
+
+    /**
+     * Result of an execution that exceeded the step or stack limit.
+     */
+    public static final int[] LIMIT_EXCEEDED = new int[0];
+
+    private static final int INITIAL_STACK_ENTRIES = 16;
+
+    @CompilationFinal(dimensions = 1) private final int[] code;
+    @CompilationFinal(dimensions = 1) private final CharMatcher[] matchers;
+    @CompilationFinal(dimensions = 1) private final int[] backtrackTargets;
+    private final int numberOfCaptureGroups;
+    private final int numberOfRegisters;
+    private final boolean sticky;
+    private final boolean ignoreCase;
+    private final boolean unicode;
+    private final int maxSteps;
+    private final int maxStackEntries;
+
+    @Child private InputLengthNode lengthNode = InputLengthNode.create();
+    @Child private InputCharAtNode charAtNode = InputCharAtNode.create();
+
+    public TRegexBacktrackingExecutorNode(int[] code, CharMatcher[] matchers, int[] backtrackTargets, int numberOfCaptureGroups, int numberOfRegisters,
+                    boolean sticky, boolean ignoreCase, boolean unicode, int maxSteps, int maxStackEntries) {
+        this.code = code;
+        this.matchers = matchers;
+        this.backtrackTargets = backtrackTargets;
+        this.numberOfCaptureGroups = numberOfCaptureGroups;
+        this.numberOfRegisters = numberOfRegisters;
+        this.sticky = sticky;
+        this.ignoreCase = ignoreCase;
+        this.unicode = unicode;
+        this.maxSteps = maxSteps;
+        this.maxStackEntries = maxStackEntries;
+    }
+
+    public int getNumberOfCaptureGroups() {
+        return numberOfCaptureGroups;
+    }
+
+    /**
+     * Finds the highest-priority match starting at the lowest possible index greater than or equal
+     * to {@code fromIndex} (or exactly at {@code fromIndex} if the expression is sticky).
+     *
+     * @return the capture group boundaries of the match, {@code null} if there is no match, or
+     *         {@link #LIMIT_EXCEEDED} if the execution exceeded the step or stack limit.
+     */
+    public int[] execute(Object input, int fromIndex) {
+        final int inputLength = lengthNode.execute(input);
+        // the step budget is shared by all start positions
+        final int[] stepsLeft = new int[]{maxSteps};
+        for (int start = fromIndex; start <= inputLength; start++) {
+            final int[] result = runAt(input, start, inputLength, stepsLeft);
+            if (result != null || sticky) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    @ExplodeLoop(kind = ExplodeLoop.LoopExplosionKind.MERGE_EXPLODE)
+    private int[] runAt(Object input, int startIndex, int inputLength, int[] stepsLeft) {
+        CompilerAsserts.compilationConstant(code.length);
+        final int nBoundaries = numberOfCaptureGroups * 2;
+        final int entrySize = 2 + nBoundaries + numberOfRegisters;
+        final int maxStackSize = entrySize * maxStackEntries;
+        final int[] captureGroups = new int[nBoundaries];
+        final int[] registers = new int[numberOfRegisters];
+        int[] stack = new int[entrySize * INITIAL_STACK_ENTRIES];
+        int sp = 0;
+        int index = startIndex;
+        int pc = 0;
+        outer: while (true) {
+            CompilerAsserts.partialEvaluationConstant(pc);
+            final int opcode = code[pc];
+            CompilerAsserts.partialEvaluationConstant(opcode);
+            boolean fail = false;
+            switch (opcode) {
+                case OP_FAIL:
+                    fail = true;
+                    break;
+                case OP_MATCH:
+                    return captureGroups;
+                case OP_CHAR:
+                    if (index < inputLength && matchers[code[pc + 1]].match(charAtNode.execute(input, index))) {
+                        index++;
+                        pc += 2;
+                    } else {
+                        fail = true;
+                    }
+                    break;
+                case OP_CHAR_BACKWARD:
+                    if (index > 0 && matchers[code[pc + 1]].match(charAtNode.execute(input, index - 1))) {
+                        index--;
+                        pc += 2;
+                    } else {
+                        fail = true;
+                    }
+                    break;
+                case OP_JMP:
+                    pc = code[pc + 1];
+                    break;
+                case OP_SPLIT:
+                    if (sp >= maxStackSize) {
+                        return LIMIT_EXCEEDED;
+                    }
+                    stack = push(stack, sp, entrySize, code[pc + 2], index, captureGroups, registers);
+                    sp += entrySize;
+                    pc = code[pc + 1];
+                    break;
+                case OP_SAVE:
+                    captureGroups[code[pc + 1]] = index + 1;
+                    pc += 2;
+                    break;
+                case OP_CLEAR:
+                    for (int i = code[pc + 1] * 2; i < code[pc + 2] * 2; i++) {
+                        captureGroups[i] = 0;
+                    }
+                    pc += 3;
+                    break;
+                case OP_CARET:
+                    if (index == 0) {
+                        pc += 1;
+                    } else {
+                        fail = true;
+                    }
+                    break;
+                case OP_DOLLAR:
+                    if (index == inputLength) {
+                        pc += 1;
+                    } else {
+                        fail = true;
+                    }
+                    break;
+                case OP_BACKREF:
+                case OP_BACKREF_BACKWARD: {
+                    final int groupStart = captureGroups[code[pc + 1] * 2] - 1;
+                    final int groupEnd = captureGroups[code[pc + 1] * 2 + 1] - 1;
+                    if (groupStart < 0 || groupEnd < 0) {
+                        // back-references to unset groups always match the empty string
+                        pc += 2;
+                        break;
+                    }
+                    final int length = groupEnd - groupStart;
+                    final int matchStart = opcode == OP_BACKREF ? index : index - length;
+                    if (matchStart >= 0 && matchStart + length <= inputLength && regionMatches(input, groupStart, matchStart, length)) {
+                        index = opcode == OP_BACKREF ? index + length : matchStart;
+                        pc += 2;
+                    } else {
+                        fail = true;
+                    }
+                    break;
+                }
+                case OP_GUARD_BEGIN:
+                    registers[code[pc + 1]] = index;
+                    pc += 2;
+                    break;
+                case OP_GUARD_END:
+                    if (index != registers[code[pc + 1]]) {
+                        pc += 2;
+                    } else {
+                        fail = true;
+                    }
+                    break;
+                case OP_LOOK_BEGIN:
+                    registers[code[pc + 1]] = index;
+                    registers[code[pc + 1] + 1] = sp;
+                    pc += 2;
+                    break;
+                case OP_LOOK_END:
+                    index = registers[code[pc + 1]];
+                    sp = registers[code[pc + 1] + 1];
+                    pc += 2;
+                    break;
+                case OP_NEG_LOOK_BEGIN:
+                    registers[code[pc + 1]] = index;
+                    registers[code[pc + 1] + 1] = sp;
+                    if (sp >= maxStackSize) {
+                        return LIMIT_EXCEEDED;
+                    }
+                    stack = push(stack, sp, entrySize, code[pc + 2], index, captureGroups, registers);
+                    sp += entrySize;
+                    pc += 3;
+                    break;
+                case OP_NEG_LOOK_END:
+                    sp = registers[code[pc + 1] + 1];
+                    fail = true;
+                    break;
+                default:
+                    CompilerDirectives.transferToInterpreter();
+                    throw new IllegalStateException();
+            }
+            if (fail) {
+                if (sp == 0) {
+                    return null;
+                }
+                if (--stepsLeft[0] < 0) {
+                    return LIMIT_EXCEEDED;
+                }
+                sp -= entrySize;
+                final int target = stack[sp];
+                index = stack[sp + 1];
+                System.arraycopy(stack, sp + 2, captureGroups, 0, nBoundaries);
+                System.arraycopy(stack, sp + 2 + nBoundaries, registers, 0, numberOfRegisters);
+                for (int i = 0; i < backtrackTargets.length; i++) {
+                    if (backtrackTargets[i] == target) {
+                        pc = backtrackTargets[i];
+                        continue outer;
+                    }
+                }
+                CompilerDirectives.transferToInterpreter();
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    private static int[] push(int[] stack, int sp, int entrySize, int target, int index, int[] captureGroups, int[] registers) {
+        int[] ret = stack;
+        if (sp + entrySize > ret.length) {
+            ret = Arrays.copyOf(ret, ret.length * 2);
+        }
+        ret[sp] = target;
+        ret[sp + 1] = index;
+        System.arraycopy(captureGroups, 0, ret, sp + 2, captureGroups.length);
+        System.arraycopy(registers, 0, ret, sp + 2 + captureGroups.length, registers.length);
+        return ret;
+    }
+
+    private boolean regionMatches(Object input, int groupStart, int matchStart, int length) {
+        for (int i = 0; i < length; i++) {
+            final char a = charAtNode.execute(input, groupStart + i);
+            final char b = charAtNode.execute(input, matchStart + i);
+            if (a != b && !(ignoreCase && canonicalize(a, unicode) == canonicalize(b, unicode))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Case-insensitive character canonicalization as defined by the ECMAScript specification:
+     * simple case folding in Unicode mode, upper-case mapping restricted to non-ASCII results
+     * otherwise.
+     */
+    @TruffleBoundary
+    private static char canonicalize(char c, boolean unicode) {
+        if (unicode) {
+            return Character.toLowerCase(Character.toUpperCase(c));
+        }
+        final char upper = Character.toUpperCase(c);
+        return c >= 128 && upper < 128 ? c : upper;
+    }
+}
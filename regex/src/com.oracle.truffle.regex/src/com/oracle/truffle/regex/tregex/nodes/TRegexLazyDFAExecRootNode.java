@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.nodes;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.regex.CompiledRegex;
+import com.oracle.truffle.regex.RegexExecRootNode;
+import com.oracle.truffle.regex.RegexLanguage;
+import com.oracle.truffle.regex.RegexObject;
+import com.oracle.truffle.regex.RegexRootNode;
+import com.oracle.truffle.regex.RegexSource;
+import com.oracle.truffle.regex.result.LazyCaptureGroupsResult;
+import com.oracle.truffle.regex.result.RegexResult;
+import com.oracle.truffle.regex.tregex.dfa.LazyDFAStateCache;
+import com.oracle.truffle.regex.tregex.nodes.input.InputLengthNode;
+
+/**
+ * Fallback for expressions whose DFA would be too large to generate eagerly. The end of a match
+ * is found on a lazily constructed DFA ({@link LazyDFAStateCache}), and capture groups are
+ * calculated lazily by an NFA simulation ({@link TRegexNFAExecutorNode}) on the matched portion of
+ * the input.
+ */
+public class TRegexLazyDFAExecRootNode extends RegexExecRootNode implements CompiledRegex {
+
+    private final CallTarget regexCallTarget;
+    private final CallTarget captureGroupCallTarget;
+    private final int numberOfCaptureGroups;
+
+    @Child private TRegexLazyDFAExecutorNode executorNode;
+    @Child private InputLengthNode inputLengthNode = InputLengthNode.create();
+
+    public TRegexLazyDFAExecRootNode(RegexLanguage language, RegexSource source, TRegexLazyDFAExecutorNode executorNode, TRegexNFAExecutorNode captureGroupExecutor) {
+        super(language, source);
+        this.executorNode = executorNode;
+        this.numberOfCaptureGroups = captureGroupExecutor.getNumberOfCaptureGroups();
+        this.captureGroupCallTarget = Truffle.getRuntime().createCallTarget(new RegexRootNode(language, new TRegexNFACaptureGroupsRootNode(language, source, captureGroupExecutor)));
+        this.regexCallTarget = Truffle.getRuntime().createCallTarget(new RegexRootNode(language, this));
+    }
+
+    @Override
+    protected RegexResult execute(VirtualFrame frame, RegexObject regex, Object input, int fromIndex) {
+        final int end = executorNode.execute(input, fromIndex, inputLengthNode.execute(input));
+        if (end == TRegexDFAExecutorNode.NO_MATCH) {
+            return RegexResult.NO_MATCH;
+        }
+        return new LazyCaptureGroupsResult(regex, input, fromIndex, end, numberOfCaptureGroups, null, captureGroupCallTarget);
+    }
+
+    @Override
+    public CallTarget getRegexCallTarget() {
+        return regexCallTarget;
+    }
+
+    @Override
+    protected String getEngineLabel() {
+        return "TRegex lazy DFA";
+    }
+}
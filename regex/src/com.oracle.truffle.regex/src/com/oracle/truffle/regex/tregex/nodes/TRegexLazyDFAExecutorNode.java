@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.nodes;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.regex.tregex.dfa.LazyDFAState;
+import com.oracle.truffle.regex.tregex.dfa.LazyDFAStateCache;
+import com.oracle.truffle.regex.tregex.nodes.input.InputCharAtNode;
+
+/**
+ * Forward search executor on a {@link LazyDFAStateCache}. Behaves like a searching forward
+ * {@link TRegexDFAExecutorNode}, i.e. it returns the end index of the match with the highest
+ * priority, or {@link TRegexDFAExecutorNode#NO_MATCH}.
+ */
+public final class TRegexLazyDFAExecutorNode extends Node {
+
+    private final LazyDFAStateCache dfa;
+
+    @Child private InputCharAtNode charAtNode = InputCharAtNode.create();
+
+    public TRegexLazyDFAExecutorNode(LazyDFAStateCache dfa) {
+        this.dfa = dfa;
+    }
+
+    public LazyDFAStateCache getDFA() {
+        return dfa;
+    }
+
+    /**
+     * Runs the search. Memoized transitions are followed in compiled code, only the creation of
+     * missing states and transitions calls into the interpreter, see
+     * {@link LazyDFAStateCache#getSuccessor(LazyDFAState, char)}.
+     */
+    public int execute(Object input, int fromIndex, int inputLength) {
+        // step back to the beginning of the longest look-behind prefix, like DFAInitialStateNode
+        final int prefixIndex = Math.min(fromIndex, dfa.getPrefixLength());
+        int index = fromIndex - prefixIndex;
+        LazyDFAState state = dfa.getEntryState(prefixIndex, index == 0);
+        if (state == null) {
+            return TRegexDFAExecutorNode.NO_MATCH;
+        }
+        int result = TRegexDFAExecutorNode.NO_MATCH;
+        while (true) {
+            if (state.isFinalState()) {
+                result = index;
+            }
+            if (index == inputLength) {
+                if (state.isAnchoredFinalState()) {
+                    result = index;
+                }
+                return result;
+            }
+            state = dfa.getSuccessor(state, charAtNode.execute(input, index));
+            if (state.isDead()) {
+                return result;
+            }
+            index++;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.nodes;
+
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.regex.tregex.buffer.CompilationBuffer;
+import com.oracle.truffle.regex.tregex.dfa.DFAGenerator;
+import com.oracle.truffle.regex.tregex.dfa.NFATransitionSet;
+import com.oracle.truffle.regex.tregex.matchers.CharMatcher;
+import com.oracle.truffle.regex.tregex.nfa.GroupBoundaries;
+import com.oracle.truffle.regex.tregex.nfa.NFA;
+import com.oracle.truffle.regex.tregex.nfa.NFAAnchoredFinalState;
+import com.oracle.truffle.regex.tregex.nfa.NFAFinalState;
+import com.oracle.truffle.regex.tregex.nfa.NFAMatcherState;
+import com.oracle.truffle.regex.tregex.nfa.NFAState;
+import com.oracle.truffle.regex.tregex.nfa.NFAStateTransition;
+import com.oracle.truffle.regex.tregex.nodes.input.InputCharAtNode;
+
+import java.util.Arrays;
+
+/**
+ * Capture group aware NFA simulation (a.k.a. "Pike VM"). All NFA states reachable at the current
+ * index are stepped in lock-step, in order of priority, and each of them carries its own copy of
+ * the capture group boundaries. Running time is linear in the input length times the NFA size, and
+ * no automaton needs to be constructed beforehand, which makes this executor suitable for
+ * expressions whose capture group tracking DFA would be too large.
+ * <p>
+ * The result is an array of capture group boundaries in the same format as the one produced by
+ * {@link TRegexDFAExecutorNode} in capture group tracking mode, i.e. every index is incremented by
+ * one and {@code 0} denotes an unset boundary.
+ */
+public final class TRegexNFAExecutorNode extends Node {
+
+    private final NFA nfa;
+    private final int numberOfCaptureGroups;
+    private final boolean createLoopBack;
+    @CompilationFinal(dimensions = 1) private final CharMatcher[] matchers;
+
+    @Child private InputCharAtNode charAtNode = InputCharAtNode.create();
+
+    /**
+     * @param createLoopBack whether the executor should search for a match starting at any index
+     *            greater than or equal to the starting index. If set,
+     *            {@link NFA#createLoopBackMatcher()} must have been called on {@code nfa} already.
+     */
+    public TRegexNFAExecutorNode(NFA nfa, int numberOfCaptureGroups, boolean createLoopBack, CompilationBuffer compilationBuffer) {
+        this.nfa = nfa;
+        this.numberOfCaptureGroups = numberOfCaptureGroups;
+        this.createLoopBack = createLoopBack;
+        this.matchers = nfa.createMatchers(compilationBuffer);
+    }
+
+    public NFA getNFA() {
+        return nfa;
+    }
+
+    public int getNumberOfCaptureGroups() {
+        return numberOfCaptureGroups;
+    }
+
+    public int getPrefixLength() {
+        return nfa.getAnchoredEntry().size() - 1;
+    }
+
+    /**
+     * Finds the highest-priority match starting at or after {@code fromIndex} (or exactly at
+     * {@code fromIndex} if the executor was created without loop back) that ends at or before
+     * {@code maxIndex}.
+     *
+     * @return the capture group boundaries of the match, or {@code null} if there is no match.
+     */
+    @TruffleBoundary
+    public int[] execute(Object input, int fromIndex, int maxIndex, int inputLength) {
+        final int prefixIndex = Math.min(fromIndex, getPrefixLength());
+        int index = fromIndex - prefixIndex;
+        NFATransitionSet entry = DFAGenerator.createForwardEntryStateSet(nfa, prefixIndex, index == 0, createLoopBack);
+        if (entry == null) {
+            return null;
+        }
+        ThreadList cur = new ThreadList(nfa.getNumberOfStates(), numberOfCaptureGroups * 2);
+        ThreadList next = new ThreadList(nfa.getNumberOfStates(), numberOfCaptureGroups * 2);
+        for (NFAStateTransition transition : entry) {
+            cur.add(transition, null, index);
+        }
+        int[] result = null;
+        while (!cur.isEmpty()) {
+            final boolean hasNext = index < maxIndex;
+            final char c = hasNext ? charAtNode.execute(input, index) : 0;
+            for (int i = 0; i < cur.size(); i++) {
+                NFAState state = cur.getState(i);
+                if (state instanceof NFAFinalState) {
+                    // all remaining threads have lower priority
+                    result = cur.copyCaptureGroups(i);
+                    break;
+                }
+                if (state instanceof NFAAnchoredFinalState) {
+                    if (index == inputLength) {
+                        result = cur.copyCaptureGroups(i);
+                        break;
+                    }
+                    continue;
+                }
+                assert state instanceof NFAMatcherState;
+                if (hasNext && matchers[state.getId()].match(c)) {
+                    for (NFAStateTransition transition : state.getNext()) {
+                        next.add(transition, cur.getCaptureGroups(i), index + 1);
+                    }
+                }
+            }
+            if (!hasNext) {
+                break;
+            }
+            ThreadList tmp = cur;
+            cur = next;
+            next = tmp;
+            next.clear();
+            index++;
+        }
+        return result;
+    }
+
+    /**
+     * Ordered set of NFA states with one capture group boundary array per state. States are
+     * deduplicated by ID, so the first (i.e. highest priority) thread to reach a state wins.
+     */
+    private static final class ThreadList {
+
+        private final NFAState[] states;
+        private final int[][] captureGroups;
+        private final boolean[] contained;
+        private final int nBoundaries;
+        private int size = 0;
+        private boolean containsFinalState = false;
+
+        ThreadList(int numberOfNFAStates, int nBoundaries) {
+            this.states = new NFAState[numberOfNFAStates];
+            this.captureGroups = new int[numberOfNFAStates][];
+            this.contained = new boolean[numberOfNFAStates];
+            this.nBoundaries = nBoundaries;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        NFAState getState(int i) {
+            return states[i];
+        }
+
+        int[] getCaptureGroups(int i) {
+            return captureGroups[i];
+        }
+
+        int[] copyCaptureGroups(int i) {
+            return Arrays.copyOf(captureGroups[i], nBoundaries);
+        }
+
+        void add(NFAStateTransition transition, int[] parentCaptureGroups, int index) {
+            NFAState target = transition.getTarget();
+            if (containsFinalState || contained[target.getId()]) {
+                return;
+            }
+            contained[target.getId()] = true;
+            if (target instanceof NFAFinalState) {
+                containsFinalState = true;
+            }
+            states[size] = target;
+            int[] cg = captureGroups[size];
+            if (cg == null) {
+                cg = new int[nBoundaries];
+                captureGroups[size] = cg;
+            }
+            if (parentCaptureGroups == null) {
+                Arrays.fill(cg, 0);
+            } else {
+                System.arraycopy(parentCaptureGroups, 0, cg, 0, nBoundaries);
+            }
+            GroupBoundaries groupBoundaries = transition.getGroupBoundaries();
+            for (byte b : groupBoundaries.getUpdateIndices()) {
+                cg[Byte.toUnsignedInt(b)] = index + 1;
+            }
+            for (byte b : groupBoundaries.getClearIndices()) {
+                cg[Byte.toUnsignedInt(b)] = 0;
+            }
+            size++;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                contained[states[i].getId()] = false;
+            }
+            size = 0;
+            containsFinalState = false;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.nodes;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.regex.CompiledRegex;
+import com.oracle.truffle.regex.CompiledRegexObject;
+import com.oracle.truffle.regex.RegexExecRootNode;
+import com.oracle.truffle.regex.RegexLanguage;
+import com.oracle.truffle.regex.RegexObject;
+import com.oracle.truffle.regex.RegexRootNode;
+import com.oracle.truffle.regex.RegexSource;
+import com.oracle.truffle.regex.UnsupportedRegexException;
+import com.oracle.truffle.regex.result.LazyCaptureGroupsResult;
+import com.oracle.truffle.regex.result.RegexResult;
+import com.oracle.truffle.regex.tregex.TRegexCompiler;
+import com.oracle.truffle.regex.tregex.TRegexOptions;
+import com.oracle.truffle.regex.tregex.nodes.input.InputLengthNode;
+import com.oracle.truffle.regex.tregex.util.DebugUtil;
+
+/**
+ * First execution tier of expressions supported by the DFA. Matches are found by NFA simulation
+ * ({@link TRegexNFAExecutorNode}), which is slow but requires no compilation beyond the NFA. Once
+ * the expression has been executed {@link TRegexOptions#TRegexNFATierThreshold} times, the
+ * regular DFA-based executor is compiled via {@link TRegexCompiler#compileDFA(RegexSource)}. From
+ * then on, {@link RegexObject}s executing this node are switched to the DFA-based executor, so that
+ * they no longer dispatch through the NFA tier. Callers that keep using this node directly are
+ * delegated to the DFA-based executor.
+ */
+public class TRegexNFATierExecRootNode extends RegexExecRootNode implements CompiledRegex {
+
+    private static final DebugUtil.DebugLogger LOG_BAILOUT = new DebugUtil.DebugLogger("TRegex Bailout: ", DebugUtil.LOG_BAILOUT_MESSAGES);
+
+    private static ExecutorService backgroundCompiler;
+
+    private final CallTarget regexCallTarget;
+    private final TRegexCompiler tRegexCompiler;
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicBoolean dfaRequested = new AtomicBoolean();
+    private volatile CompiledRegexObject dfaRegex;
+
+    @Child private TRegexNFAExecutorNode executorNode;
+    @Child private InputLengthNode inputLengthNode = InputLengthNode.create();
+    @Child private DirectCallNode dfaCallNode;
+
+    public TRegexNFATierExecRootNode(RegexLanguage language, TRegexCompiler tRegexCompiler, RegexSource source, TRegexNFAExecutorNode executorNode) {
+        super(language, source);
+        this.tRegexCompiler = tRegexCompiler;
+        this.executorNode = executorNode;
+        this.regexCallTarget = Truffle.getRuntime().createCallTarget(new RegexRootNode(language, this));
+    }
+
+    @Override
+    protected RegexResult execute(VirtualFrame frame, RegexObject regex, Object input, int fromIndex) {
+        if (dfaCallNode == null) {
+            if (CompilerDirectives.inInterpreter() && executions.incrementAndGet() >= TRegexOptions.TRegexNFATierThreshold && dfaRequested.compareAndSet(false, true)) {
+                requestDFA();
+            }
+            if (dfaRegex == null) {
+                final int inputLength = inputLengthNode.execute(input);
+                final int[] result = executorNode.execute(input, fromIndex, inputLength, inputLength);
+                if (result == null) {
+                    return RegexResult.NO_MATCH;
+                }
+                return new LazyCaptureGroupsResult(regex, input, result);
+            }
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            switchToDFA();
+        }
+        if (CompilerDirectives.inInterpreter()) {
+            replaceCompiledRegex(regex);
+        }
+        return (RegexResult) dfaCallNode.call(new Object[]{regex, input, fromIndex});
+    }
+
+    @TruffleBoundary
+    private void requestDFA() {
+        if (TRegexOptions.TRegexNFATierBackgroundCompilation) {
+            getBackgroundCompiler().execute(this::compileDFA);
+        } else {
+            compileDFA();
+        }
+    }
+
+    private static synchronized ExecutorService getBackgroundCompiler() {
+        if (backgroundCompiler == null) {
+            backgroundCompiler = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "TRegex DFA compilation");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return backgroundCompiler;
+    }
+
+    private void compileDFA() {
+        try {
+            dfaRegex = new CompiledRegexObject(tRegexCompiler.compileDFA(getSource()));
+        } catch (UnsupportedRegexException e) {
+            LOG_BAILOUT.log("DFA: " + e.getMessage() + ", staying on NFA tier");
+        }
+    }
+
+    private synchronized void switchToDFA() {
+        if (dfaCallNode == null) {
+            dfaCallNode = insert(DirectCallNode.create(dfaRegex.getCompiledRegex().getRegexCallTarget()));
+        }
+    }
+
+    /**
+     * Lets {@code regex} execute the DFA-based executor directly if it is still bound to this node.
+     */
+    @TruffleBoundary
+    private void replaceCompiledRegex(RegexObject regex) {
+        if (regex != null) {
+            regex.replaceCompiledRegex(this, dfaRegex);
+        }
+    }
+
+    @Override
+    public CallTarget getRegexCallTarget() {
+        return regexCallTarget;
+    }
+
+    @Override
+    protected String getEngineLabel() {
+        return "TRegex NFA tier";
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.nodes;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.regex.RegexBodyNode;
+import com.oracle.truffle.regex.RegexLanguage;
+import com.oracle.truffle.regex.RegexSetObject;
+import com.oracle.truffle.regex.RegexSource;
+import com.oracle.truffle.regex.result.RegexSetResult;
+import com.oracle.truffle.regex.tregex.nodes.input.InputCharAtNode;
+import com.oracle.truffle.regex.tregex.nodes.input.InputLengthNode;
+
+/**
+ * Root node of {@link RegexSetObject#getExecCallTarget()}. Since a regex set has no single
+ * pattern, {@link #getSource()} is a synthetic {@link RegexSource} that joins all patterns of the
+ * set for display purposes.
+ */
+public class TRegexSetExecRootNode extends RegexBodyNode {
+
+    @Child private TRegexSetExecutorNode executorNode;
+    @Child private InputLengthNode inputLengthNode = InputLengthNode.create();
+    @Child private InputCharAtNode inputCharAtNode = InputCharAtNode.create();
+
+    public TRegexSetExecRootNode(RegexLanguage language, RegexSource source, TRegexSetExecutorNode executorNode) {
+        super(language, source);
+        this.executorNode = executorNode;
+    }
+
+    @Override
+    public final RegexSetResult execute(VirtualFrame frame) {
+        final Object[] args = frame.getArguments();
+        assert args.length == 2;
+        final Object input = args[0];
+        int fromIndex = (int) args[1];
+        final int inputLength = inputLengthNode.execute(input);
+        if (fromIndex > inputLength) {
+            return RegexSetResult.NO_MATCH;
+        }
+        if (getSource().getFlags().isUnicode() && fromIndex > 0 && fromIndex < inputLength) {
+            if (Character.isLowSurrogate(inputCharAtNode.execute(input, fromIndex)) &&
+                            Character.isHighSurrogate(inputCharAtNode.execute(input, fromIndex - 1))) {
+                fromIndex = fromIndex - 1;
+            }
+        }
+        final int[] matchedPatterns = executorNode.execute(input, fromIndex, inputLength);
+        return matchedPatterns.length == 0 ? RegexSetResult.NO_MATCH : new RegexSetResult(matchedPatterns);
+    }
+
+    @Override
+    protected String getEngineLabel() {
+        return "TRegex set";
+    }
+}
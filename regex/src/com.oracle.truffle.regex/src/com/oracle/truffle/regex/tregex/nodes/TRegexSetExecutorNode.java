@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.nodes;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.regex.tregex.dfa.RegexSetDFAState;
+import com.oracle.truffle.regex.tregex.dfa.RegexSetDFAStateCache;
+import com.oracle.truffle.regex.tregex.nodes.input.InputCharAtNode;
+
+/**
+ * Searches for all patterns of a regex set at once on a {@link RegexSetDFAStateCache}.
+ */
+public final class TRegexSetExecutorNode extends Node {
+
+    private final RegexSetDFAStateCache dfa;
+
+    @Child private InputCharAtNode charAtNode = InputCharAtNode.create();
+
+    public TRegexSetExecutorNode(RegexSetDFAStateCache dfa) {
+        this.dfa = dfa;
+    }
+
+    public RegexSetDFAStateCache getDFA() {
+        return dfa;
+    }
+
+    /**
+     * Returns the indices of all patterns that match the input at any position greater than or
+     * equal to {@code fromIndex}, in ascending order.
+     */
+    @TruffleBoundary
+    public int[] execute(Object input, int fromIndex, int inputLength) {
+        // step back to the beginning of the longest look-behind prefix, like DFAInitialStateNode
+        int index = fromIndex - Math.min(fromIndex, dfa.getMaxPrefixLength());
+        RegexSetDFAState state = dfa.getEntryState(index, fromIndex);
+        final boolean[] matched = new boolean[dfa.getNumberOfPatterns()];
+        int nMatched = 0;
+        while (true) {
+            for (int p : state.getFinalPatterns()) {
+                if (!matched[p]) {
+                    matched[p] = true;
+                    nMatched++;
+                }
+            }
+            if (index == inputLength) {
+                for (int p : state.getAnchoredFinalPatterns()) {
+                    if (!matched[p]) {
+                        matched[p] = true;
+                        nMatched++;
+                    }
+                }
+                break;
+            }
+            if (index >= fromIndex && state.isDead()) {
+                break;
+            }
+            state = dfa.getSuccessor(state, charAtNode.execute(input, index));
+            index++;
+            if (index <= fromIndex) {
+                state = dfa.addEntries(state, index, fromIndex);
+            }
+        }
+        final int[] result = new int[nMatched];
+        for (int i = 0, j = 0; j < nMatched; i++) {
+            if (matched[i]) {
+                result[j++] = i;
+            }
+        }
+        return result;
+    }
+}
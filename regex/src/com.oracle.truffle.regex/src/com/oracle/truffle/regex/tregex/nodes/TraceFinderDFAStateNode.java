@@ -37,12 +37,12 @@ public class TraceFinderDFAStateNode extends BackwardDFAStateNode {
     public TraceFinderDFAStateNode(short id,
                     boolean finalState,
                     boolean anchoredFinalState,
-                    boolean findSingleChar, short loopToSelf,
+                    char[] loopIndexOfChars, short loopToSelf,
                     short[] successors,
                     CharMatcher[] matchers,
                     byte preCalculatedUnAnchoredResult,
                     byte preCalculatedAnchoredResult) {
-        super(id, finalState, anchoredFinalState, findSingleChar, loopToSelf, successors, matchers);
+        super(id, finalState, anchoredFinalState, loopIndexOfChars, loopToSelf, successors, matchers);
         this.preCalculatedUnAnchoredResult = preCalculatedUnAnchoredResult;
         this.preCalculatedAnchoredResult = preCalculatedAnchoredResult;
     }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.regex.tregex.nodes.input;
+
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.interop.TruffleObject;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.regex.tregex.util.Boundaries;
+
+/**
+ * Finds the first index in {@code [fromIndex, maxIndex)} where the input contains any of the given
+ * characters. The single-character case is delegated to {@link String#indexOf(int, int)}, which is
+ * intrinsified by the compiler.
+ */
+public abstract class InputIndexOfAnyNode extends Node {
+
+    public static InputIndexOfAnyNode create() {
+        return InputIndexOfAnyNodeGen.create();
+    }
+
+    public abstract int execute(Object input, int fromIndex, int maxIndex, char[] chars);
+
+    @Specialization(guards = "chars.length == 1")
+    public int indexOfSingleChar(String input, int fromIndex, int maxIndex, char[] chars) {
+        return Boundaries.stringIndexOf(input, chars[0], fromIndex, maxIndex);
+    }
+
+    @Specialization(guards = "chars.length != 1")
+    public int indexOfAny(String input, int fromIndex, int maxIndex, char[] chars) {
+        return Boundaries.stringIndexOfAny(input, chars, fromIndex, maxIndex);
+    }
+
+    @Specialization
+    public int indexOfAny(TruffleObject input, int fromIndex, int maxIndex, char[] chars,
+                    @Cached("create()") InputCharAtNode charAtNode) {
+        for (int i = fromIndex; i < maxIndex; i++) {
+            if (isAnyOf(charAtNode.execute(input, i), chars)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @ExplodeLoop
+    private static boolean isAnyOf(char c, char[] chars) {
+        for (char x : chars) {
+            if (c == x) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
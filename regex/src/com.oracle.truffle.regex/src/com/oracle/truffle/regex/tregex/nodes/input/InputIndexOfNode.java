@@ -40,11 +40,7 @@ public abstract class InputIndexOfNode extends Node {
 
     @Specialization
     public int indexOf(String input, char c, int fromIndex, int maxIndex) {
-        int index = Boundaries.stringIndexOf(input, c, fromIndex);
-        if (index >= maxIndex) {
-            return -1;
-        }
-        return index;
+        return Boundaries.stringIndexOf(input, c, fromIndex, maxIndex);
     }
 
     @Specialization
@@ -28,9 +28,35 @@ import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
 public class Boundaries {
 
+    /**
+     * Returns the index of the first occurrence of {@code c} in {@code [fromIndex, maxIndex)}, or
+     * {@code -1}. Searches up to the end of the string are delegated to the intrinsified
+     * {@link String#indexOf(int, int)}, bounded searches never look past {@code maxIndex}.
+     */
     @TruffleBoundary
-    public static int stringIndexOf(String s, char c, int fromIndex) {
-        return s.indexOf(c, fromIndex);
+    public static int stringIndexOf(String s, char c, int fromIndex, int maxIndex) {
+        if (maxIndex >= s.length()) {
+            return s.indexOf(c, fromIndex);
+        }
+        for (int i = fromIndex; i < maxIndex; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @TruffleBoundary
+    public static int stringIndexOfAny(String s, char[] chars, int fromIndex, int maxIndex) {
+        for (int i = fromIndex; i < maxIndex; i++) {
+            final char c = s.charAt(i);
+            for (char x : chars) {
+                if (c == x) {
+                    return i;
+                }
+            }
+        }
+        return -1;
     }
 
     @TruffleBoundary
@@ -24,15 +24,19 @@
  */
 package com.oracle.truffle.tools.profiler.test;
 
+import java.io.ByteArrayOutputStream;
 import java.util.Collection;
 import java.util.Iterator;
 
+import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Source;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
+import com.oracle.truffle.api.instrumentation.StandardTags;
 import com.oracle.truffle.tools.profiler.CPUSampler;
 import com.oracle.truffle.tools.profiler.ProfilerNode;
 
@@ -129,6 +133,68 @@ public class CPUSamplerTest extends AbstractProfilerTest {
         Assert.assertTrue(children.size() == 0);
     }
 
+    @Test
+    public void testCorrectRootStructureAsync() {
+
+        sampler.setFilter(NO_INTERNAL_ROOT_TAG_FILTER);
+        sampler.setMode(CPUSampler.Mode.ASYNC_ROOTS);
+        sampler.setCollecting(true);
+        for (int i = 0; i < executionCount; i++) {
+            execute(defaultSourceForSampling);
+        }
+        sampler.setCollecting(false);
+
+        Assert.assertNotEquals(0, sampler.getSampleCount());
+        Collection<ProfilerNode<CPUSampler.Payload>> children = sampler.getRootNodes();
+        Assert.assertEquals(1, children.size());
+        ProfilerNode<CPUSampler.Payload> program = children.iterator().next();
+        Assert.assertEquals("", program.getRootName());
+        checkTimeline(program.getPayload());
+
+        for (ProfilerNode<CPUSampler.Payload> child : program.getChildren()) {
+            Assert.assertTrue("baz".equals(child.getRootName()) || "bar".equals(child.getRootName()));
+            checkTimeline(child.getPayload());
+        }
+    }
+
+    final Source callFreeLoopSource = makeSource("ROOT(" +
+                    "DEFINE(foo,ROOT(LOOP(100, STATEMENT(SLEEP(1)))))," +
+                    "CALL(foo)" +
+                    ")");
+
+    @Test
+    public void testCallFreeLoopAsync() {
+        sampler.setFilter(SourceSectionFilter.newBuilder().sourceIs(s -> !s.isInternal()).tagIs(StandardTags.RootTag.class, StandardTags.StatementTag.class).build());
+        sampler.setMode(CPUSampler.Mode.ASYNC_ROOTS);
+        sampler.setCollecting(true);
+        execute(callFreeLoopSource);
+        sampler.setCollecting(false);
+
+        // samples are taken at the statements of the loop, so the time is attributed to foo
+        ProfilerNode<CPUSampler.Payload> program = sampler.getRootNodes().iterator().next();
+        Iterator<ProfilerNode<CPUSampler.Payload>> children = program.getChildren().iterator();
+        Assert.assertTrue(children.hasNext());
+        ProfilerNode<CPUSampler.Payload> foo = children.next();
+        Assert.assertEquals("foo", foo.getRootName());
+        Assert.assertNotEquals(0, foo.getPayload().getSelfHitCount());
+    }
+
+    @Test
+    public void testNoStatementPollsWithRootFilterAsync() {
+        sampler.setFilter(NO_INTERNAL_ROOT_TAG_FILTER);
+        sampler.setMode(CPUSampler.Mode.ASYNC_ROOTS);
+        sampler.setCollecting(true);
+        execute(callFreeLoopSource);
+        sampler.setCollecting(false);
+
+        // statements are not polled, so no sample can be taken while foo is running its loop
+        for (ProfilerNode<CPUSampler.Payload> program : sampler.getRootNodes()) {
+            for (ProfilerNode<CPUSampler.Payload> child : program.getChildren()) {
+                Assert.assertEquals(0, child.getPayload().getSelfHitCount());
+            }
+        }
+    }
+
     final Source defaultRecursiveSourceForSampling = makeSource("ROOT(" +
                     "DEFINE(foo,ROOT(BLOCK(RECURSIVE_CALL(foo, 10),SLEEP(1))))," +
                     "DEFINE(bar,ROOT(BLOCK(STATEMENT,LOOP(10, CALL(foo)))))," +
@@ -187,6 +253,75 @@ public class CPUSamplerTest extends AbstractProfilerTest {
         Assert.assertTrue(sampler.hasStackOverflowed());
     }
 
+    @Test
+    public void testSelfHitTimesLimit() {
+        sampler.setFilter(NO_INTERNAL_ROOT_TAG_FILTER);
+        sampler.setSelfHitTimesLimit(2);
+        sampler.setCollecting(true);
+        for (int i = 0; i < executionCount; i++) {
+            execute(defaultSourceForSampling);
+        }
+        sampler.setCollecting(false);
+        checkSelfHitTimesLimit(sampler.getRootNodes(), 2);
+    }
+
+    @Test
+    public void testSelfHitTimesUnlimitedByDefault() {
+        Assert.assertEquals(0, sampler.getSelfHitTimesLimit());
+    }
+
+    @Test
+    public void testFlameGraphOutput() {
+        String output = sampleWithOutput("flamegraph");
+        String[] lines = output.trim().split("\n");
+        boolean fooSampled = false;
+        for (String line : lines) {
+            Assert.assertTrue("Not a collapsed stack: " + line, line.matches("\\S.* [1-9][0-9]*"));
+            fooSampled |= line.contains(";bar;foo ");
+        }
+        Assert.assertTrue("No stack ending in foo:\n" + output, fooSampled);
+    }
+
+    @Test
+    public void testJsonOutput() {
+        String output = sampleWithOutput("json").trim();
+        Assert.assertTrue(output, output.startsWith("{\"samples\":"));
+        Assert.assertTrue(output, output.contains(",\"period\":1,\"profile\":["));
+        Assert.assertTrue(output, output.contains("{\"name\":\"foo\",\"location\":"));
+        Assert.assertTrue(output, output.endsWith("]}"));
+        Assert.assertFalse(output, output.contains("selfHitTimes"));
+        Assert.assertEquals(output, output.chars().filter(c -> c == '{').count(), output.chars().filter(c -> c == '}').count());
+    }
+
+    @Test
+    public void testJsonOutputWithSelfHitTimes() {
+        String output = sampleWithOutput("json", "cpusampler.GatherHitTimes", "true", "cpusampler.SelfHitTimesLimit", "1");
+        Assert.assertTrue(output, output.matches("(?s).*\"selfHitTimes\":\\[[0-9]+\\].*"));
+        Assert.assertFalse(output, output.matches("(?s).*\"selfHitTimes\":\\[[0-9]+,.*"));
+    }
+
+    private String sampleWithOutput(String output, String... options) {
+        ByteArrayOutputStream cliOut = new ByteArrayOutputStream();
+        Context.Builder builder = Context.newBuilder().out(cliOut).err(err).option("cpusampler", "true").option("cpusampler.Output", output);
+        for (int i = 0; i < options.length; i += 2) {
+            builder.option(options[i], options[i + 1]);
+        }
+        try (Context cliContext = builder.build()) {
+            for (int i = 0; i < executionCount; i++) {
+                cliContext.eval(defaultSourceForSampling);
+            }
+        }
+        return new String(cliOut.toByteArray());
+    }
+
+    private static void checkSelfHitTimesLimit(Collection<ProfilerNode<CPUSampler.Payload>> children, int limit) {
+        for (ProfilerNode<CPUSampler.Payload> child : children) {
+            CPUSampler.Payload payload = child.getPayload();
+            Assert.assertEquals(Math.min(payload.getSelfHitCount(), limit), payload.getSelfHitTimes().size());
+            checkSelfHitTimesLimit(child.getChildren(), limit);
+        }
+    }
+
     private static void checkTimeline(CPUSampler.Payload payload) {
         Assert.assertEquals("Timeline length and self hit count to not match!", payload.getSelfHitCount(), payload.getSelfHitTimes().size());
     }
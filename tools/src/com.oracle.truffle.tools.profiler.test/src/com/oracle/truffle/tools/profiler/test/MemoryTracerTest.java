@@ -110,6 +110,25 @@ public class MemoryTracerTest extends AbstractProfilerTest {
         Assert.assertFalse(tracer.hasData());
     }
 
+    @Test
+    public void testSampledAllocations() {
+        final String manyAllocationsSource = "ROOT(LOOP(10000, ALLOCATION))";
+
+        tracer.setSamplingInterval(100);
+        tracer.setCollecting(true);
+        execute(makeSource(manyAllocationsSource));
+        tracer.setCollecting(false);
+
+        Collection<ProfilerNode<MemoryTracer.Payload>> rootNodes = tracer.getRootNodes();
+        Assert.assertEquals("More allocations found", 1, rootNodes.size());
+        MemoryTracer.Payload payload = rootNodes.iterator().next().getPayload();
+        int samples = payload.getEvents().size();
+        Assert.assertTrue("Unexpected number of samples: " + samples, samples > 0 && samples < 1000);
+        long estimate = payload.getAllocationCount();
+        Assert.assertTrue("Estimated allocation count too far off: " + estimate, estimate > 5000 && estimate < 20000);
+        Assert.assertEquals(payload.getAllocationCount(), payload.getAllocatedBytes());
+    }
+
     @Test
     public void testOneAllocationInRootRecursive() {
         final String oneAllocationSource = "ROOT(" + "DEFINE(foo,ROOT(BLOCK(STATEMENT,RECURSIVE_CALL(foo, 10))))," + "DEFINE(bar,ROOT(BLOCK(STATEMENT,LOOP(10, CALL(foo)))))," +
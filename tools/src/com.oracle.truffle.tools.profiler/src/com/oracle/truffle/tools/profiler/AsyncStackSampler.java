@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.tools.profiler;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameInstance;
+import com.oracle.truffle.api.frame.FrameInstanceVisitor;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.instrumentation.EventBinding;
+import com.oracle.truffle.api.instrumentation.EventContext;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNode;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNodeFactory;
+import com.oracle.truffle.api.instrumentation.Instrumenter;
+import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
+import com.oracle.truffle.api.instrumentation.StandardTags.RootTag;
+import com.oracle.truffle.api.instrumentation.StandardTags.StatementTag;
+import com.oracle.truffle.api.nodes.NodeCost;
+import com.oracle.truffle.api.nodes.RootNode;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stack sampling without a shadow stack. Instrumented roots and statements only poll a per-thread
+ * flag; when the sampling thread has requested a sample, the polling thread walks its own Truffle
+ * frames with {@link Truffle#getRuntime()}.{@code iterateFrames} and publishes the result for the
+ * sampling thread to pick up.
+ * <p>
+ * Truffle offers no way to interrupt a thread at an arbitrary point, so a sample is taken at the
+ * next poll after the request. Roots matching the sampler's filter are always polled. Statements
+ * are polled only if the sampler's filter selects them, and never in internal sources: polling at
+ * statements bounds the delay by a statement rather than a call, so loops without calls are
+ * sampled too, but it costs a read of the volatile request flag and a branch at every polled
+ * statement. The read cannot be hoisted out of compiled loops, so this overhead is proportional to
+ * the number of statements executed, whereas root polls only add to the cost of calls. A poll at
+ * the entry of a root reports the stack of its caller, since the entered root has not executed
+ * anything yet.
+ *
+ * @since 1.0
+ */
+final class AsyncStackSampler {
+
+    private final ConcurrentHashMap<Thread, ThreadLocalSampler> samplers = new ConcurrentHashMap<>();
+    /*
+     * The locations are strongly referenced by the poll nodes of their roots, so they stay alive
+     * exactly as long as the instrumented root.
+     */
+    private final Map<RootNode, WeakReference<SourceLocation>> locations = Collections.synchronizedMap(new WeakHashMap<RootNode, WeakReference<SourceLocation>>());
+
+    Collection<ThreadLocalSampler> getSamplers() {
+        return samplers.values();
+    }
+
+    /**
+     * Installs the polls at the entry of the roots matching {@code filter}. Only frames of these
+     * roots are reported in samples.
+     */
+    EventBinding<?> install(Instrumenter instrumenter, SourceSectionFilter filter) {
+        return instrumenter.attachExecutionEventFactory(filter, new ExecutionEventNodeFactory() {
+            public ExecutionEventNode create(EventContext context) {
+                SourceLocation location = null;
+                RootNode rootNode = context.getInstrumentedNode().getRootNode();
+                if (rootNode != null && context.hasTag(RootTag.class)) {
+                    location = new SourceLocation(instrumenter, context);
+                    synchronized (locations) {
+                        WeakReference<SourceLocation> existing = locations.get(rootNode);
+                        SourceLocation existingLocation = existing == null ? null : existing.get();
+                        if (existingLocation == null) {
+                            locations.put(rootNode, new WeakReference<>(location));
+                        } else {
+                            location = existingLocation;
+                        }
+                    }
+                }
+                return new SamplePollNode(AsyncStackSampler.this, location, true);
+            }
+        });
+    }
+
+    /**
+     * Installs the polls at the non-internal statements matching {@code filter}, which only take
+     * samples and do not report frames themselves. No statements are polled unless the filter
+     * selects {@link StatementTag statements}.
+     */
+    EventBinding<?> installStatementPolls(Instrumenter instrumenter, SourceSectionFilter filter) {
+        SourceSectionFilter pollFilter = SourceSectionFilter.newBuilder().tagIs(StatementTag.class).includeInternal(false).and(filter).build();
+        return instrumenter.attachExecutionEventFactory(pollFilter, new ExecutionEventNodeFactory() {
+            public ExecutionEventNode create(EventContext context) {
+                return new SamplePollNode(AsyncStackSampler.this, null, false);
+            }
+        });
+    }
+
+    /**
+     * Requests a sample from every live thread that has executed an instrumented node so far. Each
+     * thread answers at its next poll. Samplers of terminated threads are removed, their last
+     * sample must have been collected before.
+     */
+    void requestSamples() {
+        for (Iterator<ThreadLocalSampler> iterator = samplers.values().iterator(); iterator.hasNext();) {
+            ThreadLocalSampler sampler = iterator.next();
+            if (sampler.getThread().isAlive()) {
+                sampler.sampleRequested = true;
+            } else {
+                iterator.remove();
+            }
+        }
+    }
+
+    private SourceLocation getLocation(RootNode rootNode) {
+        WeakReference<SourceLocation> location = locations.get(rootNode);
+        return location == null ? null : location.get();
+    }
+
+    private static class SamplePollNode extends ExecutionEventNode {
+
+        private final AsyncStackSampler asyncSampler;
+        @SuppressWarnings("unused") private final SourceLocation location;
+        private final boolean rootEntry;
+
+        private final Thread cachedThread;
+        private final ThreadLocalSampler cachedSampler;
+
+        @CompilationFinal private boolean seenOtherThreads;
+
+        SamplePollNode(AsyncStackSampler asyncSampler, SourceLocation location, boolean rootEntry) {
+            this.asyncSampler = asyncSampler;
+            this.location = location;
+            this.rootEntry = rootEntry;
+            this.cachedThread = Thread.currentThread();
+            this.cachedSampler = getSampler();
+        }
+
+        @Override
+        protected void onEnter(VirtualFrame frame) {
+            if (seenOtherThreads) {
+                pollSlow();
+            } else if (cachedThread == Thread.currentThread()) {
+                if (cachedSampler.sampleRequested) {
+                    cachedSampler.takeSample(asyncSampler, rootEntry);
+                }
+            } else {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                seenOtherThreads = true;
+                pollSlow();
+            }
+        }
+
+        @TruffleBoundary
+        private void pollSlow() {
+            ThreadLocalSampler sampler = getSampler();
+            if (sampler.sampleRequested) {
+                sampler.takeSample(asyncSampler, rootEntry);
+            }
+        }
+
+        @TruffleBoundary
+        private ThreadLocalSampler getSampler() {
+            Thread currentThread = Thread.currentThread();
+            ThreadLocalSampler sampler = asyncSampler.samplers.get(currentThread);
+            if (sampler == null) {
+                sampler = new ThreadLocalSampler(currentThread);
+                ThreadLocalSampler prevSampler = asyncSampler.samplers.putIfAbsent(currentThread, sampler);
+                if (prevSampler != null) {
+                    sampler = prevSampler;
+                }
+            }
+            return sampler;
+        }
+
+        @Override
+        public NodeCost getCost() {
+            return NodeCost.NONE;
+        }
+    }
+
+    static final class ThreadLocalSampler {
+
+        private final Thread thread;
+
+        volatile boolean sampleRequested;
+        private final AtomicReference<Sample> sample = new AtomicReference<>();
+
+        ThreadLocalSampler(Thread thread) {
+            this.thread = thread;
+        }
+
+        Thread getThread() {
+            return thread;
+        }
+
+        /**
+         * Returns the sample taken since the last call, or {@code null} if the thread did not
+         * reach a poll since.
+         */
+        Sample pollSample() {
+            return sample.getAndSet(null);
+        }
+
+        @TruffleBoundary
+        void takeSample(AsyncStackSampler asyncSampler, boolean rootEntry) {
+            sampleRequested = false;
+            final long timestamp = System.currentTimeMillis();
+            final List<SourceLocation> stack = new ArrayList<>();
+            final List<Boolean> compiledStack = new ArrayList<>();
+            Truffle.getRuntime().iterateFrames(new FrameInstanceVisitor<Object>() {
+                private boolean skipFrame = rootEntry;
+
+                @Override
+                public Object visitFrame(FrameInstance frameInstance) {
+                    if (skipFrame) {
+                        // the root being entered, the time since the request was spent in callers
+                        skipFrame = false;
+                        return null;
+                    }
+                    CallTarget callTarget = frameInstance.getCallTarget();
+                    if (callTarget instanceof RootCallTarget) {
+                        SourceLocation location = asyncSampler.getLocation(((RootCallTarget) callTarget).getRootNode());
+                        if (location != null) {
+                            stack.add(location);
+                            compiledStack.add(frameInstance.isVirtualFrame());
+                        }
+                    }
+                    return null;
+                }
+            });
+            if (stack.isEmpty()) {
+                return;
+            }
+            // frames are visited from the top of the stack, samples are stored bottom first
+            final int length = stack.size();
+            final SourceLocation[] locationArray = new SourceLocation[length];
+            final boolean[] compiledArray = new boolean[length];
+            for (int i = 0; i < length; i++) {
+                locationArray[i] = stack.get(length - 1 - i);
+                compiledArray[i] = compiledStack.get(length - 1 - i);
+            }
+            sample.set(new Sample(locationArray, compiledArray, timestamp));
+        }
+    }
+
+    static final class Sample {
+
+        private final SourceLocation[] stack;
+        private final boolean[] compiledStack;
+        private final long timestamp;
+
+        Sample(SourceLocation[] stack, boolean[] compiledStack, long timestamp) {
+            this.stack = stack;
+            this.compiledStack = compiledStack;
+            this.timestamp = timestamp;
+        }
+
+        SourceLocation[] getStack() {
+            return stack;
+        }
+
+        boolean[] getCompiledStack() {
+            return compiledStack;
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
@@ -26,6 +26,7 @@ package com.oracle.truffle.tools.profiler;
 
 import java.io.Closeable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -56,7 +57,8 @@ import com.oracle.truffle.tools.profiler.impl.ProfilerToolFactory;
  * <p>
  * The sampler keeps a shadow stack during execution. This shadow stack is sampled at regular
  * intervals, i.e. the state of the stack is copied and saved into trees of {@linkplain ProfilerNode
- * nodes}, which represent the profile of the execution.
+ * nodes}, which represent the profile of the execution. In {@link Mode#ASYNC_ROOTS} mode no shadow
+ * stack is kept, and the executing threads walk their own frames when a sample is requested.
  * <p>
  * Usage example: {@link CPUSamplerSnippets#example}
  *
@@ -82,7 +84,13 @@ public final class CPUSampler implements Closeable {
         int selfCompiledHitCount;
         int selfInterpretedHitCount;
 
-        final List<Long> selfHitTimes = new ArrayList<>();
+        /*
+         * Ring buffer of the most recent self hit time stamps. Grows up to the sampler's self hit
+         * times limit, after which the oldest entries are overwritten.
+         */
+        private long[] selfHitTimes = EMPTY_TIMES;
+        private int selfHitTimesStart = 0;
+        private int selfHitTimesSize = 0;
 
         /**
          * @return The number of times the element was found bellow the top of the shadow stack as
@@ -138,14 +146,38 @@ public final class CPUSampler implements Closeable {
 
         /**
          * @return An immutable list of time stamps for the times that the element was on the top of
-         *         the stack
+         *         the stack. If a {@link CPUSampler#setSelfHitTimesLimit(int) limit} is set, only
+         *         that many of the most recent time stamps are retained.
          * @since 0.30
          */
         public List<Long> getSelfHitTimes() {
-            return Collections.unmodifiableList(selfHitTimes);
+            List<Long> times = new ArrayList<>(selfHitTimesSize);
+            for (int i = 0; i < selfHitTimesSize; i++) {
+                times.add(selfHitTimes[(selfHitTimesStart + i) % selfHitTimes.length]);
+            }
+            return Collections.unmodifiableList(times);
+        }
+
+        int getSelfHitTimesSize() {
+            return selfHitTimesSize;
+        }
+
+        void addSelfHitTime(long timestamp, int limit) {
+            if (limit == 0 || selfHitTimesSize < limit) {
+                if (selfHitTimesSize == selfHitTimes.length) {
+                    int newLength = Math.max(selfHitTimes.length * 2, 16);
+                    selfHitTimes = Arrays.copyOf(selfHitTimes, limit == 0 ? newLength : Math.min(newLength, limit));
+                }
+                selfHitTimes[selfHitTimesSize++] = timestamp;
+            } else {
+                selfHitTimes[selfHitTimesStart] = timestamp;
+                selfHitTimesStart = (selfHitTimesStart + 1) % selfHitTimes.length;
+            }
         }
     }
 
+    private static final long[] EMPTY_TIMES = new long[0];
+
     /**
      * Describes the different modes in which the CPU sampler can operate.
      *
@@ -173,7 +205,20 @@ public final class CPUSampler implements Closeable {
          *
          * @since 0.30
          */
-        STATEMENTS
+        STATEMENTS,
+        /**
+         * Sample {@link RootTag Roots} by walking the Truffle frames of the executing threads
+         * instead of maintaining a shadow stack. The sampling thread only requests a sample, which
+         * each thread takes at its next entry to a root, or at its next
+         * {@link com.oracle.truffle.api.instrumentation.StandardTags.StatementTag statement} if
+         * the {@link CPUSampler#setFilter(SourceSectionFilter) filter} also selects statements.
+         * Polling at statements samples loops without calls, at the cost of a flag check per
+         * executed statement. Inlined roots are included, and the
+         * {@link CPUSampler#setStackLimit(int) stack limit} does not apply.
+         *
+         * @since 1.0
+         */
+        ASYNC_ROOTS
     }
 
     private Mode mode = Mode.EXCLUDE_INLINED_ROOTS;
@@ -202,14 +247,20 @@ public final class CPUSampler implements Closeable {
 
     private ShadowStack shadowStack;
 
+    private AsyncStackSampler asyncStackSampler;
+
     private EventBinding<?> stacksBinding;
 
+    private EventBinding<?> pollBinding;
+
     private final ProfilerNode<Payload> rootNode = new ProfilerNode<>(this, new Payload());
 
     private final Env env;
 
     private boolean gatherSelfHitTimes = false;
 
+    private int selfHitTimesLimit = 0;
+
     private volatile boolean nonInternalLanguageContextInitialized = false;
 
     private boolean delaySamplingUntilNonInternalLangInit = true;
@@ -471,11 +522,37 @@ public final class CPUSampler implements Closeable {
      *
      * @since 0.30
      */
-    public void setGatherSelfHitTimes(boolean gatherSelfHitTimes) {
+    public synchronized void setGatherSelfHitTimes(boolean gatherSelfHitTimes) {
         verifyConfigAllowed();
         this.gatherSelfHitTimes = gatherSelfHitTimes;
     }
 
+    /**
+     * Sets the maximum number of self hit time stamps retained per {@link ProfilerNode} when
+     * {@link #setGatherSelfHitTimes(boolean) gathering self hit times}. Once the limit is reached,
+     * the oldest time stamps are discarded. A limit of {@code 0}, the default, retains all time
+     * stamps.
+     *
+     * @param selfHitTimesLimit the new limit, or {@code 0} for no limit
+     * @since 1.0
+     */
+    public synchronized void setSelfHitTimesLimit(int selfHitTimesLimit) {
+        verifyConfigAllowed();
+        if (selfHitTimesLimit < 0) {
+            throw new IllegalArgumentException(String.format("Invalid self hit times limit %s.", selfHitTimesLimit));
+        }
+        this.selfHitTimesLimit = selfHitTimesLimit;
+    }
+
+    /**
+     * @return the maximum number of self hit time stamps retained per {@link ProfilerNode}, or
+     *         {@code 0} if all time stamps are retained
+     * @since 1.0
+     */
+    public synchronized int getSelfHitTimesLimit() {
+        return selfHitTimesLimit;
+    }
+
     private void resetSampling() {
         assert Thread.holdsLock(this);
         cleanup();
@@ -493,8 +570,14 @@ public final class CPUSampler implements Closeable {
             f = DEFAULT_FILTER;
         }
         this.stackOverflowed = false;
-        this.shadowStack = new ShadowStack(stackLimit);
-        this.stacksBinding = this.shadowStack.install(env.getInstrumenter(), combine(f, mode), mode == Mode.EXCLUDE_INLINED_ROOTS);
+        if (mode == Mode.ASYNC_ROOTS) {
+            this.asyncStackSampler = new AsyncStackSampler();
+            this.stacksBinding = this.asyncStackSampler.install(env.getInstrumenter(), combine(f, mode));
+            this.pollBinding = this.asyncStackSampler.installStatementPolls(env.getInstrumenter(), f);
+        } else {
+            this.shadowStack = new ShadowStack(stackLimit);
+            this.stacksBinding = this.shadowStack.install(env.getInstrumenter(), combine(f, mode), mode == Mode.EXCLUDE_INLINED_ROOTS);
+        }
 
         this.samplerTask = new SamplingTimerTask();
         this.samplerThread.schedule(samplerTask, 0, period);
@@ -503,7 +586,7 @@ public final class CPUSampler implements Closeable {
 
     private static SourceSectionFilter combine(SourceSectionFilter filter, Mode mode) {
         List<Class<?>> tags = new ArrayList<>();
-        if (mode == Mode.EXCLUDE_INLINED_ROOTS || mode == Mode.ROOTS) {
+        if (mode == Mode.EXCLUDE_INLINED_ROOTS || mode == Mode.ROOTS || mode == Mode.ASYNC_ROOTS) {
             tags.add(StandardTags.RootTag.class);
         }
         if (mode == Mode.STATEMENTS) {
@@ -518,9 +601,16 @@ public final class CPUSampler implements Closeable {
             stacksBinding.dispose();
             stacksBinding = null;
         }
+        if (pollBinding != null) {
+            pollBinding.dispose();
+            pollBinding = null;
+        }
         if (shadowStack != null) {
             shadowStack = null;
         }
+        if (asyncStackSampler != null) {
+            asyncStackSampler = null;
+        }
         if (samplerTask != null) {
             samplerTask.cancel();
             samplerTask = null;
@@ -561,6 +651,17 @@ public final class CPUSampler implements Closeable {
                     sampleTaken |= sample(stack, timestamp);
                 }
             }
+            AsyncStackSampler localAsyncStackSampler = asyncStackSampler;
+            if (localAsyncStackSampler != null) {
+                for (AsyncStackSampler.ThreadLocalSampler sampler : localAsyncStackSampler.getSamplers()) {
+                    AsyncStackSampler.Sample sample = sampler.pollSample();
+                    if (sample != null) {
+                        addSample(sample.getStack(), sample.getCompiledStack(), sample.getStack().length, sample.getTimestamp());
+                        sampleTaken = true;
+                    }
+                }
+                localAsyncStackSampler.requestSamples();
+            }
             if (sampleTaken) {
                 samplesTaken.incrementAndGet();
             }
@@ -579,15 +680,20 @@ public final class CPUSampler implements Closeable {
             if (correctedStackInfo == null || correctedStackInfo.getLength() == 0) {
                 return false;
             }
+            addSample(correctedStackInfo.getStack(), correctedStackInfo.getCompiledStack(), correctedStackInfo.getLength(), timestamp);
+            return true;
+        }
+
+        private void addSample(SourceLocation[] stack, boolean[] compiledStack, int length, long timestamp) {
             // now traverse the stack and insert the path into the tree
             ProfilerNode<Payload> treeNode = rootNode;
-            for (int i = 0; i < correctedStackInfo.getLength(); i++) {
-                SourceLocation location = correctedStackInfo.getStack()[i];
-                boolean isCompiled = correctedStackInfo.getCompiledStack()[i];
+            for (int i = 0; i < length; i++) {
+                SourceLocation location = stack[i];
+                boolean isCompiled = compiledStack[i];
 
                 treeNode = addOrUpdateChild(treeNode, location);
                 Payload payload = treeNode.getPayload();
-                if (i == correctedStackInfo.getLength() - 1) {
+                if (i == length - 1) {
                     // last element is counted as self time
                     if (isCompiled) {
                         payload.selfCompiledHitCount++;
@@ -595,8 +701,8 @@ public final class CPUSampler implements Closeable {
                         payload.selfInterpretedHitCount++;
                     }
                     if (gatherSelfHitTimes) {
-                        payload.selfHitTimes.add(timestamp);
-                        assert payload.selfHitTimes.size() == payload.getSelfHitCount();
+                        payload.addSelfHitTime(timestamp, selfHitTimesLimit);
+                        assert payload.getSelfHitTimesSize() <= payload.getSelfHitCount();
                     }
                 }
                 if (isCompiled) {
@@ -605,7 +711,6 @@ public final class CPUSampler implements Closeable {
                     payload.interpretedHitCount++;
                 }
             }
-            return true;
         }
 
         private ProfilerNode<Payload> addOrUpdateChild(ProfilerNode<Payload> treeNode, SourceLocation location) {
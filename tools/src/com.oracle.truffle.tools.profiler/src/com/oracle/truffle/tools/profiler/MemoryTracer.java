@@ -27,6 +27,7 @@ package com.oracle.truffle.tools.profiler;
 import com.oracle.truffle.api.instrumentation.AllocationEvent;
 import com.oracle.truffle.api.instrumentation.AllocationEventFilter;
 import com.oracle.truffle.api.instrumentation.AllocationListener;
+import com.oracle.truffle.api.instrumentation.AllocationReporter;
 import com.oracle.truffle.api.instrumentation.EventBinding;
 import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
 import com.oracle.truffle.api.instrumentation.StandardTags;
@@ -42,6 +43,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Engine;
@@ -58,6 +61,10 @@ import static com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
  * during execution, and listens for {@link AllocationEvent allocation events}. On each event, the
  * allocation information is associated to the top of the stack.
  * <p>
+ * With a {@link #setSamplingInterval(long) sampling interval}, only a random subset of the
+ * allocations is recorded, on average one per interval of allocated bytes. Allocations that are not
+ * sampled only decrement a byte counter of the allocating thread.
+ * <p>
  * NOTE: This profiler is still experimental with limited capabilities.
  * <p>
  * Usage example: {@link MemoryTracerSnippets#example}
@@ -91,6 +98,8 @@ public final class MemoryTracer implements Closeable {
 
     private boolean stackOverflowed = false;
 
+    private long samplingInterval = 0;
+
     private static final SourceSectionFilter DEFAULT_FILTER = SourceSectionFilter.newBuilder().tagIs(StandardTags.RootTag.class).sourceIs(new SourceSectionFilter.SourcePredicate() {
         @Override
         public boolean test(Source source) {
@@ -114,7 +123,7 @@ public final class MemoryTracer implements Closeable {
         }
         this.stacksBinding = this.shadowStack.install(env.getInstrumenter(), f, false);
 
-        this.activeBinding = env.getInstrumenter().attachAllocationListener(AllocationEventFilter.ANY, new Listener());
+        this.activeBinding = env.getInstrumenter().attachAllocationListener(AllocationEventFilter.ANY, new Listener(samplingInterval));
     }
 
     /**
@@ -218,6 +227,37 @@ public final class MemoryTracer implements Closeable {
         this.stackLimit = stackLimit;
     }
 
+    /**
+     * @return the average number of allocated bytes between two recorded allocations, or {@code 0}
+     *         if every allocation is recorded
+     * @since 1.0
+     */
+    public synchronized long getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    /**
+     * Sets the average number of allocated bytes between two recorded allocations. The distance
+     * between samples is drawn from an exponential distribution, so that every allocated byte has
+     * the same chance of being sampled regardless of allocation patterns. Allocations of unknown
+     * size count as one byte. The default value {@code 0} records every allocation.
+     * <p>
+     * When sampling, {@link Payload#getAllocationCount()} and {@link Payload#getAllocatedBytes()}
+     * are estimates extrapolated from the recorded samples, while
+     * {@link Payload#getTotalAllocations()} and {@link Payload#getEvents()} only reflect the
+     * recorded samples.
+     *
+     * @param samplingInterval the new sampling interval in bytes
+     * @since 1.0
+     */
+    public synchronized void setSamplingInterval(long samplingInterval) {
+        verifyConfigAllowed();
+        if (samplingInterval < 0) {
+            throw new IllegalArgumentException(String.format("Invalid sampling interval %s.", samplingInterval));
+        }
+        this.samplingInterval = samplingInterval;
+    }
+
     /**
      * @return was the shadow stack size insufficient for the execution.
      * @since 0.30
@@ -266,13 +306,68 @@ public final class MemoryTracer implements Closeable {
 
     private final class Listener implements AllocationListener {
 
+        private final long samplingInterval;
+        private final ConcurrentHashMap<Thread, SamplingCountdown> countdowns = new ConcurrentHashMap<>();
+
+        Listener(long samplingInterval) {
+            this.samplingInterval = samplingInterval;
+        }
+
         @Override
         public void onEnter(AllocationEvent event) {
         }
 
         @Override
-        @TruffleBoundary
         public void onReturnValue(AllocationEvent event) {
+            final long bytes = allocatedBytes(event);
+            if (samplingInterval == 0) {
+                recordAllocation(event, 1, bytes);
+                return;
+            }
+            final long size = event.getNewSize() == AllocationReporter.SIZE_UNKNOWN ? 1 : bytes;
+            if (size <= 0) {
+                return;
+            }
+            SamplingCountdown countdown = getCountdown();
+            countdown.bytesUntilSample -= size;
+            if (countdown.bytesUntilSample > 0) {
+                return;
+            }
+            sampleAllocation(event, countdown, size, bytes);
+        }
+
+        @TruffleBoundary
+        private SamplingCountdown getCountdown() {
+            Thread currentThread = Thread.currentThread();
+            SamplingCountdown countdown = countdowns.get(currentThread);
+            if (countdown == null) {
+                // forget threads that have terminated since the last thread was added
+                countdowns.keySet().removeIf(thread -> !thread.isAlive());
+                countdown = new SamplingCountdown(nextSamplingDistance(samplingInterval));
+                SamplingCountdown prevCountdown = countdowns.putIfAbsent(currentThread, countdown);
+                if (prevCountdown != null) {
+                    countdown = prevCountdown;
+                }
+            }
+            return countdown;
+        }
+
+        @TruffleBoundary
+        private void sampleAllocation(AllocationEvent event, SamplingCountdown countdown, long size, long bytes) {
+            // large allocations may cover more than one sampling distance
+            do {
+                countdown.bytesUntilSample += nextSamplingDistance(samplingInterval);
+            } while (countdown.bytesUntilSample <= 0);
+            /*
+             * An allocation of size s is sampled with probability 1 - exp(-s / interval), so it is
+             * weighted by the inverse to get an unbiased estimate.
+             */
+            double weight = 1 / -Math.expm1(-(double) size / samplingInterval);
+            recordAllocation(event, weight, bytes);
+        }
+
+        @TruffleBoundary
+        private void recordAllocation(AllocationEvent event, double weight, long bytes) {
             ShadowStack.ThreadLocalStack stack = shadowStack.getStack(Thread.currentThread());
             if (stack == null || stack.getStackIndex() == -1) {
                 // nothing on the stack
@@ -292,10 +387,10 @@ public final class MemoryTracer implements Closeable {
                 metaObjectString = "null";
             }
             AllocationEventInfo info = new AllocationEventInfo(event.getLanguage(), event.getNewSize() - event.getOldSize(), event.getOldSize() != 0, metaObjectString);
-            handleEvent(stack, info);
+            handleEvent(stack, info, weight, bytes);
         }
 
-        boolean handleEvent(ShadowStack.ThreadLocalStack stack, AllocationEventInfo info) {
+        boolean handleEvent(ShadowStack.ThreadLocalStack stack, AllocationEventInfo info, double weight, long bytes) {
             final ShadowStack.ThreadLocalStack.CorrectedStackInfo correctedStackInfo = ShadowStack.ThreadLocalStack.CorrectedStackInfo.build(stack);
             if (correctedStackInfo == null) {
                 return false;
@@ -314,10 +409,43 @@ public final class MemoryTracer implements Closeable {
             }
             // insert event at the top of the stack
             treeNode.getPayload().getEvents().add(info);
+            treeNode.getPayload().addAllocations(weight, weight * bytes);
             return true;
         }
     }
 
+    /**
+     * Bytes left until the next sample of one thread. Each thread draws its own random sampling
+     * distances, so threads neither contend on a shared counter nor sample each other's
+     * allocations. Only accessed by the owning thread.
+     */
+    private static final class SamplingCountdown {
+
+        long bytesUntilSample;
+
+        SamplingCountdown(long bytesUntilSample) {
+            this.bytesUntilSample = bytesUntilSample;
+        }
+    }
+
+    private static long allocatedBytes(AllocationEvent event) {
+        final long newSize = event.getNewSize();
+        final long oldSize = event.getOldSize();
+        if (newSize == AllocationReporter.SIZE_UNKNOWN) {
+            return 0;
+        }
+        if (oldSize == AllocationReporter.SIZE_UNKNOWN) {
+            return newSize;
+        }
+        return newSize - oldSize;
+    }
+
+    @TruffleBoundary
+    private static long nextSamplingDistance(long samplingInterval) {
+        // exponentially distributed with mean samplingInterval
+        return 1 + (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * samplingInterval);
+    }
+
     /**
      * Used as a template parameter for {@link ProfilerNode}. Holds information about
      * {@link AllocationEventInfo allocation events}.
@@ -333,6 +461,10 @@ public final class MemoryTracer implements Closeable {
 
         private long totalAllocations = 0;
 
+        private double allocationCount = 0;
+
+        private double allocatedBytes = 0;
+
         /**
          * @return Total number of allocations recorded while the associated element was on the
          *         shadow stack
@@ -352,6 +484,31 @@ public final class MemoryTracer implements Closeable {
             this.totalAllocations++;
         }
 
+        /**
+         * @return Number of allocations that happened while the associated element was at the top
+         *         of the shadow stack. Estimated from the recorded samples if the tracer was
+         *         {@link MemoryTracer#setSamplingInterval(long) sampling}.
+         * @since 1.0
+         */
+        public long getAllocationCount() {
+            return Math.round(allocationCount);
+        }
+
+        /**
+         * @return Number of bytes allocated while the associated element was at the top of the
+         *         shadow stack. Estimated from the recorded samples if the tracer was
+         *         {@link MemoryTracer#setSamplingInterval(long) sampling}.
+         * @since 1.0
+         */
+        public long getAllocatedBytes() {
+            return Math.round(allocatedBytes);
+        }
+
+        void addAllocations(double count, double bytes) {
+            this.allocationCount += count;
+            this.allocatedBytes += bytes;
+        }
+
         /**
          * @return Information about all the {@link AllocationEventInfo allocation events} that
          *         happened while the associated element was at the top of the shadow stack.
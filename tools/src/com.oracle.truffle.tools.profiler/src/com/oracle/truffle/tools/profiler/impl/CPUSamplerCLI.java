@@ -50,7 +50,9 @@ class CPUSamplerCLI extends ProfilerCLI {
 
     enum Output {
         HISTOGRAM,
-        CALLTREE
+        CALLTREE,
+        FLAMEGRAPH,
+        JSON
     }
 
     static final OptionType<Output> CLI_OUTPUT_TYPE = new OptionType<>("Output",
@@ -61,7 +63,7 @@ class CPUSamplerCLI extends ProfilerCLI {
                             try {
                                 return Output.valueOf(s.toUpperCase());
                             } catch (IllegalArgumentException e) {
-                                throw new IllegalArgumentException("Output can be: histogram or calltree");
+                                throw new IllegalArgumentException("Output can be: histogram, calltree, flamegraph or json");
                             }
                         }
                     });
@@ -74,7 +76,7 @@ class CPUSamplerCLI extends ProfilerCLI {
                             try {
                                 return CPUSampler.Mode.valueOf(s.toUpperCase());
                             } catch (IllegalArgumentException e) {
-                                throw new IllegalArgumentException("Mode can be: compiled, roots or statements.");
+                                throw new IllegalArgumentException("Mode can be: exclude_inlined_roots, roots, statements or async_roots.");
                             }
                         }
                     });
@@ -84,7 +86,8 @@ class CPUSamplerCLI extends ProfilerCLI {
     // @formatter:off
     @Option(name = "Mode",
             help = "Describes level of sampling detail. NOTE: Increased detail can lead to reduced accuracy. Modes: 'exclude_inlined_roots' - samples roots excluding inlined functions (default), " +
-                    "'roots' - samples roots including inlined functions, 'statements' - samples all statements.", category = OptionCategory.USER)
+                    "'roots' - samples roots including inlined functions, 'statements' - samples all statements, " +
+                    "'async_roots' - samples roots including inlined functions by walking stack frames instead of keeping a shadow stack.", category = OptionCategory.USER)
     static final OptionKey<CPUSampler.Mode> MODE = new OptionKey<>(CPUSampler.Mode.EXCLUDE_INLINED_ROOTS, CLI_MODE_TYPE);
     // @formatter:om
     @Option(name = "Period", help = "Period in milliseconds to sample the stack.", category = OptionCategory.USER) static final OptionKey<Long> SAMPLE_PERIOD = new OptionKey<>(1L);
@@ -93,7 +96,7 @@ class CPUSamplerCLI extends ProfilerCLI {
 
     @Option(name = "StackLimit", help = "Maximum number of maximum stack elements.", category = OptionCategory.USER) static final OptionKey<Integer> STACK_LIMIT = new OptionKey<>(10000);
 
-    @Option(name = "Output", help = "Print a 'histogram' or 'calltree' as output (default:HISTOGRAM).", category = OptionCategory.USER) static final OptionKey<Output> OUTPUT = new OptionKey<>(
+    @Option(name = "Output", help = "Print a 'histogram', 'calltree', 'flamegraph' (collapsed stacks) or 'json' as output (default:HISTOGRAM).", category = OptionCategory.USER) static final OptionKey<Output> OUTPUT = new OptionKey<>(
                     Output.HISTOGRAM, CLI_OUTPUT_TYPE);
 
     @Option(name = "FilterRootName", help = "Wildcard filter for program roots. (eg. Math.*, default:*).", category = OptionCategory.USER) static final OptionKey<Object[]> FILTER_ROOT = new OptionKey<>(
@@ -107,6 +110,12 @@ class CPUSamplerCLI extends ProfilerCLI {
 
     @Option(name = "SampleInternal", help = "Capture internal elements (default:false).", category = OptionCategory.USER) static final OptionKey<Boolean> SAMPLE_INTERNAL = new OptionKey<>(false);
 
+    @Option(name = "GatherHitTimes", help = "Save a timestamp for each taken sample and print them in the 'json' output (default:false).", category = OptionCategory.USER) static final OptionKey<Boolean> GATHER_HIT_TIMES = new OptionKey<>(
+                    false);
+
+    @Option(name = "SelfHitTimesLimit", help = "Maximum number of timestamps saved per element, 0 saves all of them (default:0).", category = OptionCategory.USER) static final OptionKey<Integer> SELF_HIT_TIMES_LIMIT = new OptionKey<>(
+                    0);
+
     static void handleOutput(TruffleInstrument.Env env, CPUSampler sampler) {
         PrintStream out = new PrintStream(env.out());
         if (sampler.hasStackOverflowed()) {
@@ -124,7 +133,14 @@ class CPUSamplerCLI extends ProfilerCLI {
             case CALLTREE:
                 printSamplingCallTree(out, sampler);
                 break;
+            case FLAMEGRAPH:
+                printSamplingFlameGraph(out, sampler);
+                break;
+            case JSON:
+                printSamplingJson(out, sampler);
+                break;
         }
+        out.flush();
     }
 
     private static Map<SourceLocation, List<ProfilerNode<CPUSampler.Payload>>> computeHistogram(CPUSampler sampler) {
@@ -224,6 +240,123 @@ class CPUSamplerCLI extends ProfilerCLI {
         }
     }
 
+    /**
+     * Prints one line per call stack in the collapsed format understood by flame graph tools:
+     * semicolon-separated frames from the bottom of the stack, followed by the self hit count.
+     */
+    private static void printSamplingFlameGraph(PrintStream out, CPUSampler sampler) {
+        printSamplingFlameGraphRec(out, new StringBuilder(), sampler.getRootNodes());
+    }
+
+    private static void printSamplingFlameGraphRec(PrintStream out, StringBuilder stack, Collection<ProfilerNode<CPUSampler.Payload>> children) {
+        for (ProfilerNode<CPUSampler.Payload> treeNode : children) {
+            int length = stack.length();
+            if (length > 0) {
+                stack.append(';');
+            }
+            stack.append(getFrameName(treeNode).replace(';', ','));
+            int selfHitCount = treeNode.getPayload().getSelfHitCount();
+            if (selfHitCount > 0) {
+                out.append(stack).append(' ').println(selfHitCount);
+            }
+            printSamplingFlameGraphRec(out, stack, treeNode.getChildren());
+            stack.setLength(length);
+        }
+    }
+
+    private static void printSamplingJson(PrintStream out, CPUSampler sampler) {
+        out.print("{\"samples\":");
+        out.print(sampler.getSampleCount());
+        out.print(",\"period\":");
+        out.print(sampler.getPeriod());
+        out.print(",\"profile\":");
+        printSamplingJsonRec(out, sampler.getRootNodes(), sampler.isGatherSelfHitTimes());
+        out.println("}");
+    }
+
+    private static void printSamplingJsonRec(PrintStream out, Collection<ProfilerNode<CPUSampler.Payload>> children, boolean gatherSelfHitTimes) {
+        out.print('[');
+        boolean first = true;
+        for (ProfilerNode<CPUSampler.Payload> treeNode : children) {
+            if (!first) {
+                out.print(',');
+            }
+            first = false;
+            CPUSampler.Payload payload = treeNode.getPayload();
+            out.print("{\"name\":");
+            printJsonString(out, getFrameName(treeNode));
+            out.print(",\"location\":");
+            printJsonString(out, getShortDescription(treeNode.getSourceSection()));
+            out.print(",\"hitCount\":");
+            out.print(payload.getHitCount());
+            out.print(",\"compiledHitCount\":");
+            out.print(payload.getCompiledHitCount());
+            out.print(",\"selfHitCount\":");
+            out.print(payload.getSelfHitCount());
+            out.print(",\"selfCompiledHitCount\":");
+            out.print(payload.getSelfCompiledHitCount());
+            if (gatherSelfHitTimes) {
+                out.print(",\"selfHitTimes\":[");
+                boolean firstTime = true;
+                for (Long time : payload.getSelfHitTimes()) {
+                    if (!firstTime) {
+                        out.print(',');
+                    }
+                    firstTime = false;
+                    out.print(time);
+                }
+                out.print(']');
+            }
+            out.print(",\"children\":");
+            printSamplingJsonRec(out, treeNode.getChildren(), gatherSelfHitTimes);
+            out.print('}');
+        }
+        out.print(']');
+    }
+
+    private static void printJsonString(PrintStream out, String s) {
+        out.print('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    out.print("\\\"");
+                    break;
+                case '\\':
+                    out.print("\\\\");
+                    break;
+                case '\n':
+                    out.print("\\n");
+                    break;
+                case '\r':
+                    out.print("\\r");
+                    break;
+                case '\t':
+                    out.print("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.print(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.print(c);
+                    }
+                    break;
+            }
+        }
+        out.print('"');
+    }
+
+    private static String getFrameName(ProfilerNode<CPUSampler.Payload> treeNode) {
+        String rootName = treeNode.getRootName();
+        if (rootName.isEmpty()) {
+            return getShortDescription(treeNode.getSourceSection());
+        }
+        if (treeNode.getTags().contains(StandardTags.RootTag.class)) {
+            return rootName;
+        }
+        return rootName + "~" + formatIndices(treeNode.getSourceSection(), true);
+    }
+
     private static int computeTitleMaxLength(Collection<ProfilerNode<CPUSampler.Payload>> children, int baseLength) {
         int maxLength = baseLength;
         for (ProfilerNode<CPUSampler.Payload> treeNode : children) {
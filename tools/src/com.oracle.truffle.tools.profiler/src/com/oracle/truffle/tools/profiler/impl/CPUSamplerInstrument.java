@@ -127,6 +127,8 @@ public class CPUSamplerInstrument extends TruffleInstrument {
             sampler.setStackLimit(env.getOptions().get(CPUSamplerCLI.STACK_LIMIT));
             sampler.setFilter(getSourceSectionFilter(env));
             sampler.setMode(env.getOptions().get(CPUSamplerCLI.MODE));
+            sampler.setGatherSelfHitTimes(env.getOptions().get(CPUSamplerCLI.GATHER_HIT_TIMES));
+            sampler.setSelfHitTimesLimit(env.getOptions().get(CPUSamplerCLI.SELF_HIT_TIMES_LIMIT));
             sampler.setCollecting(true);
         }
         env.registerService(sampler);
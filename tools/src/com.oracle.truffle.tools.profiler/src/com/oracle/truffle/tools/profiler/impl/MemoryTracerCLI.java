@@ -86,6 +86,9 @@ class MemoryTracerCLI extends ProfilerCLI {
 
     @Option(name = "StackLimit", help = "Maximum number of maximum stack elements.", category = OptionCategory.USER) static final OptionKey<Integer> STACK_LIMIT = new OptionKey<>(10000);
 
+    @Option(name = "SamplingInterval", help = "Record one allocation per this many allocated bytes on average instead of every allocation (default:0, record all).", category = OptionCategory.USER) static final OptionKey<Long> SAMPLING_INTERVAL = new OptionKey<>(
+                    0L);
+
     @Option(name = "TraceRoots", help = "Capture roots when tracing (default:true).", category = OptionCategory.USER) static final OptionKey<Boolean> TRACE_ROOTS = new OptionKey<>(true);
 
     @Option(name = "TraceStatements", help = "Capture statements when tracing (default:false).", category = OptionCategory.USER) static final OptionKey<Boolean> TRACE_STATEMENTS = new OptionKey<>(
@@ -114,6 +117,9 @@ class MemoryTracerCLI extends ProfilerCLI {
             out.println("-------------------------------------------------------------------------------- ");
             return;
         }
+        if (tracer.getSamplingInterval() > 0) {
+            out.println(String.format(" Allocations were sampled about once every %d bytes. Counts are numbers of samples.", tracer.getSamplingInterval()));
+        }
         switch (env.getOptions().get(OUTPUT)) {
             case TYPE_HISTOGRAM:
                 printMetaObjectHistogram(out, tracer);
@@ -25,6 +25,7 @@
 package com.oracle.truffle.api.instrumentation.test;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,6 +40,7 @@ import com.oracle.truffle.api.instrumentation.StandardTags;
 import com.oracle.truffle.api.instrumentation.TruffleInstrument;
 import com.oracle.truffle.api.instrumentation.TruffleInstrument.Registration;
 
+import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Instrument;
 import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.SourceSection;
@@ -124,6 +126,63 @@ public class SourceSectionListenerTest extends AbstractInstrumentationTest {
         assertEvents(impl.onlyExpressions, sourceSections3[2], sourceSections3[3], sourceSections3[4]);
     }
 
+    @Test
+    public void testQuerySourceSectionsBySource() throws IOException {
+        Instrument instrument = engine.getInstruments().get("testLoadSourceSection1");
+        SourceSection[] sourceSections1 = sections("STATEMENT(EXPRESSION, EXPRESSION)", "STATEMENT(EXPRESSION, EXPRESSION)", "EXPRESSION");
+        SourceSection[] sourceSections2 = sections("STATEMENT(EXPRESSION)", "STATEMENT(EXPRESSION)", "EXPRESSION");
+        Source source1 = sourceSections1[0].getSource();
+        Source source2 = sourceSections2[0].getSource();
+        run(source1);
+        run(source2);
+
+        assureEnabled(instrument);
+        TestLoadSourceSection1 impl = instrument.lookup(TestLoadSourceSection1.class);
+
+        final SourceSectionFilter source1Filter = SourceSectionFilter.newBuilder().sourceIs(getSourceImpl(source1)).build();
+        final SourceSectionFilter source2Filter = SourceSectionFilter.newBuilder().sourceIs(getSourceImpl(source2)).build();
+        final SourceSectionFilter source1ExprFilter = SourceSectionFilter.newBuilder().sourceIs(getSourceImpl(source1)).tagIs(InstrumentationTestLanguage.EXPRESSION).build();
+        // repeated queries use the roots indexed by source
+        for (int i = 0; i < 2; i++) {
+            assertSections(impl.query(source1Filter), sourceSections1);
+            assertSections(impl.query(source2Filter), sourceSections2);
+            assertSections(impl.query(source1ExprFilter), sourceSections1[2], sourceSections1[3]);
+        }
+    }
+
+    @Test
+    public void testQuerySourceSectionsOfEqualSource() throws IOException {
+        Instrument instrument = engine.getInstruments().get("testLoadSourceSection1");
+        assureEnabled(instrument);
+        TestLoadSourceSection1 impl = instrument.lookup(TestLoadSourceSection1.class);
+
+        String code = "STATEMENT(EXPRESSION)";
+        Source source1 = Source.newBuilder(InstrumentationTestLanguage.ID, code, "sourceSectionTest").build();
+        Context context1 = newContext();
+        context1.eval(source1);
+        // an equal source loaded in another context is indexed under the same source entry
+        SourceSection[] sourceSections2 = sections(code, "STATEMENT(EXPRESSION)", "EXPRESSION");
+        Source source2 = sourceSections2[0].getSource();
+        Assert.assertEquals(getSourceImpl(source1), getSourceImpl(source2));
+        run(source2);
+
+        // drop everything that keeps the first source alive
+        context1.close();
+        impl.allEvents.clear();
+        impl.onlyNewEvents.clear();
+        impl.onlyStatements.clear();
+        impl.onlyExpressions.clear();
+        WeakReference<Object> source1Ref = new WeakReference<>(getSourceImpl(source1));
+        source1 = null;
+        context1 = null;
+        for (int i = 0; i < 10 && source1Ref.get() != null; i++) {
+            System.gc();
+        }
+
+        final SourceSectionFilter source2Filter = SourceSectionFilter.newBuilder().sourceIs(getSourceImpl(source2)).build();
+        assertSections(impl.query(source2Filter), sourceSections2);
+    }
+
     private SourceSection[] sections(String code, String... match) throws IOException {
         Source source = Source.newBuilder(InstrumentationTestLanguage.ID, code, "sourceSectionTest").build();
 
@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -105,6 +106,8 @@ final class InstrumentationHandler {
 
     private final Collection<RootNode> loadedRoots = new WeakAsyncList<>(256);
     private final Collection<RootNode> executedRoots = new WeakAsyncList<>(64);
+    private final RootSourceIndex loadedRootsIndex = new RootSourceIndex();
+    private final RootSourceIndex executedRootsIndex = new RootSourceIndex();
     private final Collection<AllocationReporter> allocationReporters = new WeakAsyncList<>(16);
 
     private final Collection<EventBinding.Source<?>> executionBindings = new EventBindingList<>(8);
@@ -169,6 +172,7 @@ final class InstrumentationHandler {
                 }
             }
             loadedRoots.add(root);
+            loadedRootsIndex.add(root);
             // Do not invoke foreign code while holding a lock to avoid deadlocks.
             if (rootSources != null) {
                 for (Source src : rootSources) {
@@ -177,6 +181,7 @@ final class InstrumentationHandler {
             }
         } else {
             loadedRoots.add(root);
+            loadedRootsIndex.add(root);
         }
 
         // fast path no bindings attached
@@ -266,6 +271,7 @@ final class InstrumentationHandler {
                 }
             }
             executedRoots.add(root);
+            executedRootsIndex.add(root);
             // Do not invoke foreign code while holding a lock to avoid deadlocks.
             if (rootSources != null) {
                 for (Source src : rootSources) {
@@ -274,6 +280,7 @@ final class InstrumentationHandler {
             }
         } else {
             executedRoots.add(root);
+            executedRootsIndex.add(root);
         }
 
         // fast path no bindings attached
@@ -361,7 +368,7 @@ final class InstrumentationHandler {
         this.executionBindings.add(binding);
 
         if (!executedRoots.isEmpty()) {
-            visitRoots(executedRoots, new InsertWrappersWithBindingVisitor(binding));
+            visitRoots(executedRoots, executedRootsIndex, new InsertWrappersWithBindingVisitor(binding));
         }
 
         if (TRACE) {
@@ -379,7 +386,7 @@ final class InstrumentationHandler {
         this.sourceSectionBindings.add(binding);
         if (notifyLoaded) {
             if (!loadedRoots.isEmpty()) {
-                visitRoots(loadedRoots, new NotifyLoadedWithBindingVisitor(binding));
+                visitRoots(loadedRoots, loadedRootsIndex, new NotifyLoadedWithBindingVisitor(binding));
             }
         }
 
@@ -594,6 +601,18 @@ final class InstrumentationHandler {
         }
     }
 
+    private void visitRoots(Collection<RootNode> roots, RootSourceIndex index, AbstractBindingVisitor bindingVisitor) {
+        SourceSectionFilter filter = bindingVisitor.binding.getFilter();
+        if (filter.isSourceRestricted()) {
+            for (RootNode root : index.findRoots(filter)) {
+                visitRoot(root, root, bindingVisitor, false);
+            }
+        } else {
+            visitRoots(roots, bindingVisitor);
+        }
+        index.classifyPending();
+    }
+
     @SuppressWarnings("deprecation")
     void disposeBinding(EventBinding<?> binding) {
         if (TRACE) {
@@ -603,7 +622,7 @@ final class InstrumentationHandler {
         if (binding instanceof EventBinding.Source) {
             EventBinding.Source<?> sourceBinding = (EventBinding.Source<?>) binding;
             if (sourceBinding.isExecutionEvent()) {
-                visitRoots(executedRoots, new DisposeWrappersVisitor(sourceBinding));
+                visitRoots(executedRoots, executedRootsIndex, new DisposeWrappersVisitor(sourceBinding));
             }
         } else if (binding instanceof EventBinding.Allocation) {
             EventBinding.Allocation<?> allocationBinding = (EventBinding.Allocation<?>) binding;
@@ -725,12 +744,18 @@ final class InstrumentationHandler {
         }
         assert parentInstrumentable != null;
 
+        int rootBits = RootNodeBits.get(rootNode);
         if (!sourceSectionBindings.isEmpty()) {
             visitRoot(rootNode, parentInstrumentable, new NotifyLoadedListenerVisitor(sourceSectionBindings), true);
         }
         if (!executionBindings.isEmpty()) {
             visitRoot(rootNode, parentInstrumentable, new InsertWrappersVisitor(executionBindings), true);
         }
+        if (RootNodeBits.get(rootNode) != rootBits) {
+            // the inserted nodes may refer to other sources
+            loadedRootsIndex.update(rootNode);
+            executedRootsIndex.update(rootNode);
+        }
     }
 
     private static void notifySourceBindingsLoaded(Collection<EventBinding.Source<?>> bindings, Source source) {
@@ -1985,6 +2010,167 @@ final class InstrumentationHandler {
 
     }
 
+    /**
+     * An index of roots by the source of their root source section. Bindings with a filter
+     * restricted to {@link SourceSectionFilter#isSourceRestricted() sources} only need to visit the
+     * roots of the matching sources instead of all roots. A root is indexed by source only after
+     * its {@link RootNodeBits root bits} were computed and tell that all its source sections refer
+     * to the source of the root source section. Until then it is pending and returned for all
+     * lookups. Roots are returned in the order they were added.
+     *
+     * Sources are keyed by equality, so the index keeps the source key strongly reachable: a weak
+     * key would drop the entry once the first source instance dies, even though roots of an equal
+     * source are still alive. Entries whose roots were all collected are pruned instead.
+     */
+    private static final class RootSourceIndex {
+
+        private static final int MIN_PRUNE_THRESHOLD = 16;
+
+        private final Map<RootNode, Long> pendingRoots = new WeakHashMap<>();
+        private final Map<RootNode, Long> unindexedRoots = new WeakHashMap<>();
+        private final Map<RootNode, Long> noSourceRoots = new WeakHashMap<>();
+        private final Map<Source, SourceRoots> rootsBySource = new HashMap<>();
+        private int pruneThreshold = MIN_PRUNE_THRESHOLD;
+        private long addCount;
+
+        synchronized void add(RootNode root) {
+            pendingRoots.put(root, addCount++);
+            classify(root);
+        }
+
+        /*
+         * Needs to be called if the root bits of a root changed after it was added.
+         */
+        synchronized void update(RootNode root) {
+            Long order = remove(root);
+            if (order != null) {
+                pendingRoots.put(root, order);
+                classify(root);
+            }
+        }
+
+        synchronized List<RootNode> findRoots(SourceSectionFilter filter) {
+            List<Map.Entry<RootNode, Long>> entries = new ArrayList<>(pendingRoots.entrySet());
+            entries.addAll(unindexedRoots.entrySet());
+            for (Iterator<SourceRoots> iterator = rootsBySource.values().iterator(); iterator.hasNext();) {
+                SourceRoots sourceRoots = iterator.next();
+                if (sourceRoots.roots.isEmpty()) {
+                    iterator.remove();
+                } else if (sourceRoots.isIncluded(filter)) {
+                    entries.addAll(sourceRoots.roots.entrySet());
+                }
+            }
+            entries.sort(Map.Entry.comparingByValue());
+            List<RootNode> roots = new ArrayList<>(entries.size());
+            for (Map.Entry<RootNode, Long> entry : entries) {
+                RootNode root = entry.getKey();
+                if (root != null) {
+                    roots.add(root);
+                }
+            }
+            return roots;
+        }
+
+        /*
+         * Indexes pending roots whose root bits were computed in the meantime.
+         */
+        synchronized void classifyPending() {
+            if (pendingRoots.isEmpty()) {
+                return;
+            }
+            for (RootNode root : new ArrayList<>(pendingRoots.keySet())) {
+                classify(root);
+            }
+        }
+
+        private void classify(RootNode root) {
+            assert Thread.holdsLock(this);
+            int bits = RootNodeBits.get(root);
+            if (RootNodeBits.isUninitialized(bits)) {
+                return;
+            }
+            Long order = pendingRoots.remove(root);
+            if (order == null) {
+                return;
+            }
+            SourceSection rootSourceSection = root.getSourceSection();
+            if (RootNodeBits.isNoSourceSection(bits)) {
+                noSourceRoots.put(root, order);
+            } else if (RootNodeBits.isSameSource(bits) && rootSourceSection != null) {
+                Source source = rootSourceSection.getSource();
+                SourceRoots sourceRoots = rootsBySource.get(source);
+                if (sourceRoots == null) {
+                    if (rootsBySource.size() >= pruneThreshold) {
+                        pruneSources();
+                    }
+                    sourceRoots = new SourceRoots();
+                    rootsBySource.put(source, sourceRoots);
+                }
+                sourceRoots.add(source, root, order);
+            } else {
+                unindexedRoots.put(root, order);
+            }
+        }
+
+        /*
+         * Removes sources without live roots. The threshold grows with the number of remaining
+         * sources to keep the cost of pruning amortized.
+         */
+        private void pruneSources() {
+            rootsBySource.values().removeIf(sourceRoots -> sourceRoots.roots.isEmpty());
+            pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, rootsBySource.size() * 2);
+        }
+
+        private Long remove(RootNode root) {
+            Long order = pendingRoots.remove(root);
+            if (order == null) {
+                order = unindexedRoots.remove(root);
+            }
+            if (order == null) {
+                order = noSourceRoots.remove(root);
+            }
+            if (order == null) {
+                SourceSection rootSourceSection = root.getSourceSection();
+                SourceRoots sourceRoots = rootSourceSection != null ? rootsBySource.get(rootSourceSection.getSource()) : null;
+                if (sourceRoots != null) {
+                    order = sourceRoots.roots.remove(root);
+                }
+            }
+            return order;
+        }
+
+        private static final class SourceRoots {
+
+            final Map<RootNode, Long> roots = new WeakHashMap<>();
+            /*
+             * Sources are keyed by equality, but source filters may test for identity. So we
+             * remember all distinct source instances of the roots.
+             */
+            private final List<WeakReference<Source>> sources = new ArrayList<>(1);
+
+            void add(Source source, RootNode root, Long order) {
+                roots.put(root, order);
+                for (WeakReference<Source> sourceRef : sources) {
+                    if (sourceRef.get() == source) {
+                        return;
+                    }
+                }
+                sources.add(new WeakReference<>(source));
+            }
+
+            boolean isIncluded(SourceSectionFilter filter) {
+                for (WeakReference<Source> sourceRef : sources) {
+                    Source source = sourceRef.get();
+                    if (source != null && filter.isRootSourceIncluded(source)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+
+    }
+
     static final AccessorInstrumentHandler ACCESSOR = new AccessorInstrumentHandler();
 
     static final class AccessorInstrumentHandler extends Accessor {
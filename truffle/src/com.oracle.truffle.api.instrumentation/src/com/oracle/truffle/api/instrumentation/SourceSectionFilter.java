@@ -172,6 +172,37 @@ public final class SourceSectionFilter {
         return true;
     }
 
+    /*
+     * Returns true if roots are only included if their source matches a source or source
+     * predicate. For such filters roots can be looked up by source instead of visiting all roots.
+     */
+    boolean isSourceRestricted() {
+        for (EventFilterExpression exp : expressions) {
+            if (isSourceRestriction(exp)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Returns false if a root whose source sections all refer to the given source is never
+     * included. Must be consistent with EventFilterExpression.isRootIncluded of the source
+     * restricting expressions.
+     */
+    boolean isRootSourceIncluded(Source source) {
+        for (EventFilterExpression exp : expressions) {
+            if (isSourceRestriction(exp) && !exp.isSourceIncluded(source)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSourceRestriction(EventFilterExpression exp) {
+        return exp instanceof EventFilterExpression.SourceIs || exp instanceof EventFilterExpression.SourceFilterIs;
+    }
+
     /**
      * Configure your own {@link SourceSectionFilter} before creating its instance. Specify various
      * parameters by calling individual {@link Builder} methods. When done, call {@link #build()}.
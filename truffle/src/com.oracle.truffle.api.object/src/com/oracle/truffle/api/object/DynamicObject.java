@@ -24,6 +24,8 @@
  */
 package com.oracle.truffle.api.object;
 
+import java.util.Collections;
+
 import com.oracle.truffle.api.interop.TruffleObject;
 
 /**
@@ -34,6 +36,7 @@ import com.oracle.truffle.api.interop.TruffleObject;
  */
 @SuppressWarnings("deprecation")
 public abstract class DynamicObject implements com.oracle.truffle.api.TypedObject, TruffleObject {
+    private static final Object NOT_FOUND = new Object();
 
     /**
      * Constructor for subclasses.
@@ -87,7 +90,93 @@ public abstract class DynamicObject implements com.oracle.truffle.api.TypedObjec
      * @since 0.8 or earlier
      */
     public final boolean containsKey(Object key) {
-        return getShape().getProperty(key) != null;
+        Shape shape = getShape();
+        if (shape.getProperty(key) != null) {
+            return true;
+        }
+        return shape.hasDictionaryStorage() && get(key, NOT_FOUND) != NOT_FOUND;
+    }
+
+    /**
+     * Returns the keys of the properties stored in the dictionary storage of this object in
+     * insertion order, or an empty collection if the shape of this object has no
+     * {@linkplain Shape#makeDictionaryStorageShape() dictionary storage}.
+     *
+     * @since 1.0
+     */
+    public Iterable<Object> getDictionaryStorageKeys() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Prepares this object for use by multiple threads by switching it to the
+     * {@linkplain Shape#makeSharedShape() shared} variant of its shape. Layout changes of shared
+     * objects made with {@link #define}, {@link #delete}, {@link #set}, {@link #setElement} and
+     * {@link #deleteElement} are serialized on the object's monitor, and a new shape is only
+     * published after the stores to the object's storage, so that threads reading properties or
+     * elements of a shared object without locking observe values consistent with its shape.
+     * Objects with unshared shapes keep the unsynchronized fast path.
+     *
+     * Languages are responsible for sharing objects before they become reachable from other
+     * threads, including all objects reachable from a shared object. Specialized nodes that
+     * change the shape of a shared object should synchronize on the object as well.
+     *
+     * @return {@code true} if the object was not shared before
+     * @throws UnsupportedOperationException if the object model does not support sharing
+     * @since 1.0
+     */
+    public boolean makeShared() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the number of indexed elements of this object, i.e. one more than the highest index
+     * of an element stored with {@link #setElement(long, Object)}, or 0 if there is none.
+     *
+     * @since 1.0
+     */
+    public long getElementCount() {
+        return 0;
+    }
+
+    /**
+     * Get the indexed element at the given index. The element is read using the
+     * {@linkplain Shape#getElementKind() element kind} of the object's shape, so that accesses
+     * after a shape check are specialized on the representation of the elements.
+     *
+     * @param index the index of the element
+     * @param defaultValue return value if there is no element at the index
+     * @return the element or the default value
+     * @since 1.0
+     */
+    public Object getElement(long index, Object defaultValue) {
+        return defaultValue;
+    }
+
+    /**
+     * Set the indexed element at the given index, growing the element storage and changing the
+     * shape to a more general {@linkplain Shape#getElementKind() element kind} if necessary.
+     * Elements of an {@link ElementKind#INT int} storage may be widened to {@code long} or
+     * {@code double} if the {@link Layout} allows implicit casts.
+     *
+     * @param index the non-negative index of the element
+     * @param value the new element, must not be {@code null}
+     * @throws UnsupportedOperationException if the object model does not support indexed elements
+     * @since 1.0
+     */
+    public void setElement(long index, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Delete the indexed element at the given index. Deleting an element other than the last one
+     * leaves a hole.
+     *
+     * @return {@code true} if there was an element at the index
+     * @since 1.0
+     */
+    public boolean deleteElement(long index) {
+        return false;
     }
 
     /**
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.object;
+
+/**
+ * Storage strategy of the indexed elements of a {@link DynamicObject}, tracked by its
+ * {@link Shape#getElementKind() shape}. Objects start out without elements and move to more
+ * general kinds as elements of other types are stored, so that a shape check also specializes
+ * element accesses on the representation of the elements.
+ *
+ * @see DynamicObject#getElement(long, Object)
+ * @see DynamicObject#setElement(long, Object)
+ * @since 1.0
+ */
+public enum ElementKind {
+    /**
+     * No elements have been stored yet.
+     *
+     * @since 1.0
+     */
+    EMPTY,
+    /**
+     * Elements are stored in an {@code int[]}.
+     *
+     * @since 1.0
+     */
+    INT,
+    /**
+     * Elements are stored in a {@code long[]}.
+     *
+     * @since 1.0
+     */
+    LONG,
+    /**
+     * Elements are stored in a {@code double[]}.
+     *
+     * @since 1.0
+     */
+    DOUBLE,
+    /**
+     * Elements are stored in an {@code Object[]}.
+     *
+     * @since 1.0
+     */
+    OBJECT,
+    /**
+     * Elements are stored in an {@code Object[]} that may contain holes, i.e. indices below the
+     * element count without an element.
+     *
+     * @since 1.0
+     */
+    HOLEY,
+    /**
+     * Elements are stored in a sorted map, used for large gaps between indices.
+     *
+     * @since 1.0
+     */
+    SPARSE
+}
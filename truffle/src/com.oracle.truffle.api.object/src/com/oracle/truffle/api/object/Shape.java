@@ -346,6 +346,61 @@ public abstract class Shape {
         return null;
     }
 
+    /**
+     * Whether this shape has {@link Shape#makeDictionaryStorageShape() dictionary storage}.
+     *
+     * @since 1.0
+     */
+    public boolean hasDictionaryStorage() {
+        return false;
+    }
+
+    /**
+     * Make a variant of this shape with dictionary storage, intended for objects used as maps with
+     * many keys. Properties that are {@linkplain DynamicObject#define(Object, Object) defined}
+     * without flags on an object with such a shape are stored in a hash table in the object instead
+     * of creating a new shape per added property. These properties are not part of the shape;
+     * they can only be accessed with {@link DynamicObject#get(Object, Object)},
+     * {@link DynamicObject#set(Object, Object)}, {@link DynamicObject#define(Object, Object)},
+     * {@link DynamicObject#delete(Object)} and {@link DynamicObject#containsKey(Object)} and
+     * enumerated with {@link DynamicObject#getDictionaryStorageKeys()}. Properties of this shape and
+     * properties defined with flags remain part of the shape.
+     *
+     * An object is switched to the returned shape with
+     * {@link DynamicObject#setShapeAndGrow(Shape, Shape)}. Dictionary storage cannot be combined
+     * with {@linkplain #makeSharedShape() shared shapes}.
+     *
+     * @return a cached variant of this shape with dictionary storage
+     * @since 1.0
+     */
+    public Shape makeDictionaryStorageShape() {
+        return null;
+    }
+
+    /**
+     * Get the storage strategy of the indexed elements of objects with this shape.
+     *
+     * @see DynamicObject#getElement(long, Object)
+     * @since 1.0
+     */
+    public ElementKind getElementKind() {
+        return ElementKind.EMPTY;
+    }
+
+    /**
+     * Make a variant of this shape with the given, more general element kind. Element kinds are
+     * normally changed implicitly by {@link DynamicObject#setElement(long, Object)} and
+     * {@link DynamicObject#deleteElement(long)}; this method can be used to pre-transition
+     * allocation site shapes.
+     *
+     * @return a cached variant of this shape with the given element kind
+     * @throws IllegalArgumentException if the element kind is less general than the current one
+     * @since 1.0
+     */
+    public Shape changeElementKind(ElementKind newElementKind) {
+        return null;
+    }
+
     /**
      * Utility class to allocate locations in an object layout.
      *
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.source;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Characters of a source that consists of 7-bit ASCII only, stored one byte per character in a
+ * {@link ByteBuffer}. Only absolute {@link ByteBuffer#get(int)} reads are
+ * used, so a single instance can be shared between threads and sources.
+ */
+final class ByteCharSequence implements CharSequence {
+
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+    private int hash;
+
+    ByteCharSequence(ByteBuffer bytes, int offset, int length, int hash) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.hash = hash;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+        return (char) (bytes.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        if (start == 0 && end == length) {
+            return this;
+        }
+        return new ByteCharSequence(bytes, offset + start, end - start, 0);
+    }
+
+    int indexOf(int ch, int fromIndex) {
+        if (ch >= 0x80) {
+            return -1;
+        }
+        for (int i = Math.max(fromIndex, 0); i < length; i++) {
+            if (bytes.get(offset + i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        byte[] array = new byte[length];
+        ByteBuffer view = bytes.duplicate();
+        view.position(offset);
+        view.get(array);
+        return new String(array, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Same value as {@link String#hashCode()} of the same characters.
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && length > 0) {
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + bytes.get(offset + i);
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ByteCharSequence)) {
+            return false;
+        }
+        ByteCharSequence other = (ByteCharSequence) obj;
+        if (length != other.length || hashCode() != other.hashCode()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes.get(offset + i) != other.bytes.get(other.offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
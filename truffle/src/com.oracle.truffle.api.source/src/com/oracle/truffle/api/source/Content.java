@@ -29,7 +29,6 @@ import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Objects;
 
 abstract class Content {
 
@@ -79,7 +78,28 @@ abstract class Content {
             return false;
         }
         Content other = (Content) obj;
-        return Objects.equals(getCharacters(), other.getCharacters());
+        return charactersEqual(getCharacters(), other.getCharacters());
+    }
+
+    private static boolean charactersEqual(CharSequence a, CharSequence b) {
+        if (a == b) {
+            return true;
+        } else if (a == null || b == null) {
+            return false;
+        } else if (a instanceof String && b instanceof String || a instanceof ByteCharSequence && b instanceof ByteCharSequence) {
+            return a.equals(b);
+        }
+        // compact file content compared to the same characters stored differently
+        int length = a.length();
+        if (length != b.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.source;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.oracle.truffle.api.source.impl.SourceAccessor;
+
+/**
+ * Loading of large file backed source content. Files of at least {@link #LARGE_FILE_THRESHOLD}
+ * bytes on the default file system are not read when the {@link Source} is built, but on first
+ * access to its characters. The builder records the size and modification time of the file, and
+ * loading fails if either has changed since. The file is memory-mapped for decoding and its
+ * characters are copied out of the mapping, so once loaded the content is a snapshot that later
+ * changes of the file do not affect. ASCII-only content is kept one byte per character.
+ * <p>
+ * Loaded content is cached per file, size and modification time, so sources built for the same
+ * unchanged file share their characters. Files backed by a {@link SourceAccessor#isTruffleFile
+ * TruffleFile} are read when the source is built, because their channels cannot be mapped.
+ */
+final class FileContents {
+
+    /**
+     * Minimal file size in bytes for lazy loading, negative to always read files eagerly.
+     */
+    static final long LARGE_FILE_THRESHOLD = Long.getLong("truffle.source.LargeFileThreshold", 1L << 20);
+
+    private static final ConcurrentHashMap<Key, CachedContent> CACHE = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<CharSequence> CLEARED = new ReferenceQueue<>();
+
+    private FileContents() {
+    }
+
+    /**
+     * Returns the size of a readable file, fails with an {@link IOException} if the file does not
+     * exist or cannot be read.
+     */
+    static long size(File file) throws IOException {
+        if (SourceAccessor.isTruffleFile(file)) {
+            return SourceAccessor.getTruffleFileSize(file);
+        }
+        Path path = file.toPath();
+        long size = Files.size(path);
+        if (!Files.isReadable(path)) {
+            throw new AccessDeniedException(file.getPath());
+        }
+        return size;
+    }
+
+    static boolean isLarge(long size) {
+        return LARGE_FILE_THRESHOLD >= 0 && size >= LARGE_FILE_THRESHOLD;
+    }
+
+    /**
+     * Returns the key to {@link #load(Key) load} a large file later, or {@code null} if the file
+     * has to be read now.
+     */
+    static Key lazyKey(File file, long size) throws IOException {
+        if (!isLarge(size) || SourceAccessor.isTruffleFile(file)) {
+            return null;
+        }
+        Path path = file.getCanonicalFile().toPath();
+        return new Key(path, size, Files.getLastModifiedTime(path).toMillis());
+    }
+
+    static CharSequence readTruffleFile(File file) throws IOException {
+        return decode(ByteBuffer.wrap(SourceAccessor.readTruffleFile(file)));
+    }
+
+    /**
+     * Loads the characters of a file recorded by {@link #lazyKey(File, long)}.
+     *
+     * @throws UncheckedIOException if the file cannot be read or has changed since the key was
+     *             created
+     */
+    static CharSequence load(Key key) {
+        expungeCleared();
+        CachedContent cached = CACHE.get(key);
+        CharSequence characters = cached == null ? null : cached.get();
+        if (characters != null) {
+            return characters;
+        }
+        try {
+            characters = map(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CachedContent loaded = new CachedContent(key, characters);
+        while (true) {
+            CachedContent previous = CACHE.putIfAbsent(key, loaded);
+            if (previous == null) {
+                return characters;
+            }
+            CharSequence shared = previous.get();
+            if (shared != null) {
+                return shared;
+            }
+            if (CACHE.replace(key, previous, loaded)) {
+                return characters;
+            }
+        }
+    }
+
+    private static CharSequence map(Key key) throws IOException {
+        try (FileChannel channel = FileChannel.open(key.path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size != key.size || Files.getLastModifiedTime(key.path).toMillis() != key.lastModified) {
+                throw new IOException("File " + key.path + " changed after the source was built.");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new OutOfMemoryError("Required array size too large");
+            }
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Decodes UTF-8 encoded bytes. Content consisting of ASCII characters only is wrapped in a
+     * {@link ByteCharSequence}, after copying it to the heap if the bytes are not on the heap.
+     */
+    static CharSequence decode(ByteBuffer bytes) {
+        int length = bytes.remaining();
+        int start = bytes.position();
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = bytes.get(start + i);
+            if (b < 0) {
+                return StandardCharsets.UTF_8.decode(bytes).toString();
+            }
+            hash = 31 * hash + b;
+        }
+        if (bytes.isDirect()) {
+            byte[] array = new byte[length];
+            bytes.get(array);
+            return new ByteCharSequence(ByteBuffer.wrap(array), 0, length, hash);
+        }
+        return new ByteCharSequence(bytes, start, length, hash);
+    }
+
+    private static void expungeCleared() {
+        CachedContent cleared;
+        while ((cleared = (CachedContent) CLEARED.poll()) != null) {
+            CACHE.remove(cleared.key, cleared);
+        }
+    }
+
+    /**
+     * Identifies a version of a file by its path, size and modification time.
+     */
+    static final class Key {
+
+        final Path path;
+        final long size;
+        final long lastModified;
+
+        Key(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return path.equals(other.path) && size == other.size && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode() ^ Long.hashCode(size) ^ Long.hashCode(lastModified);
+        }
+    }
+
+    private static final class CachedContent extends WeakReference<CharSequence> {
+
+        final Key key;
+
+        CachedContent(Key key, CharSequence characters) {
+            super(characters, CLEARED);
+            this.key = key;
+        }
+    }
+}
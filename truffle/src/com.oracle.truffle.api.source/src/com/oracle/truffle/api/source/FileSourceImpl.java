@@ -44,9 +44,11 @@ final class FileSourceImpl extends Content implements Content.CreateURI {
     private final String path; // Explicitly given path description of an actual file, may be null
     private final String hashKey;   // Fixed hash key, the File.getPath() may change after patch
                                     // context
+    private final FileContents.Key lazyKey; // Version of a large file loaded on first access
 
-    FileSourceImpl(String content, File file, String name, String path) {
+    FileSourceImpl(CharSequence content, FileContents.Key lazyKey, File file, String name, String path) {
         this.code = enforceCharSequenceContract(content);
+        this.lazyKey = lazyKey;
         this.file = file.getAbsoluteFile();
         this.name = name;
         this.path = path;
@@ -65,6 +67,17 @@ final class FileSourceImpl extends Content implements Content.CreateURI {
 
     @Override
     CharSequence getCharacters() {
+        CharSequence characters = code;
+        if (characters == null && lazyKey != null) {
+            characters = loadCharacters();
+        }
+        return characters;
+    }
+
+    private synchronized CharSequence loadCharacters() {
+        if (code == null) {
+            code = enforceCharSequenceContract(FileContents.load(lazyKey));
+        }
         return code;
     }
 
@@ -90,7 +103,7 @@ final class FileSourceImpl extends Content implements Content.CreateURI {
 
     @Override
     public Reader getReader() {
-        return new CharSequenceReader(code);
+        return new CharSequenceReader(getCharacters());
     }
 
     @Override
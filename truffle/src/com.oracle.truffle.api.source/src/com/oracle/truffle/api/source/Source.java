@@ -939,8 +939,18 @@ public abstract class Source {
         private Content buildFile(boolean read) throws IOException {
             final File file = (File) origin;
             File absoluteFile = file.getCanonicalFile();
+            CharSequence characters = null;
+            FileContents.Key lazyKey = null;
+            if (read) {
+                long size = FileContents.size(file);
+                lazyKey = FileContents.lazyKey(file, size);
+                if (lazyKey == null) {
+                    characters = FileContents.isLarge(size) ? FileContents.readTruffleFile(file) : Source.read(file);
+                }
+            }
             FileSourceImpl fileSource = new FileSourceImpl(
-                            read ? Source.read(file) : null,
+                            characters,
+                            lazyKey,
                             absoluteFile,
                             name == null ? file.getName() : name,
                             path);
@@ -24,7 +24,7 @@
  */
 package com.oracle.truffle.api.source;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * A utility for converting between coordinate systems in a string of text interspersed with newline
@@ -75,23 +75,23 @@ final class TextMap {
      */
     public static TextMap fromCharSequence(CharSequence text) {
         final int textLength = text.length();
-        final ArrayList<Integer> lines = new ArrayList<>();
-        lines.add(0);
+        int[] lines = new int[16];
+        int lineCount = 1;
         int offset = 0;
         while (offset < textLength) {
             final int nlIndex = indexOf(text, '\n', offset);
             if (nlIndex >= 0) {
                 offset = nlIndex + 1;
-                lines.add(offset);
+                if (lineCount + 1 >= lines.length) {
+                    lines = Arrays.copyOf(lines, lines.length << 1);
+                }
+                lines[lineCount++] = offset;
             } else {
                 break;
             }
         }
-        lines.add(Integer.MAX_VALUE);
-        final int[] nlOffsets = new int[lines.size()];
-        for (int line = 0; line < lines.size(); line++) {
-            nlOffsets[line] = lines.get(line);
-        }
+        lines[lineCount++] = Integer.MAX_VALUE;
+        final int[] nlOffsets = Arrays.copyOf(lines, lineCount);
         final boolean finalNL = textLength > 0 && (textLength == nlOffsets[nlOffsets.length - 2]);
         return new TextMap(nlOffsets, textLength, finalNL);
     }
@@ -99,6 +99,8 @@ final class TextMap {
     private static int indexOf(CharSequence seq, int ch, int fromIndex) {
         if (seq instanceof String) {
             return ((String) seq).indexOf(ch, fromIndex);
+        } else if (seq instanceof ByteCharSequence) {
+            return ((ByteCharSequence) seq).indexOf(ch, fromIndex);
         }
         final int max = seq.length();
         int localFromIndex = fromIndex;
@@ -99,6 +99,10 @@ public abstract class SourceAccessor {
         return ACCESSOR.checkTruffleFile(file);
     }
 
+    public static long getTruffleFileSize(File file) throws IOException {
+        return ACCESSOR.truffleFileSize(file);
+    }
+
     protected abstract Collection<ClassLoader> loaders();
 
     protected abstract boolean checkAOT();
@@ -108,4 +112,6 @@ public abstract class SourceAccessor {
     protected abstract boolean checkTruffleFile(File file);
 
     protected abstract byte[] truffleFileContent(File file) throws IOException;
+
+    protected abstract long truffleFileSize(File file) throws IOException;
 }
@@ -34,9 +34,13 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.jar.JarOutputStream;
 import java.util.zip.ZipEntry;
 
@@ -107,6 +111,109 @@ public class SourceBuilderTest {
         assertEquals("Sources with different MIME type has the same URI", s1.getURI(), s2.getURI());
     }
 
+    @Test
+    public void largeFileContent() throws IOException {
+        assertLargeFile("line ");
+        assertLargeFile("\u017elu\u0165ou\u010dk\u00fd k\u016f\u0148 ");
+    }
+
+    @Test
+    public void largeFileIsSnapshotOnceLoaded() throws IOException {
+        File file = File.createTempFile("Large", ".java").getCanonicalFile();
+        file.deleteOnExit();
+        String text = writeLargeFile(file);
+
+        Source source = Source.newBuilder(file).build();
+        assertEquals(text.length(), source.getLength());
+        try (FileWriter w = new FileWriter(file)) {
+            w.write("changed");
+        }
+        assertEquals(text, source.getCharacters().toString());
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.getChannel().truncate(0);
+        }
+        assertEquals(text, source.getCode());
+        assertEquals(text.length() / 5, source.getLineCount());
+    }
+
+    @Test
+    public void largeFileChangedBeforeLoad() throws IOException {
+        File file = File.createTempFile("Large", ".java").getCanonicalFile();
+        file.deleteOnExit();
+        writeLargeFile(file);
+
+        Source source = Source.newBuilder(file).build();
+        try (FileWriter w = new FileWriter(file)) {
+            w.write("changed");
+        }
+        try {
+            source.getCharacters();
+            fail("Expected UncheckedIOException");
+        } catch (UncheckedIOException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void largeFileEqualsLiteralContent() throws IOException {
+        File file = File.createTempFile("Large", ".java").getCanonicalFile();
+        file.deleteOnExit();
+        String text = writeLargeFile(file);
+
+        Source fromFile = Source.newBuilder(file).build();
+        Source withContent = Source.newBuilder(file).content(text).build();
+        assertEquals(fromFile, withContent);
+        assertEquals(withContent, fromFile);
+        assertNotEquals(fromFile, Source.newBuilder(file).content(text + " ").build());
+    }
+
+    private static String writeLargeFile(File file) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 2 * 1024 * 1024) {
+            sb.append("line\n");
+        }
+        String text = sb.toString();
+        try (FileWriter w = new FileWriter(file)) {
+            w.write(text);
+        }
+        return text;
+    }
+
+    private static void assertLargeFile(String linePrefix) throws IOException {
+        File file = File.createTempFile("Large", ".java").getCanonicalFile();
+        file.deleteOnExit();
+
+        StringBuilder sb = new StringBuilder();
+        int lines = 0;
+        while (sb.length() < 2 * 1024 * 1024) {
+            sb.append(linePrefix).append(++lines).append('\n');
+        }
+        String text = sb.toString();
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write(text);
+        }
+
+        Source s1 = Source.newBuilder(file).build();
+        Source s2 = Source.newBuilder(file).build();
+        Source s3 = Source.newBuilder(file).mimeType("text/x-c").build();
+        assertEquals(text.length(), s1.getLength());
+        assertEquals(lines, s1.getLineCount());
+        assertEquals(linePrefix + "1", s1.getCharacters(1).toString());
+        assertEquals(linePrefix + lines, s1.getCharacters(lines).toString());
+        assertEquals(text, s1.getCharacters().toString());
+        assertEquals(text, s3.getCode());
+        assertEquals("Same file, same content", s1, s2);
+        assertEquals(s1.hashCode(), s2.hashCode());
+        assertNotEquals("But different type", s1, s3);
+
+        char[] buf = new char[linePrefix.length()];
+        try (Reader r = s2.getReader()) {
+            assertEquals(buf.length, r.read(buf));
+        }
+        assertEquals(linePrefix, new String(buf));
+    }
+
     @Test
     public void mimeTypeIsDetectedRandomBytes() throws IOException {
         File file = File.createTempFile("Hello", ".bin").getCanonicalFile();
@@ -30,6 +30,7 @@ import com.oracle.truffle.api.TruffleOptions;
 import com.oracle.truffle.api.source.impl.SourceAccessor;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.AccessDeniedException;
 import java.util.Collection;
 
 public final class SourceAccessorImpl extends SourceAccessor {
@@ -61,6 +62,17 @@ public final class SourceAccessorImpl extends SourceAccessor {
         return tf.readAllBytes();
     }
 
+    @Override
+    protected long truffleFileSize(File file) throws IOException {
+        assert file instanceof TruffleFileFileAdapter : "File must be " + TruffleFileFileAdapter.class.getSimpleName();
+        final TruffleFile tf = ((TruffleFileFileAdapter) file).getTruffleFile();
+        final long size = tf.size();
+        if (!tf.isReadable()) {
+            throw new AccessDeniedException(tf.getPath());
+        }
+        return size;
+    }
+
     public static File asFile(TruffleFile truffleFile) {
         return new TruffleFileFileAdapter(truffleFile);
     }
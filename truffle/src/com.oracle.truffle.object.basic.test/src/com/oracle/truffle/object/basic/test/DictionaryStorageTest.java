@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.object.basic.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.HiddenKey;
+import com.oracle.truffle.api.object.Layout;
+import com.oracle.truffle.api.object.ObjectType;
+import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.object.basic.DefaultLayoutFactory;
+
+public class DictionaryStorageTest {
+
+    final Layout layout = new DefaultLayoutFactory().createLayout(Layout.newLayout());
+    final Shape rootShape = layout.createShape(new ObjectType());
+
+    private DynamicObject newDictionaryObject() {
+        DynamicObject object = rootShape.newInstance();
+        object.define("shapeProperty", 42);
+        Shape shape = object.getShape();
+        Shape dictionaryShape = shape.makeDictionaryStorageShape();
+        Assert.assertTrue(dictionaryShape.hasDictionaryStorage());
+        Assert.assertSame(dictionaryShape, shape.makeDictionaryStorageShape());
+        object.setShapeAndGrow(shape, dictionaryShape);
+        return object;
+    }
+
+    @Test
+    public void testDefineDoesNotChangeShape() {
+        DynamicObject object = newDictionaryObject();
+        Shape shape = object.getShape();
+        for (int i = 0; i < 1000; i++) {
+            object.define("key" + i, i);
+        }
+        Assert.assertSame(shape, object.getShape());
+        Assert.assertEquals(1001, object.size());
+        Assert.assertEquals(42, object.get("shapeProperty"));
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, object.get("key" + i));
+            Assert.assertTrue(object.containsKey("key" + i));
+        }
+        Assert.assertNull(object.get("missing"));
+        Assert.assertFalse(object.containsKey("missing"));
+        Assert.assertFalse(object.set("missing", 1));
+
+        Assert.assertTrue(object.set("key7", "seven"));
+        Assert.assertEquals("seven", object.get("key7"));
+        object.define("key8", null);
+        Assert.assertTrue(object.containsKey("key8"));
+        Assert.assertNull(object.get("key8", "default"));
+    }
+
+    @Test
+    public void testDeleteAndKeyOrder() {
+        DynamicObject object = newDictionaryObject();
+        List<Object> expectedKeys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            object.define(i, "value" + i);
+            expectedKeys.add(i);
+        }
+        for (int i = 0; i < 100; i += 3) {
+            Assert.assertTrue(object.delete(i));
+            Assert.assertFalse(object.delete(i));
+            expectedKeys.remove((Object) i);
+        }
+        // reinserting a removed key appends it
+        object.define(3, "again");
+        expectedKeys.add(3);
+        for (int i = 100; i < 200; i++) {
+            object.define(i, "value" + i);
+            expectedKeys.add(i);
+        }
+
+        Assert.assertEquals(expectedKeys, toList(object.getDictionaryStorageKeys()));
+        Assert.assertEquals(expectedKeys.size() + 1, object.size());
+        Assert.assertFalse(object.containsKey(6));
+        Assert.assertEquals("again", object.get(3));
+        Assert.assertEquals("value199", object.get(199));
+
+        Assert.assertTrue(object.delete("shapeProperty"));
+        Assert.assertTrue(object.getShape().hasDictionaryStorage());
+        Assert.assertFalse(object.containsKey("shapeProperty"));
+        Assert.assertEquals(expectedKeys, toList(object.getDictionaryStorageKeys()));
+    }
+
+    @Test
+    public void testFlagsAndHiddenKeysStayInShape() {
+        DynamicObject object = newDictionaryObject();
+        object.define("flagged", 1, 1);
+        Assert.assertNotNull(object.getShape().getProperty("flagged"));
+
+        object.define("moved", 2);
+        Assert.assertNull(object.getShape().getProperty("moved"));
+        object.define("moved", 3, 1);
+        Assert.assertNotNull(object.getShape().getProperty("moved"));
+        Assert.assertEquals(3, object.get("moved"));
+        Assert.assertFalse(toList(object.getDictionaryStorageKeys()).contains("moved"));
+
+        HiddenKey hiddenKey = new HiddenKey("hidden");
+        object.define(hiddenKey, 4);
+        Assert.assertNotNull(object.getShape().getProperty(hiddenKey));
+    }
+
+    @Test
+    public void testCopy() {
+        DynamicObject object = newDictionaryObject();
+        object.define("a", 1);
+        DynamicObject copy = object.copy(object.getShape());
+        copy.define("b", 2);
+        copy.set("a", 3);
+
+        Assert.assertEquals(1, object.get("a"));
+        Assert.assertFalse(object.containsKey("b"));
+        Assert.assertEquals(3, copy.get("a"));
+        Assert.assertEquals(2, copy.get("b"));
+    }
+
+    @Test
+    public void testSwitchOnPropertyLimit() {
+        DynamicObject object = rootShape.newInstance();
+        int count = 0;
+        while (!object.getShape().hasDictionaryStorage()) {
+            Assert.assertTrue("no switch to dictionary storage", count < 10_000);
+            object.define("key" + count, count);
+            count++;
+        }
+        Assert.assertTrue(count > 1);
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, object.get("key" + i));
+        }
+    }
+
+    @Test
+    public void testSwitchOnTransitionLimit() {
+        // keep the objects alive so that the transitions of the shape are not collected
+        List<DynamicObject> objects = new ArrayList<>();
+        DynamicObject object;
+        int count = 0;
+        do {
+            Assert.assertTrue("no switch to dictionary storage", count < 10_000);
+            object = rootShape.newInstance();
+            object.define("shapeProperty", 42);
+            object.define("key" + count, count);
+            objects.add(object);
+            count++;
+        } while (!object.getShape().hasDictionaryStorage());
+        Assert.assertTrue(count > 1);
+        Assert.assertEquals(count - 1, object.get("key" + (count - 1)));
+        Assert.assertEquals(42, object.get("shapeProperty"));
+        // objects that were not affected keep their own shapes
+        Assert.assertFalse(objects.get(0).getShape().hasDictionaryStorage());
+    }
+
+    private static List<Object> toList(Iterable<Object> keys) {
+        List<Object> list = new ArrayList<>();
+        for (Object key : keys) {
+            list.add(key);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.object.basic.test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.ElementKind;
+import com.oracle.truffle.api.object.Layout;
+import com.oracle.truffle.api.object.ObjectType;
+import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.object.basic.DefaultLayoutFactory;
+
+public class ElementStorageTest {
+
+    final Layout layout = new DefaultLayoutFactory().createLayout(Layout.newLayout());
+    final Shape rootShape = layout.createShape(new ObjectType());
+
+    @Test
+    public void testPackedElements() {
+        DynamicObject object = rootShape.newInstance();
+        Assert.assertEquals(ElementKind.EMPTY, object.getShape().getElementKind());
+        Assert.assertEquals(0, object.getElementCount());
+        Assert.assertEquals("default", object.getElement(0, "default"));
+
+        for (int i = 0; i < 100; i++) {
+            object.setElement(i, i);
+        }
+        Shape intShape = object.getShape();
+        Assert.assertEquals(ElementKind.INT, intShape.getElementKind());
+        Assert.assertEquals(100, object.getElementCount());
+        Assert.assertEquals(0, object.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i, object.getElement(i, null));
+        }
+        Assert.assertNull(object.getElement(100, null));
+        Assert.assertNull(object.getElement(-1, null));
+
+        object.setElement(3, "three");
+        Assert.assertEquals(ElementKind.OBJECT, object.getShape().getElementKind());
+        Assert.assertEquals("three", object.getElement(3, null));
+        Assert.assertEquals(4, object.getElement(4, null));
+
+        DynamicObject other = rootShape.newInstance();
+        other.setElement(0, 1);
+        Assert.assertSame(intShape, other.getShape());
+        Assert.assertSame(intShape, rootShape.changeElementKind(ElementKind.INT));
+    }
+
+    @Test
+    public void testElementKindGeneralization() {
+        Layout intToDoubleLayout = new DefaultLayoutFactory().createLayout(Layout.newLayout().setAllowedImplicitCasts(EnumSet.of(Layout.ImplicitCast.IntToDouble)));
+        DynamicObject object = intToDoubleLayout.createShape(new ObjectType()).newInstance();
+        object.setElement(0, 1);
+        object.setElement(1, 2.5);
+        Assert.assertEquals(ElementKind.DOUBLE, object.getShape().getElementKind());
+        Assert.assertEquals(1.0, object.getElement(0, null));
+        Assert.assertEquals(2.5, object.getElement(1, null));
+
+        DynamicObject exact = rootShape.newInstance();
+        exact.setElement(0, 1);
+        exact.setElement(1, 2.5);
+        Assert.assertEquals(ElementKind.OBJECT, exact.getShape().getElementKind());
+        Assert.assertEquals(1, exact.getElement(0, null));
+
+        try {
+            exact.getShape().changeElementKind(ElementKind.INT);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testHoleyAndSparseElements() {
+        DynamicObject object = rootShape.newInstance();
+        object.setElement(0, 0);
+        object.setElement(1, 1);
+        object.setElement(2, 2);
+        Assert.assertTrue(object.deleteElement(2));
+        Assert.assertEquals(ElementKind.INT, object.getShape().getElementKind());
+        Assert.assertEquals(2, object.getElementCount());
+
+        Assert.assertTrue(object.deleteElement(0));
+        Assert.assertFalse(object.deleteElement(0));
+        Assert.assertEquals(ElementKind.HOLEY, object.getShape().getElementKind());
+        Assert.assertEquals("hole", object.getElement(0, "hole"));
+        Assert.assertEquals(1, object.getElement(1, null));
+
+        object.setElement(10, 10);
+        Assert.assertEquals(ElementKind.HOLEY, object.getShape().getElementKind());
+        Assert.assertEquals(11, object.getElementCount());
+        Assert.assertTrue(object.deleteElement(10));
+        Assert.assertEquals(2, object.getElementCount());
+
+        object.setElement(1L << 40, "far");
+        Assert.assertEquals(ElementKind.SPARSE, object.getShape().getElementKind());
+        Assert.assertEquals((1L << 40) + 1, object.getElementCount());
+        Assert.assertEquals("far", object.getElement(1L << 40, null));
+        Assert.assertEquals(1, object.getElement(1, null));
+        Assert.assertEquals("hole", object.getElement(0, "hole"));
+        Assert.assertTrue(object.deleteElement(1L << 40));
+        Assert.assertEquals(2, object.getElementCount());
+    }
+
+    @Test
+    public void testElementsWithProperties() {
+        DynamicObject object = rootShape.newInstance();
+        object.define("a", 1);
+        object.setElement(0, "x");
+        object.define("b", 2);
+        Assert.assertEquals(2, object.size());
+        Assert.assertEquals(Arrays.asList("a", "b"), object.getShape().getKeyList());
+
+        object.delete("a");
+        Assert.assertEquals(ElementKind.OBJECT, object.getShape().getElementKind());
+        Assert.assertEquals("x", object.getElement(0, null));
+        Assert.assertEquals(2, object.get("b"));
+
+        DynamicObject copy = object.copy(object.getShape());
+        copy.setElement(0, "y");
+        Assert.assertEquals("x", object.getElement(0, null));
+        Assert.assertEquals("y", copy.getElement(0, null));
+    }
+}
@@ -162,4 +162,37 @@ public class LocationTest {
         object.delete("a");
         Assert.assertFalse(object.containsKey("a"));
     }
+
+    @Test
+    public void testDeleteMigratesExtensionArrays() {
+        DynamicObject object = rootShape.newInstance();
+        int count = 20;
+        for (int i = 0; i < count; i++) {
+            object.define("o" + i, "value" + i);
+            object.define("l" + i, (long) i << 33);
+            object.define("d" + i, i + 0.5);
+        }
+        object.delete("o0");
+        object.delete("l1");
+        object.delete("d2");
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i == 0 ? null : "value" + i, object.get("o" + i));
+            Assert.assertEquals(i == 1 ? null : (long) i << 33, object.get("l" + i));
+            Assert.assertEquals(i == 2 ? null : i + 0.5, object.get("d" + i));
+        }
+
+        DynamicObject other = rootShape.newInstance();
+        for (int i = 0; i < count; i++) {
+            other.define("o" + i, "other" + i);
+            other.define("l" + i, (long) -i);
+            other.define("d" + i, -i + 0.5);
+        }
+        other.delete("o0");
+        other.delete("l1");
+        other.delete("d2");
+        Assert.assertSame(object.getShape(), other.getShape());
+        Assert.assertEquals("other5", other.get("o5"));
+        Assert.assertEquals(-5L, other.get("l5"));
+        Assert.assertEquals(-4.5, other.get("d5"));
+    }
 }
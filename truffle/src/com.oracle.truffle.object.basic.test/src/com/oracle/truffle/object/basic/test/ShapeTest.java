@@ -22,6 +22,7 @@
  */
 package com.oracle.truffle.object.basic.test;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.oracle.truffle.api.object.Layout;
@@ -29,6 +30,7 @@ import com.oracle.truffle.api.object.Layout.ImplicitCast;
 import com.oracle.truffle.api.object.ObjectType;
 import com.oracle.truffle.api.object.Property;
 import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.object.ShapeImpl;
 import com.oracle.truffle.object.basic.DefaultLayoutFactory;
 
 public class ShapeTest {
@@ -73,4 +75,18 @@ public class ShapeTest {
                         "\"a\":int@0" +
                         "\n}", shapeWithExtArray);
     }
+
+    @Test
+    public void testCachedTransitions() {
+        Layout layout = new DefaultLayoutFactory().createLayout(Layout.newLayout());
+        ShapeImpl rootShape = (ShapeImpl) layout.createShape(new ObjectType());
+
+        Shape aInt = rootShape.defineProperty("a", 1, 0);
+        Assert.assertSame(aInt, rootShape.defineProperty("a", 1, 0));
+        Shape bInt = rootShape.defineProperty("b", 1, 0);
+        Assert.assertSame(bInt, rootShape.defineProperty("b", 1, 0));
+        Assert.assertEquals(2, rootShape.getTransitionMapForRead().size());
+        Assert.assertTrue(rootShape.getTransitionMapForRead().containsValue(aInt));
+        Assert.assertTrue(rootShape.getTransitionMapForRead().containsValue(bInt));
+    }
 }
@@ -22,6 +22,9 @@
  */
 package com.oracle.truffle.object.basic.test;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -171,4 +174,106 @@ public class SharedShapeTest {
             Assert.assertEquals(1, object.get("a"));
         }
     }
+
+    @Test
+    public void testMakeShared() {
+        DynamicObject object = rootShape.newInstance();
+        object.define("a", 1);
+        Shape unsharedShape = object.getShape();
+        Assert.assertTrue(object.makeShared());
+        Assert.assertTrue(object.getShape().isShared());
+        Assert.assertSame(unsharedShape.makeSharedShape(), object.getShape());
+        Assert.assertFalse(object.makeShared());
+        Assert.assertEquals(1, object.get("a"));
+    }
+
+    @Test
+    public void testConcurrentDefine() throws InterruptedException {
+        final DynamicObject object = rootShape.newInstance();
+        object.makeShared();
+        final int threadCount = 4;
+        final int propertyCount = 200;
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int id = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < propertyCount; i++) {
+                        object.define("p" + id + "_" + i, i);
+                        object.setElement(id * propertyCount + i, i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(threadCount * propertyCount, object.size());
+        Assert.assertEquals(threadCount * propertyCount, object.getElementCount());
+        for (int t = 0; t < threadCount; t++) {
+            for (int i = 0; i < propertyCount; i++) {
+                Assert.assertEquals(i, object.get("p" + t + "_" + i));
+                Assert.assertEquals(i, object.getElement(t * propertyCount + i, null));
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentElementReadWrite() throws InterruptedException {
+        final DynamicObject object = rootShape.newInstance();
+        object.makeShared();
+        final int elementCount = 2000;
+        final int readerCount = 3;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(new Runnable() {
+            public void run() {
+                for (int i = 0; i < elementCount; i++) {
+                    object.setElement(i, expectedElement(i, elementCount));
+                }
+                // a far index switches the storage to the sparse kind
+                object.setElement(elementCount * 1000L, "far");
+                done.set(true);
+            }
+        });
+        Thread[] readers = new Thread[readerCount];
+        for (int t = 0; t < readerCount; t++) {
+            readers[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        while (!done.get()) {
+                            long count = object.getElementCount();
+                            if (count > 0 && count <= elementCount) {
+                                int last = (int) (count - 1);
+                                Assert.assertEquals(expectedElement(last, elementCount), object.getElement(last, null));
+                            }
+                            Object first = object.getElement(0, null);
+                            Assert.assertTrue(first == null || first.equals(expectedElement(0, elementCount)));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            readers[t].start();
+        }
+        writer.start();
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        Assert.assertEquals(elementCount * 1000L + 1, object.getElementCount());
+        for (int i = 0; i < elementCount; i++) {
+            Assert.assertEquals(expectedElement(i, elementCount), object.getElement(i, null));
+        }
+    }
+
+    /** The second half of the elements are strings, forcing a change of the element kind. */
+    private static Object expectedElement(int index, int elementCount) {
+        return index < elementCount / 2 ? (Object) index : "e" + index;
+    }
 }
@@ -209,6 +209,20 @@ public class DynamicObjectBasic extends DynamicObjectImpl {
         return clone;
     }
 
+    @Override
+    protected final boolean copyObjectArrayRange(DynamicObject fromObject, int fromIndex, int toIndex, int length) {
+        Object[] fromArray = ((DynamicObjectBasic) fromObject).objext;
+        System.arraycopy(fromArray, fromIndex, objext, toIndex, length);
+        return true;
+    }
+
+    @Override
+    protected final boolean copyPrimitiveArrayRange(DynamicObject fromObject, int fromIndex, int toIndex, int length) {
+        long[] fromArray = ((DynamicObjectBasic) fromObject).primext;
+        System.arraycopy(fromArray, fromIndex, primext, toIndex, length);
+        return true;
+    }
+
     @Override
     protected final void reshape(ShapeImpl newShape) {
         reshapeCount.inc();
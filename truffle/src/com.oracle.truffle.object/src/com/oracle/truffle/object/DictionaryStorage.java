@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.object;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash table storing the properties of an object with a
+ * {@linkplain ShapeImpl#hasDictionaryStorage() dictionary storage shape}. The table itself is
+ * stored in a hidden property of the object.
+ *
+ * Entries are kept in insertion order in the {@link #keys} and {@link #values} arrays. The
+ * {@link #index} array maps hashes to entries using open addressing with linear probing. Removed
+ * entries leave a tombstone in both the index and the entry arrays until the next rehash.
+ */
+final class DictionaryStorage implements Cloneable {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int FREE = 0;
+    private static final int DELETED = -1;
+
+    /* entry index + 1, FREE or DELETED; length is a power of two */
+    private int[] index;
+    private Object[] keys;
+    private Object[] values;
+    /* number of used entries in keys and values, including removed ones */
+    private int used;
+    private int size;
+
+    DictionaryStorage() {
+        this.index = new int[INITIAL_CAPACITY * 2];
+        this.keys = new Object[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+    }
+
+    int size() {
+        return size;
+    }
+
+    Object get(Object key, Object defaultValue) {
+        int entry = findEntry(key);
+        return entry >= 0 ? values[entry] : defaultValue;
+    }
+
+    boolean containsKey(Object key) {
+        return findEntry(key) >= 0;
+    }
+
+    /**
+     * Sets the value of an existing entry.
+     *
+     * @return {@code true} if the key was found
+     */
+    boolean set(Object key, Object value) {
+        int entry = findEntry(key);
+        if (entry >= 0) {
+            values[entry] = value;
+            return true;
+        }
+        return false;
+    }
+
+    void put(Object key, Object value) {
+        int entry = findEntry(key);
+        if (entry >= 0) {
+            values[entry] = value;
+            return;
+        }
+        if (used == keys.length) {
+            rehash();
+        }
+        entry = used++;
+        keys[entry] = key;
+        values[entry] = value;
+        size++;
+        int mask = index.length - 1;
+        int slot = hash(key) & mask;
+        while (index[slot] > FREE) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = entry + 1;
+    }
+
+    boolean remove(Object key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return false;
+        }
+        int entry = index[slot] - 1;
+        index[slot] = DELETED;
+        keys[entry] = null;
+        values[entry] = null;
+        size--;
+        return true;
+    }
+
+    List<Object> getKeys() {
+        List<Object> keyList = new ArrayList<>(size);
+        for (int i = 0; i < used; i++) {
+            if (keys[i] != null) {
+                keyList.add(keys[i]);
+            }
+        }
+        return keyList;
+    }
+
+    DictionaryStorage copy() {
+        try {
+            DictionaryStorage copy = (DictionaryStorage) super.clone();
+            copy.index = index.clone();
+            copy.keys = keys.clone();
+            copy.values = values.clone();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int findEntry(Object key) {
+        int slot = findSlot(key);
+        return slot >= 0 ? index[slot] - 1 : -1;
+    }
+
+    private int findSlot(Object key) {
+        int mask = index.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int entry = index[slot];
+            if (entry == FREE) {
+                return -1;
+            } else if (entry != DELETED && key.equals(keys[entry - 1])) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Compacts the entry arrays, growing them if they are more than half full, and rebuilds the
+     * index without tombstones. The index is kept at twice the entry capacity, so it is at most
+     * half full.
+     */
+    private void rehash() {
+        int capacity = keys.length;
+        if (size >= capacity / 2) {
+            capacity *= 2;
+        }
+        Object[] newKeys = new Object[capacity];
+        Object[] newValues = new Object[capacity];
+        int[] newIndex = new int[capacity * 2];
+        int mask = newIndex.length - 1;
+        int newUsed = 0;
+        for (int i = 0; i < used; i++) {
+            Object key = keys[i];
+            if (key != null) {
+                newKeys[newUsed] = key;
+                newValues[newUsed] = values[i];
+                int slot = hash(key) & mask;
+                while (newIndex[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                newIndex[slot] = ++newUsed;
+            }
+        }
+        assert newUsed == size;
+        this.keys = newKeys;
+        this.values = newValues;
+        this.index = newIndex;
+        this.used = newUsed;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
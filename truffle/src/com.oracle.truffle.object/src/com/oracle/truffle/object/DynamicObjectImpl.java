@@ -24,21 +24,30 @@
  */
 package com.oracle.truffle.object;
 
-import java.util.Iterator;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Objects;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.interop.ForeignAccess;
 import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.ElementKind;
+import com.oracle.truffle.api.object.HiddenKey;
 import com.oracle.truffle.api.object.LocationFactory;
 import com.oracle.truffle.api.object.Property;
 import com.oracle.truffle.api.object.Shape;
 
+import sun.misc.Unsafe;
+
 /** @since 0.17 or earlier */
 public abstract class DynamicObjectImpl extends DynamicObject implements Cloneable {
     private ShapeImpl shape;
 
     /** @since 0.17 or earlier */
     public static final DebugCounter reshapeCount = DebugCounter.create("Reshape count");
+    private static final DebugCounter elementKindTransitionCount = DebugCounter.create("Element kind transition count");
+
+    private static final Unsafe UNSAFE = getUnsafe();
 
     /** @since 0.17 or earlier */
     protected DynamicObjectImpl(Shape shape) {
@@ -66,9 +75,40 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
     /** @since 0.17 or earlier */
     protected void setShape(Shape shape) {
         assert shape.getLayout().getType().isInstance(this);
+        if (shape.isShared()) {
+            // publish the stores to the object's storage before the shape describing them
+            UNSAFE.storeFence();
+        }
         this.shape = (ShapeImpl) shape;
     }
 
+    /**
+     * Reads the shape for a generic property read. For shared objects, orders the subsequent reads
+     * of the object's storage after the read of the shape, pairing with the fence in
+     * {@link #setShape(Shape)}.
+     */
+    private ShapeImpl getShapeForRead() {
+        ShapeImpl currentShape = getShape();
+        if (currentShape.isShared()) {
+            UNSAFE.loadFence();
+        }
+        return currentShape;
+    }
+
+    /** @since 1.0 */
+    @Override
+    @TruffleBoundary
+    public final boolean makeShared() {
+        synchronized (this) {
+            ShapeImpl oldShape = getShape();
+            if (oldShape.isShared()) {
+                return false;
+            }
+            setShapeAndGrow(oldShape, oldShape.makeSharedShape());
+            return true;
+        }
+    }
+
     /** @since 0.17 or earlier */
     protected abstract void initialize(Shape initialShape);
 
@@ -189,22 +229,43 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
         assert toShape.isRelated(fromShape);
         assert toShape.isValid();
         assert !fromShape.isShared();
-        PropertyMap fromMap = fromShape.getPropertyMap();
-        for (Iterator<Property> toMapIt = toShape.getPropertyMap().reverseOrderedValueIterator(); toMapIt.hasNext();) {
-            Property toProperty = toMapIt.next();
-            Property fromProperty = fromMap.get(toProperty.getKey());
-
-            // copy only if property has a location and it's not the same as the source location
-            if (!toProperty.getLocation().isValue() && !toProperty.getLocation().equals(fromProperty.getLocation())) {
-                toProperty.setInternal(this, fromProperty.get(fromObject, false));
-                assert toShape.isValid();
-            }
-        }
+        fromShape.getMigrationPlan(toShape).execute(this, fromObject);
+        assert toShape.isValid();
+    }
+
+    /**
+     * Copies a range of object extension array slots of another object with the same layout to
+     * this object, which must already have its new shape. Used to copy the properties of
+     * consecutive locations in bulk when migrating an object to a new shape.
+     *
+     * @return {@code false} if the properties need to be copied individually
+     * @since 1.0
+     */
+    protected boolean copyObjectArrayRange(DynamicObject fromObject, int fromIndex, int toIndex, int length) {
+        return false;
+    }
+
+    /**
+     * Like {@link #copyObjectArrayRange}, but for primitive extension array slots.
+     *
+     * @since 1.0
+     */
+    protected boolean copyPrimitiveArrayRange(DynamicObject fromObject, int fromIndex, int toIndex, int length) {
+        return false;
     }
 
     /** @since 0.17 or earlier */
     @TruffleBoundary
     public boolean changeFlags(Object key, int newFlags) {
+        if (getShape().isShared()) {
+            synchronized (this) {
+                return changeFlagsInternal(key, newFlags);
+            }
+        }
+        return changeFlagsInternal(key, newFlags);
+    }
+
+    private boolean changeFlagsInternal(Object key, int newFlags) {
         Shape oldShape = getShape();
         Property existing = oldShape.getProperty(key);
         if (existing != null) {
@@ -214,11 +275,43 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
                 this.setShape(newShape);
             }
             return true;
+        } else if (oldShape.hasDictionaryStorage()) {
+            DictionaryStorage storage = getDictionaryStorage(false);
+            if (storage == null || !storage.containsKey(key)) {
+                return false;
+            }
+            if (newFlags != 0) {
+                // moves the property from the dictionary storage to the shape
+                define(key, storage.get(key, null), newFlags);
+            }
+            return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * Returns the dictionary storage of this object, optionally creating it. The shape must have
+     * dictionary storage.
+     */
+    private DictionaryStorage getDictionaryStorage(boolean create) {
+        Property storageProperty = getShape().getProperty(ShapeImpl.DICTIONARY_STORAGE_KEY);
+        DictionaryStorage storage = (DictionaryStorage) storageProperty.get(this, false);
+        if (storage == null && create) {
+            storage = new DictionaryStorage();
+            storageProperty.setInternal(this, storage);
+        }
+        return storage;
+    }
+
+    /*
+     * Whether a key that is not part of the shape may be stored in the dictionary storage. Hidden
+     * properties always stay in the shape.
+     */
+    private static boolean isDictionaryStorageKey(ShapeImpl currentShape, Object key) {
+        return currentShape.hasDictionaryStorage() && !(key instanceof HiddenKey);
+    }
+
     /** @since 0.17 or earlier */
     public String debugDump(int level) {
         return debugDump(0, level);
@@ -251,9 +344,13 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
     @Override
     @TruffleBoundary
     public Object get(Object key, Object defaultValue) {
-        Property existing = getShape().getProperty(key);
+        ShapeImpl currentShape = getShapeForRead();
+        Property existing = currentShape.getProperty(key);
         if (existing != null) {
             return existing.get(this, false);
+        } else if (isDictionaryStorageKey(currentShape, key)) {
+            DictionaryStorage storage = getDictionaryStorage(false);
+            return storage != null ? storage.get(key, defaultValue) : defaultValue;
         } else {
             return defaultValue;
         }
@@ -263,10 +360,23 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
     @Override
     @TruffleBoundary
     public boolean set(Object key, Object value) {
-        Property existing = getShape().getProperty(key);
+        if (getShape().isShared()) {
+            synchronized (this) {
+                return setInternal(key, value);
+            }
+        }
+        return setInternal(key, value);
+    }
+
+    private boolean setInternal(Object key, Object value) {
+        ShapeImpl currentShape = getShape();
+        Property existing = currentShape.getProperty(key);
         if (existing != null) {
             existing.setGeneric(this, value, null);
             return true;
+        } else if (isDictionaryStorageKey(currentShape, key)) {
+            DictionaryStorage storage = getDictionaryStorage(false);
+            return storage != null && storage.set(key, value);
         } else {
             return false;
         }
@@ -283,7 +393,32 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
     @Override
     @TruffleBoundary
     public void define(Object key, Object value, int flags, LocationFactory locationFactory) {
+        if (getShape().isShared()) {
+            synchronized (this) {
+                defineInternal(key, value, flags, locationFactory);
+            }
+        } else {
+            defineInternal(key, value, flags, locationFactory);
+        }
+    }
+
+    private void defineInternal(Object key, Object value, int flags, LocationFactory locationFactory) {
         ShapeImpl oldShape = getShape();
+        if (flags == 0 && !(key instanceof HiddenKey) && oldShape.getProperty(key) == null && oldShape.getLayout().getStrategy().shouldUseDictionaryStorage(oldShape)) {
+            ShapeImpl newShape = oldShape.makeDictionaryStorageShape();
+            setShapeAndGrow(oldShape, newShape);
+            oldShape = newShape;
+        }
+        if (isDictionaryStorageKey(oldShape, key) && oldShape.getProperty(key) == null) {
+            if (flags == 0) {
+                getDictionaryStorage(true).put(key, value);
+                return;
+            }
+            DictionaryStorage storage = getDictionaryStorage(false);
+            if (storage != null) {
+                storage.remove(key);
+            }
+        }
         oldShape.getLayout().getStrategy().objectDefineProperty(this, key, value, flags, locationFactory, oldShape);
     }
 
@@ -291,11 +426,23 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
     @Override
     @TruffleBoundary
     public boolean delete(Object key) {
+        if (getShape().isShared()) {
+            synchronized (this) {
+                return deleteInternal(key);
+            }
+        }
+        return deleteInternal(key);
+    }
+
+    private boolean deleteInternal(Object key) {
         ShapeImpl oldShape = getShape();
         Property existing = oldShape.getProperty(key);
         if (existing != null) {
             oldShape.getLayout().getStrategy().objectRemoveProperty(this, existing, oldShape);
             return true;
+        } else if (isDictionaryStorageKey(oldShape, key)) {
+            DictionaryStorage storage = getDictionaryStorage(false);
+            return storage != null && storage.remove(key);
         } else {
             return false;
         }
@@ -304,7 +451,220 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
     /** @since 0.17 or earlier */
     @Override
     public int size() {
-        return getShape().getPropertyCount();
+        ShapeImpl currentShape = getShape();
+        int size = currentShape.getPropertyCount();
+        if (currentShape.hasDictionaryStorage()) {
+            DictionaryStorage storage = getDictionaryStorage(false);
+            if (storage != null) {
+                size += storage.size();
+            }
+        }
+        return size;
+    }
+
+    /** @since 1.0 */
+    @Override
+    @TruffleBoundary
+    public Iterable<Object> getDictionaryStorageKeys() {
+        if (getShape().hasDictionaryStorage()) {
+            DictionaryStorage storage = getDictionaryStorage(false);
+            if (storage != null) {
+                return storage.getKeys();
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /** @since 1.0 */
+    @Override
+    public long getElementCount() {
+        // the element count of a non-empty shape is stored before the shape is published
+        ShapeImpl currentShape = getShapeForRead();
+        if (currentShape.getElementKind() == ElementKind.EMPTY) {
+            return 0;
+        }
+        return getElementCount(currentShape);
+    }
+
+    private long getElementCount(ShapeImpl currentShape) {
+        return (long) currentShape.getElementCountProperty().get(this, currentShape);
+    }
+
+    private void setElementCount(ShapeImpl currentShape, long count) {
+        currentShape.getElementCountProperty().setInternal(this, count);
+    }
+
+    private Object getElements(ShapeImpl currentShape) {
+        return currentShape.getElementsProperty().get(this, currentShape);
+    }
+
+    /** @since 1.0 */
+    @Override
+    public Object getElement(long index, Object defaultValue) {
+        if (getShape().isShared()) {
+            return getElementShared(index, defaultValue);
+        }
+        return getElementInternal(index, defaultValue);
+    }
+
+    private Object getElementInternal(long index, Object defaultValue) {
+        ShapeImpl currentShape = getShape();
+        ElementKind kind = currentShape.getElementKind();
+        if (kind == ElementKind.EMPTY || index < 0 || index >= getElementCount(currentShape)) {
+            return defaultValue;
+        }
+        return ElementStorage.get(kind, getElements(currentShape), index, defaultValue);
+    }
+
+    /**
+     * Reads an element of a shared object without locking. Writers store the element storage
+     * before the element count and both before a new shape (see {@link #replaceElements}), so a
+     * reader sees at least the storage described by the shape and the count it reads. A racing
+     * writer may still replace the storage with one of another kind under the old shape, or clear
+     * the last element of an object storage; these rare cases, as well as sparse storage that is
+     * modified in place, fall back to reading under the object's lock.
+     */
+    private Object getElementShared(long index, Object defaultValue) {
+        ShapeImpl currentShape = getShapeForRead();
+        ElementKind kind = currentShape.getElementKind();
+        if (kind == ElementKind.EMPTY || index < 0) {
+            return defaultValue;
+        }
+        if (kind != ElementKind.SPARSE) {
+            long count = getElementCount(currentShape);
+            UNSAFE.loadFence();
+            Object elements = getElements(currentShape);
+            if (index >= count) {
+                return defaultValue;
+            }
+            if (ElementStorage.isArrayStorage(kind, elements) && index < ElementStorage.capacity(kind, elements)) {
+                Object value = ElementStorage.get(kind, elements, index, defaultValue);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return getElementLocked(index, defaultValue);
+    }
+
+    @TruffleBoundary
+    private synchronized Object getElementLocked(long index, Object defaultValue) {
+        return getElementInternal(index, defaultValue);
+    }
+
+    /** @since 1.0 */
+    @Override
+    public void setElement(long index, Object value) {
+        Objects.requireNonNull(value);
+        ShapeImpl currentShape = getShape();
+        ElementKind kind = currentShape.getElementKind();
+        // shared objects always take the slow path, which replaces the storage under the lock
+        if (index >= 0 && kind != ElementKind.SPARSE && !currentShape.isShared() && ElementStorage.canStore(currentShape.getLayout(), kind, value)) {
+            long count = getElementCount(currentShape);
+            Object elements = getElements(currentShape);
+            if (index < count) {
+                ElementStorage.set(kind, elements, index, value);
+                return;
+            } else if (index == count && index < ElementStorage.capacity(kind, elements)) {
+                ElementStorage.set(kind, elements, index, value);
+                setElementCount(currentShape, count + 1);
+                return;
+            }
+        }
+        setElementSlowPath(index, value);
+    }
+
+    /**
+     * Stores an element that requires growing the element storage or a more general element kind.
+     */
+    @TruffleBoundary
+    private void setElementSlowPath(long index, Object value) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        if (getShape().isShared()) {
+            synchronized (this) {
+                setElementInternal(index, value);
+            }
+        } else {
+            setElementInternal(index, value);
+        }
+    }
+
+    private void setElementInternal(long index, Object value) {
+        ShapeImpl oldShape = getShape();
+        ElementKind oldKind = oldShape.getElementKind();
+        long count = oldKind == ElementKind.EMPTY ? 0 : getElementCount(oldShape);
+        Object oldElements = oldKind == ElementKind.EMPTY ? null : getElements(oldShape);
+
+        long newCount = Math.max(count, index + 1);
+        ElementKind newKind = ElementStorage.kindForSet(oldShape.getLayout(), oldKind, count, index, value);
+        Object newElements = ElementStorage.convert(oldKind, oldElements, count, newKind, newCount);
+        ElementStorage.set(newKind, newElements, index, value);
+
+        replaceElements(oldShape, newKind, newElements, newCount);
+    }
+
+    /** @since 1.0 */
+    @Override
+    @TruffleBoundary
+    public boolean deleteElement(long index) {
+        if (getShape().isShared()) {
+            synchronized (this) {
+                return deleteElementInternal(index);
+            }
+        }
+        return deleteElementInternal(index);
+    }
+
+    private boolean deleteElementInternal(long index) {
+        ShapeImpl oldShape = getShape();
+        ElementKind oldKind = oldShape.getElementKind();
+        if (oldKind == ElementKind.EMPTY || index < 0) {
+            return false;
+        }
+        long count = getElementCount(oldShape);
+        Object elements = getElements(oldShape);
+        if (index >= count || ElementStorage.isHole(oldKind, elements, index)) {
+            return false;
+        }
+
+        if (index == count - 1) {
+            // removing the last element does not leave a hole
+            ElementStorage.clear(oldKind, elements, index);
+            setElementCount(oldShape, ElementStorage.trimmedCount(oldKind, elements, index));
+        } else {
+            ElementKind newKind = oldKind == ElementKind.SPARSE ? ElementKind.SPARSE : ElementKind.HOLEY;
+            Object newElements = ElementStorage.convert(oldKind, elements, count, newKind, count);
+            ElementStorage.clear(newKind, newElements, index);
+
+            replaceElements(oldShape, newKind, newElements, count);
+        }
+        return true;
+    }
+
+    /**
+     * Stores a new element storage and count, changing the shape if the element kind changes. The
+     * storage is stored before the count and both before the new shape is published, which lets
+     * {@link #getElementShared} read the elements of shared objects without locking.
+     */
+    private void replaceElements(ShapeImpl oldShape, ElementKind newKind, Object newElements, long newCount) {
+        ShapeImpl newShape = oldShape;
+        if (newKind != oldShape.getElementKind()) {
+            elementKindTransitionCount.inc();
+            newShape = oldShape.changeElementKind(newKind);
+            assert checkSetShape(oldShape, newShape);
+            growStore(oldShape, newShape);
+        }
+        newShape.getElementsProperty().setInternal(this, newElements);
+        if (oldShape.isShared()) {
+            UNSAFE.storeFence();
+        }
+        setElementCount(newShape, newCount);
+        if (newShape != oldShape) {
+            setShape(newShape);
+            assert checkExtensionArrayInvariants(newShape);
+        }
     }
 
     /** @since 0.17 or earlier */
@@ -322,7 +682,20 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
     /** @since 0.17 or earlier */
     @Override
     public final DynamicObject copy(Shape currentShape) {
-        return cloneWithShape(currentShape);
+        DynamicObject copy = cloneWithShape(currentShape);
+        if (currentShape.hasDictionaryStorage()) {
+            Property storageProperty = currentShape.getProperty(ShapeImpl.DICTIONARY_STORAGE_KEY);
+            DictionaryStorage storage = (DictionaryStorage) storageProperty.get(copy, false);
+            if (storage != null) {
+                storageProperty.setInternal(copy, storage.copy());
+            }
+        }
+        ElementKind elementKind = currentShape.getElementKind();
+        if (elementKind != ElementKind.EMPTY) {
+            Property elementsProperty = ((ShapeImpl) currentShape).getElementsProperty();
+            elementsProperty.setInternal(copy, ElementStorage.copy(elementKind, elementsProperty.get(copy, false)));
+        }
+        return copy;
     }
 
     /** @since 0.17 or earlier */
@@ -330,4 +703,18 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
     public ForeignAccess getForeignAccess() {
         return getShape().getForeignAccessFactory(this);
     }
+
+    private static Unsafe getUnsafe() {
+        try {
+            return Unsafe.getUnsafe();
+        } catch (SecurityException e) {
+        }
+        try {
+            Field theUnsafeInstance = Unsafe.class.getDeclaredField("theUnsafe");
+            theUnsafeInstance.setAccessible(true);
+            return (Unsafe) theUnsafeInstance.get(Unsafe.class);
+        } catch (Exception e) {
+            throw new RuntimeException("exception while trying to get Unsafe.theUnsafe via reflection:", e);
+        }
+    }
 }
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.object;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.ElementKind;
+
+/**
+ * Operations on the indexed element storage of an object, stored in a hidden property of the
+ * object. The representation of the storage depends on the {@link ElementKind} of the shape:
+ * {@code int[]}, {@code long[]}, {@code double[]} or {@code Object[]} for packed and holey
+ * elements, where holes are {@code null}, and a {@link TreeMap} from index to element for sparse
+ * elements.
+ */
+final class ElementStorage {
+    static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    private static final int MIN_CAPACITY = 8;
+
+    private ElementStorage() {
+    }
+
+    static ElementKind kindForValue(Object value) {
+        if (value instanceof Integer) {
+            return ElementKind.INT;
+        } else if (value instanceof Long) {
+            return ElementKind.LONG;
+        } else if (value instanceof Double) {
+            return ElementKind.DOUBLE;
+        } else {
+            return ElementKind.OBJECT;
+        }
+    }
+
+    /**
+     * Returns the least general element kind that can store the elements of the given kind and
+     * values of the given value kind.
+     */
+    static ElementKind generalize(LayoutImpl layout, ElementKind kind, ElementKind valueKind) {
+        if (kind == ElementKind.EMPTY || kind == valueKind) {
+            return valueKind;
+        }
+        switch (kind) {
+            case INT:
+                if ((valueKind == ElementKind.LONG && layout.isAllowedIntToLong()) || (valueKind == ElementKind.DOUBLE && layout.isAllowedIntToDouble())) {
+                    return valueKind;
+                }
+                return ElementKind.OBJECT;
+            case LONG:
+                return valueKind == ElementKind.INT && layout.isAllowedIntToLong() ? ElementKind.LONG : ElementKind.OBJECT;
+            case DOUBLE:
+                return valueKind == ElementKind.INT && layout.isAllowedIntToDouble() ? ElementKind.DOUBLE : ElementKind.OBJECT;
+            default:
+                return kind;
+        }
+    }
+
+    static boolean isMoreGeneral(ElementKind kind, ElementKind other) {
+        switch (other) {
+            case EMPTY:
+                return true;
+            case INT:
+                return kind != ElementKind.EMPTY;
+            case LONG:
+            case DOUBLE:
+                return kind == other || kind.compareTo(ElementKind.OBJECT) >= 0;
+            default:
+                return kind.compareTo(other) >= 0;
+        }
+    }
+
+    /**
+     * Whether the value can be stored in a storage of the given kind without changing the kind.
+     */
+    static boolean canStore(LayoutImpl layout, ElementKind kind, Object value) {
+        return kind != ElementKind.EMPTY && generalize(layout, kind, kindForValue(value)) == kind;
+    }
+
+    /**
+     * Returns the element kind for setting the element at the given index of a storage with the
+     * given kind and element count.
+     */
+    static ElementKind kindForSet(LayoutImpl layout, ElementKind kind, long count, long index, Object value) {
+        if (kind == ElementKind.SPARSE || index >= MAX_ARRAY_LENGTH || index - count > ObjectStorageOptions.SparseElementsGapLimit) {
+            return ElementKind.SPARSE;
+        } else if (kind == ElementKind.HOLEY || index > count) {
+            return ElementKind.HOLEY;
+        } else {
+            return generalize(layout, kind, kindForValue(value));
+        }
+    }
+
+    /**
+     * Whether {@code elements} is an array based storage of the given kind.
+     */
+    static boolean isArrayStorage(ElementKind kind, Object elements) {
+        switch (kind) {
+            case INT:
+                return elements instanceof int[];
+            case LONG:
+                return elements instanceof long[];
+            case DOUBLE:
+                return elements instanceof double[];
+            case OBJECT:
+            case HOLEY:
+                return elements instanceof Object[];
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the capacity of array based storages, or 0 for sparse storage.
+     */
+    static int capacity(ElementKind kind, Object elements) {
+        switch (kind) {
+            case INT:
+                return ((int[]) elements).length;
+            case LONG:
+                return ((long[]) elements).length;
+            case DOUBLE:
+                return ((double[]) elements).length;
+            case OBJECT:
+            case HOLEY:
+                return ((Object[]) elements).length;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Reads the element at the given index, which must be less than the element count.
+     */
+    static Object get(ElementKind kind, Object elements, long index, Object defaultValue) {
+        switch (kind) {
+            case INT:
+                return ((int[]) elements)[(int) index];
+            case LONG:
+                return ((long[]) elements)[(int) index];
+            case DOUBLE:
+                return ((double[]) elements)[(int) index];
+            case OBJECT:
+                return ((Object[]) elements)[(int) index];
+            case HOLEY:
+                Object value = ((Object[]) elements)[(int) index];
+                return value != null ? value : defaultValue;
+            case SPARSE:
+                return sparseGet(elements, index, defaultValue);
+            default:
+                return defaultValue;
+        }
+    }
+
+    /**
+     * Stores the element at the given index, which must be less than the capacity of the storage.
+     * The value must be {@linkplain #canStore storable} in the storage.
+     */
+    static void set(ElementKind kind, Object elements, long index, Object value) {
+        switch (kind) {
+            case INT:
+                ((int[]) elements)[(int) index] = (int) value;
+                break;
+            case LONG:
+                ((long[]) elements)[(int) index] = value instanceof Integer ? (int) value : (long) value;
+                break;
+            case DOUBLE:
+                ((double[]) elements)[(int) index] = value instanceof Integer ? (int) value : (double) value;
+                break;
+            case OBJECT:
+            case HOLEY:
+                ((Object[]) elements)[(int) index] = value;
+                break;
+            case SPARSE:
+                sparsePut(elements, index, value);
+                break;
+            default:
+                throw new IllegalArgumentException(kind.name());
+        }
+    }
+
+    /**
+     * Removes the element at the given index. Array based storages must be {@link ElementKind#HOLEY
+     * holey} unless the index is the last one.
+     */
+    static void clear(ElementKind kind, Object elements, long index) {
+        if (kind == ElementKind.SPARSE) {
+            sparseRemove(elements, index);
+        } else if (kind == ElementKind.OBJECT || kind == ElementKind.HOLEY) {
+            ((Object[]) elements)[(int) index] = null;
+        }
+    }
+
+    static boolean isHole(ElementKind kind, Object elements, long index) {
+        if (kind == ElementKind.SPARSE) {
+            return sparseGet(elements, index, null) == null;
+        } else if (kind == ElementKind.HOLEY) {
+            return ((Object[]) elements)[(int) index] == null;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the element count after removing the last element of a storage with holes, i.e. one
+     * more than the index of the last remaining element.
+     */
+    @TruffleBoundary
+    static long trimmedCount(ElementKind kind, Object elements, long count) {
+        if (kind == ElementKind.SPARSE) {
+            TreeMap<Long, Object> map = castSparse(elements);
+            return map.isEmpty() ? 0 : map.lastKey() + 1;
+        } else if (kind == ElementKind.HOLEY) {
+            Object[] array = (Object[]) elements;
+            int newCount = (int) count;
+            while (newCount > 0 && array[newCount - 1] == null) {
+                newCount--;
+            }
+            return newCount;
+        } else {
+            return count;
+        }
+    }
+
+    /**
+     * Creates a storage of the given kind containing the elements of the old storage, with at least
+     * the given capacity if array based.
+     */
+    @TruffleBoundary
+    static Object convert(ElementKind oldKind, Object oldElements, long count, ElementKind newKind, long minCapacity) {
+        if (newKind == ElementKind.SPARSE) {
+            TreeMap<Long, Object> map;
+            if (oldKind == ElementKind.SPARSE) {
+                map = castSparse(oldElements);
+            } else {
+                map = new TreeMap<>();
+                for (long i = 0; i < count; i++) {
+                    Object value = get(oldKind, oldElements, i, null);
+                    if (value != null) {
+                        map.put(i, value);
+                    }
+                }
+            }
+            return map;
+        }
+        assert minCapacity <= MAX_ARRAY_LENGTH && count <= minCapacity;
+        int oldCapacity = oldKind == ElementKind.EMPTY ? 0 : capacity(oldKind, oldElements);
+        int capacity = (int) Math.max(minCapacity, Math.min(MAX_ARRAY_LENGTH, Math.max(MIN_CAPACITY, oldCapacity + (oldCapacity >> 1))));
+        if (oldKind == newKind || (oldKind == ElementKind.OBJECT && newKind == ElementKind.HOLEY)) {
+            if (oldCapacity >= minCapacity) {
+                return oldElements;
+            }
+            return grow(oldKind, oldElements, capacity);
+        }
+        int length = (int) count;
+        switch (newKind) {
+            case INT: {
+                int[] array = new int[capacity];
+                for (int i = 0; i < length; i++) {
+                    array[i] = (int) get(oldKind, oldElements, i, null);
+                }
+                return array;
+            }
+            case LONG: {
+                long[] array = new long[capacity];
+                for (int i = 0; i < length; i++) {
+                    array[i] = ((Number) get(oldKind, oldElements, i, null)).longValue();
+                }
+                return array;
+            }
+            case DOUBLE: {
+                double[] array = new double[capacity];
+                for (int i = 0; i < length; i++) {
+                    array[i] = ((Number) get(oldKind, oldElements, i, null)).doubleValue();
+                }
+                return array;
+            }
+            case OBJECT:
+            case HOLEY: {
+                Object[] array = new Object[capacity];
+                for (int i = 0; i < length; i++) {
+                    array[i] = get(oldKind, oldElements, i, null);
+                }
+                return array;
+            }
+            default:
+                throw new IllegalArgumentException(newKind.name());
+        }
+    }
+
+    private static Object grow(ElementKind kind, Object elements, int capacity) {
+        switch (kind) {
+            case INT:
+                return Arrays.copyOf((int[]) elements, capacity);
+            case LONG:
+                return Arrays.copyOf((long[]) elements, capacity);
+            case DOUBLE:
+                return Arrays.copyOf((double[]) elements, capacity);
+            case OBJECT:
+            case HOLEY:
+                return Arrays.copyOf((Object[]) elements, capacity);
+            default:
+                throw new IllegalArgumentException(kind.name());
+        }
+    }
+
+    @TruffleBoundary
+    static Object copy(ElementKind kind, Object elements) {
+        switch (kind) {
+            case INT:
+                return ((int[]) elements).clone();
+            case LONG:
+                return ((long[]) elements).clone();
+            case DOUBLE:
+                return ((double[]) elements).clone();
+            case OBJECT:
+            case HOLEY:
+                return ((Object[]) elements).clone();
+            case SPARSE:
+                return new TreeMap<>(castSparse(elements));
+            default:
+                return elements;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TreeMap<Long, Object> castSparse(Object elements) {
+        return (TreeMap<Long, Object>) elements;
+    }
+
+    @TruffleBoundary
+    private static Object sparseGet(Object elements, long index, Object defaultValue) {
+        Object value = castSparse(elements).get(index);
+        return value != null ? value : defaultValue;
+    }
+
+    @TruffleBoundary
+    private static void sparsePut(Object elements, long index, Object value) {
+        castSparse(elements).put(index, value);
+    }
+
+    @TruffleBoundary
+    private static void sparseRemove(Object elements, long index) {
+        castSparse(elements).remove(index);
+    }
+}
@@ -36,7 +36,9 @@ import com.oracle.truffle.api.object.Shape;
 import com.oracle.truffle.object.Locations.DeclaredLocation;
 import com.oracle.truffle.object.ShapeImpl.BaseAllocator;
 import com.oracle.truffle.object.Transition.AddPropertyTransition;
+import com.oracle.truffle.object.Transition.DictionaryStorageTransition;
 import com.oracle.truffle.object.Transition.DirectReplacePropertyTransition;
+import com.oracle.truffle.object.Transition.ElementKindTransition;
 import com.oracle.truffle.object.Transition.ObjectTypeTransition;
 import com.oracle.truffle.object.Transition.RemovePropertyTransition;
 import com.oracle.truffle.object.Transition.ReservePrimitiveArrayTransition;
@@ -256,6 +258,28 @@ public abstract class LayoutStrategy {
         return newShape;
     }
 
+    /**
+     * Decides whether an object adding a new property to the given shape should switch to
+     * {@linkplain ShapeImpl#makeDictionaryStorageShape() dictionary storage}, keeping further
+     * properties in a hash table instead of adding shapes. Typical for objects used as dictionaries
+     * with generated property names are shapes with many successors or many properties. Only
+     * properties without flags are moved to the dictionary storage, and shared shapes never
+     * switch, since the properties in the dictionary storage are not part of the shape.
+     *
+     * @since 1.0
+     */
+    protected boolean shouldUseDictionaryStorage(ShapeImpl shape) {
+        if (shape.hasDictionaryStorage() || shape.isShared()) {
+            return false;
+        }
+        int transitionLimit = ObjectStorageOptions.DictionaryStorageTransitionLimit;
+        if (transitionLimit > 0 && shape.getParent() != null && shape.getTransitionCount() >= transitionLimit) {
+            return true;
+        }
+        int propertyLimit = ObjectStorageOptions.DictionaryStoragePropertyLimit;
+        return propertyLimit > 0 && shape.getPropertyCount() >= propertyLimit;
+    }
+
     /** @since 0.17 or earlier */
     protected ShapeImpl applyTransition(ShapeImpl shape, Transition transition, boolean append) {
         if (transition instanceof AddPropertyTransition) {
@@ -270,6 +294,10 @@ public abstract class LayoutStrategy {
             return shape.changeType(((ObjectTypeTransition) transition).getObjectType());
         } else if (transition instanceof ReservePrimitiveArrayTransition) {
             return shape.reservePrimitiveExtensionArray();
+        } else if (transition instanceof DictionaryStorageTransition) {
+            return shape.makeDictionaryStorageShape();
+        } else if (transition instanceof ElementKindTransition) {
+            return shape.changeElementKind(((ElementKindTransition) transition).getElementKind());
         } else if (transition instanceof DirectReplacePropertyTransition) {
             Property oldProperty = ((DirectReplacePropertyTransition) transition).getPropertyBefore();
             Property newProperty = ((DirectReplacePropertyTransition) transition).getPropertyAfter();
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.object;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.Location;
+import com.oracle.truffle.api.object.Property;
+import com.oracle.truffle.api.object.TypedLocation;
+import com.oracle.truffle.object.LocationImpl.LocationVisitor;
+
+/**
+ * Precomputed plan for copying the properties of an object from one shape to another, used when
+ * an object is migrated to a new shape, e.g. after a property has been removed. Properties whose
+ * locations differ are copied; properties stored in consecutive extension array slots in both
+ * shapes are grouped into ranges that are copied in bulk.
+ *
+ * @see DynamicObjectImpl#copyObjectArrayRange(DynamicObject, int, int, int)
+ * @see DynamicObjectImpl#copyPrimitiveArrayRange(DynamicObject, int, int, int)
+ */
+final class MigrationPlan {
+    private static final int OTHER = 0;
+    private static final int OBJECT_ARRAY = 1;
+    private static final int PRIMITIVE_ARRAY = 2;
+
+    private final WeakReference<ShapeImpl> toShape;
+    /* pairs of properties to copy; pairs of a range are consecutive and precede the others */
+    private final Property[] fromProperties;
+    private final Property[] toProperties;
+    private final Range[] ranges;
+    /* index of the first pair that is not part of a range */
+    private final int individualStart;
+
+    private MigrationPlan(ShapeImpl toShape, Property[] fromProperties, Property[] toProperties, Range[] ranges, int individualStart) {
+        this.toShape = new WeakReference<>(toShape);
+        this.fromProperties = fromProperties;
+        this.toProperties = toProperties;
+        this.ranges = ranges;
+        this.individualStart = individualStart;
+    }
+
+    boolean isFor(ShapeImpl shape) {
+        return toShape.get() == shape;
+    }
+
+    int getPropertyCount() {
+        return toProperties.length;
+    }
+
+    int getRangeCount() {
+        return ranges.length;
+    }
+
+    static MigrationPlan create(ShapeImpl fromShape, ShapeImpl toShape) {
+        PropertyMap fromMap = fromShape.getPropertyMap();
+        List<Slot> rangeSlots = new ArrayList<>();
+        List<Slot> individualSlots = new ArrayList<>();
+        for (Iterator<Property> toMapIt = toShape.getPropertyMap().reverseOrderedValueIterator(); toMapIt.hasNext();) {
+            Property toProperty = toMapIt.next();
+            Property fromProperty = fromMap.get(toProperty.getKey());
+
+            // copy only if property has a location and it's not the same as the source location
+            if (!toProperty.getLocation().isValue() && !toProperty.getLocation().equals(fromProperty.getLocation())) {
+                Slot from = Slot.of(fromProperty);
+                Slot to = Slot.of(toProperty);
+                from.target = to;
+                if (from.kind != OTHER && from.kind == to.kind && from.count == to.count && isSameRepresentation(fromProperty.getLocation(), toProperty.getLocation())) {
+                    rangeSlots.add(from);
+                } else {
+                    individualSlots.add(from);
+                }
+            }
+        }
+
+        Collections.sort(rangeSlots, new Comparator<Slot>() {
+            public int compare(Slot a, Slot b) {
+                return a.kind != b.kind ? Integer.compare(a.kind, b.kind) : Integer.compare(a.index, b.index);
+            }
+        });
+
+        int pairCount = rangeSlots.size() + individualSlots.size();
+        Property[] fromProperties = new Property[pairCount];
+        Property[] toProperties = new Property[pairCount];
+        List<Range> ranges = new ArrayList<>();
+        int i = 0;
+        Range current = null;
+        for (Slot from : rangeSlots) {
+            Slot to = from.target;
+            if (current != null && current.primitive == (from.kind == PRIMITIVE_ARRAY) && current.fromIndex + current.length == from.index && current.toIndex + current.length == to.index) {
+                current.length += from.count;
+                current.propertyCount++;
+            } else {
+                current = new Range(from.kind == PRIMITIVE_ARRAY, from.index, to.index, from.count, i);
+                ranges.add(current);
+            }
+            fromProperties[i] = from.property;
+            toProperties[i] = to.property;
+            i++;
+        }
+        int individualStart = i;
+        for (Slot from : individualSlots) {
+            fromProperties[i] = from.property;
+            toProperties[i] = from.target.property;
+            i++;
+        }
+        return new MigrationPlan(toShape, fromProperties, toProperties, ranges.toArray(new Range[ranges.size()]), individualStart);
+    }
+
+    private static boolean isSameRepresentation(Location fromLocation, Location toLocation) {
+        if (fromLocation.getClass() != toLocation.getClass()) {
+            return false;
+        }
+        if (fromLocation instanceof TypedLocation) {
+            return ((TypedLocation) fromLocation).getType() == ((TypedLocation) toLocation).getType();
+        }
+        return true;
+    }
+
+    /**
+     * Copies the planned properties of {@code fromObject} to {@code toObject}, which already has
+     * the target shape.
+     */
+    void execute(DynamicObjectImpl toObject, DynamicObject fromObject) {
+        for (Range range : ranges) {
+            boolean copied;
+            if (range.primitive) {
+                copied = toObject.copyPrimitiveArrayRange(fromObject, range.fromIndex, range.toIndex, range.length);
+            } else {
+                copied = toObject.copyObjectArrayRange(fromObject, range.fromIndex, range.toIndex, range.length);
+            }
+            if (!copied) {
+                copyProperties(toObject, fromObject, range.firstProperty, range.firstProperty + range.propertyCount);
+            }
+        }
+        copyProperties(toObject, fromObject, individualStart, toProperties.length);
+
+        if (ObjectStorageOptions.Profile) {
+            ShapeProfiler.getInstance().trackMigration(this);
+        }
+    }
+
+    private void copyProperties(DynamicObjectImpl toObject, DynamicObject fromObject, int start, int end) {
+        for (int i = start; i < end; i++) {
+            toProperties[i].setInternal(toObject, fromProperties[i].get(fromObject, false));
+        }
+    }
+
+    private static final class Range {
+        final boolean primitive;
+        final int fromIndex;
+        final int toIndex;
+        /* number of array slots */
+        int length;
+        final int firstProperty;
+        int propertyCount;
+
+        Range(boolean primitive, int fromIndex, int toIndex, int length, int firstProperty) {
+            this.primitive = primitive;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.length = length;
+            this.firstProperty = firstProperty;
+            this.propertyCount = 1;
+        }
+    }
+
+    /**
+     * Extension array slots used by the location of a property, if it is stored in exactly one
+     * extension array.
+     */
+    private static final class Slot implements LocationVisitor {
+        final Property property;
+        int kind = OTHER;
+        int index;
+        int count;
+        int visits;
+        Slot target;
+
+        private Slot(Property property) {
+            this.property = property;
+        }
+
+        static Slot of(Property property) {
+            Slot slot = new Slot(property);
+            Location location = property.getLocation();
+            if (location instanceof LocationImpl) {
+                ((LocationImpl) location).accept(slot);
+            }
+            if (slot.visits != 1) {
+                slot.kind = OTHER;
+            }
+            return slot;
+        }
+
+        public void visitObjectField(int fieldIndex, int fieldCount) {
+            visits++;
+        }
+
+        public void visitObjectArray(int arrayIndex, int arrayCount) {
+            visit(OBJECT_ARRAY, arrayIndex, arrayCount);
+        }
+
+        public void visitPrimitiveField(int fieldIndex, int fieldCount) {
+            visits++;
+        }
+
+        public void visitPrimitiveArray(int arrayIndex, int arrayCount) {
+            visit(PRIMITIVE_ARRAY, arrayIndex, arrayCount);
+        }
+
+        private void visit(int arrayKind, int arrayIndex, int arrayCount) {
+            visits++;
+            kind = arrayKind;
+            index = arrayIndex;
+            count = arrayCount;
+        }
+    }
+}
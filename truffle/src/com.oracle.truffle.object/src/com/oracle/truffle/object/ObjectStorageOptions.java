@@ -53,6 +53,22 @@ public final class ObjectStorageOptions {
 
     static final boolean TriePropertyMap = booleanOption(OPTION_PREFIX + "TriePropertyMap", true);
 
+    /**
+     * Objects adding a new property to a (non-root) shape that already has this many live
+     * transitions switch to dictionary storage. 0 disables the limit.
+     */
+    static final int DictionaryStorageTransitionLimit = Integer.getInteger(OPTION_PREFIX + "DictionaryStorageTransitionLimit", 128);
+    /**
+     * Objects adding a new property to a shape that already has this many properties switch to
+     * dictionary storage. 0 disables the limit.
+     */
+    static final int DictionaryStoragePropertyLimit = Integer.getInteger(OPTION_PREFIX + "DictionaryStoragePropertyLimit", 1024);
+    /**
+     * Setting an indexed element more than this many indices past the last element switches the
+     * element storage of the object to a sparse map.
+     */
+    static final int SparseElementsGapLimit = Integer.getInteger(OPTION_PREFIX + "SparseElementsGapLimit", 1024);
+
     // Debug options (should be final)
     /** @since 0.17 or earlier */
     public static final boolean TraceReshape = booleanOption(OPTION_PREFIX + "TraceReshape", false);
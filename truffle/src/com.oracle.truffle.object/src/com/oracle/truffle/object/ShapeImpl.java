@@ -24,11 +24,12 @@
  */
 package com.oracle.truffle.object;
 
-import java.util.AbstractMap;
+import java.lang.ref.WeakReference;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
@@ -47,6 +48,8 @@ import com.oracle.truffle.api.interop.ForeignAccess;
 import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.object.DynamicObjectFactory;
+import com.oracle.truffle.api.object.ElementKind;
+import com.oracle.truffle.api.object.HiddenKey;
 import com.oracle.truffle.api.object.Layout;
 import com.oracle.truffle.api.object.Location;
 import com.oracle.truffle.api.object.LocationFactory;
@@ -60,6 +63,8 @@ import com.oracle.truffle.object.Locations.ConstantLocation;
 import com.oracle.truffle.object.Locations.DeclaredLocation;
 import com.oracle.truffle.object.Locations.ValueLocation;
 import com.oracle.truffle.object.Transition.AddPropertyTransition;
+import com.oracle.truffle.object.Transition.DictionaryStorageTransition;
+import com.oracle.truffle.object.Transition.ElementKindTransition;
 import com.oracle.truffle.object.Transition.ObjectTypeTransition;
 import com.oracle.truffle.object.Transition.PropertyTransition;
 import com.oracle.truffle.object.Transition.ShareShapeTransition;
@@ -110,6 +115,21 @@ public abstract class ShapeImpl extends Shape {
     /** @since 0.18 */
     protected final boolean shared;
 
+    private final boolean dictionaryStorage;
+
+    /** Hidden key of the property holding the {@link DictionaryStorage} of an object. */
+    static final HiddenKey DICTIONARY_STORAGE_KEY = new HiddenKey("dictionaryStorage");
+
+    private final ElementKind elementKind;
+    /* hidden properties holding the element storage and count; null for EMPTY element kind */
+    private final Property elementsProperty;
+    private final Property elementCountProperty;
+
+    /** Hidden key of the property holding the {@link ElementStorage} of an object. */
+    static final HiddenKey ELEMENTS_KEY = new HiddenKey("elements");
+    /** Hidden key of the property holding the element count of an object. */
+    static final HiddenKey ELEMENT_COUNT_KEY = new HiddenKey("elementCount");
+
     /** @since 0.17 or earlier */
     protected final int depth;
     /** @since 0.17 or earlier */
@@ -121,11 +141,12 @@ public abstract class ShapeImpl extends Shape {
     @CompilationFinal protected volatile Assumption leafAssumption;
 
     /**
-     * Shape transition map; lazily initialized. One of:
+     * Shape transition map; lazily initialized. Successor shapes are only weakly referenced, so
+     * that shapes no longer used by any object can be collected. One of:
      * <ol>
      * <li>{@code null}: empty map
-     * <li>{@link Map.Entry}: immutable single entry map
-     * <li>{@link Map}: mutable multiple entry map
+     * <li>{@link TransitionEntry}: immutable single entry map
+     * <li>{@link TransitionMap}: mutable multiple entry map
      * </ol>
      *
      * @see #getTransitionMapForRead()
@@ -135,6 +156,9 @@ public abstract class ShapeImpl extends Shape {
 
     private final Transition transitionFromParent;
 
+    /** Last plan used to migrate objects from this shape to another one. */
+    private volatile MigrationPlan migrationPlan;
+
     private static final AtomicReferenceFieldUpdater<ShapeImpl, Object> TRANSITION_MAP_UPDATER = AtomicReferenceFieldUpdater.newUpdater(ShapeImpl.class, Object.class, "transitionMap");
     private static final AtomicReferenceFieldUpdater<ShapeImpl, Assumption> LEAF_ASSUMPTION_UPDATER = AtomicReferenceFieldUpdater.newUpdater(ShapeImpl.class, Assumption.class, "leafAssumption");
 
@@ -163,6 +187,14 @@ public abstract class ShapeImpl extends Shape {
         this.primitiveArrayCapacity = capacityFromSize(primitiveArraySize);
         this.hasPrimitiveArray = hasPrimitiveArray;
         this.shared = transitionFromParent instanceof ShareShapeTransition || (parent != null && parent.shared);
+        this.dictionaryStorage = transitionFromParent instanceof DictionaryStorageTransition || (parent != null && parent.dictionaryStorage);
+        if (transitionFromParent instanceof ElementKindTransition) {
+            this.elementKind = ((ElementKindTransition) transitionFromParent).getElementKind();
+        } else {
+            this.elementKind = parent != null ? parent.elementKind : ElementKind.EMPTY;
+        }
+        this.elementsProperty = elementKind != ElementKind.EMPTY ? propertyMap.get(ELEMENTS_KEY) : null;
+        this.elementCountProperty = elementKind != ElementKind.EMPTY ? propertyMap.get(ELEMENT_COUNT_KEY) : null;
 
         if (parent != null) {
             this.propertyCount = makePropertyCount(parent, propertyMap);
@@ -302,62 +334,138 @@ public abstract class ShapeImpl extends Shape {
         addTransitionInternal(transition, next);
     }
 
-    @SuppressWarnings("unchecked")
     private void addTransitionInternal(Transition transition, ShapeImpl successor) {
+        TransitionEntry newEntry = new TransitionEntry(transition, successor);
         Object prev;
         Object next;
         do {
             prev = TRANSITION_MAP_UPDATER.get(this);
             if (prev == null) {
                 invalidateLeafAssumption();
-                next = new AbstractMap.SimpleImmutableEntry<>(transition, successor);
-            } else if (prev instanceof Map.Entry<?, ?>) {
-                Map.Entry<Transition, ShapeImpl> entry = (Map.Entry<Transition, ShapeImpl>) prev;
-                ConcurrentHashMap<Transition, ShapeImpl> map = new ConcurrentHashMap<>();
-                map.put(entry.getKey(), entry.getValue());
-                map.put(transition, successor);
-                next = map;
+                next = newEntry;
+            } else if (prev instanceof TransitionEntry) {
+                TransitionEntry entry = (TransitionEntry) prev;
+                if (entry.get() == null) {
+                    // the only successor has been collected, replace it
+                    next = newEntry;
+                } else {
+                    TransitionMap map = new TransitionMap();
+                    map.put(entry.transition, entry);
+                    map.put(transition, newEntry);
+                    next = map;
+                }
             } else {
-                assert prev instanceof Map<?, ?>;
-                Map<Transition, ShapeImpl> map = (Map<Transition, ShapeImpl>) prev;
-                map.put(transition, successor);
+                ((TransitionMap) prev).putTransition(newEntry);
                 break;
             }
         } while (!TRANSITION_MAP_UPDATER.compareAndSet(this, prev, next));
     }
 
-    /** @since 0.17 or earlier */
-    @SuppressWarnings("unchecked")
+    /**
+     * Returns a snapshot of the transitions whose successor shapes are still alive.
+     *
+     * @since 0.17 or earlier
+     */
     public final Map<Transition, ShapeImpl> getTransitionMapForRead() {
         Object trans = transitionMap;
         if (trans == null) {
             return Collections.<Transition, ShapeImpl> emptyMap();
-        } else if (trans instanceof Map.Entry<?, ?>) {
-            Map.Entry<Transition, ShapeImpl> entry = (Map.Entry<Transition, ShapeImpl>) trans;
-            return Collections.singletonMap(entry.getKey(), entry.getValue());
+        } else if (trans instanceof TransitionEntry) {
+            TransitionEntry entry = (TransitionEntry) trans;
+            ShapeImpl successor = entry.get();
+            if (successor == null) {
+                return Collections.<Transition, ShapeImpl> emptyMap();
+            }
+            return Collections.singletonMap(entry.transition, successor);
+        } else {
+            TransitionMap map = (TransitionMap) trans;
+            Map<Transition, ShapeImpl> snapshot = new HashMap<>(map.size());
+            for (TransitionEntry entry : map.values()) {
+                ShapeImpl successor = entry.get();
+                if (successor != null) {
+                    snapshot.put(entry.transition, successor);
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    /* Returns the number of cached transitions whose successor shapes are still alive. */
+    final int getTransitionCount() {
+        Object trans = transitionMap;
+        if (trans == null) {
+            return 0;
+        } else if (trans instanceof TransitionEntry) {
+            return ((TransitionEntry) trans).get() != null ? 1 : 0;
         } else {
-            assert trans instanceof Map<?, ?>;
-            Map<Transition, ShapeImpl> map = (Map<Transition, ShapeImpl>) trans;
-            return map;
+            int count = 0;
+            for (TransitionEntry entry : ((TransitionMap) trans).values()) {
+                if (entry.get() != null) {
+                    count++;
+                }
+            }
+            return count;
         }
     }
 
-    @SuppressWarnings("unchecked")
     private ShapeImpl queryTransitionImpl(Transition transition) {
         Object trans = transitionMap;
         if (trans == null) {
             return null;
-        } else if (trans instanceof Map.Entry<?, ?>) {
-            Map.Entry<Transition, ShapeImpl> entry = (Map.Entry<Transition, ShapeImpl>) trans;
-            if (entry.getKey().equals(transition)) {
-                return entry.getValue();
+        } else if (trans instanceof TransitionEntry) {
+            TransitionEntry entry = (TransitionEntry) trans;
+            if (entry.transition.equals(transition)) {
+                return entry.get();
             } else {
                 return null;
             }
         } else {
-            assert trans instanceof Map<?, ?>;
-            Map<Transition, ShapeImpl> map = (Map<Transition, ShapeImpl>) trans;
-            return map.get(transition);
+            TransitionMap map = (TransitionMap) trans;
+            TransitionEntry entry = map.get(transition);
+            if (entry == null) {
+                return null;
+            }
+            ShapeImpl successor = entry.get();
+            if (successor == null) {
+                map.remove(transition, entry);
+            }
+            return successor;
+        }
+    }
+
+    /**
+     * A transition to a weakly referenced successor shape.
+     */
+    private static final class TransitionEntry extends WeakReference<ShapeImpl> {
+        final Transition transition;
+
+        TransitionEntry(Transition transition, ShapeImpl successor) {
+            super(successor);
+            this.transition = transition;
+        }
+    }
+
+    /**
+     * Transition map that removes the entries of collected successor shapes whenever it has grown
+     * to twice its size after the last cleanup.
+     */
+    private static final class TransitionMap extends ConcurrentHashMap<Transition, TransitionEntry> {
+        private static final long serialVersionUID = 3284645298456349374L;
+        private static final int MIN_CLEANUP_SIZE = 8;
+
+        /* Only a heuristic, races are benign. */
+        private int cleanupSize = MIN_CLEANUP_SIZE;
+
+        void putTransition(TransitionEntry entry) {
+            put(entry.transition, entry);
+            if (size() >= cleanupSize) {
+                for (TransitionEntry existing : values()) {
+                    if (existing.get() == null) {
+                        remove(existing.transition, existing);
+                    }
+                }
+                cleanupSize = Math.max(MIN_CLEANUP_SIZE, size() * 2);
+            }
         }
     }
 
@@ -431,6 +539,23 @@ public abstract class ShapeImpl extends Shape {
         return newShape;
     }
 
+    /**
+     * Returns a plan for copying the properties of objects with this shape to the given shape.
+     * Objects with the same shape are usually all migrated to the same target shape, so only the
+     * last plan is cached.
+     */
+    final MigrationPlan getMigrationPlan(ShapeImpl toShape) {
+        MigrationPlan plan = migrationPlan;
+        if (plan == null || !plan.isFor(toShape)) {
+            plan = MigrationPlan.create(this, toShape);
+            migrationPlan = plan;
+            if (ObjectStorageOptions.Profile) {
+                ShapeProfiler.getInstance().trackMigrationPlan(plan);
+            }
+        }
+        return plan;
+    }
+
     /** @since 0.17 or earlier */
     public final Transition getTransitionFromParent() {
         return transitionFromParent;
@@ -933,12 +1058,92 @@ public abstract class ShapeImpl extends Shape {
         return shared;
     }
 
+    /** @since 1.0 */
+    @Override
+    public final boolean hasDictionaryStorage() {
+        return dictionaryStorage;
+    }
+
+    /** @since 1.0 */
+    @TruffleBoundary
+    @Override
+    public final ShapeImpl makeDictionaryStorageShape() {
+        if (shared) {
+            throw new UnsupportedOperationException("makeDictionaryStorageShape() can only be called on non-shared shapes.");
+        }
+        if (dictionaryStorage) {
+            return this;
+        }
+
+        Transition transition = new DictionaryStorageTransition();
+        ShapeImpl cachedShape = queryTransition(transition);
+        if (cachedShape != null) {
+            return layout.getStrategy().ensureValid(cachedShape);
+        }
+
+        Property storageProperty = Property.create(DICTIONARY_STORAGE_KEY, allocator().locationForType(Object.class), 0);
+        PropertyMap newPropertyMap = propertyMap.putCopy(storageProperty);
+        BaseAllocator newAllocator = allocator().addLocation(storageProperty.getLocation());
+        ShapeImpl newShape = createShape(layout, sharedData, this, objectType, newPropertyMap, transition, newAllocator, id);
+        addDirectTransition(transition, newShape);
+        return newShape;
+    }
+
+    /** @since 1.0 */
+    @Override
+    public final ElementKind getElementKind() {
+        return elementKind;
+    }
+
+    final Property getElementsProperty() {
+        return elementsProperty;
+    }
+
+    final Property getElementCountProperty() {
+        return elementCountProperty;
+    }
+
+    /** @since 1.0 */
+    @TruffleBoundary
+    @Override
+    public final ShapeImpl changeElementKind(ElementKind newElementKind) {
+        if (newElementKind == elementKind) {
+            return this;
+        }
+        if (!ElementStorage.isMoreGeneral(newElementKind, elementKind)) {
+            throw new IllegalArgumentException("Cannot change element kind from " + elementKind + " to " + newElementKind);
+        }
+
+        Transition transition = new ElementKindTransition(newElementKind);
+        ShapeImpl cachedShape = queryTransition(transition);
+        if (cachedShape != null) {
+            return layout.getStrategy().ensureValid(cachedShape);
+        }
+
+        ShapeImpl oldShape = this;
+        if (!oldShape.hasProperty(ELEMENTS_KEY)) {
+            // the element storage properties are added on the first transition from EMPTY
+            oldShape = oldShape.addProperty(Property.create(ELEMENTS_KEY, oldShape.allocator().locationForType(Object.class), 0));
+            oldShape = oldShape.addProperty(Property.create(ELEMENT_COUNT_KEY, oldShape.allocator().locationForType(long.class), 0));
+            cachedShape = oldShape.queryTransition(transition);
+            if (cachedShape != null) {
+                return layout.getStrategy().ensureValid(cachedShape);
+            }
+        }
+        ShapeImpl newShape = createShape(layout, sharedData, oldShape, objectType, oldShape.propertyMap, transition, oldShape.allocator(), id);
+        oldShape.addDirectTransition(transition, newShape);
+        return newShape;
+    }
+
     /** @since 0.18 */
     @Override
     public Shape makeSharedShape() {
         if (shared) {
             throw new UnsupportedOperationException("makeSharedShape() can only be called on non-shared shapes.");
         }
+        if (dictionaryStorage) {
+            throw new UnsupportedOperationException("makeSharedShape() can only be called on shapes without dictionary storage.");
+        }
 
         Transition transition = new ShareShapeTransition();
         ShapeImpl cachedShape = queryTransition(transition);
@@ -32,6 +32,7 @@ import java.util.Comparator;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.object.Shape;
@@ -41,6 +42,10 @@ class ShapeProfiler {
     private static final String BULLET = "* ";
     private static final String TOKEN_SEPARATOR = "\t";
     private final ConcurrentLinkedQueue<DynamicObject> queue;
+    private final AtomicLong migrationPlans = new AtomicLong();
+    private final AtomicLong migratedObjects = new AtomicLong();
+    private final AtomicLong migratedProperties = new AtomicLong();
+    private final AtomicLong migrationRanges = new AtomicLong();
 
     ShapeProfiler() {
         queue = new ConcurrentLinkedQueue<>();
@@ -50,6 +55,16 @@ class ShapeProfiler {
         queue.add(obj);
     }
 
+    void trackMigrationPlan(@SuppressWarnings("unused") MigrationPlan plan) {
+        migrationPlans.incrementAndGet();
+    }
+
+    void trackMigration(MigrationPlan plan) {
+        migratedObjects.incrementAndGet();
+        migratedProperties.addAndGet(plan.getPropertyCount());
+        migrationRanges.addAndGet(plan.getRangeCount());
+    }
+
     public void dump(PrintWriter out) {
         ShapeStats globalStats = new ShapeStats("Cumulative results for all shapes");
         for (DynamicObject obj : queue) {
@@ -58,6 +73,19 @@ class ShapeProfiler {
         }
 
         globalStats.dump(out);
+        dumpMigrations(out);
+    }
+
+    private void dumpMigrations(PrintWriter out) {
+        out.println(LINE_SEPARATOR);
+        out.println(BULLET + "Shape migrations");
+        out.println(LINE_SEPARATOR);
+        out.println(BULLET + "Migration plans created:\t" + migrationPlans.get());
+        out.println(BULLET + "Migrated objects:\t" + migratedObjects.get());
+        out.println(BULLET + "Copied properties:\t" + migratedProperties.get());
+        out.println(BULLET + "Bulk copied array ranges:\t" + migrationRanges.get());
+        out.println(LINE_SEPARATOR + "\n");
+        out.flush();
     }
 
     public void dump(PrintWriter out, int topResults) {
@@ -26,6 +26,7 @@ package com.oracle.truffle.object;
 
 import java.util.Objects;
 
+import com.oracle.truffle.api.object.ElementKind;
 import com.oracle.truffle.api.object.ObjectType;
 import com.oracle.truffle.api.object.Property;
 
@@ -276,4 +277,59 @@ public abstract class Transition {
             return true;
         }
     }
+
+    /** @since 1.0 */
+    public static final class DictionaryStorageTransition extends Transition {
+        /** @since 1.0 */
+        public DictionaryStorageTransition() {
+        }
+
+        /** @since 1.0 */
+        @Override
+        public boolean isDirect() {
+            return true;
+        }
+    }
+
+    /** @since 1.0 */
+    public static final class ElementKindTransition extends Transition {
+        private final ElementKind elementKind;
+
+        /** @since 1.0 */
+        public ElementKindTransition(ElementKind elementKind) {
+            this.elementKind = elementKind;
+        }
+
+        /** @since 1.0 */
+        public ElementKind getElementKind() {
+            return elementKind;
+        }
+
+        /** @since 1.0 */
+        @Override
+        public boolean equals(Object other) {
+            return super.equals(other) && elementKind == ((ElementKindTransition) other).elementKind;
+        }
+
+        /** @since 1.0 */
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = super.hashCode();
+            result = prime * result + elementKind.hashCode();
+            return result;
+        }
+
+        /** @since 1.0 */
+        @Override
+        public boolean isDirect() {
+            return true;
+        }
+
+        /** @since 1.0 */
+        @Override
+        public String toString() {
+            return String.format("elementKind(%s)", getElementKind());
+        }
+    }
 }